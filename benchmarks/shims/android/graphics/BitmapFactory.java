@@ -0,0 +1,52 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.graphics;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Plain java stand-in of the android class, with the part of the api used by the benchmarked sources.
+ * <p>
+ * <p>Only the size of png images is read.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class BitmapFactory {
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+
+    public static Bitmap decodeStream(InputStream inputStream) {
+        if (inputStream == null) {
+            return null;
+        }
+        try {
+            DataInputStream dataInputStream = new DataInputStream(inputStream);
+            if (dataInputStream.readLong() != PNG_SIGNATURE) {
+                return null;
+            }
+            // the IHDR chunk: length and type, then width and height
+            dataInputStream.readLong();
+            int width = dataInputStream.readInt();
+            int height = dataInputStream.readInt();
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.graphics;
+
+/**
+ * Plain java stand-in of the android class, with the part of the api used by the benchmarked sources.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class Color {
+    public static final int BLACK = 0xFF000000;
+    public static final int TRANSPARENT = 0;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    public static int parseColor(String colorString) {
+        if (colorString.length() != 7 && colorString.length() != 9 || colorString.charAt(0) != '#') {
+            throw new IllegalArgumentException("Unknown color: " + colorString);
+        }
+        long color = Long.parseLong(colorString.substring(1), 16);
+        if (colorString.length() == 7) {
+            color |= 0xFF000000L;
+        }
+        return (int) color;
+    }
+}
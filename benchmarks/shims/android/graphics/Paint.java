@@ -0,0 +1,112 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.graphics;
+
+/**
+ * Plain java stand-in of the android class, with the part of the api used by the benchmarked sources.
+ * <p>
+ * <p>Text is measured as if every character was a box of 0.6 times the text size.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class Paint {
+    public static final int ANTI_ALIAS_FLAG = 1;
+
+    public enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    public enum Cap {
+        BUTT, ROUND, SQUARE
+    }
+
+    public enum Style {
+        FILL, STROKE, FILL_AND_STROKE
+    }
+
+    private int color = Color.BLACK;
+    private PathEffect pathEffect;
+    private Shader shader;
+    private Cap strokeCap = Cap.BUTT;
+    private float strokeWidth;
+    private Style style = Style.FILL;
+    private Align textAlign = Align.LEFT;
+    private float textSize = 12f;
+    private Typeface typeface;
+
+    public Paint() {
+    }
+
+    public Paint(int flags) {
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public PathEffect setPathEffect(PathEffect pathEffect) {
+        this.pathEffect = pathEffect;
+        return pathEffect;
+    }
+
+    public Shader setShader(Shader shader) {
+        this.shader = shader;
+        return shader;
+    }
+
+    public void setStrokeCap(Cap strokeCap) {
+        this.strokeCap = strokeCap;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public void setStyle(Style style) {
+        this.style = style;
+    }
+
+    public void setTextAlign(Align textAlign) {
+        this.textAlign = textAlign;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public void setTextSize(float textSize) {
+        this.textSize = textSize;
+    }
+
+    public Typeface setTypeface(Typeface typeface) {
+        this.typeface = typeface;
+        return typeface;
+    }
+
+    public void getTextBounds(String text, int start, int end, Rect bounds) {
+        bounds.set(0, -Math.round(textSize), Math.round((end - start) * textSize * 0.6f), 0);
+    }
+}
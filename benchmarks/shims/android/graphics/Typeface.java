@@ -0,0 +1,50 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.graphics;
+
+/**
+ * Plain java stand-in of the android class, with the part of the api used by the benchmarked sources.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class Typeface {
+    public static final int NORMAL = 0;
+    public static final int BOLD = 1;
+    public static final int ITALIC = 2;
+    public static final int BOLD_ITALIC = 3;
+
+    public static final Typeface DEFAULT = new Typeface(NORMAL);
+    public static final Typeface DEFAULT_BOLD = new Typeface(BOLD);
+    public static final Typeface MONOSPACE = new Typeface(NORMAL);
+    public static final Typeface SANS_SERIF = new Typeface(NORMAL);
+    public static final Typeface SERIF = new Typeface(NORMAL);
+
+    private final int style;
+
+    private Typeface(int style) {
+        this.style = style;
+    }
+
+    public static Typeface create(Typeface family, int style) {
+        return new Typeface(style);
+    }
+
+    public int getStyle() {
+        return style;
+    }
+}
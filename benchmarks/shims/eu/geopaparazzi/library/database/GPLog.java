@@ -0,0 +1,34 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.database;
+
+/**
+ * Plain java stand-in of the log of the library, with the part of the api used by the benchmarked sources.
+ * <p>
+ * <p>Errors are printed to the standard error instead of being stored in the database.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class GPLog {
+
+    public static void error(Object caller, String msg, Throwable t) {
+        String prefix = caller == null ? "" : caller.getClass().getSimpleName() + ": ";
+        System.err.println(prefix + (msg == null ? t.getLocalizedMessage() : msg));
+        t.printStackTrace();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+
+import java.util.Random;
+
+/**
+ * Synthetic fixtures for the benchmarks.
+ * <p>
+ * <p>All fixtures are created from a {@link Random} with a fixed seed, so that
+ * every run of a benchmark works on exactly the same data.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class BenchmarkFixtures {
+
+    /**
+     * The seed used for all fixtures.
+     */
+    public static final long SEED = 1234;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @return a new random generator with the fixed seed.
+     */
+    public static Random newRandom() {
+        return new Random(SEED);
+    }
+
+    /**
+     * Create a random walk in lon/lat, as recorded by a gps log.
+     *
+     * @param random the random generator.
+     * @param count  the number of coordinates.
+     * @param step   the maximum step in degrees.
+     * @return the coordinates of the walk.
+     */
+    public static Coordinate[] randomWalk(Random random, int count, double step) {
+        Coordinate[] coordinates = new Coordinate[count];
+        double lon = 11.0;
+        double lat = 46.0;
+        for (int i = 0; i < count; i++) {
+            lon += (random.nextDouble() - 0.5) * step;
+            lat += (random.nextDouble() - 0.5) * step;
+            coordinates[i] = new Coordinate(lon, lat);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Create random star shaped polygons, which are always valid.
+     *
+     * @param factory   the geometry factory.
+     * @param random    the random generator.
+     * @param count     the number of polygons.
+     * @param vertices  the number of vertices of each polygon.
+     * @param minX      the min x of the area the polygons are placed in.
+     * @param minY      the min y of the area the polygons are placed in.
+     * @param maxX      the max x of the area the polygons are placed in.
+     * @param maxY      the max y of the area the polygons are placed in.
+     * @param maxRadius the maximum radius of a polygon.
+     * @return the polygons.
+     */
+    public static Polygon[] randomPolygons(GeometryFactory factory, Random random, int count, int vertices, double minX,
+                                           double minY, double maxX, double maxY, double maxRadius) {
+        Polygon[] polygons = new Polygon[count];
+        for (int i = 0; i < count; i++) {
+            double centerX = minX + random.nextDouble() * (maxX - minX);
+            double centerY = minY + random.nextDouble() * (maxY - minY);
+            Coordinate[] ring = new Coordinate[vertices + 1];
+            for (int j = 0; j < vertices; j++) {
+                double angle = 2 * Math.PI * j / vertices;
+                double radius = maxRadius * (0.3 + 0.7 * random.nextDouble());
+                ring[j] = new Coordinate(centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle));
+            }
+            ring[vertices] = new Coordinate(ring[0]);
+            LinearRing shell = factory.createLinearRing(ring);
+            polygons[i] = factory.createPolygon(shell, null);
+        }
+        return polygons;
+    }
+
+    /**
+     * Create random lon/lat positions.
+     *
+     * @param random the random generator.
+     * @param count  the number of positions.
+     * @param minLon the min longitude.
+     * @param minLat the min latitude.
+     * @param maxLon the max longitude.
+     * @param maxLat the max latitude.
+     * @return the positions as [lon, lat] pairs.
+     */
+    public static double[][] randomPositions(Random random, int count, double minLon, double minLat, double maxLon,
+                                             double maxLat) {
+        double[][] positions = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double lon = minLon + random.nextDouble() * (maxLon - minLon);
+            double lat = minLat + random.nextDouble() * (maxLat - minLat);
+            positions[i] = new double[]{lon, lat};
+        }
+        return positions;
+    }
+}
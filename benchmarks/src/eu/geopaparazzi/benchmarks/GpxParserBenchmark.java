@@ -0,0 +1,176 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import eu.geopaparazzi.library.gpx.parser.GpxListener;
+import eu.geopaparazzi.library.gpx.parser.GpxParser;
+
+/**
+ * Benchmarks of the parsing of a gpx file, once kept in memory and once streamed to a listener.
+ * <p>
+ * <p>The gpx file is written to a temporary file from a fixed seed random walk, with
+ * time and elevation on every track point.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GpxParserBenchmark {
+    private static final int TRACKS = 4;
+    private static final int WAYPOINTS = 100;
+
+    /**
+     * The number of track points of every track.
+     */
+    @Param({"1000", "10000"})
+    public int pointsPerTrack;
+
+    private File gpxFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = BenchmarkFixtures.newRandom();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long time = 1500000000000L;
+
+        gpxFile = File.createTempFile("benchmark", ".gpx");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(gpxFile));
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<gpx version=\"1.1\" creator=\"benchmark\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+            double[][] positions = BenchmarkFixtures.randomPositions(random, WAYPOINTS, 11.0, 46.0, 11.5, 46.5);
+            for (int i = 0; i < positions.length; i++) {
+                writer.write("<wpt lat=\"" + positions[i][1] + "\" lon=\"" + positions[i][0] + "\">");
+                writer.write("<ele>" + (1000 + random.nextInt(2000)) + "</ele>");
+                writer.write("<name>waypoint " + i + "</name><desc>description of waypoint " + i + "</desc></wpt>\n");
+            }
+            for (int i = 0; i < TRACKS; i++) {
+                writer.write("<trk><name>track " + i + "</name><trkseg>\n");
+                Coordinate[] walk = BenchmarkFixtures.randomWalk(random, pointsPerTrack, 0.0002);
+                for (Coordinate coordinate : walk) {
+                    time += 1000;
+                    writer.write("<trkpt lat=\"" + coordinate.y + "\" lon=\"" + coordinate.x + "\">");
+                    writer.write("<ele>" + (1000 + random.nextDouble() * 10) + "</ele>");
+                    writer.write("<time>" + dateFormat.format(new Date(time)) + "</time></trkpt>\n");
+                }
+                writer.write("</trkseg></trk>\n");
+            }
+            writer.write("</gpx>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (gpxFile != null && !gpxFile.delete()) {
+            gpxFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public int parse() {
+        GpxParser gpxParser = new GpxParser(gpxFile.getAbsolutePath());
+        if (!gpxParser.parse()) {
+            throw new IllegalStateException("Could not parse " + gpxFile);
+        }
+        int count = gpxParser.getWayPoints().size();
+        List<GpxParser.TrackSegment> tracks = gpxParser.getTracks();
+        for (GpxParser.TrackSegment track : tracks) {
+            count += track.getPoints().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int parseStreamed() throws Exception {
+        CountingListener listener = new CountingListener();
+        GpxParser gpxParser = new GpxParser(gpxFile.getAbsolutePath());
+        if (!gpxParser.parse(listener)) {
+            throw new IllegalStateException("Could not parse " + gpxFile);
+        }
+        return listener.count;
+    }
+
+    private static class CountingListener implements GpxListener {
+        private int count;
+
+        @Override
+        public void onWayPoint(double longitude, double latitude, double elevation, String name, String description) {
+            count++;
+        }
+
+        @Override
+        public void onTrackSegmentStart() {
+        }
+
+        @Override
+        public void onTrackPoint(double longitude, double latitude, double elevation, long time) {
+            count++;
+        }
+
+        @Override
+        public void onTrackSegmentEnd(String name) {
+        }
+
+        @Override
+        public void onRouteStart() {
+        }
+
+        @Override
+        public void onRoutePoint(double longitude, double latitude) {
+            count++;
+        }
+
+        @Override
+        public void onRouteEnd() {
+        }
+    }
+}
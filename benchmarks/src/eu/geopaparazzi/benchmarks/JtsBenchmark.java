@@ -0,0 +1,145 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.simplify.DouglasPeuckerSimplifier;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the jts operations used by the spatialite vector layers.
+ * <p>
+ * <p>The geometries of a frame are parsed from wkb, queried through an {@link STRtree}
+ * and simplified before being drawn, these are the operations measured here.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JtsBenchmark {
+
+    private static final double WORLD_SIZE = 10000.0;
+
+    @Param({"1000"})
+    public int polygonCount;
+
+    @Param({"10000"})
+    public int lineLength;
+
+    private GeometryFactory factory;
+    private byte[][] wkbPolygons;
+    private Polygon[] polygons;
+    private STRtree tree;
+    private Envelope[] queryEnvelopes;
+    private LineString line;
+
+    @Setup
+    public void setup() {
+        Random random = BenchmarkFixtures.newRandom();
+        factory = new GeometryFactory();
+        polygons = BenchmarkFixtures.randomPolygons(factory, random, polygonCount, 32, 0, 0, WORLD_SIZE, WORLD_SIZE, 50);
+
+        WKBWriter wkbWriter = new WKBWriter();
+        wkbPolygons = new byte[polygons.length][];
+        for (int i = 0; i < polygons.length; i++) {
+            wkbPolygons[i] = wkbWriter.write(polygons[i]);
+        }
+
+        tree = buildTree(polygons);
+
+        queryEnvelopes = new Envelope[100];
+        for (int i = 0; i < queryEnvelopes.length; i++) {
+            double x = random.nextDouble() * WORLD_SIZE * 0.9;
+            double y = random.nextDouble() * WORLD_SIZE * 0.9;
+            queryEnvelopes[i] = new Envelope(x, x + WORLD_SIZE * 0.1, y, y + WORLD_SIZE * 0.1);
+        }
+
+        Coordinate[] walk = BenchmarkFixtures.randomWalk(random, lineLength, 0.0001);
+        line = factory.createLineString(walk);
+    }
+
+    private static STRtree buildTree(Polygon[] polygons) {
+        STRtree tree = new STRtree();
+        for (Polygon polygon : polygons) {
+            tree.insert(polygon.getEnvelopeInternal(), polygon);
+        }
+        tree.build();
+        return tree;
+    }
+
+    @Benchmark
+    public void wkbRead(Blackhole blackhole) throws ParseException {
+        WKBReader wkbReader = new WKBReader(factory);
+        for (byte[] wkb : wkbPolygons) {
+            blackhole.consume(wkbReader.read(wkb));
+        }
+    }
+
+    @Benchmark
+    public STRtree strtreeBuild() {
+        return buildTree(polygons);
+    }
+
+    @Benchmark
+    public void strtreeQuery(Blackhole blackhole) {
+        for (Envelope envelope : queryEnvelopes) {
+            List<?> result = tree.query(envelope);
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    public Geometry douglasPeuckerSimplify() {
+        return DouglasPeuckerSimplifier.simplify(line, 0.00005);
+    }
+
+    @Benchmark
+    public Geometry topologyPreservingSimplify() {
+        return TopologyPreservingSimplifier.simplify(line, 0.00005);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.MapDatabase;
+import org.mapsforge.map.reader.MapReadCallback;
+import org.mapsforge.map.reader.MapReadResult;
+import org.mapsforge.map.reader.header.FileOpenResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the decoding of the tiles of a mapsforge .map file.
+ * <p>
+ * <p>By default the fixed seed fixture written by {@link MapFileFixture} is read. A real
+ * .map file can be passed with the <code>mapFile</code> parameter or the
+ * <code>benchmark.mapfile</code> system property. The benchmark always reads the same square
+ * of tiles around the center of the map, so that runs on the same file are comparable.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapDatabaseBenchmark {
+
+    /**
+     * The system property holding the path to the .map file.
+     */
+    public static final String MAPFILE_PROPERTY = "benchmark.mapfile";
+
+    @Param({""})
+    public String mapFile;
+
+    @Param({"14"})
+    public int zoom;
+
+    @Param({"8"})
+    public int tilesPerSide;
+
+    private MapDatabase mapDatabase;
+    private List<Tile> tiles;
+    private File fixtureFile;
+
+    @Setup
+    public void setup() throws IOException {
+        String path = mapFile;
+        if (path == null || path.length() == 0) {
+            path = System.getProperty(MAPFILE_PROPERTY);
+        }
+        File file;
+        if (path == null || path.length() == 0) {
+            fixtureFile = MapFileFixture.createTempFile();
+            file = fixtureFile;
+        } else {
+            file = new File(path);
+        }
+
+        mapDatabase = new MapDatabase();
+        FileOpenResult fileOpenResult = mapDatabase.openFile(file);
+        if (!fileOpenResult.isSuccess()) {
+            throw new IllegalStateException(fileOpenResult.getErrorMessage());
+        }
+
+        byte zoomLevel = (byte) zoom;
+        BoundingBox boundingBox = mapDatabase.getMapFileInfo().boundingBox;
+        long minTileX = MercatorProjection.longitudeToTileX(boundingBox.getMinLongitude(), zoomLevel);
+        long maxTileX = MercatorProjection.longitudeToTileX(boundingBox.getMaxLongitude(), zoomLevel);
+        long minTileY = MercatorProjection.latitudeToTileY(boundingBox.getMaxLatitude(), zoomLevel);
+        long maxTileY = MercatorProjection.latitudeToTileY(boundingBox.getMinLatitude(), zoomLevel);
+
+        long startX = Math.max(minTileX, (minTileX + maxTileX - tilesPerSide) / 2);
+        long startY = Math.max(minTileY, (minTileY + maxTileY - tilesPerSide) / 2);
+        long endX = Math.min(maxTileX, startX + tilesPerSide - 1);
+        long endY = Math.min(maxTileY, startY + tilesPerSide - 1);
+
+        tiles = new ArrayList<Tile>();
+        for (long tileY = startY; tileY <= endY; tileY++) {
+            for (long tileX = startX; tileX <= endX; tileX++) {
+                tiles.add(new Tile(tileX, tileY, zoomLevel));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mapDatabase != null) {
+            mapDatabase.closeFile();
+        }
+        if (fixtureFile != null && !fixtureFile.delete()) {
+            fixtureFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public void readMapData(Blackhole blackhole) {
+        for (Tile tile : tiles) {
+            MapReadResult mapReadResult = mapDatabase.readMapData(tile);
+            blackhole.consume(mapReadResult);
+        }
+    }
+
+    @Benchmark
+    public void readMapDataStreamed(final Blackhole blackhole) {
+        MapReadCallback mapReadCallback = new MapReadCallback() {
+            @Override
+            public void readPointOfInterest(byte layer, List<Tag> tags, int latitudeE6, int longitudeE6) {
+                blackhole.consume(latitudeE6);
+                blackhole.consume(longitudeE6);
+            }
+
+            @Override
+            public void readWay(byte layer, List<Tag> tags, float[][] wayNodes) {
+                blackhole.consume(wayNodes);
+            }
+        };
+        for (Tile tile : tiles) {
+            blackhole.consume(mapDatabase.readMapData(tile, mapReadCallback));
+        }
+    }
+}
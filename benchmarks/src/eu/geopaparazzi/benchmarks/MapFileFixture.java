@@ -0,0 +1,373 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import org.mapsforge.core.util.MercatorProjection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a small synthetic mapsforge .map file (version 3) to be used as fixture.
+ * <p>
+ * <p>The file covers a few kilometers around lon 11.1, lat 46.07 with a single sub-file
+ * of base zoom level 14. Every block holds points of interest and roads, streams, buildings
+ * and areas created from {@link BenchmarkFixtures#newRandom()}, so the same file is written
+ * on every run.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class MapFileFixture {
+
+    /**
+     * The bounds of the map as min lon, min lat, max lon, max lat.
+     */
+    public static final double[] BOUNDS = {11.0, 46.0, 11.2, 46.15};
+
+    private static final String MAGIC_BYTE = "mapsforge binary OSM";
+    private static final int FILE_VERSION = 3;
+    private static final long MAP_DATE = 1500000000000L;
+    private static final byte BASE_ZOOM_LEVEL = 14;
+    private static final byte ZOOM_LEVEL_MIN = 12;
+    private static final byte ZOOM_LEVEL_MAX = 21;
+    private static final int DEFAULT_LAYER = 5;
+
+    private static final String[] POI_TAGS = {"amenity=restaurant", "amenity=parking", "natural=peak",
+            "place=village", "shop=supermarket", "tourism=hotel"};
+    private static final String[] WAY_TAGS = {"highway=primary", "highway=residential", "highway=track",
+            "waterway=stream", "building=yes", "landuse=forest", "natural=water"};
+    private static final int WAY_TAG_STREAM = 3;
+    private static final int WAY_TAG_BUILDING = 4;
+
+    private static final int POIS_PER_BLOCK = 20;
+    private static final int WAYS_PER_BLOCK = 40;
+
+    private static final int POI_FEATURE_NAME = 0x80;
+    private static final int WAY_FEATURE_NAME = 0x80;
+    private static final int WAY_FEATURE_DOUBLE_DELTA_ENCODING = 0x04;
+
+    private MapFileFixture() {
+    }
+
+    /**
+     * Write the fixture to a new temporary file.
+     *
+     * @return the written .map file, to be deleted by the caller.
+     * @throws IOException if the file could not be written.
+     */
+    public static File createTempFile() throws IOException {
+        File file = File.createTempFile("benchmark", ".map");
+        write(file);
+        return file;
+    }
+
+    /**
+     * Write the fixture.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(File file) throws IOException {
+        Random random = BenchmarkFixtures.newRandom();
+        long left = MercatorProjection.longitudeToTileX(BOUNDS[0], BASE_ZOOM_LEVEL);
+        long right = MercatorProjection.longitudeToTileX(BOUNDS[2], BASE_ZOOM_LEVEL);
+        long top = MercatorProjection.latitudeToTileY(BOUNDS[3], BASE_ZOOM_LEVEL);
+        long bottom = MercatorProjection.latitudeToTileY(BOUNDS[1], BASE_ZOOM_LEVEL);
+        int numberOfBlocks = (int) ((right - left + 1) * (bottom - top + 1));
+
+        // the blocks follow the index, their offsets are relative to the start of the sub-file
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexData = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexData);
+        long indexSize = (long) numberOfBlocks * 5;
+        for (long tileY = top; tileY <= bottom; tileY++) {
+            for (long tileX = left; tileX <= right; tileX++) {
+                long offset = indexSize + blocks.size();
+                index.writeByte((int) (offset >>> 32));
+                index.writeInt((int) offset);
+                writeBlock(blocks, random, tileX, tileY);
+            }
+        }
+        index.flush();
+        byte[] indexBytes = indexData.toByteArray();
+        byte[] blockBytes = blocks.toByteArray();
+        long subFileSize = indexBytes.length + blockBytes.length;
+
+        // the header size does not depend on the values of the addresses
+        int headerSize = header(0, 0, 0).length;
+        byte[] header = header(headerSize + subFileSize, headerSize, subFileSize);
+
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(header);
+            outputStream.write(indexBytes);
+            outputStream.write(blockBytes);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static byte[] header(long fileSize, long startAddress, long subFileSize) throws IOException {
+        ByteArrayOutputStream remaining = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(remaining);
+        out.writeInt(FILE_VERSION);
+        out.writeLong(fileSize);
+        out.writeLong(MAP_DATE);
+        out.writeInt(toE6(BOUNDS[1]));
+        out.writeInt(toE6(BOUNDS[0]));
+        out.writeInt(toE6(BOUNDS[3]));
+        out.writeInt(toE6(BOUNDS[2]));
+        out.writeShort(256);
+        writeString(remaining, "Mercator");
+        // no optional fields
+        out.writeByte(0);
+        out.writeShort(POI_TAGS.length);
+        for (String tag : POI_TAGS) {
+            writeString(remaining, tag);
+        }
+        out.writeShort(WAY_TAGS.length);
+        for (String tag : WAY_TAGS) {
+            writeString(remaining, tag);
+        }
+        out.writeByte(1);
+        out.writeByte(BASE_ZOOM_LEVEL);
+        out.writeByte(ZOOM_LEVEL_MIN);
+        out.writeByte(ZOOM_LEVEL_MAX);
+        out.writeLong(startAddress);
+        out.writeLong(subFileSize);
+        out.flush();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeBytes(MAGIC_BYTE);
+        headerOut.writeInt(remaining.size());
+        remaining.writeTo(headerOut);
+        headerOut.flush();
+        return header.toByteArray();
+    }
+
+    /**
+     * An element of a block with the first zoom level it is visible at.
+     */
+    private static class Element {
+        final int zoomLevel;
+        final byte[] data;
+
+        Element(int zoomLevel, byte[] data) {
+            this.zoomLevel = zoomLevel;
+            this.data = data;
+        }
+    }
+
+    private static void writeBlock(ByteArrayOutputStream block, Random random, long tileX, long tileY) {
+        // the reader decodes the coordinates relative to the truncated microdegrees of the tile origin
+        int tileLatitude = (int) (MercatorProjection.tileYToLatitude(tileY, BASE_ZOOM_LEVEL) * 1000000);
+        int tileLongitude = (int) (MercatorProjection.tileXToLongitude(tileX, BASE_ZOOM_LEVEL) * 1000000);
+        int tileBottom = (int) (MercatorProjection.tileYToLatitude(tileY + 1, BASE_ZOOM_LEVEL) * 1000000);
+        int tileRight = (int) (MercatorProjection.tileXToLongitude(tileX + 1, BASE_ZOOM_LEVEL) * 1000000);
+        int height = tileLatitude - tileBottom;
+        int width = tileRight - tileLongitude;
+
+        List<Element> pois = new ArrayList<Element>();
+        for (int i = 0; i < POIS_PER_BLOCK; i++) {
+            ByteArrayOutputStream poi = new ByteArrayOutputStream();
+            writeSignedInt(poi, -random.nextInt(height));
+            writeSignedInt(poi, random.nextInt(width));
+            poi.write(DEFAULT_LAYER << 4 | 1);
+            writeUnsignedInt(poi, random.nextInt(POI_TAGS.length));
+            if (random.nextBoolean()) {
+                poi.write(POI_FEATURE_NAME);
+                writeString(poi, "Poi " + i);
+            } else {
+                poi.write(0);
+            }
+            pois.add(new Element(ZOOM_LEVEL_MIN + random.nextInt(5), poi.toByteArray()));
+        }
+
+        List<Element> ways = new ArrayList<Element>();
+        for (int i = 0; i < WAYS_PER_BLOCK; i++) {
+            int tagId = random.nextInt(WAY_TAGS.length);
+            int[] nodes;
+            if (tagId < WAY_TAG_BUILDING) {
+                nodes = walk(random, 10 + random.nextInt(40), height, width);
+            } else if (tagId == WAY_TAG_BUILDING) {
+                nodes = star(random, 4, height, width, 300);
+            } else {
+                nodes = star(random, 12 + random.nextInt(24), height, width, 3000);
+            }
+            // lines use the double delta encoding and rings the single delta one, so both decoders are read
+            boolean doubleDelta = tagId <= WAY_TAG_STREAM;
+            boolean named = doubleDelta && random.nextBoolean();
+
+            ByteArrayOutputStream way = new ByteArrayOutputStream();
+            // all sub-tiles of the block
+            way.write(0xff);
+            way.write(0xff);
+            way.write(DEFAULT_LAYER << 4 | 1);
+            writeUnsignedInt(way, tagId);
+            way.write((named ? WAY_FEATURE_NAME : 0) | (doubleDelta ? WAY_FEATURE_DOUBLE_DELTA_ENCODING : 0));
+            if (named) {
+                writeString(way, "Way " + i);
+            }
+            // one way data block with one coordinate block
+            writeUnsignedInt(way, 1);
+            writeUnsignedInt(way, nodes.length / 2);
+            writeWayNodes(way, nodes, doubleDelta);
+
+            ByteArrayOutputStream sizedWay = new ByteArrayOutputStream();
+            writeUnsignedInt(sizedWay, way.size());
+            byte[] wayData = way.toByteArray();
+            sizedWay.write(wayData, 0, wayData.length);
+            ways.add(new Element(ZOOM_LEVEL_MIN + random.nextInt(5), sizedWay.toByteArray()));
+        }
+
+        // the elements are sorted by zoom level, the zoom table holds the count per zoom level
+        Comparator<Element> byZoomLevel = new Comparator<Element>() {
+            @Override
+            public int compare(Element lhs, Element rhs) {
+                return lhs.zoomLevel < rhs.zoomLevel ? -1 : (lhs.zoomLevel == rhs.zoomLevel ? 0 : 1);
+            }
+        };
+        Collections.sort(pois, byZoomLevel);
+        Collections.sort(ways, byZoomLevel);
+        for (int zoomLevel = ZOOM_LEVEL_MIN; zoomLevel <= ZOOM_LEVEL_MAX; zoomLevel++) {
+            writeUnsignedInt(block, count(pois, zoomLevel));
+            writeUnsignedInt(block, count(ways, zoomLevel));
+        }
+
+        ByteArrayOutputStream poiData = new ByteArrayOutputStream();
+        for (Element poi : pois) {
+            poiData.write(poi.data, 0, poi.data.length);
+        }
+        writeUnsignedInt(block, poiData.size());
+        byte[] poiBytes = poiData.toByteArray();
+        block.write(poiBytes, 0, poiBytes.length);
+        for (Element way : ways) {
+            block.write(way.data, 0, way.data.length);
+        }
+    }
+
+    private static int count(List<Element> elements, int zoomLevel) {
+        int count = 0;
+        for (Element element : elements) {
+            if (element.zoomLevel == zoomLevel) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return a random walk inside the tile as lat, lon offsets from the tile origin.
+     */
+    private static int[] walk(Random random, int count, int height, int width) {
+        int[] nodes = new int[count * 2];
+        int lat = -random.nextInt(height);
+        int lon = random.nextInt(width);
+        int stepLat = height / 20;
+        int stepLon = width / 20;
+        for (int i = 0; i < count; i++) {
+            lat = Math.max(-height, Math.min(0, lat + random.nextInt(2 * stepLat + 1) - stepLat));
+            lon = Math.max(0, Math.min(width, lon + random.nextInt(2 * stepLon + 1) - stepLon));
+            nodes[2 * i] = lat;
+            nodes[2 * i + 1] = lon;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return a closed star shaped ring inside the tile as lat, lon offsets from the tile origin.
+     */
+    private static int[] star(Random random, int vertices, int height, int width, int maxRadius) {
+        int[] nodes = new int[(vertices + 1) * 2];
+        int centerLat = -maxRadius - random.nextInt(height - 2 * maxRadius);
+        int centerLon = maxRadius + random.nextInt(width - 2 * maxRadius);
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double radius = maxRadius * (0.3 + 0.7 * random.nextDouble());
+            nodes[2 * i] = centerLat + (int) (radius * Math.sin(angle));
+            nodes[2 * i + 1] = centerLon + (int) (radius * Math.cos(angle));
+        }
+        nodes[2 * vertices] = nodes[0];
+        nodes[2 * vertices + 1] = nodes[1];
+        return nodes;
+    }
+
+    private static void writeWayNodes(ByteArrayOutputStream out, int[] nodes, boolean doubleDelta) {
+        writeSignedInt(out, nodes[0]);
+        writeSignedInt(out, nodes[1]);
+        int previousDeltaLat = 0;
+        int previousDeltaLon = 0;
+        for (int i = 2; i < nodes.length; i += 2) {
+            int deltaLat = nodes[i] - nodes[i - 2];
+            int deltaLon = nodes[i + 1] - nodes[i - 1];
+            if (doubleDelta) {
+                writeSignedInt(out, deltaLat - previousDeltaLat);
+                writeSignedInt(out, deltaLon - previousDeltaLon);
+            } else {
+                writeSignedInt(out, deltaLat);
+                writeSignedInt(out, deltaLon);
+            }
+            previousDeltaLat = deltaLat;
+            previousDeltaLon = deltaLon;
+        }
+    }
+
+    private static void writeUnsignedInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeSignedInt(ByteArrayOutputStream out, int value) {
+        int sign = value < 0 ? 0x40 : 0;
+        int absolute = Math.abs(value);
+        while ((absolute & ~0x3f) != 0) {
+            out.write(absolute & 0x7f | 0x80);
+            absolute >>>= 7;
+        }
+        out.write(absolute | sign);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes;
+        try {
+            bytes = value.getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        writeUnsignedInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static int toE6(double degrees) {
+        return (int) Math.round(degrees * 1000000);
+    }
+}
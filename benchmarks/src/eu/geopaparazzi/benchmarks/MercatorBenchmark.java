@@ -0,0 +1,101 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.benchmarks;
+
+import org.mapsforge.core.util.MercatorProjection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import eu.geopaparazzi.library.util.MercatorUtils;
+
+/**
+ * Benchmarks of the mercator tile math, which runs for every tile of a frame and
+ * for every position projected on the map.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MercatorBenchmark {
+
+    private static final int TILE_SIZE = 256;
+
+    @Param({"16"})
+    public int zoom;
+
+    private double[][] positions;
+
+    @Setup
+    public void setup() {
+        positions = BenchmarkFixtures.randomPositions(BenchmarkFixtures.newRandom(), 1000, -180, -85, 180, 85);
+    }
+
+    @Benchmark
+    public void mercatorUtilsLatLonToTile(Blackhole blackhole) {
+        for (double[] position : positions) {
+            double[] meters = MercatorUtils.latLonToMeters(position[1], position[0]);
+            int[] tile = MercatorUtils.metersToTile(meters[0], meters[1], zoom, TILE_SIZE);
+            blackhole.consume(tile);
+        }
+    }
+
+    @Benchmark
+    public void mercatorUtilsTileBounds(Blackhole blackhole) {
+        for (double[] position : positions) {
+            double[] meters = MercatorUtils.latLonToMeters(position[1], position[0]);
+            int[] tile = MercatorUtils.metersToTile(meters[0], meters[1], zoom, TILE_SIZE);
+            blackhole.consume(MercatorUtils.tileLatLonBounds(tile[0], tile[1], zoom, TILE_SIZE));
+        }
+    }
+
+    @Benchmark
+    public void mercatorProjectionLatLonToPixel(Blackhole blackhole) {
+        byte zoomLevel = (byte) zoom;
+        for (double[] position : positions) {
+            blackhole.consume(MercatorProjection.longitudeToPixelX(position[0], zoomLevel));
+            blackhole.consume(MercatorProjection.latitudeToPixelY(position[1], zoomLevel));
+        }
+    }
+
+    @Benchmark
+    public void mercatorProjectionTileToLatLon(Blackhole blackhole) {
+        byte zoomLevel = (byte) zoom;
+        for (double[] position : positions) {
+            long tileX = MercatorProjection.longitudeToTileX(position[0], zoomLevel);
+            long tileY = MercatorProjection.latitudeToTileY(position[1], zoomLevel);
+            blackhole.consume(MercatorProjection.tileXToLongitude(tileX, zoomLevel));
+            blackhole.consume(MercatorProjection.tileYToLatitude(tileY, zoomLevel));
+        }
+    }
+}
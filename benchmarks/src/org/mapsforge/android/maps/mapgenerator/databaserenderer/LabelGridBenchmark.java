@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.mapgenerator.databaserenderer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mapsforge.core.model.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.geopaparazzi.benchmarks.BenchmarkFixtures;
+
+/**
+ * Benchmarks the collision tests of the label placement. The greedy placement of a tile is run on a fixed set of
+ * label rectangles, once with the {@link LabelGrid} and once with a linear scan over the placed rectangles as
+ * baseline.
+ * <p>
+ * The whole label placement of a tile is measured by the {@link LabelPlacementBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelGridBenchmark {
+	private static final int MAX_LABEL_HEIGHT = 20;
+	private static final int MAX_LABEL_WIDTH = 120;
+
+	/**
+	 * The number of candidate labels of a tile.
+	 */
+	@Param({ "200", "1000" })
+	public int labelCount;
+
+	private LabelGrid labelGrid;
+	private int[] placed;
+	private int[] rectangles;
+
+	@Setup
+	public void setup() {
+		Random random = BenchmarkFixtures.newRandom();
+		this.rectangles = new int[this.labelCount * 4];
+		for (int i = 0; i < this.labelCount; i++) {
+			int width = 10 + random.nextInt(MAX_LABEL_WIDTH - 10);
+			int height = 8 + random.nextInt(MAX_LABEL_HEIGHT - 8);
+			int left = random.nextInt(Tile.TILE_SIZE + width) - width;
+			int top = random.nextInt(Tile.TILE_SIZE + height) - height;
+			this.rectangles[i * 4] = left;
+			this.rectangles[i * 4 + 1] = top;
+			this.rectangles[i * 4 + 2] = left + width;
+			this.rectangles[i * 4 + 3] = top + height;
+		}
+		this.labelGrid = new LabelGrid();
+		this.placed = new int[this.rectangles.length];
+	}
+
+	@Benchmark
+	public int placeWithGrid() {
+		this.labelGrid.clear();
+		int placedCount = 0;
+		int[] r = this.rectangles;
+		for (int i = 0; i < r.length; i += 4) {
+			if (!this.labelGrid.intersects(r[i], r[i + 1], r[i + 2], r[i + 3])) {
+				this.labelGrid.add(r[i], r[i + 1], r[i + 2], r[i + 3]);
+				++placedCount;
+			}
+		}
+		return placedCount;
+	}
+
+	@Benchmark
+	public int placeWithLinearScan() {
+		int placedCount = 0;
+		int[] r = this.rectangles;
+		int[] p = this.placed;
+		for (int i = 0; i < r.length; i += 4) {
+			boolean intersects = false;
+			for (int j = 0; j < placedCount * 4; j += 4) {
+				if (r[i] < p[j + 2] && p[j] < r[i + 2] && r[i + 1] < p[j + 3] && p[j + 1] < r[i + 3]) {
+					intersects = true;
+					break;
+				}
+			}
+			if (!intersects) {
+				System.arraycopy(r, i, p, placedCount * 4, 4);
+				++placedCount;
+			}
+		}
+		return placedCount;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.mapgenerator.databaserenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mapsforge.core.model.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+
+import eu.geopaparazzi.benchmarks.BenchmarkFixtures;
+
+/**
+ * Benchmarks the whole label placement of a tile: the removal of the overlapping symbols and area labels, the
+ * dependencies on the neighbour tiles and the four position greedy placement of the labels.
+ * <p>
+ * The placement changes its input lists, so the labels and symbols of the tile are created again for every run from
+ * a fixed set of positions and texts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelPlacementBenchmark {
+	private static final int AREA_LABEL_RATIO = 10;
+	private static final String TEXT = "abcdefghijklmnopqrstuvwxyz";
+
+	/**
+	 * The number of labels of a tile.
+	 */
+	@Param({ "200", "1000" })
+	public int labelCount;
+
+	private final Paint paint = new Paint();
+	private final Bitmap symbol = Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+	private boolean[] hasSymbol;
+	private String[] texts;
+	private Tile tile;
+	private float[] x;
+	private float[] y;
+
+	@Setup
+	public void setup() {
+		Random random = BenchmarkFixtures.newRandom();
+		this.texts = new String[this.labelCount];
+		this.x = new float[this.labelCount];
+		this.y = new float[this.labelCount];
+		this.hasSymbol = new boolean[this.labelCount];
+		for (int i = 0; i < this.labelCount; i++) {
+			this.texts[i] = TEXT.substring(0, 3 + random.nextInt(12));
+			this.x[i] = random.nextFloat() * Tile.TILE_SIZE;
+			this.y[i] = random.nextFloat() * Tile.TILE_SIZE;
+			this.hasSymbol[i] = random.nextBoolean();
+		}
+		this.tile = new Tile(8800, 5800, (byte) 14);
+	}
+
+	@Benchmark
+	public int placeLabels() {
+		List<PointTextContainer> labels = new ArrayList<>();
+		List<PointTextContainer> areaLabels = new ArrayList<>();
+		List<SymbolContainer> symbols = new ArrayList<>();
+		for (int i = 0; i < this.labelCount; i++) {
+			if (i % AREA_LABEL_RATIO == 0) {
+				areaLabels.add(new PointTextContainer(this.texts[i], this.x[i], this.y[i], this.paint));
+				continue;
+			}
+			SymbolContainer symbolContainer = null;
+			if (this.hasSymbol[i]) {
+				symbolContainer = new SymbolContainer(this.symbol, this.x[i] - 8, this.y[i] - 8);
+				symbols.add(symbolContainer);
+			}
+			labels.add(new PointTextContainer(this.texts[i], this.x[i], this.y[i], this.paint, null, symbolContainer));
+		}
+
+		// a new placement for every run, otherwise the tile would already be drawn in the dependency cache
+		LabelPlacement labelPlacement = new LabelPlacement();
+		return labelPlacement.placeLabels(labels, symbols, areaLabels, this.tile).size();
+	}
+}
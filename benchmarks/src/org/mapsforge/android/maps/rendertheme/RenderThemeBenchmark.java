@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.rendertheme;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mapsforge.android.maps.mapgenerator.JobTheme;
+import org.mapsforge.core.model.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+
+import eu.geopaparazzi.benchmarks.BenchmarkFixtures;
+
+/**
+ * Benchmarks the matching of the tags of the map elements against the rules of the internal osmarender theme, with a
+ * callback that only counts the render instructions.
+ * <p>
+ * Like in the map reader, the tags of the map file are shared instances and the name of every element is a new tag.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderThemeBenchmark {
+	private static final int ELEMENTS = 1000;
+	private static final String[] NODE_TAGS = { "amenity=restaurant", "amenity=cafe", "amenity=atm",
+			"amenity=pharmacy", "amenity=parking", "place=village", "place=town", "natural=peak", "highway=bus_stop",
+			"tourism=hotel", "shop=supermarket", "historic=monument" };
+	private static final String THEME_PATH = "/org/mapsforge/android/maps/rendertheme/osmarender/";
+	private static final String[] WAY_TAGS = { "highway=primary", "highway=secondary", "highway=tertiary",
+			"highway=residential", "highway=service", "highway=footway", "highway=track", "railway=rail",
+			"waterway=river", "waterway=stream", "bridge=yes", "tunnel=yes", "oneway=yes" };
+	private static final String[] AREA_TAGS = { "building=yes", "landuse=forest", "landuse=residential",
+			"landuse=grass", "landuse=farmland", "natural=water", "natural=wood", "leisure=park", "amenity=school" };
+
+	private static Tag[] toTags(String[] strings) {
+		Tag[] tags = new Tag[strings.length];
+		for (int i = 0; i < strings.length; ++i) {
+			tags[i] = new Tag(strings[i]);
+		}
+		return tags;
+	}
+
+	/**
+	 * The zoom level of the matching.
+	 */
+	@Param({ "12", "17" })
+	public byte zoom;
+
+	private final CountingRenderCallback renderCallback = new CountingRenderCallback();
+	private RenderTheme renderTheme;
+	private List<List<Tag>> nodes;
+	private String[] nodeNames;
+	private List<List<Tag>> ways;
+	private String[] wayNames;
+	private boolean[] closed;
+
+	@Setup
+	public void setup() throws Exception {
+		this.renderTheme = RenderThemeHandler.getRenderTheme(new JobTheme() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getRelativePathPrefix() {
+				return THEME_PATH;
+			}
+
+			@Override
+			public InputStream getRenderThemeAsStream() {
+				return RenderThemeBenchmark.class.getResourceAsStream(THEME_PATH + "osmarender.xml");
+			}
+		});
+
+		Random random = BenchmarkFixtures.newRandom();
+		Tag[] nodeTags = toTags(NODE_TAGS);
+		Tag[] wayTags = toTags(WAY_TAGS);
+		Tag[] areaTags = toTags(AREA_TAGS);
+
+		this.nodes = new ArrayList<>();
+		this.nodeNames = new String[ELEMENTS];
+		for (int i = 0; i < ELEMENTS; ++i) {
+			List<Tag> tags = new ArrayList<>();
+			tags.add(nodeTags[random.nextInt(nodeTags.length)]);
+			// placeholder for the name, replaced on every match
+			tags.add(null);
+			this.nodes.add(tags);
+			this.nodeNames[i] = "node " + i;
+		}
+
+		this.ways = new ArrayList<>();
+		this.wayNames = new String[ELEMENTS];
+		this.closed = new boolean[ELEMENTS];
+		for (int i = 0; i < ELEMENTS; ++i) {
+			List<Tag> tags = new ArrayList<>();
+			this.closed[i] = random.nextInt(3) == 0;
+			if (this.closed[i]) {
+				tags.add(areaTags[random.nextInt(areaTags.length)]);
+			} else {
+				tags.add(wayTags[random.nextInt(4)]);
+				for (int j = random.nextInt(3); j > 0; --j) {
+					tags.add(wayTags[random.nextInt(wayTags.length)]);
+				}
+			}
+			tags.add(null);
+			this.ways.add(tags);
+			this.wayNames[i] = "way " + i;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.renderTheme != null) {
+			this.renderTheme.destroy();
+		}
+	}
+
+	@Benchmark
+	public int matchNodes() {
+		this.renderCallback.count = 0;
+		for (int i = 0; i < ELEMENTS; ++i) {
+			List<Tag> tags = this.nodes.get(i);
+			tags.set(tags.size() - 1, new Tag("name", this.nodeNames[i]));
+			this.renderTheme.matchNode(this.renderCallback, tags, this.zoom);
+		}
+		return this.renderCallback.count;
+	}
+
+	@Benchmark
+	public int matchWays() {
+		this.renderCallback.count = 0;
+		for (int i = 0; i < ELEMENTS; ++i) {
+			List<Tag> tags = this.ways.get(i);
+			tags.set(tags.size() - 1, new Tag("name", this.wayNames[i]));
+			if (this.closed[i]) {
+				this.renderTheme.matchClosedWay(this.renderCallback, tags, this.zoom);
+			} else {
+				this.renderTheme.matchLinearWay(this.renderCallback, tags, this.zoom);
+			}
+		}
+		return this.renderCallback.count;
+	}
+
+	private static class CountingRenderCallback implements RenderCallback {
+		int count;
+
+		CountingRenderCallback() {
+			// do nothing
+		}
+
+		@Override
+		public void renderArea(Paint paint, int level) {
+			++this.count;
+		}
+
+		@Override
+		public void renderAreaCaption(String caption, float verticalOffset, Paint paint, Paint stroke) {
+			++this.count;
+		}
+
+		@Override
+		public void renderAreaSymbol(Bitmap symbol) {
+			++this.count;
+		}
+
+		@Override
+		public void renderPointOfInterestCaption(String caption, float verticalOffset, Paint paint, Paint stroke) {
+			++this.count;
+		}
+
+		@Override
+		public void renderPointOfInterestCircle(float radius, Paint fill, int level) {
+			++this.count;
+		}
+
+		@Override
+		public void renderPointOfInterestSymbol(Bitmap symbol) {
+			++this.count;
+		}
+
+		@Override
+		public void renderWay(Paint paint, int level) {
+			++this.count;
+		}
+
+		@Override
+		public void renderWaySymbol(Bitmap symbol, boolean alignCenter, boolean repeat) {
+			++this.count;
+		}
+
+		@Override
+		public void renderWayText(String text, Paint paint, Paint stroke) {
+			++this.count;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.mapgenerator.databaserenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+
+/**
+ * Tests the collision tests of the {@link LabelGrid}.
+ */
+public class LabelGridTest {
+	private LabelGrid labelGrid;
+
+	@Before
+	public void setUp() {
+		this.labelGrid = new LabelGrid();
+	}
+
+	@Test
+	public void testEmpty() {
+		assertTrue(this.labelGrid.isEmpty());
+		assertFalse(this.labelGrid.intersects(0, 0, Tile.TILE_SIZE, Tile.TILE_SIZE));
+	}
+
+	@Test
+	public void testOverlapping() {
+		this.labelGrid.add(10, 10, 20, 20);
+		assertFalse(this.labelGrid.isEmpty());
+
+		assertTrue(this.labelGrid.intersects(15, 15, 25, 25));
+		assertTrue(this.labelGrid.intersects(12, 12, 18, 18));
+		assertTrue(this.labelGrid.intersects(0, 0, 100, 100));
+		assertTrue(this.labelGrid.intersects(19, 19, 21, 21));
+		assertFalse(this.labelGrid.intersects(30, 30, 40, 40));
+	}
+
+	@Test
+	public void testTouchingEdges() {
+		this.labelGrid.add(10, 10, 20, 20);
+
+		// rectangles that only share an edge or a corner do not collide, like android.graphics.Rect
+		assertFalse(this.labelGrid.intersects(20, 10, 30, 20));
+		assertFalse(this.labelGrid.intersects(0, 10, 10, 20));
+		assertFalse(this.labelGrid.intersects(10, 20, 20, 30));
+		assertFalse(this.labelGrid.intersects(10, 0, 20, 10));
+		assertFalse(this.labelGrid.intersects(20, 20, 30, 30));
+		assertFalse(this.labelGrid.intersects(0, 0, 10, 10));
+	}
+
+	@Test
+	public void testAcrossCells() {
+		// spans several cells in both directions
+		this.labelGrid.add(-100, 0, 300, 150);
+
+		assertTrue(this.labelGrid.intersects(-90, 140, -80, 145));
+		assertTrue(this.labelGrid.intersects(290, 5, 310, 6));
+		assertTrue(this.labelGrid.intersects(100, 149, 101, 200));
+		assertFalse(this.labelGrid.intersects(300, 0, 310, 150));
+		assertFalse(this.labelGrid.intersects(-100, 150, 300, 160));
+	}
+
+	@Test
+	public void testBorderClamping() {
+		// the grid covers the tile and its neighbours, everything beyond is clamped to the border cells
+		int gridMin = -Tile.TILE_SIZE;
+		int gridMax = 2 * Tile.TILE_SIZE;
+
+		this.labelGrid.add(gridMin - 1000, gridMin - 1000, gridMin - 900, gridMin - 900);
+		assertTrue(this.labelGrid.intersects(gridMin - 950, gridMin - 950, gridMin - 940, gridMin - 940));
+		assertFalse(this.labelGrid.intersects(gridMin - 800, gridMin - 800, gridMin - 700, gridMin - 700));
+		assertFalse(this.labelGrid.intersects(gridMin, gridMin, gridMin + 10, gridMin + 10));
+
+		this.labelGrid.add(gridMax + 900, gridMax + 900, gridMax + 1000, gridMax + 1000);
+		assertTrue(this.labelGrid.intersects(gridMax + 950, gridMax + 950, gridMax + 960, gridMax + 960));
+		assertFalse(this.labelGrid.intersects(gridMax + 800, gridMax + 800, gridMax + 900, gridMax + 900));
+		assertFalse(this.labelGrid.intersects(gridMax - 10, gridMax - 10, gridMax, gridMax));
+
+		// a rectangle across the border is found from both sides
+		this.labelGrid.add(gridMin - 50, 0, gridMin + 50, 10);
+		assertTrue(this.labelGrid.intersects(gridMin - 100, 5, gridMin - 40, 6));
+		assertTrue(this.labelGrid.intersects(gridMin + 40, 5, gridMin + 100, 6));
+		assertFalse(this.labelGrid.intersects(gridMin - 100, 5, gridMin - 50, 6));
+
+		// a rectangle larger than the whole grid
+		this.labelGrid.clear();
+		this.labelGrid.add(gridMin - 10, gridMin - 10, gridMax + 10, gridMax + 10);
+		assertTrue(this.labelGrid.intersects(100, 100, 101, 101));
+		assertTrue(this.labelGrid.intersects(gridMax + 5, gridMax + 5, gridMax + 20, gridMax + 20));
+	}
+
+	@Test
+	public void testClear() {
+		this.labelGrid.add(10, 10, 20, 20);
+		this.labelGrid.clear();
+		assertTrue(this.labelGrid.isEmpty());
+		assertFalse(this.labelGrid.intersects(10, 10, 20, 20));
+
+		this.labelGrid.add(30, 30, 40, 40);
+		assertFalse(this.labelGrid.intersects(10, 10, 20, 20));
+		assertTrue(this.labelGrid.intersects(35, 35, 45, 45));
+	}
+
+	@Test
+	public void testSameAsLinearScan() {
+		Random random = new Random(1234);
+		int count = 2000;
+		int[] rectangles = new int[count * 4];
+		int added = 0;
+		for (int i = 0; i < count; i++) {
+			int width = random.nextInt(150);
+			int height = random.nextInt(40);
+			int left = random.nextInt(5 * Tile.TILE_SIZE) - 2 * Tile.TILE_SIZE;
+			int top = random.nextInt(5 * Tile.TILE_SIZE) - 2 * Tile.TILE_SIZE;
+			int right = left + width;
+			int bottom = top + height;
+
+			boolean expected = false;
+			for (int j = 0; j < added * 4; j += 4) {
+				if (left < rectangles[j + 2] && rectangles[j] < right && top < rectangles[j + 3]
+						&& rectangles[j + 1] < bottom) {
+					expected = true;
+					break;
+				}
+			}
+			assertEquals(expected, this.labelGrid.intersects(left, top, right, bottom));
+
+			if (random.nextBoolean()) {
+				this.labelGrid.add(left, top, right, bottom);
+				rectangles[added * 4] = left;
+				rectangles[added * 4 + 1] = top;
+				rectangles[added * 4 + 2] = right;
+				rectangles[added * 4 + 3] = bottom;
+				++added;
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.mapgenerator.databaserenderer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+
+/**
+ * Tests that the greedy {@link LabelPlacement} places no overlapping labels.
+ */
+public class LabelPlacementTest {
+	private static final int LABEL_COUNT = 300;
+	// keeps every reference position inside of the tile, so that no labels of the neighbour tiles are added
+	private static final int MARGIN = 90;
+	private static final String TEXT = "abcdefghij";
+
+	private static boolean intersects(PointTextContainer a, PointTextContainer b) {
+		// the rectangle that the greedy placement tested for the label
+		int aLeft = (int) a.x;
+		int aTop = (int) (a.y - a.boundary.height());
+		int aRight = (int) (a.x + a.boundary.width());
+		int aBottom = (int) a.y;
+		int bLeft = (int) b.x;
+		int bTop = (int) (b.y - b.boundary.height());
+		int bRight = (int) (b.x + b.boundary.width());
+		int bBottom = (int) b.y;
+		return aLeft < bRight && bLeft < aRight && aTop < bBottom && bTop < aBottom;
+	}
+
+	private static List<PointTextContainer> placeLabels(long seed) {
+		Random random = new Random(seed);
+		Paint paint = new Paint();
+		Bitmap bitmap = Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+
+		List<PointTextContainer> labels = new ArrayList<>();
+		List<SymbolContainer> symbols = new ArrayList<>();
+		for (int i = 0; i < LABEL_COUNT; i++) {
+			String text = TEXT.substring(0, 3 + random.nextInt(TEXT.length() - 3));
+			float x = MARGIN + random.nextFloat() * (Tile.TILE_SIZE - 2 * MARGIN);
+			float y = MARGIN + random.nextFloat() * (Tile.TILE_SIZE - 2 * MARGIN);
+			SymbolContainer symbol = null;
+			if (random.nextBoolean()) {
+				symbol = new SymbolContainer(bitmap, x - bitmap.getWidth() / 2f, y - bitmap.getHeight() / 2f);
+				symbols.add(symbol);
+			}
+			labels.add(new PointTextContainer(text, x, y, paint, null, symbol));
+		}
+
+		LabelPlacement labelPlacement = new LabelPlacement();
+		return labelPlacement.placeLabels(labels, symbols, new ArrayList<PointTextContainer>(), new Tile(100, 100,
+				(byte) 10));
+	}
+
+	@Test
+	public void testNoOverlaps() {
+		for (long seed = 0; seed < 10; seed++) {
+			List<PointTextContainer> placed = placeLabels(seed);
+			assertFalse(placed.isEmpty());
+			assertTrue(placed.size() < LABEL_COUNT);
+
+			for (int i = 0; i < placed.size(); i++) {
+				for (int j = i + 1; j < placed.size(); j++) {
+					assertFalse("labels " + i + " and " + j + " overlap", intersects(placed.get(i), placed.get(j)));
+				}
+			}
+		}
+	}
+}
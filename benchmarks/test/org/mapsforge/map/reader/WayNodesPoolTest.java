@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the reuse and the limits of the {@link WayNodesPool}.
+ */
+public class WayNodesPoolTest {
+	private static Set<float[]> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<float[], Boolean>());
+	}
+
+	@Test
+	public void testReuse() {
+		WayNodesPool wayNodesPool = new WayNodesPool();
+		float[] segment = wayNodesPool.getSegment(10);
+		float[][] blocks = wayNodesPool.getBlocks(2);
+		blocks[0] = segment;
+		assertEquals(10, segment.length);
+		assertEquals(2, blocks.length);
+
+		wayNodesPool.recycle();
+		assertTrue(segment == wayNodesPool.getSegment(10));
+		assertTrue(blocks == wayNodesPool.getBlocks(2));
+		assertTrue(blocks[0] == null);
+		assertTrue(segment != wayNodesPool.getSegment(10));
+	}
+
+	@Test
+	public void testOversizedArraysAreNotPooled() {
+		WayNodesPool wayNodesPool = new WayNodesPool();
+		float[] segment = wayNodesPool.getSegment(WayNodesPool.MAX_SEGMENT_LENGTH + 2);
+		float[][] blocks = wayNodesPool.getBlocks(WayNodesPool.MAX_BLOCKS + 1);
+
+		wayNodesPool.recycle();
+		assertTrue(segment != wayNodesPool.getSegment(WayNodesPool.MAX_SEGMENT_LENGTH + 2));
+		assertTrue(blocks != wayNodesPool.getBlocks(WayNodesPool.MAX_BLOCKS + 1));
+	}
+
+	@Test
+	public void testFreeArraysPerLength() {
+		WayNodesPool wayNodesPool = new WayNodesPool();
+		Set<float[]> taken = newIdentitySet();
+		for (int i = 0; i < 2 * WayNodesPool.MAX_FREE_PER_LENGTH; i++) {
+			taken.add(wayNodesPool.getSegment(4));
+		}
+		wayNodesPool.recycle();
+
+		int reused = 0;
+		for (int i = 0; i < 2 * WayNodesPool.MAX_FREE_PER_LENGTH; i++) {
+			if (taken.contains(wayNodesPool.getSegment(4))) {
+				++reused;
+			}
+		}
+		assertEquals(WayNodesPool.MAX_FREE_PER_LENGTH, reused);
+	}
+
+	@Test
+	public void testFreeSegmentValues() {
+		WayNodesPool wayNodesPool = new WayNodesPool();
+		int length = WayNodesPool.MAX_SEGMENT_LENGTH;
+		Set<float[]> taken = newIdentitySet();
+		for (int i = 0; i < WayNodesPool.MAX_FREE_PER_LENGTH; i++) {
+			taken.add(wayNodesPool.getSegment(length));
+		}
+		wayNodesPool.recycle();
+
+		int reused = 0;
+		for (int i = 0; i < WayNodesPool.MAX_FREE_PER_LENGTH; i++) {
+			if (taken.contains(wayNodesPool.getSegment(length))) {
+				++reused;
+			}
+		}
+		assertEquals(WayNodesPool.MAX_FREE_SEGMENT_VALUES / length, reused);
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.File;
+import java.io.IOException;
+
+import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsDataTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_GPSLOG_DATA;
+
+/**
+ * A benchmark of gps logging running concurrently with map reads.
+ * <p>
+ * <p>A writer thread appends log points one by one, as done by the gps service, while a
+ * reader thread repeatedly reads all the points of the logs, as done by the map overlay.
+ * The same workload is run twice on a scratch database:</p>
+ * <ul>
+ * <li>shared connection: a single connection in rollback journal mode, as the project database was used</li>
+ * <li>wal + read pool: the writer on a connection in write ahead log mode, the reader on a connection
+ * of the {@link ReadDatabasePool}</li>
+ * </ul>
+ * <p>
+ * <p>The report contains the number of operations and the mean and max latencies of both threads.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class DatabaseConcurrencyBenchmark {
+
+    private static final int LOGS_COUNT = 10;
+    private static final int POINTS_PER_LOG = 5000;
+    private static final long WRITE_INTERVAL_MS = 5;
+
+    private final File folder;
+    private final long durationMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param folder          a writable folder for the scratch database.
+     * @param durationSeconds the duration of each run.
+     */
+    public DatabaseConcurrencyBenchmark(File folder, int durationSeconds) {
+        this.folder = folder;
+        this.durationMillis = durationSeconds * 1000L;
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @return the report.
+     * @throws Exception if something goes wrong.
+     */
+    public String run() throws Exception {
+        StringBuilder report = new StringBuilder();
+        report.append(runMode(false));
+        report.append(runMode(true));
+        return report.toString();
+    }
+
+    private String runMode(final boolean useWalAndPool) throws Exception {
+        File dbFile = new File(folder, "concurrency_benchmark.sqlite");
+        SQLiteDatabase.deleteDatabase(dbFile);
+        final SQLiteDatabase writeDatabase = SQLiteDatabase.openOrCreateDatabase(dbFile, null);
+        ReadDatabasePool pool = null;
+        try {
+            if (useWalAndPool) {
+                DatabaseManager.configure(writeDatabase);
+            }
+            createData(writeDatabase);
+
+            final SQLiteDatabase readDatabase;
+            if (useWalAndPool) {
+                pool = new ReadDatabasePool(dbFile, 1);
+                readDatabase = pool.acquire();
+            } else {
+                readDatabase = writeDatabase;
+            }
+
+            final Stats writeStats = new Stats();
+            final Stats readStats = new Stats();
+            final long endTime = System.currentTimeMillis() + durationMillis;
+            final Exception[] errors = new Exception[1];
+
+            Thread writer = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        write(writeDatabase, endTime, writeStats);
+                    } catch (Exception e) {
+                        errors[0] = e;
+                    }
+                }
+            });
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        read(readDatabase, endTime, readStats);
+                    } catch (Exception e) {
+                        errors[0] = e;
+                    }
+                }
+            });
+            writer.start();
+            reader.start();
+            writer.join();
+            reader.join();
+            if (pool != null)
+                pool.release(readDatabase);
+            if (errors[0] != null)
+                throw errors[0];
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("* ").append(useWalAndPool ? "wal + read pool" : "shared connection").append(" *\n");
+            sb.append("point writes: ").append(writeStats.toString()).append("\n");
+            sb.append("overlay reads: ").append(readStats.toString()).append("\n\n");
+            return sb.toString();
+        } finally {
+            if (pool != null)
+                pool.close();
+            writeDatabase.close();
+            SQLiteDatabase.deleteDatabase(dbFile);
+        }
+    }
+
+    private void createData(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_GPSLOG_DATA + " (" +
+                GpsLogsDataTableFields.COLUMN_ID.getFieldName() + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName() + " REAL NOT NULL, " +
+                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName() + " REAL NOT NULL, " +
+                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName() + " REAL NOT NULL, " +
+                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " DATE NOT NULL, " +
+                GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX gpslog_id_idx ON " + TABLE_GPSLOG_DATA + " (" +
+                GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ")");
+
+        long ts = System.currentTimeMillis();
+        db.beginTransaction();
+        SQLiteStatement insert = db.compileStatement(getInsertSql());
+        try {
+            for (int logId = 1; logId <= LOGS_COUNT; logId++) {
+                for (int i = 0; i < POINTS_PER_LOG; i++) {
+                    bindPoint(insert, logId, i, ts + i * 1000L);
+                    insert.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            insert.close();
+            db.endTransaction();
+        }
+    }
+
+    private String getInsertSql() {
+        return "INSERT INTO " + TABLE_GPSLOG_DATA + " (" +
+                GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + ") VALUES (?, ?, ?, ?, ?)";
+    }
+
+    private void bindPoint(SQLiteStatement insert, long logId, int index, long ts) {
+        insert.bindLong(1, logId);
+        insert.bindDouble(2, 11.0 + index * 0.0001);
+        insert.bindDouble(3, 46.0 + logId * 0.01);
+        insert.bindDouble(4, 1000.0);
+        insert.bindLong(5, ts);
+    }
+
+    /*
+     * the gps service adds every point in its own implicit transaction
+     */
+    private void write(SQLiteDatabase db, long endTime, Stats stats) throws InterruptedException {
+        long logId = LOGS_COUNT + 1;
+        int index = 0;
+        SQLiteStatement insert = db.compileStatement(getInsertSql());
+        try {
+            while (System.currentTimeMillis() < endTime) {
+                long t = System.nanoTime();
+                bindPoint(insert, logId, index, System.currentTimeMillis());
+                insert.executeInsert();
+                stats.add(System.nanoTime() - t);
+                index++;
+                Thread.sleep(WRITE_INTERVAL_MS);
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /*
+     * the overlay reads the points of all the logs
+     */
+    private void read(SQLiteDatabase db, long endTime, Stats stats) throws IOException {
+        String query = "SELECT " + GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName() + " FROM " + TABLE_GPSLOG_DATA +
+                " ORDER BY " + GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName();
+        double sum = 0;
+        while (System.currentTimeMillis() < endTime) {
+            long t = System.nanoTime();
+            Cursor c = db.rawQuery(query, null);
+            try {
+                while (c.moveToNext()) {
+                    sum += c.getDouble(0) + c.getDouble(1);
+                }
+            } finally {
+                c.close();
+            }
+            stats.add(System.nanoTime() - t);
+        }
+        if (Double.isNaN(sum))
+            throw new IOException("Invalid data read.");
+    }
+
+    /**
+     * Latency statistics of one thread.
+     */
+    private static class Stats {
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos)
+                maxNanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            double mean = count == 0 ? 0 : totalNanos / 1000000.0 / count;
+            return count + " ops, mean " + String.format("%.3f", mean) + " ms, max " +
+                    String.format("%.3f", maxNanos / 1000000.0) + " ms";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link DatabaseConcurrencyBenchmark} on a device.
+ * <p>
+ * <p>Run it with <code>./gradlew :geopaparazzi_core:connectedAndroidTest</code>,
+ * the report is written to the log with the tag of this class.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyBenchmarkTest {
+
+    private static final String TAG = "DatabaseConcurrencyBenchmarkTest";
+
+    @Test
+    public void testSharedConnectionAgainstWalAndReadPool() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        DatabaseConcurrencyBenchmark benchmark = new DatabaseConcurrencyBenchmark(context.getCacheDir(), 10);
+        String report = benchmark.run();
+        Log.i(TAG, report);
+
+        assertTrue(report.contains("shared connection"));
+        assertTrue(report.contains("wal + read pool"));
+    }
+}
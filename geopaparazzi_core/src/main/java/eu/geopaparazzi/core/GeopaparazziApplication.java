@@ -26,9 +26,11 @@ import org.acra.ACRAConfigurationException;
 import org.acra.ReportField;
 import org.acra.ReportingInteractionMode;
 
+import java.io.File;
 import java.io.IOException;
 
 import eu.geopaparazzi.core.database.DatabaseManager;
+import eu.geopaparazzi.core.database.ReadDatabasePool;
 import eu.geopaparazzi.library.GPApplication;
 
 /**
@@ -39,6 +41,7 @@ import eu.geopaparazzi.library.GPApplication;
 public class GeopaparazziApplication extends GPApplication {
 
     private static SQLiteDatabase database;
+    private static ReadDatabasePool readDatabasePool;
 
     @Override
     public void onCreate() {
@@ -77,8 +80,58 @@ public class GeopaparazziApplication extends GPApplication {
         return database;
     }
 
+    /**
+     * Get a read only connection to the project database, for readers running in the background.
+     * <p>
+     * <p>The connection has to be given back through {@link #releaseReadDatabase(SQLiteDatabase)}.
+     * If the database is not in write ahead log mode, the main connection is returned.</p>
+     *
+     * @return the connection.
+     * @throws IOException if something goes wrong.
+     */
+    public SQLiteDatabase acquireReadDatabase() throws IOException {
+        ReadDatabasePool pool = getReadDatabasePool();
+        if (pool == null)
+            return getDatabase();
+        return pool.acquire();
+    }
+
+    /**
+     * Give back a connection taken through {@link #acquireReadDatabase()}.
+     *
+     * @param readDatabase the connection.
+     */
+    public void releaseReadDatabase(SQLiteDatabase readDatabase) {
+        if (readDatabase == null || readDatabase == database)
+            return;
+        ReadDatabasePool pool;
+        synchronized (this) {
+            pool = readDatabasePool;
+        }
+        if (pool != null) {
+            pool.release(readDatabase);
+        } else if (readDatabase.isOpen()) {
+            // the pool has been closed with the project
+            readDatabase.close();
+        }
+    }
+
+    private synchronized ReadDatabasePool getReadDatabasePool() throws IOException {
+        SQLiteDatabase db = getDatabase();
+        if (!db.isWriteAheadLoggingEnabled())
+            return null;
+        if (readDatabasePool == null) {
+            readDatabasePool = new ReadDatabasePool(new File(db.getPath()), DatabaseManager.READ_CONNECTIONS);
+        }
+        return readDatabasePool;
+    }
+
     @Override
-    public void closeDatabase() {
+    public synchronized void closeDatabase() {
+        if (readDatabasePool != null) {
+            readDatabasePool.close();
+            readDatabasePool = null;
+        }
         if (database != null && database.isOpen()) {
             database.close();
         }
@@ -86,6 +139,13 @@ public class GeopaparazziApplication extends GPApplication {
     }
 
     public static void reset(){
-        database = null;
+        // the instance methods synchronize on the application singleton
+        synchronized (getInstance()) {
+            if (readDatabasePool != null) {
+                readDatabasePool.close();
+                readDatabasePool = null;
+            }
+            database = null;
+        }
     }
 }
@@ -29,6 +29,7 @@ import org.mapsforge.core.model.GeoPoint;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
@@ -83,7 +84,8 @@ public class DaoBookmarks {
             values.put(COLUMN_SOUTHBOUND, south);
             values.put(COLUMN_WESTBOUND, west);
             values.put(COLUMN_EASTBOUND, east);
-            sqliteDatabase.insertOrThrow(TABLE_BOOKMARKS, null, values);
+            long bookmarkId = sqliteDatabase.insertOrThrow(TABLE_BOOKMARKS, null, values);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_BOOKMARKS, bookmarkId);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -108,6 +110,7 @@ public class DaoBookmarks {
             String query = "delete from " + TABLE_BOOKMARKS + " where " + COLUMN_ID + " = " + id;
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_BOOKMARKS, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -142,6 +145,7 @@ public class DaoBookmarks {
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
             sqlUpdate.close();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_BOOKMARKS, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -234,13 +238,27 @@ public class DaoBookmarks {
      * @throws IOException  if something goes wrong.
      */
     public static List<OverlayItem> getBookmarksOverlays( Drawable marker ) throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        String query = "SELECT lon, lat, text FROM " + TABLE_BOOKMARKS;
+        return new ArrayList<>(getBookmarksOverlays(marker, DaoChangeJournal.ALL_ITEMS).values());
+    }
+
+    /**
+     * @param marker the marker to use.
+     * @param bookmarkId the id of the bookmark to get or {@link DaoChangeJournal#ALL_ITEMS} for all of them.
+     * @return the {@link OverlayItem}s mapped by the bookmark id, empty if the bookmark does not exist.
+     * @throws IOException  if something goes wrong.
+     */
+    public static LinkedHashMap<Long, OverlayItem> getBookmarksOverlays( Drawable marker, long bookmarkId ) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        String query = "SELECT lon, lat, text, " + COLUMN_ID + " FROM " + TABLE_BOOKMARKS;
+        if (bookmarkId != DaoChangeJournal.ALL_ITEMS) {
+            query = query + " WHERE " + COLUMN_ID + " = " + bookmarkId;
+        }
 
         Cursor c = null;
         try {
             c = sqliteDatabase.rawQuery(query, null);
-            List<OverlayItem> bookmarks = new ArrayList<>();
+            LinkedHashMap<Long, OverlayItem> bookmarks = new LinkedHashMap<>();
             c.moveToFirst();
             while( !c.isAfterLast() ) {
                 double lon = c.getDouble(0);
@@ -248,13 +266,14 @@ public class DaoBookmarks {
                 String text = c.getString(2);
                 text = text + "\n";
                 OverlayItem bookmark = new OverlayItem(new GeoPoint(lat, lon), null, text, marker);
-                bookmarks.add(bookmark);
+                bookmarks.put(c.getLong(3), bookmark);
                 c.moveToNext();
             }
             return bookmarks;
         } finally {
             if (c != null)
                 c.close();
+            application.releaseReadDatabase(sqliteDatabase);
         }
     }
 
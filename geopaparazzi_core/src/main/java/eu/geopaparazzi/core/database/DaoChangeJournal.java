@@ -0,0 +1,195 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import eu.geopaparazzi.core.GeopaparazziApplication;
+import eu.geopaparazzi.library.database.GPLog;
+
+import static eu.geopaparazzi.core.database.TableDescriptions.ChangeJournalTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_CHANGEJOURNAL;
+
+/**
+ * The journal of the changes done to the notes, images, bookmarks and gps logs.
+ * <p>
+ * <p>The DAOs record the ids they touch in the same transaction as the change. The id of
+ * a journal entry is the version of the change. A table/id pair is kept only once, with the
+ * version of its last change, so the journal grows with the number of touched records and
+ * not with the number of edits.</p>
+ * <p>
+ * <p>The kind of change is not recorded: readers re-read the records and treat the ones that
+ * do not exist anymore as deleted.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class DaoChangeJournal {
+
+    /**
+     * The item id used when a change touched an unknown set of records of a table.
+     */
+    public static final long ALL_ITEMS = -1;
+
+    private static final String INSERT_CHANGE = "INSERT INTO " + TABLE_CHANGEJOURNAL + " (" +
+            ChangeJournalTableFields.COLUMN_TABLENAME.getFieldName() + ", " +
+            ChangeJournalTableFields.COLUMN_ITEMID.getFieldName() + ") VALUES (?, ?)";
+
+    /**
+     * Create the journal table, if it does not exist.
+     * <p>
+     * <p>This is also called on existing databases, which get the table the first time they are opened.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     */
+    public static void createTables(SQLiteDatabase sqliteDatabase) {
+        StringBuilder sB = new StringBuilder();
+        sB.append("CREATE TABLE IF NOT EXISTS ");
+        sB.append(TABLE_CHANGEJOURNAL);
+        sB.append(" (");
+        sB.append(ChangeJournalTableFields.COLUMN_ID.getFieldName()).append(" INTEGER PRIMARY KEY AUTOINCREMENT, ");
+        sB.append(ChangeJournalTableFields.COLUMN_TABLENAME.getFieldName()).append(" TEXT NOT NULL, ");
+        sB.append(ChangeJournalTableFields.COLUMN_ITEMID.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append("UNIQUE (");
+        sB.append(ChangeJournalTableFields.COLUMN_TABLENAME.getFieldName()).append(", ");
+        sB.append(ChangeJournalTableFields.COLUMN_ITEMID.getFieldName());
+        sB.append(") ON CONFLICT REPLACE");
+        sB.append(");");
+        String CREATE_TABLE_CHANGEJOURNAL = sB.toString();
+
+        if (GPLog.LOG_ANDROID)
+            Log.i("DAOCHANGEJOURNAL", "Create the change journal table with: \n" + CREATE_TABLE_CHANGEJOURNAL);
+        sqliteDatabase.execSQL(CREATE_TABLE_CHANGEJOURNAL);
+    }
+
+    /**
+     * Record the change of a record.
+     * <p>
+     * <p>Transactions have to be handled by the caller.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @param tableName      the name of the changed table.
+     * @param itemId         the id of the changed record or {@link #ALL_ITEMS}.
+     */
+    public static void recordChange(SQLiteDatabase sqliteDatabase, String tableName, long itemId) {
+        sqliteDatabase.execSQL(INSERT_CHANGE, new Object[]{tableName, itemId});
+    }
+
+    /**
+     * Get the current version of the journal.
+     *
+     * @return the version of the last change or 0 if nothing changed yet.
+     * @throws IOException if something goes wrong.
+     */
+    public static long getVersion() throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String query = "SELECT max(" + ChangeJournalTableFields.COLUMN_ID.getFieldName() + ") FROM " + TABLE_CHANGEJOURNAL;
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.rawQuery(query, null);
+            if (c.moveToFirst()) {
+                return c.getLong(0);
+            }
+            return 0;
+        } finally {
+            if (c != null)
+                c.close();
+        }
+    }
+
+    /**
+     * Get the changes done after a given version.
+     *
+     * @param version the version of the last applied change.
+     * @return the changes.
+     * @throws IOException if something goes wrong.
+     */
+    public static ChangeSet getChangesSince(long version) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        String query = "SELECT " + //
+                ChangeJournalTableFields.COLUMN_ID.getFieldName() + ", " + //
+                ChangeJournalTableFields.COLUMN_TABLENAME.getFieldName() + ", " + //
+                ChangeJournalTableFields.COLUMN_ITEMID.getFieldName() + //
+                " FROM " + TABLE_CHANGEJOURNAL + //
+                " WHERE " + ChangeJournalTableFields.COLUMN_ID.getFieldName() + " > ?";
+
+        ChangeSet changeSet = new ChangeSet(version);
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.rawQuery(query, new String[]{String.valueOf(version)});
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                changeSet.add(c.getLong(0), c.getString(1), c.getLong(2));
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
+        }
+        return changeSet;
+    }
+
+    /**
+     * The changes read from the journal.
+     */
+    public static class ChangeSet {
+        private long version;
+        private final HashMap<String, Set<Long>> changedIds = new HashMap<>();
+
+        private ChangeSet(long version) {
+            this.version = version;
+        }
+
+        private void add(long changeVersion, String tableName, long itemId) {
+            if (changeVersion > version)
+                version = changeVersion;
+            getChangedIds(tableName).add(itemId);
+        }
+
+        /**
+         * @return the version of the newest change in the set.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the ids of the changed records of a table.
+         *
+         * @param tableName the table name.
+         * @return the ids. They contain {@link #ALL_ITEMS} if the whole table has to be re-read.
+         */
+        public Set<Long> getChangedIds(String tableName) {
+            Set<Long> ids = changedIds.get(tableName);
+            if (ids == null) {
+                ids = new HashSet<>();
+                changedIds.put(tableName, ids);
+            }
+            return ids;
+        }
+    }
+}
@@ -40,20 +40,14 @@ import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.IGpsLogDbHelper;
-import eu.geopaparazzi.library.gpx.GpxItem;
-import eu.geopaparazzi.library.gpx.parser.GpxParser.Route;
-import eu.geopaparazzi.library.gpx.parser.GpxParser.TrackSegment;
-import eu.geopaparazzi.library.gpx.parser.RoutePoint;
-import eu.geopaparazzi.library.gpx.parser.TrackPoint;
-import eu.geopaparazzi.library.gpx.parser.WayPoint;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.database.objects.GpsLogInfo;
 import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.database.objects.LogMapItem;
+import eu.geopaparazzi.core.database.objects.StreamedLine;
 
-import static eu.geopaparazzi.library.util.LibraryConstants.DEFAULT_LOG_WIDTH;
 import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsDataTableFields;
 import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsPropertiesTableFields;
 import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsTableFields;
@@ -70,6 +64,25 @@ public class DaoGpsLog implements IGpsLogDbHelper {
     private static SimpleDateFormat dateFormatter = TimeUtilities.INSTANCE.TIME_FORMATTER_SQLITE_UTC;
     private static SimpleDateFormat dateFormatterForLabelInLocalTime = TimeUtilities.INSTANCE.TIMESTAMPFORMATTER_LOCAL;
 
+    private static final String POINTSCOUNT_TYPE = "INTEGER NOT NULL DEFAULT 0";
+
+    private static final String UPDATE_STATISTICS = "UPDATE " + TABLE_GPSLOGS + " SET " +
+            GpsLogsTableFields.COLUMN_LOG_LENGTHM.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName() + "=? WHERE " +
+            GpsLogsTableFields.COLUMN_ID.getFieldName() + "=?";
+
+    private static final String RESET_STATISTICS = "UPDATE " + TABLE_GPSLOGS + " SET " +
+            GpsLogsTableFields.COLUMN_LOG_LENGTHM.getFieldName() + "=0, " +
+            GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName() + "=0, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName() + "=NULL, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName() + "=NULL, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName() + "=NULL, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName() + "=NULL";
+
     /**
      * Create log tables.
      *
@@ -90,7 +103,12 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         sB.append(GpsLogsTableFields.COLUMN_LOG_ENDTS.getFieldName()).append(" LONG NOT NULL,");
         sB.append(GpsLogsTableFields.COLUMN_LOG_LENGTHM.getFieldName()).append(" REAL NOT NULL, ");
         sB.append(GpsLogsTableFields.COLUMN_LOG_ISDIRTY.getFieldName()).append(" INTEGER NOT NULL, ");
-        sB.append(GpsLogsTableFields.COLUMN_LOG_TEXT.getFieldName()).append(" TEXT NOT NULL ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_TEXT.getFieldName()).append(" TEXT NOT NULL, ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName()).append(" ").append(POINTSCOUNT_TYPE).append(", ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName()).append(" REAL, ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName()).append(" REAL, ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName()).append(" REAL, ");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName()).append(" REAL ");
         sB.append(");");
         String CREATE_TABLE_GPSLOGS = sB.toString();
 
@@ -196,6 +214,35 @@ public class DaoGpsLog implements IGpsLogDbHelper {
 
     }
 
+    /**
+     * Add the statistics columns to the logs table of projects created before they existed.
+     * <p>
+     * <p>The statistics of all the logs are calculated once, when the columns are added.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @throws IOException if something goes wrong.
+     */
+    public static void upgradeTables(SQLiteDatabase sqliteDatabase) throws IOException {
+        if (existsColumnInTable(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName())) {
+            return;
+        }
+        sqliteDatabase.beginTransaction();
+        try {
+            addFieldGPSTables(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName(), POINTSCOUNT_TYPE);
+            addFieldGPSTables(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName(), "REAL");
+            addFieldGPSTables(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName(), "REAL");
+            addFieldGPSTables(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName(), "REAL");
+            addFieldGPSTables(sqliteDatabase, TABLE_GPSLOGS, GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName(), "REAL");
+            updateLogStatistics(sqliteDatabase, DaoChangeJournal.ALL_ITEMS);
+            sqliteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
     public SQLiteDatabase getDatabase() throws Exception {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
         return sqliteDatabase;
@@ -226,6 +273,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             propValues.put(GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_WIDTH.getFieldName(), width);
             propValues.put(GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_VISIBLE.getFieldName(), visible ? 1 : 0);
             sqliteDatabase.insertOrThrow(TABLE_GPSLOG_PROPERTIES, null, propValues);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, rowId);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -292,6 +340,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
             sqlUpdate.close();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -328,6 +377,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             SQLiteStatement updateEndTsStmt = sqliteDatabase.compileStatement(query);
             updateEndTsStmt.execute();
             updateEndTsStmt.close();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logId);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -357,6 +407,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
             sqlUpdate.close();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logid);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -367,6 +418,16 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         }
     }
 
+    public void updateStatistics(SQLiteDatabase sqliteDatabase, long logid) throws IOException {
+        try {
+            updateLogStatistics(sqliteDatabase, logid);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logid);
+        } catch (Exception e) {
+            GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        }
+    }
+
     /**
      * Get the gps logs.
      *
@@ -396,6 +457,16 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         sB.append(GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_WIDTH.getFieldName());
         sB.append(", p.");
         sB.append(GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_VISIBLE.getFieldName());
+        sB.append(", l.");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName());
+        sB.append(", l.");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName());
+        sB.append(", l.");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName());
+        sB.append(", l.");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName());
+        sB.append(", l.");
+        sB.append(GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName());
         sB.append(" from ");
         sB.append(TABLE_GPSLOGS);
         sB.append(" l, ");
@@ -426,6 +497,9 @@ public class DaoGpsLog implements IGpsLogDbHelper {
                 // text);
                 LogMapItem item = new LogMapItem(logid, text, color, (float) width, visible == 1, start, end,
                         (double) lengthm);
+                if (!c.isNull(9)) {
+                    item.setStatistics(c.getInt(8), c.getDouble(9), c.getDouble(10), c.getDouble(11), c.getDouble(12));
+                }
                 logsList.add(item);
                 c.moveToNext();
             }
@@ -447,8 +521,20 @@ public class DaoGpsLog implements IGpsLogDbHelper {
      * @throws IOException if something goes wrong.
      */
     public static List<OverlayWay> getGpslogOverlays() throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        List<OverlayWay> logsList = new ArrayList<>();
+        return new ArrayList<>(getGpslogOverlays(DaoChangeJournal.ALL_ITEMS).values());
+    }
+
+    /**
+     * Get the visible gps logs, mapped by their id.
+     *
+     * @param logId the id of the log to get or {@link DaoChangeJournal#ALL_ITEMS} for all of them.
+     * @return the logs, empty if the log does not exist, is not visible or has less than two points.
+     * @throws IOException if something goes wrong.
+     */
+    public static LinkedHashMap<Long, OverlayWay> getGpslogOverlays(long logId) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        LinkedHashMap<Long, OverlayWay> logsMap = new LinkedHashMap<>();
 
         StringBuilder sB = new StringBuilder();
         sB.append("select l.");
@@ -469,6 +555,12 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         sB.append(GpsLogsTableFields.COLUMN_ID.getFieldName());
         sB.append(" = p.");
         sB.append(GpsLogsPropertiesTableFields.COLUMN_LOGID.getFieldName());
+        if (logId != DaoChangeJournal.ALL_ITEMS) {
+            sB.append(" and l.");
+            sB.append(GpsLogsTableFields.COLUMN_ID.getFieldName());
+            sB.append(" = ");
+            sB.append(logId);
+        }
         sB.append(" order by ");
         sB.append(GpsLogsTableFields.COLUMN_ID.getFieldName());
         String query = sB.toString();
@@ -500,7 +592,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
                         way.setWayNodes(new GeoPoint[][]{geoPoints});
                         // item.setId(logid);
                         // item.setVisible(visible == 1 ? true : false);
-                        logsList.add(way);
+                        logsMap.put(logid, way);
                     }
                 }
                 c.moveToNext();
@@ -508,12 +600,69 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         } finally {
             if (c != null)
                 c.close();
+            application.releaseReadDatabase(sqliteDatabase);
         }
 
         // Logger.d(DEBUG_TAG, "Query: " + query);
-        // Logger.d(DEBUG_TAG, "gave logs: " + logsList.size());
+        // Logger.d(DEBUG_TAG, "gave logs: " + logsMap.size());
 
-        return logsList;
+        return logsMap;
+    }
+
+    /**
+     * Get the id of the last inserted log point.
+     * <p>
+     * <p>Log points are only appended, so their id works as a version counter of the
+     * log data, which is too large to be tracked through the change journal.</p>
+     *
+     * @return the last point id or 0 if there are no points.
+     * @throws IOException if something goes wrong.
+     */
+    public static long getLastGpslogDataId() throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        String query = "SELECT max(" + GpsLogsDataTableFields.COLUMN_ID.getFieldName() + ") FROM " + TABLE_GPSLOG_DATA;
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.rawQuery(query, null);
+            if (c.moveToFirst()) {
+                return c.getLong(0);
+            }
+            return 0;
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
+        }
+    }
+
+    /**
+     * Get the ids of the logs that got points after a given point id.
+     *
+     * @param dataId the point id, as returned by {@link #getLastGpslogDataId()}.
+     * @return the log ids.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<Long> getGpslogIdsWithDataAfter(long dataId) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        String query = "SELECT DISTINCT " + GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + " FROM " + TABLE_GPSLOG_DATA +
+                " WHERE " + GpsLogsDataTableFields.COLUMN_ID.getFieldName() + " > ?";
+        List<Long> logIds = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.rawQuery(query, new String[]{String.valueOf(dataId)});
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                logIds.add(c.getLong(0));
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
+        }
+        return logIds;
     }
 
     /**
@@ -623,6 +772,8 @@ public class DaoGpsLog implements IGpsLogDbHelper {
                 sqlUpdate.close();
             }
 
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logid);
+
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
@@ -656,6 +807,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
             sqlUpdate.close();
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, DaoChangeJournal.ALL_ITEMS);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -667,55 +819,64 @@ public class DaoGpsLog implements IGpsLogDbHelper {
     }
 
     /**
-     * Merge two logs.
+     * Merge logs into one.
+     * <p>
+     * <p>The points of the merged logs are moved to the destination log and the merged logs are removed.
+     * The time range and the statistics of the destination log are updated in the same transaction.</p>
      *
-     * @param logidToRemove    log to merge into the second.
-     * @param destinationLogId log to accept the points of the first.
+     * @param logIdsToRemove   the logs to merge into the destination.
+     * @param destinationLogId log to accept the points of the others.
      * @throws IOException if something goes wrong.
      */
-    public static void mergeLogs(long logidToRemove, long destinationLogId) throws IOException {
+    public static void mergeLogs(List<Long> logIdsToRemove, long destinationLogId) throws IOException {
+        if (logIdsToRemove.isEmpty())
+            return;
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
         sqliteDatabase.beginTransaction();
         try {
+            StringBuilder idsSb = new StringBuilder();
+            for (Long logId : logIdsToRemove) {
+                idsSb.append(logId).append(",");
+            }
+            String removeIds = idsSb.substring(0, idsSb.length() - 1);
+            String allIds = removeIds + "," + destinationLogId;
 
+            String idField = GpsLogsTableFields.COLUMN_ID.getFieldName();
+            String startField = GpsLogsTableFields.COLUMN_LOG_STARTTS.getFieldName();
+            String endField = GpsLogsTableFields.COLUMN_LOG_ENDTS.getFieldName();
             StringBuilder sb = new StringBuilder();
-            sb.append("delete from ");
-            sb.append(TABLE_GPSLOGS);
-            sb.append(" where ");
-            sb.append(GpsLogsTableFields.COLUMN_ID.getFieldName());
-            sb.append(" = ");
-            sb.append(logidToRemove);
+            sb.append("UPDATE ").append(TABLE_GPSLOGS).append(" SET ");
+            sb.append(startField).append("=(SELECT min(").append(startField).append(") FROM ").append(TABLE_GPSLOGS);
+            sb.append(" WHERE ").append(idField).append(" IN (").append(allIds).append(")), ");
+            sb.append(endField).append("=(SELECT max(").append(endField).append(") FROM ").append(TABLE_GPSLOGS);
+            sb.append(" WHERE ").append(idField).append(" IN (").append(allIds).append(")) ");
+            sb.append("WHERE ").append(idField).append("=").append(destinationLogId);
             String query = sb.toString();
-            SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
-            sqlUpdate.execute();
-            sqlUpdate.close();
-
-            sb = new StringBuilder();
-            sb.append("delete from ");
-            sb.append(TABLE_GPSLOG_PROPERTIES);
-            sb.append(" where ");
-            sb.append(GpsLogsPropertiesTableFields.COLUMN_LOGID.getFieldName());
-            sb.append(" = ");
-            sb.append(logidToRemove);
-            query = sb.toString();
-            sqlUpdate = sqliteDatabase.compileStatement(query);
-            sqlUpdate.execute();
-            sqlUpdate.close();
+            if (GPLog.LOG_HEAVY)
+                GPLog.addLogEntry("DAOGPSLOG", query);
+            sqliteDatabase.execSQL(query);
 
             sb = new StringBuilder();
             sb.append("UPDATE ");
             sb.append(TABLE_GPSLOG_DATA);
             sb.append(" SET ");
-            sb.append(GpsLogsDataTableFields.COLUMN_LOGID.getFieldName()).append("='").append(destinationLogId).append("' ");
-            sb.append("WHERE ").append(GpsLogsDataTableFields.COLUMN_LOGID.getFieldName()).append("=").append(logidToRemove);
-
+            sb.append(GpsLogsDataTableFields.COLUMN_LOGID.getFieldName()).append("=").append(destinationLogId);
+            sb.append(" WHERE ").append(GpsLogsDataTableFields.COLUMN_LOGID.getFieldName()).append(" IN (").append(removeIds).append(")");
             query = sb.toString();
             if (GPLog.LOG_HEAVY)
                 GPLog.addLogEntry("DAOGPSLOG", query);
-            // sqliteDatabase.execSQL(query);
-            sqlUpdate = sqliteDatabase.compileStatement(query);
-            sqlUpdate.execute();
-            sqlUpdate.close();
+            sqliteDatabase.execSQL(query);
+
+            sqliteDatabase.execSQL("delete from " + TABLE_GPSLOG_PROPERTIES + " where " +
+                    GpsLogsPropertiesTableFields.COLUMN_LOGID.getFieldName() + " IN (" + removeIds + ")");
+            sqliteDatabase.execSQL("delete from " + TABLE_GPSLOGS + " where " + idField + " IN (" + removeIds + ")");
+
+            updateLogStatistics(sqliteDatabase, destinationLogId);
+
+            for (Long logId : logIdsToRemove) {
+                DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logId);
+            }
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, destinationLogId);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -832,7 +993,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
                 double lon = c.getDouble(1);
                 double lat = c.getDouble(2);
                 double altim = c.getDouble(3);
-                String date = c.getString(4);
+                long date = c.getLong(4);
                 Line line = linesMap.get(logid);
                 if (line == null) {
                     line = new Line("log_" + logid);
@@ -848,6 +1009,71 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         return linesMap;
     }
 
+    /**
+     * Get the lines of all logs with data, to be streamed into exports.
+     * <p>
+     * <p>Only the bounds of the lines are read here, the points are
+     * read through {@link #getGpslogDataCursor(SQLiteDatabase, long)} while the lines are written.
+     *
+     * @return the lines, ordered by gpslog id.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<StreamedLine> getStreamedLines() throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String logIdField = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
+        String lonField = GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName();
+        String latField = GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName();
+        String query = "select " + logIdField + //
+                ", min(" + latField + "), min(" + lonField + "), max(" + latField + "), max(" + lonField + ")" + //
+                " from " + TABLE_GPSLOG_DATA + //
+                // points in 0,0 are not exported, see Line#addPoint
+                " where not (" + latField + " < 0.0001 and " + lonField + " < 0.0001)" + //
+                " group by " + logIdField + //
+                " order by " + logIdField;
+
+        List<StreamedLine> linesList = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.rawQuery(query, null);
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                long logid = c.getLong(0);
+                StreamedLine line = new StreamedLine(logid, "log_" + logid, c.getDouble(1), c.getDouble(2), c.getDouble(3),
+                        c.getDouble(4));
+                linesList.add(line);
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+        }
+        return linesList;
+    }
+
+    /**
+     * Get a cursor over the points of a log, ordered by time.
+     * <p>
+     * <p>The columns are lon, lat, elevation and utc timestamp. The cursor
+     * pages through the data, so it can be used also for very long logs.
+     * It needs to be closed by the caller.
+     *
+     * @param sqliteDatabase the database to use, usually a read connection.
+     * @param logId          the id of the log.
+     * @return the cursor.
+     * @throws IOException if something goes wrong.
+     */
+    public static Cursor getGpslogDataCursor(SQLiteDatabase sqliteDatabase, long logId) throws IOException {
+        String asColumnsToReturn[] = {//
+                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
+                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
+                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(),//
+                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName()//
+        };
+        String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
+        String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        return sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder);
+    }
+
 
     /**
      * Get a tree index of gps points in a defined area.
@@ -860,7 +1086,8 @@ public class DaoGpsLog implements IGpsLogDbHelper {
      * @throws IOException
      */
     public static STRtree getGpsLogInfoTree(double n, double s, double e, double w) throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
 
         String idField1 = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
         String lonField = GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName();
@@ -911,6 +1138,7 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         } finally {
             if (c != null)
                 c.close();
+            application.releaseReadDatabase(sqliteDatabase);
         }
         return tree;
     }
@@ -945,13 +1173,13 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             }
 
             c.moveToFirst();
-            Line line = new Line("log_" + logId);
+            Line line = new Line("log_" + logId, jump > 1 ? pointsNum + 1 : count);
             while (!c.isAfterLast()) {
                 double lon = c.getDouble(0);
                 double lat = c.getDouble(1);
 
                 double altim = c.getDouble(2);
-                String date = c.getString(3);
+                long date = c.getLong(3);
                 line.addPoint(lon, lat, altim, date);
                 c.moveToNext();
                 for (int i = 1; i < jump; i++) {
@@ -1037,142 +1265,6 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         }
     }
 
-    /**
-     * Import a gpx in the database.
-     * <p/>
-     * TODO refactor a better design, with the new gpx parser this is ugly.
-     *
-     * @param gpxItem the gpx wrapper.
-     * @throws IOException if something goes wrong.
-     */
-    public static void importGpxToMap(GpxItem gpxItem) throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        String gpxName = gpxItem.getName();
-
-        // waypoints
-        List<WayPoint> wayPoints = gpxItem.getWayPoints();
-        if (wayPoints.size() > 0) {
-            long date = System.currentTimeMillis();
-
-            sqliteDatabase.beginTransaction();
-            try {
-                for (int i = 0; i < wayPoints.size(); i++) {
-                    WayPoint point = wayPoints.get(i);
-                    String nameDescr = "";
-                    String name = point.getName();
-                    if (name != null) {
-                        nameDescr = name;
-                    }
-                    String desc = point.getDescription();
-                    if (name != null && desc != null) {
-                        nameDescr = nameDescr + ":\n";
-                    }
-                    if (desc != null) {
-                        nameDescr = nameDescr + desc;
-                    }
-                    DaoNotes.addNoteNoTransaction(point.getLongitude(), point.getLatitude(), point.getElevation(), date,
-                            nameDescr, "GPX", null, null, sqliteDatabase);
-                }
-                sqliteDatabase.setTransactionSuccessful();
-            } catch (Exception e) {
-                GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
-                throw new IOException(e.getLocalizedMessage());
-            } finally {
-                sqliteDatabase.endTransaction();
-            }
-        }
-        // tracks
-        List<TrackSegment> trackSegments = gpxItem.getTrackSegments();
-        if (trackSegments.size() > 0) {
-            float width = DEFAULT_LOG_WIDTH;
-            for (TrackSegment trackSegment : trackSegments) {
-                String tsName = trackSegment.getName();
-                if (tsName == null) {
-                    tsName = "";
-                } else {
-                    tsName = " - " + tsName;
-                }
-                String name = gpxName + tsName;
-
-                long date = System.currentTimeMillis();
-
-                DaoGpsLog helper = new DaoGpsLog();
-                long logId = helper.addGpsLog(date, date, 0, name, width, ColorUtilities.BLUE.getHex(), true);
-
-                sqliteDatabase.beginTransaction();
-                try {
-                    long currentTimeMillis = System.currentTimeMillis();
-                    List<TrackPoint> points = trackSegment.getPoints();
-                    for (int i = 0; i < points.size(); i++) {
-                        TrackPoint point = points.get(i);
-                        if (point.getTime() > 0) {
-                            date = point.getTime();
-                        } else {
-                            date = currentTimeMillis + i * 1000l;
-                        }
-                        helper.addGpsLogDataPoint(sqliteDatabase, logId, point.getLongitude(), point.getLatitude(),
-                                point.getElevation(), date);
-                    }
-                    sqliteDatabase.setTransactionSuccessful();
-                } catch (Exception e) {
-                    GPLog.error("DAOMAPS", e.getLocalizedMessage(), e);
-                    throw new IOException(e.getLocalizedMessage());
-                } finally {
-                    sqliteDatabase.endTransaction();
-                }
-            }
-        }
-        // routes
-        List<Route> routes = gpxItem.getRoutes();
-        if (routes.size() > 0) {
-            for (Route route : routes) {
-                String rName = route.getName();
-                if (rName == null) {
-                    rName = gpxName;
-                }
-                long startL = route.getFirstPointTime();
-                long endL = route.getLastPointTime();
-                long startDate;
-                long endDate;
-                if (startL > 0) {
-                    startDate = startL;
-                } else {
-                    startDate = System.currentTimeMillis();
-                }
-                if (endL > 0) {
-                    endDate = endL;
-                } else {
-                    endDate = System.currentTimeMillis();
-                }
-                DaoGpsLog helper = new DaoGpsLog();
-                long logId = helper.addGpsLog(startDate, endDate, 0, rName, DEFAULT_LOG_WIDTH, ColorUtilities.GREEN.getHex(), true);
-
-                sqliteDatabase.beginTransaction();
-                try {
-                    long currentTimeMillis = System.currentTimeMillis();
-                    List<RoutePoint> points = route.getPoints();
-                    for (int i = 0; i < points.size(); i++) {
-                        RoutePoint point = points.get(i);
-                        long date;
-                        if (point.getTime() > 0) {
-                            date = point.getTime();
-                        } else {
-                            date = currentTimeMillis + i * 1000l;
-                        }
-                        helper.addGpsLogDataPoint(sqliteDatabase, logId, point.getLongitude(), point.getLatitude(),
-                                point.getElevation(), date);
-                    }
-                    sqliteDatabase.setTransactionSuccessful();
-                } catch (Exception e) {
-                    GPLog.error("DAOMAPS", e.getLocalizedMessage(), e);
-                    throw new IOException(e.getLocalizedMessage());
-                } finally {
-                    sqliteDatabase.endTransaction();
-                }
-            }
-        }
-    }
-
     /**
      * Check to see if a column is in a table.
      *
@@ -1245,86 +1337,149 @@ public class DaoGpsLog implements IGpsLogDbHelper {
     }
 
     /**
-     * update the length of a log
+     * Update the length and the other statistics of a log.
      *
      * @param logId the id of the log.
      * @return log length as double
      * @throws IOException if something goes wrong.
      */
     public static double updateLogLength(long logId) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        sqliteDatabase.beginTransaction();
+        try {
+            double length = updateLogStatistics(sqliteDatabase, logId);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_GPSLOGS, logId);
+            sqliteDatabase.setTransactionSuccessful();
+            // send the summed distance back so we don't have to query the table again
+            return length;
+        } catch (Exception e) {
+            GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
 
+    /**
+     * Recalculate the cached statistics of logs from their points.
+     * <p>
+     * <p>The points are read in a single forward pass ordered by log and time and the length,
+     * the number of points and the bounds of each log are written through one compiled statement.
+     * Transactions have to be opened and closed if necessary.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @param logId          the id of the log or {@link DaoChangeJournal#ALL_ITEMS} for all of them.
+     * @return the length of the log in meters, or the summed length of all logs.
+     */
+    public static double updateLogStatistics(SQLiteDatabase sqliteDatabase, long logId) {
+        String logIdField = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ").append(logIdField).append(", ");
+        sb.append(GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName()).append(", ");
+        sb.append(GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName());
+        sb.append(" FROM ").append(TABLE_GPSLOG_DATA);
+        if (logId != DaoChangeJournal.ALL_ITEMS) {
+            sb.append(" WHERE ").append(logIdField).append("=").append(logId);
+        }
+        sb.append(" ORDER BY ").append(logIdField).append(", ");
+        sb.append(GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName());
+        String query = sb.toString();
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry("DAOGPSLOG", query);
+
+        if (logId == DaoChangeJournal.ALL_ITEMS) {
+            // logs without points are not met by the pass
+            sqliteDatabase.execSQL(RESET_STATISTICS);
+        }
+
+        SQLiteStatement updateStatement = sqliteDatabase.compileStatement(UPDATE_STATISTICS);
+        Cursor c = null;
         try {
-            // get the log data, sum up the distances
-            SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-            String asColumnsToReturn[] = { //
-                    GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
-                    GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
-                    GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() //
-            };
-            String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-            String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-            Cursor c = null;
-            double summedDistance = 0.0;
-            double lon = 0.0;
-            double lat = 0.0;
-            double prevLon = 0.0;
-            double prevLat = 0.0;
-
-            if (GPLog.LOG_ABSURD)
-                GPLog.addLogEntry("DAOGPSLOG", strWhere);
-            try {
-                c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder);
-                c.moveToFirst();
-                while (!c.isAfterLast()) {
-                    lon = c.getDouble(0);
-                    lat = c.getDouble(1);
-
-                    Location newLoc = new Location("tempLoc1"); //$NON-NLS-1$
-                    newLoc.setLongitude(lon);
-                    newLoc.setLatitude(lat);
-                    Location prevLoc = new Location("tempLoc2"); //$NON-NLS-1$
-
-                    if (GPLog.LOG_ABSURD) {
-                        GPLog.addLogEntry("DAOGPSLOG", "lon: " + String.valueOf(lon));
-                        GPLog.addLogEntry("DAOGPSLOG", "lat: " + String.valueOf(lat));
-                        GPLog.addLogEntry("DAOGPSLOG", "prevlon: " + String.valueOf(prevLon));
-                        GPLog.addLogEntry("DAOGPSLOG", "prevlat: " + String.valueOf(prevLat));
-                    }
-                    if (prevLon == 0.0) {
-                        prevLon = lon;
-                        prevLat = lat;
-                    }
-                    prevLoc.setLongitude(prevLon);
-                    prevLoc.setLatitude(prevLat);
-                    double lastDistance = newLoc.distanceTo(prevLoc);
-                    if (GPLog.LOG_ABSURD) {
-                        GPLog.addLogEntry("DAOGPSLOG", "distance: " + String.valueOf(lastDistance));
+            c = sqliteDatabase.rawQuery(query, null);
+            float[] distance = new float[1];
+            double summedLength = 0;
+            LogStatistics stats = new LogStatistics();
+            stats.logId = logId;
+            while (c.moveToNext()) {
+                long currentLogId = c.getLong(0);
+                double lon = c.getDouble(1);
+                double lat = c.getDouble(2);
+                if (currentLogId != stats.logId) {
+                    if (stats.count > 0) {
+                        stats.write(updateStatement);
+                        summedLength += stats.length;
                     }
-                    summedDistance = summedDistance + lastDistance;
-                    prevLon = lon;
-                    prevLat = lat;
-
-                    c.moveToNext();
+                    stats.reset(currentLogId);
+                }
+                if (stats.count > 0) {
+                    Location.distanceBetween(stats.prevLat, stats.prevLon, lat, lon, distance);
+                    stats.length += distance[0];
                 }
-            } finally {
-                if (c != null)
-                    c.close();
+                stats.add(lon, lat);
             }
+            if (stats.count > 0 || logId != DaoChangeJournal.ALL_ITEMS) {
+                stats.write(updateStatement);
+                summedLength += stats.length;
+            }
+            return summedLength;
+        } finally {
+            if (c != null)
+                c.close();
+            updateStatement.close();
+        }
+    }
 
-            // update the gpslogs table with the summed distance
-            sqliteDatabase.beginTransaction();
-            String query = "update " + TABLE_GPSLOGS + " set lengthm = " + summedDistance + " where " + GpsLogsTableFields.COLUMN_ID.getFieldName() + " = " + logId;
-            SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
-            sqlUpdate.execute();
-            sqlUpdate.close();
-            sqliteDatabase.setTransactionSuccessful();
-            sqliteDatabase.endTransaction();
+    /**
+     * The running statistics of a log during the forward pass.
+     */
+    private static class LogStatistics {
+        long logId;
+        int count = 0;
+        double length = 0;
+        double minLon = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double prevLon;
+        double prevLat;
+
+        void reset(long logId) {
+            this.logId = logId;
+            count = 0;
+            length = 0;
+            minLon = Double.POSITIVE_INFINITY;
+            minLat = Double.POSITIVE_INFINITY;
+            maxLon = Double.NEGATIVE_INFINITY;
+            maxLat = Double.NEGATIVE_INFINITY;
+        }
 
-            // send the summed distance back so we don't have to query the table again
-            return (summedDistance);
-        } catch (IOException e) {
-            GPLog.error("DAOMAPS", e.getLocalizedMessage(), e);
-            throw new IOException(e.getLocalizedMessage());
+        void add(double lon, double lat) {
+            minLon = Math.min(minLon, lon);
+            minLat = Math.min(minLat, lat);
+            maxLon = Math.max(maxLon, lon);
+            maxLat = Math.max(maxLat, lat);
+            prevLon = lon;
+            prevLat = lat;
+            count++;
+        }
+
+        void write(SQLiteStatement updateStatement) {
+            updateStatement.clearBindings();
+            updateStatement.bindDouble(1, length);
+            updateStatement.bindLong(2, count);
+            if (count > 0) {
+                updateStatement.bindDouble(3, minLon);
+                updateStatement.bindDouble(4, minLat);
+                updateStatement.bindDouble(5, maxLon);
+                updateStatement.bindDouble(6, maxLat);
+            } else {
+                updateStatement.bindNull(3);
+                updateStatement.bindNull(4);
+                updateStatement.bindNull(5);
+                updateStatement.bindNull(6);
+            }
+            updateStatement.bindLong(7, logId);
+            updateStatement.executeUpdateDelete();
         }
     }
 }
@@ -29,7 +29,9 @@ import org.mapsforge.core.model.GeoPoint;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
@@ -158,6 +160,10 @@ public class DaoImages implements IImagesDbHelper {
             // first insert image data
             ContentValues imageDataValues = new ContentValues();
             imageDataValues.put(ImageDataTableFields.COLUMN_IMAGE.getFieldName(), image);
+            if (thumb == null) {
+                // generated later by the thumbnail service
+                thumb = new byte[0];
+            }
             imageDataValues.put(ImageDataTableFields.COLUMN_THUMBNAIL.getFieldName(), thumb);
             long imageDataId = sqliteDatabase.insertOrThrow(TABLE_IMAGE_DATA, null, imageDataValues);
 
@@ -173,6 +179,7 @@ public class DaoImages implements IImagesDbHelper {
             values.put(ImageTableFields.COLUMN_ISDIRTY.getFieldName(), 1);
             values.put(ImageTableFields.COLUMN_NOTE_ID.getFieldName(), noteId);
             long imageId = sqliteDatabase.insertOrThrow(TABLE_IMAGES, null, values);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_IMAGES, imageId);
 
             sqliteDatabase.setTransactionSuccessful();
 
@@ -226,6 +233,9 @@ public class DaoImages implements IImagesDbHelper {
             String query = "delete from " + TABLE_IMAGES + " where " + imageIdsWhereStr;
             SQLiteStatement deleteStmt = sqliteDatabase.compileStatement(query);
             deleteStmt.execute();
+            for (long id : ids) {
+                DaoChangeJournal.recordChange(sqliteDatabase, TABLE_IMAGES, id);
+            }
 
             // delete images data
             query = "delete from " + TABLE_IMAGE_DATA + " where " + imageDataIdsWhereStr;
@@ -251,7 +261,7 @@ public class DaoImages implements IImagesDbHelper {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
         sqliteDatabase.beginTransaction();
         try {
-            String asColumnsToReturn[] = {ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName()};
+            String asColumnsToReturn[] = {ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName(), ImageTableFields.COLUMN_ID.getFieldName()};
             String notesIdsWhereStr = "";
             int count = 0;
             for (long id : noteIds) {
@@ -264,9 +274,11 @@ public class DaoImages implements IImagesDbHelper {
             Cursor c = sqliteDatabase.query(TABLE_IMAGES, asColumnsToReturn, notesIdsWhereStr, null, null, null, null);
             c.moveToFirst();
             String imageDataIdsWhereStr = "";
+            List<Long> imageIds = new ArrayList<>();
             count = 0;
             while (!c.isAfterLast()) {
                 long imageDataId = c.getLong(0);
+                imageIds.add(c.getLong(1));
                 c.moveToNext();
                 if (count > 0) {
                     imageDataIdsWhereStr = imageDataIdsWhereStr + " || ";
@@ -282,6 +294,9 @@ public class DaoImages implements IImagesDbHelper {
             String query = "delete from " + TABLE_IMAGES + " where " + notesIdsWhereStr;
             SQLiteStatement deleteStmt = sqliteDatabase.compileStatement(query);
             deleteStmt.execute();
+            for (long imageId : imageIds) {
+                DaoChangeJournal.recordChange(sqliteDatabase, TABLE_IMAGES, imageId);
+            }
 
             // delete images data
             query = "delete from " + TABLE_IMAGE_DATA + " where " + imageDataIdsWhereStr;
@@ -442,18 +457,7 @@ public class DaoImages implements IImagesDbHelper {
 
     public byte[] getImageData(long imageId) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        String[] asColumnsToReturn = { //
-                ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName()//
-        };
-        String whereStr = ImageTableFields.COLUMN_ID.getFieldName() + " = " + imageId;
-        Cursor c = sqliteDatabase.query(TABLE_IMAGES, asColumnsToReturn, whereStr, null, null, null, null);
-        c.moveToFirst();
-        long imageDataId = -1;
-        if (!c.isAfterLast()) {
-            imageDataId = c.getLong(0);
-        }
-        c.close();
-
+        long imageDataId = getImageDataId(sqliteDatabase, imageId);
         if (imageDataId != -1) {
             byte[] imageData = getImageDataById(imageDataId, sqliteDatabase);
             return imageData;
@@ -462,6 +466,24 @@ public class DaoImages implements IImagesDbHelper {
         return null;
     }
 
+    private long getImageDataId(SQLiteDatabase sqliteDatabase, long imageId) {
+        String[] asColumnsToReturn = { //
+                ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName()//
+        };
+        String whereStr = ImageTableFields.COLUMN_ID.getFieldName() + " = " + imageId;
+        Cursor c = sqliteDatabase.query(TABLE_IMAGES, asColumnsToReturn, whereStr, null, null, null, null);
+        try {
+            c.moveToFirst();
+            long imageDataId = -1;
+            if (!c.isAfterLast()) {
+                imageDataId = c.getLong(0);
+            }
+            return imageDataId;
+        } finally {
+            c.close();
+        }
+    }
+
     public byte[] getImageDataById(long imageDataId, SQLiteDatabase sqliteDatabase) throws IOException {
         if (sqliteDatabase == null) {
             sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
@@ -483,41 +505,10 @@ public class DaoImages implements IImagesDbHelper {
             }
         } catch (Exception ex) {
             if (ex.getLocalizedMessage().contains("Couldn't read row")) {
-                String sizeQuery = "SELECT " + ImageDataTableFields.COLUMN_ID.getFieldName() +//
-                        ", length(" + ImageDataTableFields.COLUMN_IMAGE.getFieldName() + ") " +//
-                        "FROM " + TABLE_IMAGE_DATA +//
-                        " WHERE " + whereStr;
-                //"length(" + ImageDataTableFields.COLUMN_IMAGE.getFieldName() + ") > 1000000";
-                Cursor sizeCursor = sqliteDatabase.rawQuery(sizeQuery, null);
-                sizeCursor.moveToFirst();
-                long blobSize = 0;
-                if (!sizeCursor.isAfterLast()) {
-                    blobSize = sizeCursor.getLong(1);
-                }
-                sizeCursor.close();
-
-                ByteArrayOutputStream bout = new ByteArrayOutputStream();
-
-                int maxBlobSize = ImageUtilities.MAXBLOBSIZE;
-                if (blobSize > maxBlobSize) {
-                    for (long i = 1; i <= blobSize; i = i + maxBlobSize) {
-                        long from = i;
-                        long size = maxBlobSize;
-                        if (from + size > blobSize) {
-                            size = blobSize - from + 1;
-                        }
-                        String tmpQuery = "SELECT substr(" + ImageDataTableFields.COLUMN_IMAGE.getFieldName() + //
-                                "," + from + ", " + size + ") FROM " + TABLE_IMAGE_DATA + " WHERE " + whereStr;
-                        if (GPLog.LOG_HEAVY)
-                            GPLog.addLogEntry(this, "ISSUE QUERY: " + tmpQuery);
-                        Cursor imageCunchCursor = sqliteDatabase.rawQuery(tmpQuery, null);
-                        imageCunchCursor.moveToFirst();
-                        if (!imageCunchCursor.isAfterLast()) {
-                            byte[] blobData = imageCunchCursor.getBlob(0);
-                            bout.write(blobData);
-                        }
-                        imageCunchCursor.close();
-                    }
+                long blobSize = getImageDataSize(sqliteDatabase, imageDataId);
+                if (blobSize > 0) {
+                    ByteArrayOutputStream bout = new ByteArrayOutputStream((int) blobSize);
+                    writeImageDataChunks(sqliteDatabase, imageDataId, blobSize, bout);
                     imageData = bout.toByteArray();
                     bout.close();
                 }
@@ -531,8 +522,81 @@ public class DaoImages implements IImagesDbHelper {
         return imageData;
     }
 
+    public long writeImageData(long imageId, OutputStream outputStream) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        long imageDataId = getImageDataId(sqliteDatabase, imageId);
+        if (imageDataId != -1) {
+            return writeImageDataById(imageDataId, sqliteDatabase, outputStream);
+        }
+        return -1;
+    }
+
+    public long writeImageDataById(long imageDataId, SQLiteDatabase sqliteDatabase, OutputStream outputStream) throws IOException {
+        if (sqliteDatabase == null) {
+            sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        }
+        long blobSize = getImageDataSize(sqliteDatabase, imageDataId);
+        if (blobSize < 0) {
+            return -1;
+        }
+        writeImageDataChunks(sqliteDatabase, imageDataId, blobSize, outputStream);
+        return blobSize;
+    }
+
+    /**
+     * Get the size of the image data blob.
+     *
+     * @return the size in bytes or -1 if the record or its data do not exist.
+     */
+    private long getImageDataSize(SQLiteDatabase sqliteDatabase, long imageDataId) {
+        String sizeQuery = "SELECT length(" + ImageDataTableFields.COLUMN_IMAGE.getFieldName() + ") " +//
+                "FROM " + TABLE_IMAGE_DATA +//
+                " WHERE " + ImageDataTableFields.COLUMN_ID.getFieldName() + " = ?";
+        Cursor sizeCursor = sqliteDatabase.rawQuery(sizeQuery, new String[]{String.valueOf(imageDataId)});
+        try {
+            sizeCursor.moveToFirst();
+            if (!sizeCursor.isAfterLast() && !sizeCursor.isNull(0)) {
+                return sizeCursor.getLong(0);
+            }
+            return -1;
+        } finally {
+            sizeCursor.close();
+        }
+    }
+
+    /**
+     * Copy the image data blob to a stream through ranged reads.
+     * <p>
+     * <p>Each chunk is small enough to fit the cursor window and the ranged query is always
+     * the same, so it is compiled once and then only rebound.
+     */
+    private void writeImageDataChunks(SQLiteDatabase sqliteDatabase, long imageDataId, long blobSize, OutputStream outputStream)
+            throws IOException {
+        String chunkQuery = "SELECT substr(" + ImageDataTableFields.COLUMN_IMAGE.getFieldName() + ", ?, ?) " +//
+                "FROM " + TABLE_IMAGE_DATA +//
+                " WHERE " + ImageDataTableFields.COLUMN_ID.getFieldName() + " = ?";
+        String idString = String.valueOf(imageDataId);
+        int maxBlobSize = ImageUtilities.MAXBLOBSIZE;
+        // substr is 1 based
+        for (long from = 1; from <= blobSize; from = from + maxBlobSize) {
+            long size = Math.min(maxBlobSize, blobSize - from + 1);
+            if (GPLog.LOG_HEAVY)
+                GPLog.addLogEntry(this, "ISSUE CHUNK QUERY: " + from + "/" + blobSize);
+            Cursor chunkCursor = sqliteDatabase.rawQuery(chunkQuery, new String[]{String.valueOf(from), String.valueOf(size), idString});
+            try {
+                chunkCursor.moveToFirst();
+                if (chunkCursor.isAfterLast()) {
+                    throw new IOException("Image data " + imageDataId + " changed while reading it.");
+                }
+                outputStream.write(chunkCursor.getBlob(0));
+            } finally {
+                chunkCursor.close();
+            }
+        }
+    }
+
 
-    public byte[] getImageThumbnail(long imageId) throws Exception {
+    public byte[] getImageThumbnail(long imageId) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
         String[] asColumnsToReturn = { //
                 ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName()//
@@ -554,7 +618,7 @@ public class DaoImages implements IImagesDbHelper {
         return null;
     }
 
-    public byte[] getImageThumbnailById(SQLiteDatabase sqliteDatabase, long imageDataId) throws Exception {
+    public byte[] getImageThumbnailById(SQLiteDatabase sqliteDatabase, long imageDataId) throws IOException {
         String[] asColumnsToReturn;
         String whereStr;
         asColumnsToReturn = new String[]{ //
@@ -575,6 +639,18 @@ public class DaoImages implements IImagesDbHelper {
         return imageData;
     }
 
+    public void updateImageThumbnail(long imageId, byte[] thumbnail) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        long imageDataId = getImageDataId(sqliteDatabase, imageId);
+        if (imageDataId == -1) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(ImageDataTableFields.COLUMN_THUMBNAIL.getFieldName(), thumbnail);
+        sqliteDatabase.update(TABLE_IMAGE_DATA, values, ImageDataTableFields.COLUMN_ID.getFieldName() + "=?",
+                new String[]{String.valueOf(imageDataId)});
+    }
+
     /**
      * Get all image overlays.
      *
@@ -586,32 +662,57 @@ public class DaoImages implements IImagesDbHelper {
      * @throws IOException if something goes wrong.
      */
     public static List<OverlayItem> getImagesOverlayList(Drawable marker, boolean onlyStandalone) throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        List<OverlayItem> images = new ArrayList<>();
+        return new ArrayList<>(getImagesOverlays(marker, onlyStandalone, DaoChangeJournal.ALL_ITEMS).values());
+    }
+
+    /**
+     * Get images from the db as {@link OverlayItem}s, mapped by their id.
+     *
+     * @param marker         the marker to use.
+     * @param onlyStandalone if true, only pure image notes are returned.
+     * @param imageId        the id of the image to get or {@link DaoChangeJournal#ALL_ITEMS} for all of them.
+     * @return the images, empty if the image does not exist or is not standalone.
+     * @throws IOException if something goes wrong.
+     */
+    public static LinkedHashMap<Long, OverlayItem> getImagesOverlays(Drawable marker, boolean onlyStandalone, long imageId) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        LinkedHashMap<Long, OverlayItem> images = new LinkedHashMap<>();
         String asColumnsToReturn[] = {//
                 ImageTableFields.COLUMN_LON.getFieldName(),//
                 ImageTableFields.COLUMN_LAT.getFieldName(), //
                 ImageTableFields.COLUMN_IMAGEDATA_ID.getFieldName(),//
-                ImageTableFields.COLUMN_TEXT.getFieldName()//
+                ImageTableFields.COLUMN_TEXT.getFieldName(),//
+                ImageTableFields.COLUMN_ID.getFieldName()//
         };
         String strSortOrder = "_id ASC";
         String whereString = null;
         if (onlyStandalone) {
             whereString = ImageTableFields.COLUMN_NOTE_ID.getFieldName() + " < 0";
         }
-        Cursor c = sqliteDatabase.query(TABLE_IMAGES, asColumnsToReturn, whereString, null, null, null, strSortOrder);
-        c.moveToFirst();
-        while (!c.isAfterLast()) {
-            double lon = c.getDouble(0);
-            double lat = c.getDouble(1);
-            long imageDataId = c.getLong(2);
-            String text = c.getString(3);
+        if (imageId != DaoChangeJournal.ALL_ITEMS) {
+            String idWhere = ImageTableFields.COLUMN_ID.getFieldName() + " = " + imageId;
+            whereString = whereString == null ? idWhere : whereString + " AND " + idWhere;
+        }
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.query(TABLE_IMAGES, asColumnsToReturn, whereString, null, null, null, strSortOrder);
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                double lon = c.getDouble(0);
+                double lat = c.getDouble(1);
+                long imageDataId = c.getLong(2);
+                String text = c.getString(3);
 
-            OverlayItem image = new OverlayItem(new GeoPoint(lat, lon), text, imageDataId + "", marker);
-            images.add(image);
-            c.moveToNext();
+                OverlayItem image = new OverlayItem(new GeoPoint(lat, lon), text, imageDataId + "", marker);
+                images.put(c.getLong(4), image);
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
         }
-        c.close();
         return images;
     }
 
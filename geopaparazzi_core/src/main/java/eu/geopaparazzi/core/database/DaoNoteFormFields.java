@@ -0,0 +1,395 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.geopaparazzi.core.GeopaparazziApplication;
+import eu.geopaparazzi.core.database.objects.FormField;
+import eu.geopaparazzi.core.database.objects.Note;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.forms.FormUtilities;
+import eu.geopaparazzi.library.forms.TagsManager;
+
+import static eu.geopaparazzi.core.database.TableDescriptions.NotesFormFieldsTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.NotesTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_NOTES;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_NOTES_FORMFIELDS;
+
+/**
+ * The keyed items of the notes forms, one record per item.
+ * <p>
+ * <p>The form json of the notes table stays the master copy. The fields table is rewritten by
+ * {@link DaoNotes} in the same transaction as the form, so that fields can be searched, filtered
+ * and exported through sql without parsing the json of every note.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class DaoNoteFormFields {
+
+    private static final String INSERT_FIELD = "INSERT INTO " + TABLE_NOTES_FORMFIELDS + " (" +
+            NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_POSITION.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_SECTION.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_FORM.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_KEY.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_LABEL.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_TYPE.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_NUMVALUE.getFieldName() +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_FIELDS = "SELECT " +
+            NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_SECTION.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_FORM.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_KEY.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_LABEL.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_TYPE.getFieldName() + ", " +
+            NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName() +
+            " FROM " + TABLE_NOTES_FORMFIELDS;
+
+    /**
+     * Create the fields table, if it does not exist.
+     * <p>
+     * <p>This is also called on existing databases. The first time they are opened, the
+     * table is filled from the forms of the existing notes.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @throws IOException if something goes wrong.
+     */
+    public static void createTables(SQLiteDatabase sqliteDatabase) throws IOException {
+        Cursor c = sqliteDatabase.rawQuery("SELECT name FROM sqlite_master WHERE type='table' AND name=?",
+                new String[]{TABLE_NOTES_FORMFIELDS});
+        try {
+            if (c.moveToFirst())
+                return;
+        } finally {
+            c.close();
+        }
+
+        StringBuilder sB = new StringBuilder();
+        sB.append("CREATE TABLE ");
+        sB.append(TABLE_NOTES_FORMFIELDS);
+        sB.append(" (");
+        sB.append(NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_POSITION.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_SECTION.getFieldName()).append(" TEXT, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_FORM.getFieldName()).append(" TEXT, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_KEY.getFieldName()).append(" TEXT NOT NULL, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_LABEL.getFieldName()).append(" TEXT, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_TYPE.getFieldName()).append(" TEXT NOT NULL, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName()).append(" TEXT, ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_NUMVALUE.getFieldName()).append(" REAL");
+        sB.append(");");
+        String CREATE_TABLE_FORMFIELDS = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX notesformfields_noteid_idx ON ");
+        sB.append(TABLE_NOTES_FORMFIELDS);
+        sB.append(" ( ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName());
+        sB.append(", ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_POSITION.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_FORMFIELDS_NOTEID = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX notesformfields_key_value_idx ON ");
+        sB.append(TABLE_NOTES_FORMFIELDS);
+        sB.append(" ( ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_KEY.getFieldName());
+        sB.append(", ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_FORMFIELDS_KEY_VALUE = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX notesformfields_key_numvalue_idx ON ");
+        sB.append(TABLE_NOTES_FORMFIELDS);
+        sB.append(" ( ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_KEY.getFieldName());
+        sB.append(", ");
+        sB.append(NotesFormFieldsTableFields.COLUMN_NUMVALUE.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_FORMFIELDS_KEY_NUMVALUE = sB.toString();
+
+        if (GPLog.LOG_ANDROID)
+            Log.i("DAONOTEFORMFIELDS", "Create the notes form fields table.");
+
+        sqliteDatabase.beginTransaction();
+        try {
+            sqliteDatabase.execSQL(CREATE_TABLE_FORMFIELDS);
+            sqliteDatabase.execSQL(CREATE_INDEX_FORMFIELDS_NOTEID);
+            sqliteDatabase.execSQL(CREATE_INDEX_FORMFIELDS_KEY_VALUE);
+            sqliteDatabase.execSQL(CREATE_INDEX_FORMFIELDS_KEY_NUMVALUE);
+
+            // fill the table from the forms of the existing notes
+            String query = "SELECT " + NotesTableFields.COLUMN_ID.getFieldName() + ", " +
+                    NotesTableFields.COLUMN_FORM.getFieldName() + " FROM " + TABLE_NOTES +
+                    " WHERE length(" + NotesTableFields.COLUMN_FORM.getFieldName() + ") > 0";
+            SQLiteStatement insertStatement = sqliteDatabase.compileStatement(INSERT_FIELD);
+            Cursor notesCursor = sqliteDatabase.rawQuery(query, null);
+            try {
+                while (notesCursor.moveToNext()) {
+                    insertFields(insertStatement, notesCursor.getLong(0), notesCursor.getString(1));
+                }
+            } finally {
+                notesCursor.close();
+                insertStatement.close();
+            }
+
+            sqliteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e("DAONOTEFORMFIELDS", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * Replace the fields of a note with the ones of its form.
+     * <p>
+     * <p>Transactions have to be handled by the caller.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @param noteId         the id of the note.
+     * @param form           the json form of the note or <code>null</code>.
+     */
+    public static void replaceFields(SQLiteDatabase sqliteDatabase, long noteId, String form) {
+        deleteFields(sqliteDatabase, noteId);
+        if (form == null || form.length() == 0)
+            return;
+        SQLiteStatement insertStatement = sqliteDatabase.compileStatement(INSERT_FIELD);
+        try {
+            insertFields(insertStatement, noteId, form);
+        } finally {
+            insertStatement.close();
+        }
+    }
+
+    /**
+     * Delete the fields of a note.
+     * <p>
+     * <p>Transactions have to be handled by the caller.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     * @param noteId         the id of the note.
+     */
+    public static void deleteFields(SQLiteDatabase sqliteDatabase, long noteId) {
+        sqliteDatabase.delete(TABLE_NOTES_FORMFIELDS, NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() + "=?",
+                new String[]{String.valueOf(noteId)});
+    }
+
+    /**
+     * Delete the fields of notes that do not exist anymore.
+     * <p>
+     * <p>Transactions have to be handled by the caller.</p>
+     *
+     * @param sqliteDatabase the database to use.
+     */
+    public static void deleteOrphanFields(SQLiteDatabase sqliteDatabase) {
+        sqliteDatabase.delete(TABLE_NOTES_FORMFIELDS, NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() +
+                " NOT IN (SELECT " + NotesTableFields.COLUMN_ID.getFieldName() + " FROM " + TABLE_NOTES + ")", null);
+    }
+
+    private static void insertFields(SQLiteStatement insertStatement, long noteId, String form) {
+        try {
+            JSONObject sectionObject = new JSONObject(form);
+            String sectionName = sectionObject.optString(FormUtilities.ATTR_SECTIONNAME, null);
+            int position = 0;
+            List<String> formsNames = TagsManager.getFormNames4Section(sectionObject);
+            for (String formName : formsNames) {
+                JSONObject form4Name = TagsManager.getForm4Name(formName, sectionObject);
+                JSONArray formItems = TagsManager.getFormItems(form4Name);
+                for (int i = 0; i < formItems.length(); i++) {
+                    JSONObject formItem = formItems.getJSONObject(i);
+                    if (!formItem.has(FormUtilities.TAG_KEY)) {
+                        continue;
+                    }
+                    String type = formItem.getString(FormUtilities.TAG_TYPE);
+                    String key = formItem.getString(FormUtilities.TAG_KEY);
+                    String value = formItem.optString(FormUtilities.TAG_VALUE, "");
+                    String label = formItem.optString(FormUtilities.TAG_LABEL, null);
+
+                    insertStatement.clearBindings();
+                    insertStatement.bindLong(1, noteId);
+                    insertStatement.bindLong(2, position++);
+                    bindStringOrNull(insertStatement, 3, sectionName);
+                    bindStringOrNull(insertStatement, 4, formName);
+                    insertStatement.bindString(5, key);
+                    bindStringOrNull(insertStatement, 6, label);
+                    insertStatement.bindString(7, type);
+                    insertStatement.bindString(8, value);
+                    if (type.equals(FormUtilities.TYPE_DOUBLE) || type.equals(FormUtilities.TYPE_INTEGER)) {
+                        try {
+                            insertStatement.bindDouble(9, Double.parseDouble(value.trim()));
+                        } catch (NumberFormatException e) {
+                            // empty or invalid, left null
+                        }
+                    }
+                    insertStatement.executeInsert();
+                }
+            }
+        } catch (Exception e) {
+            // the note keeps its form, it is just not searchable
+            GPLog.error("DAONOTEFORMFIELDS", "Unable to read the form of note: " + noteId, e);
+        }
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Get the fields of a note.
+     *
+     * @param noteId the id of the note.
+     * @return the fields in the order of the form.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<FormField> getFormFields(long noteId) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String query = SELECT_FIELDS + " WHERE " + NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() + "=?" +
+                " ORDER BY " + NotesFormFieldsTableFields.COLUMN_POSITION.getFieldName();
+        List<FormField> fields = new ArrayList<>();
+        Cursor c = sqliteDatabase.rawQuery(query, new String[]{String.valueOf(noteId)});
+        try {
+            while (c.moveToNext()) {
+                fields.add(new FormField(c.getLong(0), c.getString(1), c.getString(2), c.getString(3),
+                        c.getString(4), c.getString(5), c.getString(6)));
+            }
+        } finally {
+            c.close();
+        }
+        return fields;
+    }
+
+    /**
+     * Get the ids of the images referenced by the form of a note.
+     *
+     * @param noteId the id of the note.
+     * @return the list of image ids, in the order of the form.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<String> getImageIds(long noteId) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String query = "SELECT " + NotesFormFieldsTableFields.COLUMN_TYPE.getFieldName() + ", " +
+                NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName() + " FROM " + TABLE_NOTES_FORMFIELDS +
+                " WHERE " + NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() + "=? AND " +
+                NotesFormFieldsTableFields.COLUMN_TYPE.getFieldName() + " IN (?, ?, ?)" +
+                " ORDER BY " + NotesFormFieldsTableFields.COLUMN_POSITION.getFieldName();
+        List<String> imageIds = new ArrayList<>();
+        Cursor c = sqliteDatabase.rawQuery(query, new String[]{String.valueOf(noteId),
+                FormUtilities.TYPE_PICTURES, FormUtilities.TYPE_SKETCH, FormUtilities.TYPE_MAP});
+        try {
+            while (c.moveToNext()) {
+                String type = c.getString(0);
+                String value = c.getString(1);
+                if (value == null || value.trim().length() == 0) {
+                    continue;
+                }
+                if (type.equals(FormUtilities.TYPE_MAP)) {
+                    imageIds.add(value.trim());
+                } else {
+                    String[] imageSplit = value.split(Note.IMAGES_SEPARATOR);
+                    for (String image : imageSplit) {
+                        imageIds.add(image);
+                    }
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return imageIds;
+    }
+
+    /**
+     * Get the plain text representation of the form of a note.
+     * <p>
+     * <p>This gives the same text as {@link FormUtilities#formToPlainText(String, boolean)} without titles.</p>
+     *
+     * @param noteId the id of the note.
+     * @return the text with one line per field.
+     * @throws IOException if something goes wrong.
+     */
+    public static String getPlainText(long noteId) throws IOException {
+        StringBuilder sB = new StringBuilder();
+        List<FormField> fields = getFormFields(noteId);
+        for (FormField field : fields) {
+            String value = field.getValue();
+            if (field.isImage()) {
+                if (value.trim().length() == 0) {
+                    continue;
+                }
+                String[] imageSplit = value.split(Note.IMAGES_SEPARATOR);
+                for (String image : imageSplit) {
+                    sB.append(field.getLabel()).append(": ");
+                    sB.append(new File(image).getName());
+                    sB.append("\n");
+                }
+            } else {
+                sB.append(field.getLabel()).append(": ");
+                sB.append(value);
+                sB.append("\n");
+            }
+        }
+        return sB.toString();
+    }
+
+    /**
+     * Get the ids of the notes that have a field value containing a text.
+     *
+     * @param text the text to search, case insensitive.
+     * @return the note ids.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<Long> getNoteIdsContaining(String text) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String query = "SELECT DISTINCT " + NotesFormFieldsTableFields.COLUMN_NOTEID.getFieldName() +
+                " FROM " + TABLE_NOTES_FORMFIELDS + " WHERE " +
+                NotesFormFieldsTableFields.COLUMN_VALUE.getFieldName() + " LIKE ?";
+        List<Long> ids = new ArrayList<>();
+        Cursor c = sqliteDatabase.rawQuery(query, new String[]{"%" + text + "%"});
+        try {
+            while (c.moveToNext()) {
+                ids.add(c.getLong(0));
+            }
+        } finally {
+            c.close();
+        }
+        return ids;
+    }
+}
@@ -19,6 +19,7 @@ package eu.geopaparazzi.core.database;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.graphics.drawable.Drawable;
@@ -30,6 +31,7 @@ import org.mapsforge.core.model.GeoPoint;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
@@ -49,6 +51,30 @@ import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_NOTES;
 @SuppressWarnings("nls")
 public class DaoNotes {
 
+    private static final String SELECT_NOTES = "SELECT " +//
+            NotesTableFields.COLUMN_ID.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_LON.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_LAT.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_ALTIM.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_TEXT.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_TS.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_DESCRIPTION.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_STYLE.getFieldName() +
+            ", " +//
+            NotesTableFields.COLUMN_FORM.getFieldName() +//
+            ", " +//
+            NotesTableFields.COLUMN_ISDIRTY.getFieldName() +//
+            " FROM " + TABLE_NOTES;
+
+    private static final String WHERE_HAS_FORM = "length(" + NotesTableFields.COLUMN_FORM.getFieldName() + ") > 0";
+
     /**
      * Create the notes tables.
      *
@@ -185,6 +211,9 @@ public class DaoNotes {
             values.put(NotesTableFields.COLUMN_STYLE.getFieldName(), style);
         values.put(NotesTableFields.COLUMN_ISDIRTY.getFieldName(), 1);
         long noteId = sqliteDatabase.insertOrThrow(TABLE_NOTES, null, values);
+        if (form != null)
+            DaoNoteFormFields.replaceFields(sqliteDatabase, noteId, form);
+        DaoChangeJournal.recordChange(sqliteDatabase, TABLE_NOTES, noteId);
         return noteId;
     }
 
@@ -202,6 +231,8 @@ public class DaoNotes {
             String query = "delete from " + TABLE_NOTES + " where " + NotesTableFields.COLUMN_ID.getFieldName() + " = " + id;
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
+            DaoNoteFormFields.deleteFields(sqliteDatabase, id);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_NOTES, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -225,6 +256,8 @@ public class DaoNotes {
             String query = "delete from " + TABLE_NOTES + " where " + NotesTableFields.COLUMN_DESCRIPTION.getFieldName() + " = " + LibraryConstants.OSM;
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
+            DaoNoteFormFields.deleteOrphanFields(sqliteDatabase);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_NOTES, DaoChangeJournal.ALL_ITEMS);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -255,8 +288,19 @@ public class DaoNotes {
         String[] whereArgs = null;
 
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        sqliteDatabase.beginTransaction();
+        try {
+            sqliteDatabase.update(TABLE_NOTES, updatedValues, where, whereArgs);
+            DaoNoteFormFields.replaceFields(sqliteDatabase, id, jsonStr);
+            DaoChangeJournal.recordChange(sqliteDatabase, TABLE_NOTES, id);
 
-        sqliteDatabase.update(TABLE_NOTES, updatedValues, where, whereArgs);
+            sqliteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            GPLog.error("DAONOTES", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
     }
 
     /**
@@ -271,27 +315,7 @@ public class DaoNotes {
 
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
 
-        String query = "SELECT " +//
-                NotesTableFields.COLUMN_ID.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_LON.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_LAT.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_ALTIM.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_TEXT.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_TS.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_DESCRIPTION.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_STYLE.getFieldName() +
-                ", " +//
-                NotesTableFields.COLUMN_FORM.getFieldName() +//
-                ", " +//
-                NotesTableFields.COLUMN_ISDIRTY.getFieldName() +//
-                " FROM " + TABLE_NOTES;
+        String query = SELECT_NOTES;
         if (nswe != null) {
             query = query + " WHERE (lon BETWEEN XXX AND XXX) AND (lat BETWEEN XXX AND XXX)";
             query = query.replaceFirst("XXX", String.valueOf(nswe[2]));
@@ -306,18 +330,7 @@ public class DaoNotes {
         List<Note> notes = new ArrayList<>();
         c.moveToFirst();
         while (!c.isAfterLast()) {
-            long id = c.getLong(0);
-            double lon = c.getDouble(1);
-            double lat = c.getDouble(2);
-            double altim = c.getDouble(3);
-            String text = c.getString(4);
-            long timestamp = c.getLong(5);
-            String description = c.getString(6);
-            String style = c.getString(7);
-            String form = c.getString(8);
-            int isDirty = c.getInt(9);
-
-            Note note = new Note(id, text, description, timestamp, lon, lat, altim, form, isDirty, style);
+            Note note = getNote(c);
             notes.add(note);
             c.moveToNext();
         }
@@ -325,6 +338,50 @@ public class DaoNotes {
         return notes;
     }
 
+    /**
+     * Get a cursor over the notes that have a form, ordered by id.
+     * <p>
+     * <p>This is meant for exports, which can read the notes one at a time
+     * through {@link #getNote(Cursor)}. The cursor has to be closed by the caller.</p>
+     *
+     * @return the cursor.
+     * @throws IOException if something goes wrong.
+     */
+    public static Cursor getFormNotesCursor() throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        String query = SELECT_NOTES + " WHERE " + WHERE_HAS_FORM + " ORDER BY " + NotesTableFields.COLUMN_ID.getFieldName();
+        return sqliteDatabase.rawQuery(query, null);
+    }
+
+    /**
+     * @return the number of notes that have a form.
+     * @throws IOException if something goes wrong.
+     */
+    public static long getFormNotesCount() throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        return DatabaseUtils.queryNumEntries(sqliteDatabase, TABLE_NOTES, WHERE_HAS_FORM);
+    }
+
+    /**
+     * Create a note from the current row of a cursor obtained from {@link #getFormNotesCursor()}.
+     *
+     * @param c the cursor.
+     * @return the note.
+     */
+    public static Note getNote(Cursor c) {
+        long id = c.getLong(0);
+        double lon = c.getDouble(1);
+        double lat = c.getDouble(2);
+        double altim = c.getDouble(3);
+        String text = c.getString(4);
+        long timestamp = c.getLong(5);
+        String description = c.getString(6);
+        String style = c.getString(7);
+        String form = c.getString(8);
+        int isDirty = c.getInt(9);
+        return new Note(id, text, description, timestamp, lon, lat, altim, form, isDirty, style);
+    }
+
     public static Note getNoteById(long checkId) throws IOException {
 
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
@@ -384,41 +441,66 @@ public class DaoNotes {
      * @throws IOException if something goes wrong.
      */
     public static List<OverlayItem> getNoteOverlaysList(Drawable marker) throws IOException {
-        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        List<OverlayItem> notesList = new ArrayList<>();
+        return new ArrayList<>(getNoteOverlays(marker, DaoChangeJournal.ALL_ITEMS).values());
+    }
+
+    /**
+     * Get notes from the db as OverlayItems, mapped by their id.
+     *
+     * @param marker the marker to use.
+     * @param noteId the id of the note to get or {@link DaoChangeJournal#ALL_ITEMS} for all of them.
+     * @return the notes, empty if the note does not exist.
+     * @throws IOException if something goes wrong.
+     */
+    public static LinkedHashMap<Long, OverlayItem> getNoteOverlays(Drawable marker, long noteId) throws IOException {
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        LinkedHashMap<Long, OverlayItem> notesMap = new LinkedHashMap<>();
         String asColumnsToReturn[] = { //
                 NotesTableFields.COLUMN_LON.getFieldName(), //
                 NotesTableFields.COLUMN_LAT.getFieldName(), //
                 NotesTableFields.COLUMN_TS.getFieldName(), //
-                NotesTableFields.COLUMN_TEXT.getFieldName() //
+                NotesTableFields.COLUMN_TEXT.getFieldName(), //
+                NotesTableFields.COLUMN_ID.getFieldName() //
         };// ,
         String strSortOrder = "_id ASC";
-        Cursor c = sqliteDatabase.query(TABLE_NOTES, asColumnsToReturn, null, null, null, null, strSortOrder);
-        c.moveToFirst();
-        while (!c.isAfterLast()) {
-            double lon = c.getDouble(0);
-            double lat = c.getDouble(1);
+        String whereString = null;
+        if (noteId != DaoChangeJournal.ALL_ITEMS) {
+            whereString = NotesTableFields.COLUMN_ID.getFieldName() + " = " + noteId;
+        }
+        Cursor c = null;
+        try {
+            c = sqliteDatabase.query(TABLE_NOTES, asColumnsToReturn, whereString, null, null, null, strSortOrder);
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                double lon = c.getDouble(0);
+                double lat = c.getDouble(1);
 
 
-            if(!PositionUtilities.isValidCoordinateLL(lon, lat)){
-                continue;
-            }
+                if(!PositionUtilities.isValidCoordinateLL(lon, lat)){
+                    c.moveToNext();
+                    continue;
+                }
 
-            long date = c.getLong(2);
-            String text = c.getString(3);
+                long date = c.getLong(2);
+                String text = c.getString(3);
 
-            StringBuilder description = new StringBuilder();
-            description.append(text);
-            description.append("\n\n");
-            description.append(TimeUtilities.INSTANCE.TIME_FORMATTER_LOCAL.format(new Date(date)));
+                StringBuilder description = new StringBuilder();
+                description.append(text);
+                description.append("\n\n");
+                description.append(TimeUtilities.INSTANCE.TIME_FORMATTER_LOCAL.format(new Date(date)));
 
-            NoteOverlayItem item1 = new NoteOverlayItem(new GeoPoint(lat, lon), text, description.toString(), marker);
-            notesList.add(item1);
+                NoteOverlayItem item1 = new NoteOverlayItem(new GeoPoint(lat, lon), text, description.toString(), marker);
+                notesMap.put(c.getLong(4), item1);
 
-            c.moveToNext();
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
         }
-        c.close();
-        return notesList;
+        return notesMap;
     }
 
 
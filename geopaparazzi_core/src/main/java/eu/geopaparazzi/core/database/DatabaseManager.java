@@ -18,6 +18,7 @@
 package eu.geopaparazzi.core.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
@@ -49,6 +50,16 @@ public class DatabaseManager {
     */
     public static final float BUFFER = 0.001f;
 
+    /**
+     * The number of read only connections for background readers.
+     */
+    public static final int READ_CONNECTIONS = 2;
+
+    /**
+     * The page cache size of each connection in KiB.
+     */
+    private static final int CACHE_SIZE_KB = 4096;
+
     private DatabaseOpenHelper databaseHelper;
 
     /**
@@ -96,6 +107,73 @@ public class DatabaseManager {
         databaseHelper = null;
     }
 
+    /**
+     * Open a read only connection to a project database.
+     * <p>
+     * <p>Used by the {@link ReadDatabasePool}, the database needs to be in write ahead log mode,
+     * so that the connection does not block the writer.</p>
+     *
+     * @param databaseFile the database file.
+     * @return the connection.
+     * @throws IOException if something goes wrong.
+     */
+    public static SQLiteDatabase openReadDatabase( File databaseFile ) throws IOException {
+        try {
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(databaseFile.getAbsolutePath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KB);
+            return db;
+        } catch (Exception e) {
+            GPLog.error(DEBUG_TAG, "Unable to open a read connection on: " + databaseFile, e);
+            throw new IOException(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Put the database in write ahead log mode and tune the connection.
+     * <p>
+     * <p>In write ahead log mode readers on other connections do not wait for the writer.
+     * Commits only need to sync the log, which is safe against application crashes, and
+     * the page cache is sized to keep the log tables of usual projects in memory.</p>
+     *
+     * @param db the database to configure.
+     */
+    static void configure( SQLiteDatabase db ) {
+        boolean isWal = db.enableWriteAheadLogging();
+        if (isWal) {
+            db.execSQL("PRAGMA synchronous=NORMAL");
+        }
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KB);
+        if (GPLog.LOG_ANDROID)
+            Log.i(DEBUG_TAG, "Database in write ahead log mode: " + isWal);
+    }
+
+    /**
+     * Move the content of the write ahead log into the main database file.
+     * <p>
+     * <p>In write ahead log mode the last commits live in the <code>-wal</code> file next to
+     * the database. This has to be called on the writer connection before the database file
+     * alone is handed out, as done by the project upload and the NFC beam.</p>
+     *
+     * @param db the writer connection.
+     * @return <code>true</code> if the whole log has been moved into the database file.
+     */
+    public static boolean checkpoint( SQLiteDatabase db ) {
+        Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null);
+        try {
+            // busy, frames in the log, frames moved
+            if (cursor.moveToFirst() && cursor.getInt(0) != 0) {
+                // not logged to the database, which would write to the log again
+                if (GPLog.LOG_ANDROID)
+                    Log.w(DEBUG_TAG, "The checkpoint of the database could not complete.");
+                return false;
+            }
+            return true;
+        } finally {
+            cursor.close();
+        }
+    }
+
     private static class DatabaseOpenHelper {
         private SQLiteDatabase db;
 
@@ -110,6 +188,7 @@ public class DatabaseManager {
                 if (Debug.D)
                     Log.i("SQLiteHelper", "Opening database at " + databaseFile);
                 db = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+                configure(db);
                 int dbVersion = db.getVersion();
                 if (DATABASE_VERSION > dbVersion)
                     upgrade(DATABASE_VERSION, dbVersion, context);
@@ -120,8 +199,13 @@ public class DatabaseManager {
                     Log.i("SQLiteHelper", "db folder is writable: " + databaseFile.getParentFile().canWrite());
                 }
                 db = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+                configure(db);
                 create(context);
             }
+            // the change journal is also added to projects created before it existed
+            DaoChangeJournal.createTables(db);
+            DaoNoteFormFields.createTables(db);
+            DaoGpsLog.upgradeTables(db);
         }
 
         public void close() {
@@ -0,0 +1,338 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.location.Location;
+
+import org.mapsforge.core.model.Coordinates;
+
+import java.io.IOException;
+
+import eu.geopaparazzi.core.GeopaparazziApplication;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.gpx.parser.GpxListener;
+import eu.geopaparazzi.library.gpx.parser.GpxParser;
+import eu.geopaparazzi.library.style.ColorUtilities;
+
+import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsDataTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.GpsLogsTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.NotesTableFields;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_GPSLOGS;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_GPSLOG_DATA;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_NOTES;
+import static eu.geopaparazzi.library.util.LibraryConstants.DEFAULT_LOG_WIDTH;
+
+/**
+ * Imports a gpx file into the database while it is parsed.
+ * <p>
+ * <p>Waypoints become notes, track segments and routes become logs. The points are
+ * written through compiled statements as they are read, so the file is never held in
+ * memory. Start and end timestamps and the length of each log are calculated
+ * along the way and written together with the number of points and the bounds
+ * when the log is complete.</p>
+ * <p>
+ * <p>The whole file is imported in a single transaction. If the file is not valid or the
+ * import is cancelled, nothing is imported.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class GpxImporter implements GpxListener {
+
+    private static final String INSERT_POINT = "INSERT INTO " + TABLE_GPSLOG_DATA + " (" +
+            GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ", " +
+            GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName() + ", " +
+            GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName() + ", " +
+            GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName() + ", " +
+            GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() +
+            ") VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_NOTE = "INSERT INTO " + TABLE_NOTES + " (" +
+            NotesTableFields.COLUMN_LON.getFieldName() + ", " +
+            NotesTableFields.COLUMN_LAT.getFieldName() + ", " +
+            NotesTableFields.COLUMN_ALTIM.getFieldName() + ", " +
+            NotesTableFields.COLUMN_TS.getFieldName() + ", " +
+            NotesTableFields.COLUMN_DESCRIPTION.getFieldName() + ", " +
+            NotesTableFields.COLUMN_TEXT.getFieldName() + ", " +
+            NotesTableFields.COLUMN_ISDIRTY.getFieldName() +
+            ") VALUES (?, ?, ?, ?, 'GPX', ?, 1)";
+
+    private static final String UPDATE_LOG = "UPDATE " + TABLE_GPSLOGS + " SET " +
+            GpsLogsTableFields.COLUMN_LOG_STARTTS.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_ENDTS.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_LENGTHM.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_TEXT.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_POINTSCOUNT.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLON.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MINLAT.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLON.getFieldName() + "=?, " +
+            GpsLogsTableFields.COLUMN_LOG_MAXLAT.getFieldName() + "=? WHERE " +
+            GpsLogsTableFields.COLUMN_ID.getFieldName() + "=?";
+
+    private final String gpxName;
+    private volatile boolean isCancelled = false;
+
+    private SQLiteDatabase sqliteDatabase;
+    private SQLiteStatement insertPointStatement;
+    private SQLiteStatement insertNoteStatement;
+    private long importTime;
+
+    // state of the log being imported
+    private long logId = -1;
+    private int logPointsCount;
+    private long logStartTs;
+    private long logEndTs;
+    private double logLength;
+    private double logMinLon;
+    private double logMinLat;
+    private double logMaxLon;
+    private double logMaxLat;
+    private double previousLon;
+    private double previousLat;
+    private final float[] distance = new float[1];
+
+    private int notesCount = 0;
+    private int logsCount = 0;
+    private long pointsCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param gpxName the name to use for the logs, usually the name of the file.
+     */
+    public GpxImporter(String gpxName) {
+        this.gpxName = gpxName;
+    }
+
+    /**
+     * Import a gpx file.
+     *
+     * @param gpxPath the path to the file.
+     * @return <code>true</code> if the file was imported, <code>false</code> if it is not a valid gpx
+     * or the import was cancelled.
+     * @throws IOException if something goes wrong.
+     */
+    public boolean importGpx(String gpxPath) throws IOException {
+        sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        importTime = System.currentTimeMillis();
+        sqliteDatabase.beginTransaction();
+        try {
+            insertPointStatement = sqliteDatabase.compileStatement(INSERT_POINT);
+            insertNoteStatement = sqliteDatabase.compileStatement(INSERT_NOTE);
+
+            GpxParser parser = new GpxParser(gpxPath);
+            boolean success = parser.parse(this);
+            if (!success || isCancelled) {
+                return false;
+            }
+            if (notesCount > 0) {
+                DaoChangeJournal.recordChange(sqliteDatabase, TABLE_NOTES, DaoChangeJournal.ALL_ITEMS);
+            }
+
+            sqliteDatabase.setTransactionSuccessful();
+            if (GPLog.LOG)
+                GPLog.addLogEntry("GPXIMPORTER", "Imported " + notesCount + " notes and " + logsCount + " logs with "
+                        + pointsCount + " points from: " + gpxPath);
+            return true;
+        } catch (CancelledException e) {
+            return false;
+        } catch (Exception e) {
+            GPLog.error("GPXIMPORTER", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+            if (insertPointStatement != null)
+                insertPointStatement.close();
+            if (insertNoteStatement != null)
+                insertNoteStatement.close();
+        }
+    }
+
+    /**
+     * Cancel a running import. Nothing of the file is kept.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * @return the number of imported logs.
+     */
+    public int getLogsCount() {
+        return logsCount;
+    }
+
+    /**
+     * @return the number of imported notes.
+     */
+    public int getNotesCount() {
+        return notesCount;
+    }
+
+    private void checkCancelled() throws CancelledException {
+        if (isCancelled)
+            throw new CancelledException();
+    }
+
+    @Override
+    public void onWayPoint(double longitude, double latitude, double elevation, String name, String description) throws Exception {
+        checkCancelled();
+        String nameDescr = "";
+        if (name != null) {
+            nameDescr = name;
+        }
+        if (name != null && description != null) {
+            nameDescr = nameDescr + ":\n";
+        }
+        if (description != null) {
+            nameDescr = nameDescr + description;
+        }
+        insertNoteStatement.bindDouble(1, longitude);
+        insertNoteStatement.bindDouble(2, latitude);
+        insertNoteStatement.bindDouble(3, elevation);
+        insertNoteStatement.bindLong(4, importTime);
+        insertNoteStatement.bindString(5, nameDescr);
+        insertNoteStatement.executeInsert();
+        notesCount++;
+    }
+
+    @Override
+    public void onTrackSegmentStart() throws Exception {
+        startLog(ColorUtilities.BLUE.getHex());
+    }
+
+    @Override
+    public void onTrackPoint(double longitude, double latitude, double elevation, long time) throws Exception {
+        addPoint(longitude, latitude, elevation, time);
+    }
+
+    @Override
+    public void onTrackSegmentEnd(String name) throws Exception {
+        if (name == null) {
+            name = "";
+        } else {
+            name = " - " + name;
+        }
+        endLog(gpxName + name);
+    }
+
+    @Override
+    public void onRouteStart() throws Exception {
+        startLog(ColorUtilities.GREEN.getHex());
+    }
+
+    @Override
+    public void onRoutePoint(double longitude, double latitude) throws Exception {
+        addPoint(longitude, latitude, 0, -1);
+    }
+
+    @Override
+    public void onRouteEnd() throws Exception {
+        endLog(gpxName);
+    }
+
+    private void startLog(String color) throws Exception {
+        checkCancelled();
+        DaoGpsLog helper = new DaoGpsLog();
+        // the real values are set when the log is complete
+        logId = helper.addGpsLog(importTime, importTime, 0, gpxName, DEFAULT_LOG_WIDTH, color, true);
+        logPointsCount = 0;
+        logStartTs = importTime;
+        logEndTs = importTime;
+        logLength = 0;
+        logMinLon = Double.POSITIVE_INFINITY;
+        logMinLat = Double.POSITIVE_INFINITY;
+        logMaxLon = Double.NEGATIVE_INFINITY;
+        logMaxLat = Double.NEGATIVE_INFINITY;
+    }
+
+    private void addPoint(double lon, double lat, double altim, long time) throws Exception {
+        if (logPointsCount % 1000 == 0)
+            checkCancelled();
+        if (lat < Coordinates.LATITUDE_MIN || lat > Coordinates.LATITUDE_MAX ||
+                lon < Coordinates.LONGITUDE_MIN || lon > Coordinates.LONGITUDE_MAX) {
+            // if the point is not valid, do not insert it
+            return;
+        }
+        long ts;
+        if (time > 0) {
+            ts = time;
+        } else {
+            ts = importTime + logPointsCount * 1000l;
+        }
+
+        insertPointStatement.bindLong(1, logId);
+        insertPointStatement.bindDouble(2, lon);
+        insertPointStatement.bindDouble(3, lat);
+        insertPointStatement.bindDouble(4, altim);
+        insertPointStatement.bindLong(5, ts);
+        insertPointStatement.executeInsert();
+
+        if (logPointsCount == 0) {
+            logStartTs = ts;
+        } else {
+            Location.distanceBetween(previousLat, previousLon, lat, lon, distance);
+            logLength += distance[0];
+        }
+        logEndTs = ts;
+        logMinLon = Math.min(logMinLon, lon);
+        logMinLat = Math.min(logMinLat, lat);
+        logMaxLon = Math.max(logMaxLon, lon);
+        logMaxLat = Math.max(logMaxLat, lat);
+        previousLon = lon;
+        previousLat = lat;
+        logPointsCount++;
+        pointsCount++;
+    }
+
+    private void endLog(String name) {
+        SQLiteStatement updateStatement = sqliteDatabase.compileStatement(UPDATE_LOG);
+        try {
+            updateStatement.bindLong(1, logStartTs);
+            updateStatement.bindLong(2, logEndTs);
+            updateStatement.bindDouble(3, logLength);
+            updateStatement.bindString(4, name);
+            updateStatement.bindLong(5, logPointsCount);
+            if (logPointsCount > 0) {
+                updateStatement.bindDouble(6, logMinLon);
+                updateStatement.bindDouble(7, logMinLat);
+                updateStatement.bindDouble(8, logMaxLon);
+                updateStatement.bindDouble(9, logMaxLat);
+            } else {
+                updateStatement.bindNull(6);
+                updateStatement.bindNull(7);
+                updateStatement.bindNull(8);
+                updateStatement.bindNull(9);
+            }
+            updateStatement.bindLong(10, logId);
+            updateStatement.executeUpdateDelete();
+        } finally {
+            updateStatement.close();
+        }
+        logId = -1;
+        logsCount++;
+    }
+
+    /**
+     * Thrown from the parser callbacks to stop a cancelled import.
+     */
+    private static class CancelledException extends Exception {
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import eu.geopaparazzi.library.database.GPLog;
+
+/**
+ * A small pool of read only connections to the project database.
+ * <p>
+ * <p>With the database in write ahead log mode, readers on their own connection see the last
+ * committed state and never wait for the writer, so background readers such as the map overlays,
+ * the exports and the info queries do not stall on gps logging and the other way around.</p>
+ * <p>
+ * <p>Connections are opened lazily up to the pool size. A connection is taken with {@link #acquire()}
+ * and has to be given back with {@link #release(SQLiteDatabase)}. If all are in use, {@link #acquire()}
+ * waits for one to be released.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class ReadDatabasePool {
+
+    private final File databaseFile;
+    private final int size;
+    private final ArrayDeque<SQLiteDatabase> idleDatabases;
+    private final Set<SQLiteDatabase> openedDatabases = Collections.newSetFromMap(new IdentityHashMap<SQLiteDatabase, Boolean>());
+    private boolean isClosed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param databaseFile the database file.
+     * @param size         the max number of connections.
+     */
+    public ReadDatabasePool(File databaseFile, int size) {
+        this.databaseFile = databaseFile;
+        this.size = size;
+        idleDatabases = new ArrayDeque<>(size);
+    }
+
+    /**
+     * Get a read only connection.
+     *
+     * @return the connection.
+     * @throws IOException if the pool is closed or the connection could not be opened.
+     */
+    public synchronized SQLiteDatabase acquire() throws IOException {
+        while (true) {
+            if (isClosed) {
+                throw new IOException("The read database pool has been closed.");
+            }
+            SQLiteDatabase database = idleDatabases.pollFirst();
+            if (database != null) {
+                return database;
+            }
+            if (openedDatabases.size() < size) {
+                database = DatabaseManager.openReadDatabase(databaseFile);
+                openedDatabases.add(database);
+                return database;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a read database.");
+            }
+        }
+    }
+
+    /**
+     * Give a connection back to the pool.
+     * <p>
+     * <p>Connections that do not belong to the pool, for example of a pool that has been
+     * replaced after a project change, are closed.</p>
+     *
+     * @param database the connection, as returned by {@link #acquire()}.
+     */
+    public synchronized void release(SQLiteDatabase database) {
+        if (database == null)
+            return;
+        if (isClosed || !database.isOpen() || !openedDatabases.contains(database)) {
+            closeQuietly(database);
+            if (openedDatabases.remove(database)) {
+                // a waiting reader can open a new connection in the freed slot
+                notifyAll();
+            }
+            return;
+        }
+        idleDatabases.addLast(database);
+        notify();
+    }
+
+    /**
+     * Close the idle connections. Connections released after this are closed directly.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        for (SQLiteDatabase database : idleDatabases) {
+            closeQuietly(database);
+            openedDatabases.remove(database);
+        }
+        idleDatabases.clear();
+        notifyAll();
+    }
+
+    private void closeQuietly(SQLiteDatabase database) {
+        try {
+            if (database.isOpen())
+                database.close();
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        }
+    }
+}
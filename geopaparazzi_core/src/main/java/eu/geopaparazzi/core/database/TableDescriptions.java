@@ -52,6 +52,14 @@ public class TableDescriptions {
      * gpslog properties table name.
      */
     public static final String TABLE_GPSLOG_PROPERTIES = "gpslogsproperties";
+    /**
+     * change journal table name.
+     */
+    public static final String TABLE_CHANGEJOURNAL = "changejournal";
+    /**
+     * notes form fields table name.
+     */
+    public static final String TABLE_NOTES_FORMFIELDS = "notesformfields";
 
     public enum MetadataTableFields {
         /**
@@ -311,7 +319,27 @@ public class TableDescriptions {
         /**
          * the name of the log.
          */
-        COLUMN_LOG_TEXT("text", String.class);
+        COLUMN_LOG_TEXT("text", String.class),
+        /**
+         * The number of points of the log, as last updated.
+         */
+        COLUMN_LOG_POINTSCOUNT("pointscount", Integer.class),
+        /**
+         * The min longitude of the log points, as last updated.
+         */
+        COLUMN_LOG_MINLON("minlon", Double.class),
+        /**
+         * The min latitude of the log points, as last updated.
+         */
+        COLUMN_LOG_MINLAT("minlat", Double.class),
+        /**
+         * The max longitude of the log points, as last updated.
+         */
+        COLUMN_LOG_MAXLON("maxlon", Double.class),
+        /**
+         * The max latitude of the log points, as last updated.
+         */
+        COLUMN_LOG_MAXLAT("maxlat", Double.class);
 
         private String fieldName;
         private Class fieldClass;
@@ -411,4 +439,90 @@ public class TableDescriptions {
             return fieldClass;
         }
     }
+
+    public static enum ChangeJournalTableFields {
+        /**
+         * id of the change, Generated by the db. It is the version of the change.
+         */
+        COLUMN_ID("_id", Long.class),
+        /**
+         * the name of the changed table.
+         */
+        COLUMN_TABLENAME("tablename", String.class),
+        /**
+         * the id of the changed record.
+         */
+        COLUMN_ITEMID("itemid", Long.class);
+
+        private String fieldName;
+        private Class fieldClass;
+
+        ChangeJournalTableFields(String fieldName, Class fieldClass) {
+            this.fieldName = fieldName;
+            this.fieldClass = fieldClass;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Class getFieldClass() {
+            return fieldClass;
+        }
+    }
+
+    public static enum NotesFormFieldsTableFields {
+        /**
+         * id of the note the field belongs to.
+         */
+        COLUMN_NOTEID("noteid", Long.class),
+        /**
+         * the position of the field inside the note's form.
+         */
+        COLUMN_POSITION("position", Integer.class),
+        /**
+         * the name of the section.
+         */
+        COLUMN_SECTION("section", String.class),
+        /**
+         * the name of the form the field is in.
+         */
+        COLUMN_FORM("form", String.class),
+        /**
+         * the key of the field.
+         */
+        COLUMN_KEY("key", String.class),
+        /**
+         * the label of the field, if different from the key.
+         */
+        COLUMN_LABEL("label", String.class),
+        /**
+         * the form type of the field.
+         */
+        COLUMN_TYPE("type", String.class),
+        /**
+         * the value of the field as text.
+         */
+        COLUMN_VALUE("value", String.class),
+        /**
+         * the value of the field as number, for numeric fields with a valid value.
+         */
+        COLUMN_NUMVALUE("numvalue", Double.class);
+
+        private String fieldName;
+        private Class fieldClass;
+
+        NotesFormFieldsTableFields(String fieldName, Class fieldClass) {
+            this.fieldName = fieldName;
+            this.fieldClass = fieldClass;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Class getFieldClass() {
+            return fieldClass;
+        }
+    }
 }
@@ -22,6 +22,7 @@ import java.util.List;
 
 import eu.geopaparazzi.library.kml.KmlRepresenter;
 import eu.geopaparazzi.library.util.Utilities;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 /**
  * Represents a bookmark.
@@ -177,6 +178,10 @@ public class Bookmark implements KmlRepresenter {
                 + ", south=" + south + ", west=" + west + ", east=" + east + "]";
     }
 
+    public void writeKml(XmlStreamWriter writer) throws Exception {
+        writer.write(toKmlString());
+    }
+
     public boolean hasImages() {
         return false;
     }
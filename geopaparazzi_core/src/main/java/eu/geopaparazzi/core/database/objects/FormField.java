@@ -0,0 +1,97 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database.objects;
+
+import eu.geopaparazzi.library.forms.FormUtilities;
+
+/**
+ * A keyed item of a note's form, as kept in the form fields table.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class FormField {
+    private final long noteId;
+    private final String section;
+    private final String form;
+    private final String key;
+    private final String label;
+    private final String type;
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param noteId  the id of the note.
+     * @param section the section name.
+     * @param form    the form name.
+     * @param key     the field key.
+     * @param label   the field label, or <code>null</code> to use the key.
+     * @param type    the form type of the field.
+     * @param value   the value.
+     */
+    public FormField(long noteId, String section, String form, String key, String label, String type, String value) {
+        this.noteId = noteId;
+        this.section = section;
+        this.form = form;
+        this.key = key;
+        this.label = label;
+        this.type = type;
+        this.value = value;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getForm() {
+        return form;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the label of the field or its key, if it has no label.
+     */
+    public String getLabel() {
+        if (label == null)
+            return key;
+        return label;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return <code>true</code> if the value of the field is a list of image ids.
+     */
+    public boolean isImage() {
+        return type.equals(FormUtilities.TYPE_PICTURES) || type.equals(FormUtilities.TYPE_MAP)
+                || type.equals(FormUtilities.TYPE_SKETCH);
+    }
+}
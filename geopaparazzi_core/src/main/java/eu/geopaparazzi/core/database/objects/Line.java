@@ -19,10 +19,10 @@ package eu.geopaparazzi.core.database.objects;
 
 import android.location.Location;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.io.StringWriter;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 
 import eu.geopaparazzi.library.gpx.GpxRepresenter;
@@ -30,8 +30,9 @@ import eu.geopaparazzi.library.gpx.GpxUtilities;
 import eu.geopaparazzi.library.kml.KmlRepresenter;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.DynamicDoubleArray;
-import eu.geopaparazzi.library.util.TimeUtilities;
+import eu.geopaparazzi.library.util.DynamicLongArray;
 import eu.geopaparazzi.library.util.Utilities;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.pow;
@@ -39,6 +40,10 @@ import static java.lang.Math.sqrt;
 
 /**
  * Represents a line (log or map).
+ *
+ * <p>The line is kept in columnar form: coordinates, elevations and UTC timestamps
+ * are held in primitive arrays. The progressive distance and speed columns
+ * are derived lazily from those and cached until a new point is added.</p>
  * 
  * @author Andrea Antonello (www.hydrologis.com)
  */
@@ -48,8 +53,11 @@ public class Line implements KmlRepresenter, GpxRepresenter, Serializable {
     private DynamicDoubleArray latList;
     private DynamicDoubleArray lonList;
     private DynamicDoubleArray altimList;
-    private List<String> dateList;
+    private DynamicLongArray timestampList;
     private boolean boundsAreDirty = true;
+    private transient boolean derivedAreDirty = true;
+    private transient double[] progressiveDistances;
+    private transient double[] speeds;
     private double minLat = 0.0;
     private double minLon = 0.0;
     private double maxLat = 0.0;
@@ -63,15 +71,15 @@ public class Line implements KmlRepresenter, GpxRepresenter, Serializable {
      * @param lonList lon coords.
      * @param latList lat coords.
      * @param altimList elevation list.
-     * @param dateList date list.
+     * @param timestampList UTC timestamps list.
      */
     public Line( String name, DynamicDoubleArray lonList, DynamicDoubleArray latList, DynamicDoubleArray altimList,
-            List<String> dateList ) {
+            DynamicLongArray timestampList ) {
         this.name = name;
         this.lonList = lonList;
         this.latList = latList;
         this.altimList = altimList;
-        this.dateList = dateList;
+        this.timestampList = timestampList;
     }
 
     /**
@@ -80,29 +88,53 @@ public class Line implements KmlRepresenter, GpxRepresenter, Serializable {
      * @param logid log id.
      */
     public Line( String logid ) {
+        this(logid, 50);
+    }
+
+    /**
+     * Empty line constructor with an expected size.
+     *
+     * @param logid log id.
+     * @param initialSize the expected number of points, used to size the columns.
+     */
+    public Line( String logid, int initialSize ) {
+        if (initialSize < 1)
+            initialSize = 1;
         this.name = logid;
-        this.lonList = new DynamicDoubleArray();
-        this.latList = new DynamicDoubleArray();
-        this.altimList = new DynamicDoubleArray();
-        this.dateList = new ArrayList<>();
+        this.lonList = new DynamicDoubleArray(initialSize);
+        this.latList = new DynamicDoubleArray(initialSize);
+        this.altimList = new DynamicDoubleArray(initialSize);
+        this.timestampList = new DynamicLongArray(initialSize);
+    }
+
+    /**
+     * Checks if a point is exported. Points in 0,0 are invalid fixes and are skipped.
+     *
+     * @param lon lon
+     * @param lat lat
+     * @return true if the point is valid.
+     */
+    static boolean isValidPoint( double lon, double lat ) {
+        return !(lat < 0.0001 && lon < 0.0001);
     }
 
     /**
      * @param lon lon
      * @param lat lat
      * @param altim elevation.
-     * @param date date.
+     * @param timestamp the UTC timestamp in milliseconds.
      */
-    public void addPoint( double lon, double lat, double altim, String date ) {
-        if (lat < 0.0001 && lon < 0.0001) {
+    public void addPoint( double lon, double lat, double altim, long timestamp ) {
+        if (!isValidPoint(lon, lat)) {
             // don't add points in 0,0
             return;
         }
         boundsAreDirty = true;
+        derivedAreDirty = true;
         this.lonList.add(lon);
         this.latList.add(lat);
         this.altimList.add(altim);
-        this.dateList.add(date);
+        this.timestampList.add(timestamp);
     }
 
     /**
@@ -156,65 +188,135 @@ public class Line implements KmlRepresenter, GpxRepresenter, Serializable {
     }
 
     /**
-     * @return dates list.
+     * @return UTC timestamps list.
+     */
+    public DynamicLongArray getTimestampList() {
+        return timestampList;
+    }
+
+    /**
+     * @return the number of points of the line.
+     */
+    public int size() {
+        return lonList.size();
+    }
+
+    /**
+     * Get the progressive (cumulated) planar distance column.
+     *
+     * <p>The returned array can be longer than {@link #size()}, only the first
+     * {@link #size()} positions are valid. It must not be modified.</p>
+     *
+     * @return the progressive distances in meters, the first being 0.
      */
-    public List<String> getDateList() {
-        return dateList;
+    public double[] getProgressiveDistances() {
+        calculateDerivedColumns();
+        return progressiveDistances;
+    }
+
+    /**
+     * Get the speed column.
+     *
+     * <p>The speed in a position is the one needed to reach it from the previous point.
+     * The returned array can be longer than {@link #size()}, only the first
+     * {@link #size()} positions are valid. It must not be modified.</p>
+     *
+     * @return the speeds in km/h, the first being 0.
+     */
+    public double[] getSpeeds() {
+        calculateDerivedColumns();
+        return speeds;
+    }
+
+    private void calculateDerivedColumns() {
+        if (!derivedAreDirty && progressiveDistances != null) {
+            return;
+        }
+        int size = size();
+        double[] latArray = latList.getInternalArray();
+        double[] lonArray = lonList.getInternalArray();
+        long[] tsArray = timestampList.getInternalArray();
+        double[] distances = new double[size];
+        double[] speedArray = new double[size];
+        float[] dist = new float[1];
+        for( int i = 1; i < size; i++ ) {
+            Location.distanceBetween(latArray[i - 1], lonArray[i - 1], latArray[i], lonArray[i], dist);
+            distances[i] = distances[i - 1] + dist[0];
+            double timeSeconds = (tsArray[i] - tsArray[i - 1]) / 1000.0;
+            if (timeSeconds > 0) {
+                speedArray[i] = 3.6 * dist[0] / timeSeconds;
+            }
+        }
+        progressiveDistances = distances;
+        speeds = speedArray;
+        derivedAreDirty = false;
     }
 
     /**
-     * Calculates the length of a line.
+     * Calculates the length of a line, considering also the elevation differences.
      * 
      * @return the length of the line in meters.
      */
     public double getLength() {
-        final float[] dist = new float[3];
+        double[] distances = getProgressiveDistances();
+        double[] altimArray = altimList.getInternalArray();
         double length = 0;
-        for( int i = 0; i < latList.size() - 1; i++ ) {
-            double lat1 = latList.get(i);
-            double lon1 = lonList.get(i);
-            double altim1 = altimList.get(i);
-            double lat2 = latList.get(i + 1);
-            double lon2 = lonList.get(i + 1);
-            double altim2 = altimList.get(i + 1);
-            Location.distanceBetween(lat1, lon1, lat2, lon2, dist);
-
-            double deltaAltim = abs(altim2 - altim1);
-            double deltaLength = sqrt(pow(deltaAltim, 2.0) + pow(dist[0], 2.0));
+        for( int i = 1; i < size(); i++ ) {
+            double planarDelta = distances[i] - distances[i - 1];
+            double deltaAltim = abs(altimArray[i] - altimArray[i - 1]);
+            double deltaLength = sqrt(pow(deltaAltim, 2.0) + pow(planarDelta, 2.0));
             length = length + deltaLength;
-
         }
         return length;
     }
 
-    @SuppressWarnings("nls")
-    public String toKmlString() {
-        String name = Utilities.makeXmlSafe(this.name);
-        StringBuilder sB = new StringBuilder();
-        sB.append("<Placemark>\n");
-        sB.append("<name>" + name + "</name>\n");
-        sB.append("<visibility>1</visibility>\n");
-        sB.append("<LineString>\n");
-        sB.append("<tessellate>1</tessellate>\n");
-        sB.append("<coordinates>\n");
-        for( int i = 0; i < lonList.size(); i++ ) {
-            double lon = lonList.get(i);
-            double lat = latList.get(i);
-            sB.append(lon).append(",").append(lat).append(",1 \n");
+    public String toKmlString() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        XmlStreamWriter writer = new XmlStreamWriter(stringWriter);
+        writeKml(writer);
+        writer.flush();
+        return stringWriter.toString();
+    }
+
+    public void writeKml(XmlStreamWriter writer) throws Exception {
+        writeKmlStart(writer, name);
+        int size = size();
+        double[] lonArray = lonList.getInternalArray();
+        double[] latArray = latList.getInternalArray();
+        for( int i = 0; i < size; i++ ) {
+            writeKmlCoordinate(writer, lonArray[i], latArray[i]);
         }
-        sB.append("</coordinates>\n");
-        sB.append("</LineString>\n");
-        sB.append("<Style>\n");
-        sB.append("<LineStyle>\n");
+        writeKmlEnd(writer, color, width);
+    }
+
+    @SuppressWarnings("nls")
+    static void writeKmlStart( XmlStreamWriter writer, String name ) throws IOException {
+        writer.write("<Placemark>\n");
+        writer.write("<name>").write(Utilities.makeXmlSafe(name)).write("</name>\n");
+        writer.write("<visibility>1</visibility>\n");
+        writer.write("<LineString>\n");
+        writer.write("<tessellate>1</tessellate>\n");
+        writer.write("<coordinates>\n");
+    }
+
+    @SuppressWarnings("nls")
+    static void writeKmlCoordinate( XmlStreamWriter writer, double lon, double lat ) throws IOException {
+        writer.write(lon).write(',').write(lat).write(",1 \n");
+    }
+
+    @SuppressWarnings("nls")
+    static void writeKmlEnd( XmlStreamWriter writer, String color, float width ) throws IOException {
+        writer.write("</coordinates>\n");
+        writer.write("</LineString>\n");
+        writer.write("<Style>\n");
+        writer.write("<LineStyle>\n");
         int parsedColor = ColorUtilities.toColor(color);
         String hexColor = "#" + Integer.toHexString(parsedColor);
-        sB.append("<color>").append(hexColor).append("</color>\n");
-        sB.append("<width>").append(width).append("</width>\n");
-        sB.append("</LineStyle>\n");
-        sB.append("</Style>\n");
-        sB.append("</Placemark>\n");
-
-        return sB.toString();
+        writer.write("<color>").write(hexColor).write("</color>\n");
+        writer.write("<width>").write(String.valueOf(width)).write("</width>\n");
+        writer.write("</LineStyle>\n");
+        writer.write("</Style>\n");
+        writer.write("</Placemark>\n");
     }
 
     public boolean hasImages() {
@@ -269,28 +371,24 @@ public class Line implements KmlRepresenter, GpxRepresenter, Serializable {
         return maxLon;
     }
 
-    @SuppressWarnings("nls")
     public String toGpxString() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        XmlStreamWriter writer = new XmlStreamWriter(stringWriter);
+        writeGpx(writer);
+        writer.flush();
+        return stringWriter.toString();
+    }
 
-        String name = Utilities.makeXmlSafe(this.name);
-        StringBuilder sb = new StringBuilder();
-        sb.append(GpxUtilities.GPX_TRACK_START).append("\n");
-        sb.append(GpxUtilities.getTrackNameString(name)).append("\n");
-        sb.append(GpxUtilities.GPX_TRACKSEGMENT_START).append("\n");
+    public void writeGpx( XmlStreamWriter writer ) throws Exception {
+        GpxUtilities.writeTrackStart(writer, Utilities.makeXmlSafe(name));
         int size = latList.size();
         double[] latArray = latList.getInternalArray();
         double[] lonArray = lonList.getInternalArray();
         double[] altimArray = altimList.getInternalArray();
+        long[] tsArray = timestampList.getInternalArray();
         for( int i = 0; i < size; i++ ) {
-            String dateString = dateList.get(i);
-            long time = Long.parseLong(dateString);
-            // TODO change this sooner or later - needs ts to be hold differently in db
-            dateString = TimeUtilities.INSTANCE.TIME_FORMATTER_GPX_UTC.format(new Date(time));
-            String trackPointString = GpxUtilities.getTrackPointString(latArray[i], lonArray[i], altimArray[i], dateString);
-            sb.append(trackPointString);
+            GpxUtilities.writeTrackPoint(writer, latArray[i], lonArray[i], altimArray[i], tsArray[i]);
         }
-        sb.append(GpxUtilities.GPX_TRACKSEGMENT_END).append("\n");
-        sb.append(GpxUtilities.GPX_TRACK_END).append("\n");
-        return sb.toString();
+        GpxUtilities.writeTrackEnd(writer);
     }
 }
@@ -32,6 +32,11 @@ public class LogMapItem extends MapItem implements Serializable {
     private long endTime = 0;
     private double lengthm = 0.0;
     private long id;
+    private int pointsCount = 0;
+    private double minLon = Double.NaN;
+    private double minLat = Double.NaN;
+    private double maxLon = Double.NaN;
+    private double maxLat = Double.NaN;
 
     /**
      * @param id        id
@@ -101,6 +106,39 @@ public class LogMapItem extends MapItem implements Serializable {
         this.lengthm = lengthm;
     }
 
+    /**
+     * Set the cached statistics of the log.
+     *
+     * @param pointsCount the number of points.
+     * @param minLon      the min longitude of the points.
+     * @param minLat      the min latitude of the points.
+     * @param maxLon      the max longitude of the points.
+     * @param maxLat      the max latitude of the points.
+     */
+    public void setStatistics(int pointsCount, double minLon, double minLat, double maxLon, double maxLat) {
+        this.pointsCount = pointsCount;
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.maxLon = maxLon;
+        this.maxLat = maxLat;
+    }
+
+    /**
+     * @return the number of points of the log.
+     */
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    /**
+     * @return the bounds of the log as [minLon, minLat, maxLon, maxLat] or <code>null</code> if the log has no points.
+     */
+    public double[] getBounds() {
+        if (pointsCount == 0 || Double.isNaN(minLon))
+            return null;
+        return new double[]{minLon, minLat, maxLon, maxLat};
+    }
+
     /**
      * @return returns the id for this record
      */
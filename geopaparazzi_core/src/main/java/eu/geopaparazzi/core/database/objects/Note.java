@@ -33,7 +33,9 @@ import eu.geopaparazzi.library.gpx.GpxRepresenter;
 import eu.geopaparazzi.library.gpx.GpxUtilities;
 import eu.geopaparazzi.library.kml.KmlRepresenter;
 import eu.geopaparazzi.library.util.Utilities;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.core.database.DaoNoteFormFields;
 
 /**
  * Represents a note (log or map).
@@ -265,6 +267,10 @@ public class Note extends ANote implements KmlRepresenter, GpxRepresenter {
         return sB.toString();
     }
 
+    public void writeKml(XmlStreamWriter writer) throws Exception {
+        writer.write(toKmlString());
+    }
+
     public boolean hasImages() {
         return images != null && images.size() > 0;
     }
@@ -272,7 +278,7 @@ public class Note extends ANote implements KmlRepresenter, GpxRepresenter {
     public List<String> getImageIds() {
         if (images == null) {
             try {
-                images = FormUtilities.getImageIds(form);
+                images = DaoNoteFormFields.getImageIds(id);
             } catch (Exception e) {
                 GPLog.error(this, null, e);
             }
@@ -304,4 +310,8 @@ public class Note extends ANote implements KmlRepresenter, GpxRepresenter {
         String wayPointString = GpxUtilities.getWayPointString(lat, lon, altim, name, description);
         return wayPointString;
     }
+
+    public void writeGpx(XmlStreamWriter writer) throws Exception {
+        writer.write(toGpxString());
+    }
 }
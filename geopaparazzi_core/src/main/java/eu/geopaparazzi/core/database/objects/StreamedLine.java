@@ -0,0 +1,188 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.database.objects;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+
+import eu.geopaparazzi.core.GeopaparazziApplication;
+import eu.geopaparazzi.core.database.DaoGpsLog;
+import eu.geopaparazzi.library.gpx.GpxRepresenter;
+import eu.geopaparazzi.library.gpx.GpxUtilities;
+import eu.geopaparazzi.library.kml.KmlRepresenter;
+import eu.geopaparazzi.library.util.Utilities;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
+
+/**
+ * A gps log line for exports, that reads its points from the database while it is written.
+ * <p>
+ * <p>Only the bounds are kept in memory, so that projects with many and long logs
+ * can be exported in constant memory. The output is the same as the one of {@link Line},
+ * points in 0,0 are skipped in the same way.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class StreamedLine implements KmlRepresenter, GpxRepresenter {
+
+    private final long logId;
+    private String name;
+    private final double minLat;
+    private final double minLon;
+    private final double maxLat;
+    private final double maxLon;
+
+    private float width = 1f;
+    private String color = "#ff0000ff"; //$NON-NLS-1$
+
+    /**
+     * Constructor.
+     *
+     * @param logId  the id of the log.
+     * @param name   the name of the line.
+     * @param minLat min lat of the log points.
+     * @param minLon min lon of the log points.
+     * @param maxLat max lat of the log points.
+     * @param maxLon max lon of the log points.
+     */
+    public StreamedLine(long logId, String name, double minLat, double minLon, double maxLat, double maxLon) {
+        this.logId = logId;
+        this.name = name;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+    }
+
+    /**
+     * @return the id of the log.
+     */
+    public long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Sets the style for the line.
+     *
+     * @param width the line width.
+     * @param color the line color.
+     */
+    public void setStyle(float width, String color) {
+        if (width > 0)
+            this.width = width;
+        if (color != null)
+            this.color = color;
+    }
+
+    /**
+     * @param name the line name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String toKmlString() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        XmlStreamWriter writer = new XmlStreamWriter(stringWriter);
+        writeKml(writer);
+        writer.flush();
+        return stringWriter.toString();
+    }
+
+    public void writeKml(XmlStreamWriter writer) throws Exception {
+        Line.writeKmlStart(writer, name);
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        Cursor c = null;
+        try {
+            c = DaoGpsLog.getGpslogDataCursor(sqliteDatabase, logId);
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                double lon = c.getDouble(0);
+                double lat = c.getDouble(1);
+                if (Line.isValidPoint(lon, lat))
+                    Line.writeKmlCoordinate(writer, lon, lat);
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
+        }
+        Line.writeKmlEnd(writer, color, width);
+    }
+
+    public boolean hasImages() {
+        return false;
+    }
+
+    @Override
+    public List<String> getImageIds() {
+        return Collections.emptyList();
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public String toGpxString() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        XmlStreamWriter writer = new XmlStreamWriter(stringWriter);
+        writeGpx(writer);
+        writer.flush();
+        return stringWriter.toString();
+    }
+
+    public void writeGpx(XmlStreamWriter writer) throws Exception {
+        GpxUtilities.writeTrackStart(writer, Utilities.makeXmlSafe(name));
+        GeopaparazziApplication application = GeopaparazziApplication.getInstance();
+        SQLiteDatabase sqliteDatabase = application.acquireReadDatabase();
+        Cursor c = null;
+        try {
+            c = DaoGpsLog.getGpslogDataCursor(sqliteDatabase, logId);
+            c.moveToFirst();
+            while (!c.isAfterLast()) {
+                double lon = c.getDouble(0);
+                double lat = c.getDouble(1);
+                if (Line.isValidPoint(lon, lat))
+                    GpxUtilities.writeTrackPoint(writer, lat, lon, c.getDouble(2), c.getLong(3));
+                c.moveToNext();
+            }
+        } finally {
+            if (c != null)
+                c.close();
+            application.releaseReadDatabase(sqliteDatabase);
+        }
+        GpxUtilities.writeTrackEnd(writer);
+    }
+}
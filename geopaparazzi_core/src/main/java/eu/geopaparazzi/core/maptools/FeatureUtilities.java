@@ -46,8 +46,10 @@ import eu.geopaparazzi.library.util.types.EDataType;
 import eu.geopaparazzi.spatialite.database.spatial.SpatialiteSourcesManager;
 import eu.geopaparazzi.spatialite.database.spatial.core.daos.DaoSpatialite;
 import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.SpatialiteDatabaseHandler;
+import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.StatementPool;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
+import eu.geopaparazzi.spatialite.database.spatial.util.SpatialiteUtilities;
 import jsqlite.Database;
 import jsqlite.Exception;
 import jsqlite.Stmt;
@@ -86,49 +88,63 @@ public class FeatureUtilities {
     public static WKBWriter WKBWRITER = new WKBWriter();
 
     /**
-     * Build the features given by a query.
+     * Build the features of a table intersecting a bounding box, without their geometry.
      * <p/>
-     * <b>Note that it is mandatory that the first item of the
-     * query is the id of the feature, which can be used at any time
+     * <p>The query is the parameterised one of
+     * {@link SpatialiteDatabaseHandler#getIntersectionQueryBBOX(String, SpatialVectorTable)},
+     * run through the statement pool of the table's database handler.
+     * The first item is the id of the feature, which can be used at any time
      * to update the feature in the db.
      *
-     * @param query        the query to run.
      * @param spatialTable the parent Spatialtable.
+     * @param boundsSrid   the srid of the bounds.
+     * @param n            north bound.
+     * @param s            south bound.
+     * @param e            east bound.
+     * @param w            west bound.
      * @return the list of feature from the query.
      * @throws Exception is something goes wrong.
      */
-    public static List<Feature> buildWithoutGeometry(String query, SpatialVectorTable spatialTable) throws Exception {
+    public static List<Feature> buildWithoutGeometry(SpatialVectorTable spatialTable, String boundsSrid, double n, double s,
+                                                     double e, double w) throws Exception {
         List<Feature> featuresList = new ArrayList<>();
-        Stmt stmt = null;
-        try {
-            SpatialiteDatabaseHandler spatialiteDbHandler = SpatialiteSourcesManager.INSTANCE.getExistingDatabaseHandlerByTable(spatialTable);
-            if (spatialiteDbHandler == null) {
-                GPLog.addLogEntry("Featureutilities", "ERROR, could not get spatialiteDbHandler for spatialTable: " + spatialTable.toString());
-                return featuresList;
-            }
-            Database database = spatialiteDbHandler.getDatabase();
-
-            String tableName = spatialTable.getTableName();
-            String databasePath = spatialTable.getDatabasePath();
+        SpatialiteDatabaseHandler spatialiteDbHandler = SpatialiteSourcesManager.INSTANCE.getExistingDatabaseHandlerByTable(spatialTable);
+        if (spatialiteDbHandler == null) {
+            GPLog.addLogEntry("Featureutilities", "ERROR, could not get spatialiteDbHandler for spatialTable: " + spatialTable.toString());
+            return featuresList;
+        }
+        StatementPool statementPool = spatialiteDbHandler.getStatementPool();
+        String query = SpatialiteDatabaseHandler.getIntersectionQueryBBOX(boundsSrid, spatialTable);
 
-            stmt = database.prepare(query);
+        String tableName = spatialTable.getTableName();
+        String databasePath = spatialTable.getDatabasePath();
 
+        Stmt stmt = statementPool.acquire(query);
+        try {
+            SpatialiteUtilities.bindBounds(stmt, n, s, e, w);
+            String[] columnNames = null;
+            String[] columnTypes = null;
             while (stmt.step()) {
-                int column_count = stmt.column_count();
+                if (columnNames == null) {
+                    int columnCount = stmt.column_count();
+                    columnNames = new String[columnCount];
+                    columnTypes = new String[columnCount];
+                    collectColumnsAndTypes(stmt, spatialTable, 1, columnCount, columnNames, columnTypes);
+                }
                 // the first is the id, transparent to the user
                 String id = stmt.column_string(0);
                 Feature feature = new Feature(tableName, databasePath, id);
-                for (int i = 1; i < column_count; i++) {
-                    String cName = stmt.column_name(i);
+                for (int i = 1; i < columnNames.length; i++) {
+                    if (columnTypes[i] == null) {
+                        continue;
+                    }
                     String value = stmt.column_string(i);
-                    EDataType type = spatialTable.getTableFieldType(cName);
-                    feature.addAttribute(cName, value, type.name());
+                    feature.addAttribute(columnNames[i], value, columnTypes[i]);
                 }
                 featuresList.add(feature);
             }
         } finally {
-            if (stmt != null)
-                stmt.close();
+            statementPool.release(query, stmt);
         }
         return featuresList;
     }
@@ -138,6 +154,10 @@ public class FeatureUtilities {
      * <p/>
      * <p><b>Note that this query needs to have at least 2 arguments, the first
      * being the ROWID and the last the geometry. Else if will fail.</b>
+     * <p/>
+     * <p>If the query has been built with area and length (see
+     * {@link SpatialiteUtilities#getBboxIntersectingFeaturesQuery(String, SpatialVectorTable, double, double, double, double, boolean)}),
+     * those are read from the same statement, else they are queried per feature.
      *
      * @param query        the query to run.
      * @param spatialTable the parent Spatialtable.
@@ -151,39 +171,83 @@ public class FeatureUtilities {
         String tableName = spatialTable.getTableName();
         String databasePath = spatialTable.getDatabasePath();
 
+        boolean hasAreaAndLength = false;
         Stmt stmt = database.prepare(query);
         try {
+            String[] columnNames = null;
+            String[] columnTypes = null;
+            int lastAttributeIndex = 0;
             while (stmt.step()) {
                 int count = stmt.column_count();
+                if (columnNames == null) {
+                    // resolve names and types once, the cells are then read by index
+                    columnNames = new String[count];
+                    columnTypes = new String[count];
+                    lastAttributeIndex = count - 1;
+                    if (count > 3 && SpatialiteUtilities.FEATURE_AREA_FIELD.equals(stmt.column_name(count - 3))
+                            && SpatialiteUtilities.FEATURE_LENGTH_FIELD.equals(stmt.column_name(count - 2))) {
+                        hasAreaAndLength = true;
+                        lastAttributeIndex = count - 3;
+                    }
+                    collectColumnsAndTypes(stmt, spatialTable, 1, lastAttributeIndex, columnNames, columnTypes);
+                }
                 String id = stmt.column_string(0);
                 byte[] geometryBytes = stmt.column_bytes(count - 1);
                 Feature feature = new Feature(tableName, databasePath, id, geometryBytes);
-                for (int i = 1; i < count - 1; i++) {
-                    String cName = stmt.column_name(i);
-                    String value = stmt.column_string(i);
-                    EDataType type = spatialTable.getTableFieldType(cName);
-                    if (type == null) {
-                        GPLog.addLogEntry("Featureutilities#buildFeatures", "Unexpected type for column "
-                                + cName);
+                for (int i = 1; i < lastAttributeIndex; i++) {
+                    if (columnTypes[i] == null) {
                         continue;
                     }
-                    feature.addAttribute(cName, value, type.name());
+                    String value = stmt.column_string(i);
+                    feature.addAttribute(columnNames[i], value, columnTypes[i]);
+                }
+                if (hasAreaAndLength) {
+                    feature.setOriginalArea(stmt.column_double(count - 3));
+                    feature.setOriginalLength(stmt.column_double(count - 2));
                 }
                 featuresList.add(feature);
             }
         } finally {
             stmt.close();
         }
-        for (Feature feature : featuresList) {
-            String id = feature.getId();
-            double[] areaLength = DaoSpatialite.getAreaAndLengthById(id, spatialTable);
-            feature.setOriginalArea(areaLength[0]);
-            feature.setOriginalLength(areaLength[1]);
+        if (!hasAreaAndLength) {
+            for (Feature feature : featuresList) {
+                String id = feature.getId();
+                double[] areaLength = DaoSpatialite.getAreaAndLengthById(id, spatialTable);
+                feature.setOriginalArea(areaLength[0]);
+                feature.setOriginalLength(areaLength[1]);
+            }
         }
 
         return featuresList;
     }
 
+    /**
+     * Resolve the names and types of a range of result columns.
+     *
+     * @param stmt         the statement, positioned on a row.
+     * @param spatialTable the parent table, used to get the types.
+     * @param from         the first column index to resolve.
+     * @param to           the column index to stop at (exclusive).
+     * @param columnNames  the array to fill with the names.
+     * @param columnTypes  the array to fill with the {@link EDataType#name()} of the types. Unknown types are left <code>null</code>.
+     * @throws Exception if something goes wrong.
+     */
+    private static void collectColumnsAndTypes(Stmt stmt, SpatialVectorTable spatialTable, int from, int to,
+                                               String[] columnNames, String[] columnTypes) throws Exception {
+        for (int i = from; i < to; i++) {
+            String cName = stmt.column_name(i);
+            columnNames[i] = cName;
+            EDataType type = spatialTable.getTableFieldType(cName);
+            if (type == null) {
+                GPLog.addLogEntry("Featureutilities#buildFeatures", "Unexpected type for column "
+                        + cName);
+                continue;
+            }
+            columnTypes[i] = type.name();
+        }
+    }
+
 //    /**
 //     * Build the features given by a query.
 //     *
@@ -32,8 +32,15 @@ import org.mapsforge.core.model.GeoPoint;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import eu.geopaparazzi.library.core.maps.SpatialiteMap;
 import eu.geopaparazzi.library.style.ToolColors;
@@ -46,14 +53,12 @@ import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.spatialite.database.spatial.SpatialiteSourcesManager;
-import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.SpatialiteDatabaseHandler;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.maptools.FeaturePagerActivity;
 import eu.geopaparazzi.core.maptools.FeatureUtilities;
 import eu.geopaparazzi.core.maptools.MapTool;
 import eu.geopaparazzi.core.mapview.overlays.SliderDrawProjection;
-import jsqlite.Exception;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.round;
@@ -65,6 +70,10 @@ import static java.lang.Math.round;
  */
 public class InfoTool extends MapTool {
     private static final int TOUCH_BOX_THRES = 10;
+    /**
+     * Max number of databases queried in parallel.
+     */
+    private static final int MAX_QUERY_THREADS = 3;
 
     private final Paint infoRectPaintStroke = new Paint();
     private final Paint infoRectPaintFill = new Paint();
@@ -201,6 +210,7 @@ public class InfoTool extends MapTool {
 
             StringAsyncTask task =  new StringAsyncTask(context) {
                 private List<Feature> features = new ArrayList<>();
+                private int doneLayers = 0;
 
                 @Override
                 protected String doBackgroundWork() {
@@ -219,21 +229,77 @@ public class InfoTool extends MapTool {
                                 west = e - 1;
                             }
 
+                            // group the layers by database, skipping the ones that are out of the box
+                            final Map<String, List<SpatialVectorTable>> dbPath2TablesMap = new LinkedHashMap<>();
                             for (SpatialVectorTable spatialTable : visibleTables) {
-                                String query = SpatialiteDatabaseHandler.getIntersectionQueryBBOX(
-                                        LibraryConstants.SRID_WGS84_4326, spatialTable, north, south, east, west);
+                                if (!intersectsTableBounds(spatialTable, north, south, east, west)) {
+                                    publishProgress(++doneLayers);
+                                    continue;
+                                }
+                                String databasePath = spatialTable.getDatabasePath();
+                                List<SpatialVectorTable> dbTables = dbPath2TablesMap.get(databasePath);
+                                if (dbTables == null) {
+                                    dbTables = new ArrayList<>();
+                                    dbPath2TablesMap.put(databasePath, dbTables);
+                                }
+                                dbTables.add(spatialTable);
+                            }
+                            if (dbPath2TablesMap.size() == 0) {
+                                return "";
+                            }
 
-                                List<Feature> featuresList = FeatureUtilities.buildWithoutGeometry(query, spatialTable);
-                                features.addAll(featuresList);
+                            // one task per database, so that each connection is used by a single thread
+                            final Map<SpatialVectorTable, List<Feature>> table2FeaturesMap = new HashMap<>();
+                            int threads = Math.min(MAX_QUERY_THREADS, dbPath2TablesMap.size());
+                            ExecutorService executor = Executors.newFixedThreadPool(threads);
+                            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+                            List<Future<Void>> futures = new ArrayList<>();
+                            final double fNorth = north;
+                            final double fSouth = south;
+                            final double fEast = east;
+                            final double fWest = west;
+                            try {
+                                for (final List<SpatialVectorTable> dbTables : dbPath2TablesMap.values()) {
+                                    futures.add(completionService.submit(new Callable<Void>() {
+                                        @Override
+                                        public Void call() throws java.lang.Exception {
+                                            for (SpatialVectorTable spatialTable : dbTables) {
+                                                if (isCancelled())
+                                                    break;
+                                                List<Feature> featuresList = FeatureUtilities.buildWithoutGeometry(spatialTable,
+                                                        LibraryConstants.SRID_WGS84_4326, fNorth, fSouth, fEast, fWest);
+                                                synchronized (table2FeaturesMap) {
+                                                    table2FeaturesMap.put(spatialTable, featuresList);
+                                                    // report each layer as soon as it is done
+                                                    publishProgress(++doneLayers);
+                                                }
+                                            }
+                                            return null;
+                                        }
+                                    }));
+                                }
+                                for (int i = 0; i < futures.size(); i++) {
+                                    completionService.take().get();
+                                    // Escape early if cancel() is called
+                                    if (isCancelled())
+                                        return "CANCEL";
+                                }
+                            } finally {
+                                for (Future<Void> future : futures) {
+                                    future.cancel(true);
+                                }
+                                executor.shutdownNow();
+                            }
 
-                                publishProgress(1);
-                                // Escape early if cancel() is called
-                                if (isCancelled())
-                                    return "CANCEL";
+                            // keep the layers order
+                            for (SpatialVectorTable spatialTable : visibleTables) {
+                                List<Feature> featuresList = table2FeaturesMap.get(spatialTable);
+                                if (featuresList != null)
+                                    features.addAll(featuresList);
                             }
                         }
                         return "";
-                    } catch (Exception e) {
+                    } catch (java.lang.Exception e) {
                         GPLog.error(this, null, e); //$NON-NLS-1$
                         return "ERROR: " + e.getLocalizedMessage();
                     }
@@ -266,6 +332,16 @@ public class InfoTool extends MapTool {
         }
     }
 
+    /**
+     * Checks the cached extent of a table against the queried box.
+     *
+     * @return <code>false</code> if the table can't contain features in the box.
+     */
+    private static boolean intersectsTableBounds(SpatialVectorTable spatialTable, double n, double s, double e, double w) {
+        return !(e < spatialTable.getMinLongitude() || w > spatialTable.getMaxLongitude()
+                || n < spatialTable.getMinLatitude() || s > spatialTable.getMaxLatitude());
+    }
+
     @Override
     public void onViewChanged() {
         // ignore
@@ -280,7 +280,7 @@ public class PolygonCutExtendTool extends MapTool {
 
                     String query =
                             SpatialiteUtilities.getBboxIntersectingFeaturesQuery(LibraryConstants.SRID_WGS84_4326,
-                                    spatialVectorTable, north, south, east, west);
+                                    spatialVectorTable, north, south, east, west, true);
                     List<Feature> features = FeatureUtilities.buildFeatures(query, spatialVectorTable);
                     Geometry startGeometry = null;
                     Geometry endGeometry = null;
@@ -211,7 +211,7 @@ public class SelectionTool extends MapTool {
                     }
 
                     String query = SpatialiteUtilities.getBboxIntersectingFeaturesQuery(LibraryConstants.SRID_WGS84_4326,
-                            spatialVectorTable, north, south, east, west);
+                            spatialVectorTable, north, south, east, west, true);
                     features = FeatureUtilities.buildFeatures(query, spatialVectorTable);
 
                     return "";
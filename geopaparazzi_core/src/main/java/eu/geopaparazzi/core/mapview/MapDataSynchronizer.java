@@ -0,0 +1,268 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.mapview;
+
+import android.graphics.drawable.Drawable;
+
+import org.mapsforge.android.maps.overlay.OverlayItem;
+import org.mapsforge.android.maps.overlay.OverlayWay;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import eu.geopaparazzi.core.database.DaoBookmarks;
+import eu.geopaparazzi.core.database.DaoChangeJournal;
+import eu.geopaparazzi.core.database.DaoGpsLog;
+import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.core.database.DaoNotes;
+import eu.geopaparazzi.core.mapview.overlays.ArrayGeopaparazziOverlay;
+import eu.geopaparazzi.library.database.GPLog;
+
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_GPSLOGS;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_IMAGES;
+import static eu.geopaparazzi.core.database.TableDescriptions.TABLE_NOTES;
+
+/**
+ * Keeps the gps logs, images, notes and bookmarks of the map overlay in sync with the database.
+ * <p>
+ * <p>The first sync loads everything, the following ones apply only the records listed in the
+ * {@link DaoChangeJournal} since the last sync, plus the logs that got new points. Syncs run
+ * on a background thread and requests that arrive while one is running are merged into a single
+ * following sync.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class MapDataSynchronizer {
+
+    private final ArrayGeopaparazziOverlay overlay;
+    private final Drawable imagesMarker;
+    private final Drawable bookmarksMarker;
+
+    // guarded by this
+    private Drawable notesMarker;
+    private boolean notesVisible = true;
+    private boolean imagesVisible = true;
+    private final Set<String> tablesToReload = new HashSet<>();
+
+    // only used by the sync thread
+    private long journalVersion = -1;
+    private long lastGpslogDataId;
+    private final HashMap<Long, OverlayWay> logWays = new HashMap<>();
+    private final HashMap<Long, OverlayItem> imageItems = new HashMap<>();
+    private final HashMap<Long, OverlayItem> noteItems = new HashMap<>();
+    private final HashMap<Long, OverlayItem> bookmarkItems = new HashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean syncPending = new AtomicBoolean(false);
+    private final Runnable syncRunnable = new Runnable() {
+        public void run() {
+            syncPending.set(false);
+            try {
+                sync();
+            } catch (Exception e) {
+                GPLog.error(MapDataSynchronizer.this, "Error syncing the map data.", e);
+                // start over with a full load at the next sync
+                journalVersion = -1;
+                logWays.clear();
+                imageItems.clear();
+                noteItems.clear();
+                bookmarkItems.clear();
+                overlay.clearWays();
+                overlay.clearItems();
+            }
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param overlay         the overlay to keep in sync.
+     * @param notesMarker     the marker of the notes.
+     * @param imagesMarker    the marker of the images.
+     * @param bookmarksMarker the marker of the bookmarks.
+     */
+    public MapDataSynchronizer(ArrayGeopaparazziOverlay overlay, Drawable notesMarker, Drawable imagesMarker,
+                               Drawable bookmarksMarker) {
+        this.overlay = overlay;
+        this.notesMarker = notesMarker;
+        this.imagesMarker = imagesMarker;
+        this.bookmarksMarker = bookmarksMarker;
+    }
+
+    /**
+     * Change the marker of the notes. All notes are reloaded at the next sync.
+     *
+     * @param notesMarker the new marker.
+     */
+    public synchronized void setNotesMarker(Drawable notesMarker) {
+        this.notesMarker = notesMarker;
+        tablesToReload.add(TABLE_NOTES);
+    }
+
+    /**
+     * Set the visibility of notes and images. The types that changed are reloaded at the next sync.
+     *
+     * @param notesVisible  if <code>true</code>, notes are shown.
+     * @param imagesVisible if <code>true</code>, images are shown.
+     */
+    public synchronized void setVisibility(boolean notesVisible, boolean imagesVisible) {
+        if (this.notesVisible != notesVisible) {
+            this.notesVisible = notesVisible;
+            tablesToReload.add(TABLE_NOTES);
+        }
+        if (this.imagesVisible != imagesVisible) {
+            this.imagesVisible = imagesVisible;
+            tablesToReload.add(TABLE_IMAGES);
+        }
+    }
+
+    /**
+     * Request a sync in background.
+     */
+    public void requestSync() {
+        if (syncPending.compareAndSet(false, true)) {
+            executor.execute(syncRunnable);
+        }
+    }
+
+    /**
+     * Stop the sync thread.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private void sync() throws IOException {
+        Drawable notesMarker;
+        boolean notesVisible;
+        boolean imagesVisible;
+        Set<String> reloads;
+        synchronized (this) {
+            notesMarker = this.notesMarker;
+            notesVisible = this.notesVisible;
+            imagesVisible = this.imagesVisible;
+            reloads = new HashSet<>(tablesToReload);
+            tablesToReload.clear();
+        }
+
+        /*
+         * the counters are read before the records, so that changes done
+         * meanwhile are at worst applied twice, but never lost
+         */
+        Set<Long> logIds;
+        Set<Long> imageIds;
+        Set<Long> noteIds;
+        Set<Long> bookmarkIds;
+        if (journalVersion < 0) {
+            journalVersion = DaoChangeJournal.getVersion();
+            lastGpslogDataId = DaoGpsLog.getLastGpslogDataId();
+            logIds = allItems();
+            imageIds = allItems();
+            noteIds = allItems();
+            bookmarkIds = allItems();
+        } else {
+            long gpslogDataId = DaoGpsLog.getLastGpslogDataId();
+            DaoChangeJournal.ChangeSet changeSet = DaoChangeJournal.getChangesSince(journalVersion);
+            logIds = changeSet.getChangedIds(TABLE_GPSLOGS);
+            if (gpslogDataId > lastGpslogDataId) {
+                logIds.addAll(DaoGpsLog.getGpslogIdsWithDataAfter(lastGpslogDataId));
+            }
+            imageIds = changeSet.getChangedIds(TABLE_IMAGES);
+            noteIds = changeSet.getChangedIds(TABLE_NOTES);
+            bookmarkIds = changeSet.getChangedIds(DaoBookmarks.TABLE_BOOKMARKS);
+            journalVersion = changeSet.getVersion();
+            lastGpslogDataId = gpslogDataId;
+        }
+        if (reloads.contains(TABLE_IMAGES))
+            imageIds = allItems();
+        if (reloads.contains(TABLE_NOTES))
+            noteIds = allItems();
+
+        List<OverlayWay> removedWays = new ArrayList<>();
+        List<OverlayWay> addedWays = new ArrayList<>();
+        for (long logId : normalize(logIds)) {
+            LinkedHashMap<Long, OverlayWay> ways = DaoGpsLog.getGpslogOverlays(logId);
+            apply(logId, ways, logWays, removedWays, addedWays);
+        }
+
+        List<OverlayItem> removedItems = new ArrayList<>();
+        List<OverlayItem> addedItems = new ArrayList<>();
+        for (long imageId : normalize(imageIds)) {
+            LinkedHashMap<Long, OverlayItem> items = new LinkedHashMap<>();
+            if (imagesVisible)
+                items = DaoImages.getImagesOverlays(imagesMarker, true, imageId);
+            apply(imageId, items, imageItems, removedItems, addedItems);
+        }
+        for (long noteId : normalize(noteIds)) {
+            LinkedHashMap<Long, OverlayItem> items = new LinkedHashMap<>();
+            if (notesVisible)
+                items = DaoNotes.getNoteOverlays(notesMarker, noteId);
+            apply(noteId, items, noteItems, removedItems, addedItems);
+        }
+        for (long bookmarkId : normalize(bookmarkIds)) {
+            LinkedHashMap<Long, OverlayItem> items = DaoBookmarks.getBookmarksOverlays(bookmarksMarker, bookmarkId);
+            apply(bookmarkId, items, bookmarkItems, removedItems, addedItems);
+        }
+
+        if (!removedWays.isEmpty() || !addedWays.isEmpty())
+            overlay.updateWays(removedWays, addedWays);
+        if (!removedItems.isEmpty() || !addedItems.isEmpty())
+            overlay.updateItems(removedItems, addedItems);
+    }
+
+    private static Set<Long> allItems() {
+        Set<Long> ids = new HashSet<>();
+        ids.add(DaoChangeJournal.ALL_ITEMS);
+        return ids;
+    }
+
+    /**
+     * If the whole table has to be read, single ids are not needed.
+     */
+    private static Set<Long> normalize(Set<Long> ids) {
+        if (ids.contains(DaoChangeJournal.ALL_ITEMS))
+            return allItems();
+        return ids;
+    }
+
+    /**
+     * Replace the current objects of an id (or of all ids) with the ones read from the database.
+     */
+    private static <T> void apply(long id, Map<Long, T> readObjects, HashMap<Long, T> currentObjects, List<T> removed,
+                                  List<T> added) {
+        if (id == DaoChangeJournal.ALL_ITEMS) {
+            removed.addAll(currentObjects.values());
+            currentObjects.clear();
+        } else {
+            T old = currentObjects.remove(id);
+            if (old != null)
+                removed.add(old);
+        }
+        currentObjects.putAll(readObjects);
+        added.addAll(readObjects.values());
+    }
+}
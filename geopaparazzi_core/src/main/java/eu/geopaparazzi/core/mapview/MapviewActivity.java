@@ -72,15 +72,16 @@ import org.mapsforge.android.maps.MapScaleBar.TextField;
 import org.mapsforge.android.maps.MapView;
 import org.mapsforge.android.maps.MapViewPosition;
 import org.mapsforge.android.maps.Projection;
+import org.mapsforge.android.maps.TileRenderProfiler;
 import org.mapsforge.android.maps.mapgenerator.MapGenerator;
 import org.mapsforge.android.maps.overlay.Overlay;
-import org.mapsforge.android.maps.overlay.OverlayItem;
-import org.mapsforge.android.maps.overlay.OverlayWay;
 import org.mapsforge.core.model.GeoPoint;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -121,7 +122,6 @@ import eu.geopaparazzi.spatialite.database.spatial.core.tables.AbstractSpatialTa
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoBookmarks;
 import eu.geopaparazzi.core.database.DaoGpsLog;
-import eu.geopaparazzi.core.database.DaoImages;
 import eu.geopaparazzi.core.database.DaoNotes;
 import eu.geopaparazzi.core.database.objects.Bookmark;
 import eu.geopaparazzi.core.database.objects.Note;
@@ -179,6 +179,8 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
     private SharedPreferences mPeferences;
 
     private ArrayGeopaparazziOverlay mDataOverlay;
+    private MapDataSynchronizer mapDataSynchronizer;
+    private String notesStyle;
 
     private List<String> smsString;
     private Drawable notesDrawable;
@@ -309,6 +311,7 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
             // boolean highlightWaterTiles = mPeferences.getBoolean("highlightWaterTiles", false);
             DebugSettings debugSettings = new DebugSettings(true, true, false);
             this.mMapView.setDebugSettings(debugSettings);
+            this.mMapView.getTileRenderProfiler().setEnabled(true);
         }
 
         setTextScale();
@@ -412,10 +415,12 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
 
         // notes type
         boolean doCustom = mPeferences.getBoolean(Constants.PREFS_KEY_NOTES_CHECK, true);
+        String newNotesStyle = String.valueOf(doCustom);
         if (doCustom) {
             String opacityStr = mPeferences.getString(Constants.PREFS_KEY_NOTES_OPACITY, "255"); //$NON-NLS-1$
             String sizeStr = mPeferences.getString(Constants.PREFS_KEY_NOTES_SIZE, DEFAULT_NOTES_SIZE + ""); //$NON-NLS-1$
             String colorStr = mPeferences.getString(Constants.PREFS_KEY_NOTES_CUSTOMCOLOR, ColorUtilities.BLUE.getHex()); //$NON-NLS-1$
+            newNotesStyle = newNotesStyle + opacityStr + sizeStr + colorStr;
             int noteSize = Integer.parseInt(sizeStr);
             float opacity = Integer.parseInt(opacityStr);
 
@@ -435,10 +440,24 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
             notesDrawable = Compat.getDrawable(this, R.drawable.ic_place_accent_24dp);
         }
 
-        mDataOverlay = new ArrayGeopaparazziOverlay(this);
-        List<Overlay> overlays = mMapView.getOverlays();
-        overlays.clear();
-        overlays.add(mDataOverlay);
+        notesDrawable.setBounds(notesDrawable.getIntrinsicWidth(), notesDrawable.getIntrinsicHeight() / -2, notesDrawable.getIntrinsicWidth() / 2,
+                notesDrawable.getIntrinsicHeight() / 2);
+        Drawable notesMarker = ArrayGeopaparazziOverlay.boundCenter(notesDrawable);
+
+        // the overlay is kept across resumes, so that the map data only need to be synced
+        if (mDataOverlay == null) {
+            mDataOverlay = new ArrayGeopaparazziOverlay(this);
+            List<Overlay> overlays = mMapView.getOverlays();
+            overlays.clear();
+            overlays.add(mDataOverlay);
+
+            Drawable imageMarker = ArrayGeopaparazziOverlay.boundCenter(Compat.getDrawable(this, R.drawable.ic_images_48dp));
+            Drawable bookmarkMarker = ArrayGeopaparazziOverlay.boundCenter(Compat.getDrawable(this, R.drawable.ic_bookmarks_48dp));
+            mapDataSynchronizer = new MapDataSynchronizer(mDataOverlay, notesMarker, imageMarker, bookmarkMarker);
+        } else if (!newNotesStyle.equals(notesStyle)) {
+            mapDataSynchronizer.setNotesMarker(notesMarker);
+        }
+        notesStyle = newNotesStyle;
 
         super.onResume();
     }
@@ -469,6 +488,8 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
         if (gpsServiceBroadcastReceiver != null)
             GpsServiceUtilities.unregisterFromBroadcasts(this, gpsServiceBroadcastReceiver);
 
+        if (mapDataSynchronizer != null)
+            mapDataSynchronizer.dispose();
         if (mDataOverlay != null)
             mDataOverlay.dispose();
 
@@ -477,56 +498,51 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
             if (mapGenerator != null) {
                 mapGenerator.cleanup();
             }
+            TileRenderProfiler tileRenderProfiler = mMapView.getTileRenderProfiler();
+            if (tileRenderProfiler.isEnabled()) {
+                exportTileRenderProfile(tileRenderProfiler);
+            }
         }
 
         super.onDestroy();
     }
 
-    private void readData() {
+    private void exportTileRenderProfile(TileRenderProfiler tileRenderProfiler) {
+        Writer writer = null;
         try {
-            mDataOverlay.clearItems();
-            mDataOverlay.clearWays();
-
-            List<OverlayWay> logOverlaysList = DaoGpsLog.getGpslogOverlays();
-            mDataOverlay.addWays(logOverlaysList);
-
-            boolean imagesVisible = mPeferences.getBoolean(Constants.PREFS_KEY_IMAGES_VISIBLE, true);
-            boolean notesVisible = mPeferences.getBoolean(Constants.PREFS_KEY_NOTES_VISIBLE, true);
-
-            /* images */
-            if (imagesVisible) {
-                Drawable imageMarker = Compat.getDrawable(this, R.drawable.ic_images_48dp);
-                Drawable newImageMarker = ArrayGeopaparazziOverlay.boundCenter(imageMarker);
-                List<OverlayItem> imagesOverlaysList = DaoImages.getImagesOverlayList(newImageMarker, true);
-                mDataOverlay.addItems(imagesOverlaysList);
-            }
-
-            /* gps notes */
-            if (notesVisible) {
-                notesDrawable.setBounds(notesDrawable.getIntrinsicWidth(), notesDrawable.getIntrinsicHeight() / -2, notesDrawable.getIntrinsicWidth() / 2,
-                        notesDrawable.getIntrinsicHeight() / 2);
-                Drawable newNotesMarker = ArrayGeopaparazziOverlay.boundCenter(notesDrawable);
-                List<OverlayItem> noteOverlaysList = DaoNotes.getNoteOverlaysList(newNotesMarker);
-                mDataOverlay.addItems(noteOverlaysList);
+            File appDir = ResourcesManager.getInstance(this).getApplicationSupporterDir();
+            File profileFile = new File(appDir, "tile_render_profile.csv"); //$NON-NLS-1$
+            writer = new OutputStreamWriter(new FileOutputStream(profileFile), "UTF-8"); //$NON-NLS-1$
+            tileRenderProfiler.writeCsv(writer);
+        } catch (Exception e) {
+            GPLog.error(this, "Unable to export the tile render profile.", e); //$NON-NLS-1$
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // ignore
+                }
             }
+        }
+    }
 
-            /* bookmarks */
-            Drawable bookmarkMarker = Compat.getDrawable(this, R.drawable.ic_bookmarks_48dp);
-            Drawable newBookmarkMarker = ArrayGeopaparazziOverlay.boundCenter(bookmarkMarker);
-            List<OverlayItem> bookmarksOverlays = DaoBookmarks.getBookmarksOverlays(newBookmarkMarker);
-            mDataOverlay.addItems(bookmarksOverlays);
-
-            // read last known gps position
-            if (lastGpsPosition != null) {
-                GeoPoint geoPoint = toGeopoint((int) (lastGpsPosition[0] * E6), (int) (lastGpsPosition[1] * E6));
-                if (geoPoint != null) {
-                    mDataOverlay.setGpsPosition(geoPoint, 0f, lastGpsServiceStatus, lastGpsLoggingStatus);
-                    mDataOverlay.requestRedraw();
-                }
+    /**
+     * Sync the map data with the database in background and set the last gps position.
+     */
+    private void readData() {
+        boolean imagesVisible = mPeferences.getBoolean(Constants.PREFS_KEY_IMAGES_VISIBLE, true);
+        boolean notesVisible = mPeferences.getBoolean(Constants.PREFS_KEY_NOTES_VISIBLE, true);
+        mapDataSynchronizer.setVisibility(notesVisible, imagesVisible);
+        mapDataSynchronizer.requestSync();
+
+        // read last known gps position
+        if (lastGpsPosition != null) {
+            GeoPoint geoPoint = toGeopoint((int) (lastGpsPosition[0] * E6), (int) (lastGpsPosition[1] * E6));
+            if (geoPoint != null) {
+                mDataOverlay.setGpsPosition(geoPoint, 0f, lastGpsServiceStatus, lastGpsLoggingStatus);
+                mDataOverlay.requestRedraw();
             }
-            // mDataOverlay.requestRedraw();
-        } catch (IOException e1) {
-            GPLog.error(this, null, e1); //$NON-NLS-1$
         }
     }
 
@@ -863,6 +879,7 @@ public class MapviewActivity extends MapActivity implements OnTouchListener, OnC
                                     nowPlus10Secs = nowPlus10Secs + 10000;
                                     logDumper.addGpsLogDataPoint(sqliteDatabase, newLogId, lon, lat, altim, nowPlus10Secs);
                                 }
+                                logDumper.updateStatistics(sqliteDatabase, newLogId);
 
                                 sqliteDatabase.setTransactionSuccessful();
                             } finally {
@@ -24,7 +24,10 @@ import org.mapsforge.android.maps.overlay.OverlayWay;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * ArrayGeopaparazziOverlay is a thread-safe implementation of the {@link GeopaparazziOverlay} class using an {@link ArrayList} as
@@ -83,6 +86,26 @@ public class ArrayGeopaparazziOverlay extends GeopaparazziOverlay {
         populate();
     }
 
+    /**
+     * Removes and adds ways in one step, redrawing only once.
+     * 
+     * @param removedWays
+     *            the ways that should be removed from the overlay.
+     * @param addedWays
+     *            the ways that should be added to the overlay.
+     */
+    public void updateWays( Collection<OverlayWay> removedWays, Collection<OverlayWay> addedWays ) {
+        synchronized (this.overlayWays) {
+            if (!removedWays.isEmpty()) {
+                Set<OverlayWay> removedSet = Collections.newSetFromMap(new IdentityHashMap<OverlayWay, Boolean>());
+                removedSet.addAll(removedWays);
+                this.overlayWays.removeAll(removedSet);
+            }
+            this.overlayWays.addAll(addedWays);
+        }
+        populate();
+    }
+
     @Override
     public String getThreadName() {
         return THREAD_NAME;
@@ -154,6 +177,26 @@ public class ArrayGeopaparazziOverlay extends GeopaparazziOverlay {
         populate();
     }
 
+    /**
+     * Removes and adds items in one step, redrawing only once.
+     * 
+     * @param removedItems
+     *            the items that should be removed from the overlay.
+     * @param addedItems
+     *            the items that should be added to the overlay.
+     */
+    public void updateItems( Collection<OverlayItem> removedItems, Collection<OverlayItem> addedItems ) {
+        synchronized (this.overlayItems) {
+            if (!removedItems.isEmpty()) {
+                Set<OverlayItem> removedSet = Collections.newSetFromMap(new IdentityHashMap<OverlayItem, Boolean>());
+                removedSet.addAll(removedItems);
+                this.overlayItems.removeAll(removedSet);
+            }
+            this.overlayItems.addAll(addedItems);
+        }
+        populate();
+    }
+
     /**
      * Removes the given item from the overlay.
      * 
@@ -23,7 +23,6 @@ import android.content.SharedPreferences;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Paint.Align;
 import android.graphics.Path;
 import android.graphics.Point;
 import android.graphics.PointF;
@@ -54,6 +53,7 @@ import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
@@ -81,6 +81,7 @@ import eu.geopaparazzi.spatialite.database.spatial.SpatialiteSourcesManager;
 import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.SpatialiteDatabaseHandler;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
 import eu.geopaparazzi.spatialite.database.spatial.core.geometry.GeometryIterator;
+import eu.geopaparazzi.spatialite.database.spatial.core.geometry.WkbPathWriter;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import jsqlite.Exception;
 
@@ -115,10 +116,13 @@ public abstract class GeopaparazziOverlay extends Overlay {
     private Paint defaultWayPaintFill;
     private Paint defaultWayPaintOutline;
     private Path wayPath;
+    private final Path featurePath = new Path();
+    private final WeakHashMap<SpatialVectorTable, SpatialiteLayerRenderContext> renderContexts = new WeakHashMap<SpatialVectorTable, SpatialiteLayerRenderContext>();
 
-    private Point itemPosition;
-    private final List<Integer> visibleItems = new ArrayList<>();
-    private final List<Integer> visibleItemsRedraw = new ArrayList<>();
+    private final MarkerClusterIndex markerIndex = new MarkerClusterIndex();
+    private final Rect markerBounds = new Rect();
+    private Paint clusterTextPaint;
+    private Paint clusterTextHaloPaint;
 
     /*
      * gps stuff
@@ -154,7 +158,15 @@ public abstract class GeopaparazziOverlay extends Overlay {
         this.wayPath = new Path();
         this.wayPath.setFillType(Path.FillType.EVEN_ODD);
 
-        this.itemPosition = new Point();
+        clusterTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clusterTextPaint.setStyle(Paint.Style.FILL);
+        clusterTextPaint.setColor(Color.BLACK);
+        clusterTextPaint.setTextSize(LibraryConstants.DEFAULT_NOTES_SIZE);
+        clusterTextPaint.setFakeBoldText(true);
+        clusterTextHaloPaint = new Paint(clusterTextPaint);
+        clusterTextHaloPaint.setStyle(Paint.Style.STROKE);
+        clusterTextHaloPaint.setStrokeWidth(3);
+        clusterTextHaloPaint.setColor(Color.WHITE);
 
         // cross
         SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GeopaparazziApplication.getInstance());
@@ -420,102 +432,66 @@ public abstract class GeopaparazziOverlay extends Overlay {
         /*
          * ITEMS
          */
-
-        // erase the list of visible items
-        this.visibleItemsRedraw.clear();
-
         int canvasHeight = canvas.getHeight();
         int canvasWidth = canvas.getWidth();
 
-        int numberOfItems = itemSize();
-        for (int itemIndex = 0; itemIndex < numberOfItems; ++itemIndex) {
+        List<MarkerClusterIndex.MarkerCluster> clusters = markerIndex.query(this, projection, drawZoomLevel,
+                drawPosition.x, drawPosition.y, drawPosition.x + canvasWidth, drawPosition.y + canvasHeight);
+        for (MarkerClusterIndex.MarkerCluster cluster : clusters) {
             if (stopDrawing()) {
                 // stop working
                 return;
             }
 
-            // get the current item
-            OverlayItem overlayItem = createItem(itemIndex);
-            if (overlayItem == null) {
-                continue;
-            }
-
-            // make sure that the current item has a position
-            if (overlayItem.getPoint() == null) {
-                continue;
-            }
-
-            // make sure that the cached item position is valid
-            if (drawZoomLevel != overlayItem.cachedZoomLevel) {
-                overlayItem.cachedMapPosition = projection.toPoint(overlayItem.getPoint(), overlayItem.cachedMapPosition,
-                        drawZoomLevel);
-                overlayItem.cachedZoomLevel = drawZoomLevel;
-            }
-
-            // calculate the relative item position on the canvas
-            this.itemPosition.x = overlayItem.cachedMapPosition.x - drawPosition.x;
-            this.itemPosition.y = overlayItem.cachedMapPosition.y - drawPosition.y;
-
-            // get the correct marker for the item
+            OverlayItem overlayItem = cluster.item;
             Drawable itemMarker = overlayItem.getMarker();
             if (itemMarker == null) continue;
 
-            // get the position of the marker
-            Rect markerBounds = itemMarker.copyBounds();
+            // calculate the bounding box of the marker on the canvas
+            int x = cluster.position.x - drawPosition.x;
+            int y = cluster.position.y - drawPosition.y;
             int intrinsicWidth = itemMarker.getIntrinsicWidth() / 2;
             int intrinsicHeight = itemMarker.getIntrinsicHeight() / 2;
-
-            // calculate the bounding box of the marker
             int left;
             int right;
             int top;
             int itemBottom;
             if (overlayItem instanceof NoteOverlayItem) {
-                left = this.itemPosition.x - intrinsicWidth;
-                right = this.itemPosition.x + intrinsicWidth;
-                top = this.itemPosition.y - intrinsicHeight;
-                itemBottom = this.itemPosition.y + intrinsicHeight;
+                left = x - intrinsicWidth;
+                right = x + intrinsicWidth;
+                top = y - intrinsicHeight;
+                itemBottom = y + intrinsicHeight;
             } else {
-                left = this.itemPosition.x + intrinsicWidth / 2 - intrinsicWidth;
-                right = this.itemPosition.x + intrinsicWidth / 2 + intrinsicWidth;
-                top = this.itemPosition.y + intrinsicHeight / 2 - intrinsicHeight;
-                itemBottom = this.itemPosition.y + intrinsicHeight / 2 + intrinsicHeight;
+                left = x + intrinsicWidth / 2 - intrinsicWidth;
+                right = x + intrinsicWidth / 2 + intrinsicWidth;
+                top = y + intrinsicHeight / 2 - intrinsicHeight;
+                itemBottom = y + intrinsicHeight / 2 + intrinsicHeight;
             }
 
             // check if the bounding box of the marker intersects with the canvas
             if (right >= 0 && left <= canvasWidth && itemBottom >= 0 && top <= canvasHeight) {
-                // set the position of the marker
+                // draw the marker in position and restore it, since it is shared by many items
+                itemMarker.copyBounds(markerBounds);
                 itemMarker.setBounds(left, top, right, itemBottom);
-
-                // draw the item marker on the canvas
                 itemMarker.draw(canvas);
-
-                // restore the position of the marker
                 itemMarker.setBounds(markerBounds);
 
-                // add the current item index to the list of visible items
-                this.visibleItemsRedraw.add(itemIndex);
-
-                if (isNotesTextVisible && overlayItem instanceof NoteOverlayItem) {
+                if (cluster.size > 1) {
+                    String count = String.valueOf(cluster.size);
+                    canvas.drawText(count, right, top, clusterTextHaloPaint);
+                    canvas.drawText(count, right, top, clusterTextPaint);
+                } else if (isNotesTextVisible && overlayItem instanceof NoteOverlayItem) {
                     String title = overlayItem.getTitle();
                     float delta = markerBounds.width() / 4f;
-                    float x = right - delta;
-                    float y = top + delta;
+                    float textX = right - delta;
+                    float textY = top + delta;
                     if (doNotesTextHalo)
-                        canvas.drawText(title, x, y, textHaloPaint);
-                    canvas.drawText(title, x, y, textPaint);
+                        canvas.drawText(title, textX, textY, textHaloPaint);
+                    canvas.drawText(title, textX, textY, textPaint);
                 }
             }
         }
 
-        // swap the two visible item lists
-        synchronized (visibleItems) {
-            List<Integer> visibleItemsTemp = new ArrayList<>(visibleItems);
-            visibleItems.clear();
-            visibleItems.addAll(visibleItemsRedraw);
-            visibleItemsRedraw.addAll(visibleItemsTemp);
-        }
-
         /*
          * gps logging track
          */
@@ -651,36 +627,39 @@ public abstract class GeopaparazziOverlay extends Overlay {
                         continue;
                     }
 
+                    SpatialiteLayerRenderContext renderContext = getRenderContext(spatialTable, drawPosition, drawZoomLevel);
+                    boolean isThemed = style.themeField != null;
                     GeometryIterator geometryIterator = null;
                     try {
-                        Paint fill = null;
-                        Paint stroke = null;
-                        if (style.themeField == null) {
-                            if (style.fillcolor != null && style.fillcolor.trim().length() > 0)
-                                fill = spatialTable.getFillPaint4Style(style);
-                            if (style.strokecolor != null && style.strokecolor.trim().length() > 0)
-                                stroke = spatialTable.getStrokePaint4Style(style);
-                        }
-                        PointTransformation pointTransformer = new MapsforgePointTransformation(projection, drawPosition,
-                                drawZoomLevel);
-                        ShapeWriter shapeWriter;
-                        ShapeWriter shape_writer_point = null;
-                        if (spatialTable.isPoint()) {
-                            shapeWriter = new ShapeWriter(pointTransformer, style.shape,
-                                    style.size);
-                            shape_writer_point = new ShapeWriter(pointTransformer, style.shape,
-                                    style.size);
-                        } else {
-                            shapeWriter = new ShapeWriter(pointTransformer);
-                            if (spatialTable.isGeometryCollection()) {
-                                shape_writer_point = new ShapeWriter(pointTransformer, style.shape,
-                                        style.size);
-                            }
-                        }
-                        shapeWriter.setRemoveDuplicatePoints(true);
-                        shapeWriter.setDecimation(style.decimationFactor);
                         geometryIterator = spatialDatabaseHandler.getGeometryIteratorInBounds(
                                 LibraryConstants.SRID_WGS84_4326, spatialTable, n, s, e, w);
+                        if (!spatialTable.isPoint() && !spatialTable.isGeometryCollection()) {
+                            // lines and polygons are only drawn, write them directly into the path
+                            WkbPathWriter pathWriter = renderContext.getPathWriter();
+                            boolean isPolygon = spatialTable.isPolygon();
+                            while (geometryIterator.hasNext()) {
+                                if (!geometryIterator.nextPath(pathWriter, featurePath)) {
+                                    continue;
+                                }
+                                if (!pathWriter.intersects(canvasEnvelope)) {
+                                    continue;
+                                }
+                                String themeFieldValue = isThemed ? geometryIterator.getThemeFieldValue() : null;
+                                Paint fill = renderContext.getFill(themeFieldValue);
+                                Paint stroke = renderContext.getStroke(themeFieldValue);
+                                if (isPolygon && fill != null) {
+                                    canvas.drawPath(featurePath, fill);
+                                }
+                                if (stroke != null) {
+                                    canvas.drawPath(featurePath, stroke);
+                                }
+                                if (stopDrawing()) { // stop working
+                                    return;
+                                }
+                            }
+                            continue;
+                        }
+                        ShapeWriter shapeWriter = renderContext.getShapeWriter();
                         while (geometryIterator.hasNext()) {
                             Geometry geom = geometryIterator.next();
                             if (geom != null) {
@@ -688,24 +667,17 @@ public abstract class GeopaparazziOverlay extends Overlay {
                                     continue;
                                 }
 
-                                if (style.themeField != null) {
-                                    // set paint
-                                    String themeFieldValue = geometryIterator.getThemeFieldValue();
-                                    Style themeStyle = style.themeMap.get(themeFieldValue);
-                                    if (themeStyle.fillcolor != null && themeStyle.fillcolor.trim().length() > 0)
-                                        fill = spatialTable.getFillPaint4Theme(themeFieldValue, themeStyle);
-                                    if (themeStyle.strokecolor != null && themeStyle.strokecolor.trim().length() > 0)
-                                        stroke = spatialTable.getStrokePaint4Theme(themeFieldValue, themeStyle);
-                                    if (spatialTable.isPoint())
-                                        shape_writer_point = new ShapeWriter(pointTransformer, themeStyle.shape, themeStyle.size);
-                                }
+                                String themeFieldValue = isThemed ? geometryIterator.getThemeFieldValue() : null;
+                                Paint fill = renderContext.getFill(themeFieldValue);
+                                Paint stroke = renderContext.getStroke(themeFieldValue);
+                                ShapeWriter pointShapeWriter = renderContext.getPointShapeWriter(themeFieldValue);
                                 int geometriesCount = geom.getNumGeometries();
                                 for (int j = 0; j < geometriesCount; j++) {
                                     Geometry geom_collect = geom.getGeometryN(j);
                                     if (geom_collect != null) {
                                         String geometryType = geom_collect.getGeometryType();
                                         if (geometryType.toUpperCase().contains("POINT")) {
-                                            drawGeometry(geom_collect, canvas, shape_writer_point, fill, stroke);
+                                            drawGeometry(geom_collect, canvas, pointShapeWriter, fill, stroke);
                                         } else {
                                             drawGeometry(geom_collect, canvas, shapeWriter, fill, stroke);
                                         }
@@ -758,36 +730,15 @@ public abstract class GeopaparazziOverlay extends Overlay {
                     continue;
                 }
 
-                float delta = style.size / 2f;
-                if (delta < 2) {
-                    delta = 2;
-                }
-
-                Paint dbTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                dbTextPaint.setStyle(Paint.Style.FILL);
-                dbTextPaint.setColor(Color.BLACK);
-                dbTextPaint.setTextSize(style.labelsize);
-                Paint dbTextHaloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                dbTextHaloPaint.setStyle(Paint.Style.STROKE);
-                dbTextHaloPaint.setStrokeWidth(3);
-                dbTextHaloPaint.setColor(Color.WHITE);
-                dbTextHaloPaint.setTextSize(style.labelsize);
+                SpatialiteLayerRenderContext renderContext = getRenderContext(spatialTable, drawPosition, drawZoomLevel);
+                PointTransformation pointTransformer = renderContext.getPointTransformer();
+                ShapeWriter linesWriter = renderContext.getLabelLinesWriter();
+                Paint dbTextPaint = renderContext.getTextPaint();
+                Paint dbTextHaloPaint = renderContext.getTextHaloPaint();
+                float delta = renderContext.getLabelDelta();
 
                 GeometryIterator geometryIterator = null;
                 try {
-                    PointTransformation pointTransformer = new MapsforgePointTransformation(projection, drawPosition,
-                            drawZoomLevel);
-                    ShapeWriter linesWriter = null;
-                    if (spatialTable.isLine()) {
-                        linesWriter = new ShapeWriter(pointTransformer, spatialTable.getStyle().shape,
-                                spatialTable.getStyle().size);
-                        dbTextHaloPaint.setTextAlign(Align.CENTER);
-                        dbTextPaint.setTextAlign(Align.CENTER);
-                    } else {
-                        dbTextHaloPaint.setTextAlign(Align.LEFT);
-                        dbTextPaint.setTextAlign(Align.LEFT);
-                    }
-
                     if (spatialDatabaseHandler.isOpen()) {
                         geometryIterator = spatialDatabaseHandler.getGeometryIteratorInBounds(
                                 LibraryConstants.SRID_WGS84_4326, spatialTable, n, s, e, w);
@@ -834,6 +785,16 @@ public abstract class GeopaparazziOverlay extends Overlay {
         }
     }
 
+    private SpatialiteLayerRenderContext getRenderContext(SpatialVectorTable spatialTable, Point drawPosition, byte drawZoomLevel) {
+        SpatialiteLayerRenderContext renderContext = renderContexts.get(spatialTable);
+        if (renderContext == null) {
+            renderContext = new SpatialiteLayerRenderContext(spatialTable);
+            renderContexts.put(spatialTable, renderContext);
+        }
+        renderContext.update(drawPosition, drawZoomLevel);
+        return renderContext;
+    }
+
     private boolean stopDrawing() {
         return isInterrupted() || sizeHasChanged() || needRedraw();
     }
@@ -929,6 +890,7 @@ public abstract class GeopaparazziOverlay extends Overlay {
      * This method should be called after ways have been added to the overlay.
      */
     protected final void populate() {
+        markerIndex.invalidate();
         super.requestRedraw();
     }
 
@@ -950,64 +912,54 @@ public abstract class GeopaparazziOverlay extends Overlay {
      */
     protected boolean checkItemHit(GeoPoint geoPoint, MapView mapView, EventType eventType) {
         Projection projection = mapView.getProjection();
-        Point eventPosition = projection.toPixels(geoPoint, null);
+        byte zoomLevel = mapView.getMapPosition().getZoomLevel();
+        Point eventPosition = projection.toPoint(geoPoint, null, zoomLevel);
         Context context = mapView.getContext();
         // check if the translation to pixel coordinates has failed
         if (eventPosition == null) {
             return false;
         }
 
-        Point checkItemPoint = new Point();
-
-        synchronized (this.visibleItems) {
-            // iterate over all visible items
-            for (int i = this.visibleItems.size() - 1; i >= 0; --i) {
-                Integer itemIndex = this.visibleItems.get(i);
+        List<MarkerClusterIndex.MarkerCluster> clusters = markerIndex.query(this, projection, zoomLevel, eventPosition.x,
+                eventPosition.y, eventPosition.x, eventPosition.y);
+        for (MarkerClusterIndex.MarkerCluster cluster : clusters) {
+            OverlayItem checkOverlayItem = cluster.item;
 
-                // get the current item
-                OverlayItem checkOverlayItem = createItem(itemIndex);
-                if (checkOverlayItem == null) {
-                    continue;
-                }
+            // select the correct marker for the item and get the position
+            Drawable marker = checkOverlayItem.getMarker();
+            if (marker == null) continue;
+            Rect checkMarkerBounds = marker.getBounds();
 
-                // make sure that the current item has a position
-                if (checkOverlayItem.getPoint() == null) {
-                    continue;
-                }
-
-                checkItemPoint = projection.toPixels(checkOverlayItem.getPoint(), checkItemPoint);
-                // check if the translation to pixel coordinates has failed
-                if (checkItemPoint == null) {
+            // calculate the bounding box of the marker
+            int checkLeft = cluster.position.x + checkMarkerBounds.left;
+            int checkRight = cluster.position.x + checkMarkerBounds.right;
+            int checkTop = cluster.position.y + checkMarkerBounds.top;
+            int checkBottom = cluster.position.y + checkMarkerBounds.bottom;
+
+            // check if the event position is within the bounds of the marker
+            if (checkRight >= eventPosition.x && checkLeft <= eventPosition.x && checkBottom >= eventPosition.y
+                    && checkTop <= eventPosition.y) {
+                if (cluster.size > 1) {
+                    // zoom in on clusters, until they split up
+                    if (eventType == EventType.TAP) {
+                        mapView.getController().setCenter(checkOverlayItem.getPoint());
+                        mapView.getController().zoomIn();
+                        return true;
+                    }
                     continue;
                 }
+                switch (eventType) {
+                    case LONG_PRESS:
+                        if (onLongPress(checkOverlayItem)) {
+                            return true;
+                        }
+                        break;
 
-                // select the correct marker for the item and get the position
-                Drawable marker = checkOverlayItem.getMarker();
-                if (marker == null) return false;
-                Rect checkMarkerBounds = marker.getBounds();
-
-                // calculate the bounding box of the marker
-                int checkLeft = checkItemPoint.x + checkMarkerBounds.left;
-                int checkRight = checkItemPoint.x + checkMarkerBounds.right;
-                int checkTop = checkItemPoint.y + checkMarkerBounds.top;
-                int checkBottom = checkItemPoint.y + checkMarkerBounds.bottom;
-
-                // check if the event position is within the bounds of the marker
-                if (checkRight >= eventPosition.x && checkLeft <= eventPosition.x && checkBottom >= eventPosition.y
-                        && checkTop <= eventPosition.y) {
-                    switch (eventType) {
-                        case LONG_PRESS:
-                            if (onLongPress(itemIndex)) {
-                                return true;
-                            }
-                            break;
-
-                        case TAP:
-                            if (onTap(context, itemIndex)) {
-                                return true;
-                            }
-                            break;
-                    }
+                    case TAP:
+                        if (onTap(context, checkOverlayItem)) {
+                            return true;
+                        }
+                        break;
                 }
             }
         }
@@ -1021,10 +973,10 @@ public abstract class GeopaparazziOverlay extends Overlay {
      * <p/>
      * The default implementation of this method does nothing and returns false.
      *
-     * @param index the index of the item that has been long pressed.
+     * @param item the item that has been long pressed.
      * @return true if the event was handled, false otherwise.
      */
-    protected boolean onLongPress(int index) {
+    protected boolean onLongPress(OverlayItem item) {
         return false;
     }
 
@@ -1033,11 +985,10 @@ public abstract class GeopaparazziOverlay extends Overlay {
      * <p/>
      * The default implementation of this method does nothing and returns false.
      *
-     * @param index the index of the item that has been tapped.
+     * @param item the item that has been tapped.
      * @return true if the event was handled, false otherwise.
      */
-    protected boolean onTap(Context context, int index) {
-        OverlayItem item = createItem(index);
+    protected boolean onTap(Context context, OverlayItem item) {
         if (item != null) {
             String title = item.getTitle();
             String snippet = item.getSnippet();
@@ -25,17 +25,18 @@ import com.vividsolutions.jts.android.PointTransformation;
 import com.vividsolutions.jts.geom.Coordinate;
 
 import org.mapsforge.android.maps.Projection;
-import org.mapsforge.core.model.GeoPoint;
+import org.mapsforge.core.util.MercatorProjection;
 
 /**
  * Transformation that handles mapsforge transforms.
+ * <p>
+ * <p>The coordinates are projected with the same math as the mapview projection,
+ * without creating a {@link org.mapsforge.core.model.GeoPoint} per vertex.</p>
  * 
  * @author Andrea Antonello (www.hydrologis.com)
  */
 public class MapsforgePointTransformation implements PointTransformation {
     private byte drawZoom;
-    private Projection projection;
-    private final Point tmpPoint = new Point();
     private Point drawPosition;
 
     /**
@@ -46,13 +47,26 @@ public class MapsforgePointTransformation implements PointTransformation {
      * @param drawZoom the zoom level.
      */
     public MapsforgePointTransformation( Projection projection, Point drawPosition, byte drawZoom ) {
-        this.projection = projection;
+        this.drawPosition = drawPosition;
+        this.drawZoom = drawZoom;
+    }
+
+    /**
+     * Set the position and zoom level to transform to.
+     * <p>
+     * <p>This allows to reuse the transformation over frames.
+     *
+     * @param drawPosition the position.
+     * @param drawZoom the zoom level.
+     */
+    public void setPosition( Point drawPosition, byte drawZoom ) {
         this.drawPosition = drawPosition;
         this.drawZoom = drawZoom;
     }
 
     public void transform( Coordinate model, PointF view ) {
-        projection.toPoint(new GeoPoint(model.y, model.x), tmpPoint, drawZoom);
-        view.set(tmpPoint.x - drawPosition.x, tmpPoint.y - drawPosition.y);
+        int x = (int) MercatorProjection.longitudeToPixelX(model.x, drawZoom);
+        int y = (int) MercatorProjection.latitudeToPixelY(model.y, drawZoom);
+        view.set(x - drawPosition.x, y - drawPosition.y);
     }
 }
\ No newline at end of file
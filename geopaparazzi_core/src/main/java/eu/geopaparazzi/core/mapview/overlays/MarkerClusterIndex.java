@@ -0,0 +1,190 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.mapview.overlays;
+
+import android.graphics.Point;
+import android.graphics.drawable.Drawable;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import org.mapsforge.android.maps.Projection;
+import org.mapsforge.android.maps.overlay.OverlayItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A per zoom level spatial index of the items of a {@link GeopaparazziOverlay}.
+ * <p>
+ * <p>For each zoom level the items are projected once and grouped on a pixel grid with
+ * cells of the size of the largest marker. Each non empty cell becomes a {@link MarkerCluster}
+ * and the clusters are put in an {@link STRtree}, so that drawing and hit testing only touch
+ * the clusters of the visible area. Above {@link #MAX_CLUSTER_ZOOM} every item is a cluster
+ * of its own.</p>
+ * <p>
+ * <p>The index is built lazily when a zoom level is first needed and dropped
+ * through {@link #invalidate()} when the items change.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class MarkerClusterIndex {
+
+    /**
+     * The last zoom level at which items are clustered.
+     */
+    public static final byte MAX_CLUSTER_ZOOM = 17;
+
+    private static final int CACHED_ZOOM_LEVELS = 4;
+
+    /**
+     * A group of items falling in the same grid cell.
+     */
+    public static class MarkerCluster {
+        /**
+         * The first item of the cell, which is drawn for the whole cluster.
+         */
+        public final OverlayItem item;
+        /**
+         * The position of the item in map pixels at the zoom level of the cluster.
+         */
+        public final Point position;
+        /**
+         * The number of items of the cluster.
+         */
+        public int size = 1;
+
+        private MarkerCluster(OverlayItem item, Point position) {
+            this.item = item;
+            this.position = position;
+        }
+    }
+
+    private static class ZoomLevelIndex {
+        private final STRtree tree;
+        private final int maxMarkerSize;
+
+        private ZoomLevelIndex(STRtree tree, int maxMarkerSize) {
+            this.tree = tree;
+            this.maxMarkerSize = maxMarkerSize;
+        }
+    }
+
+    private final Map<Byte, ZoomLevelIndex> zoomLevelIndexes = new LinkedHashMap<Byte, ZoomLevelIndex>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Byte, ZoomLevelIndex> eldest) {
+            return size() > CACHED_ZOOM_LEVELS;
+        }
+    };
+    private long generation = 0;
+
+    /**
+     * Drop all built zoom levels. To be called whenever items are added or removed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        zoomLevelIndexes.clear();
+    }
+
+    /**
+     * Get the clusters whose position falls in a map pixel area, enlarged by the largest marker size.
+     *
+     * @param overlay    the overlay holding the items.
+     * @param projection the projection to use.
+     * @param zoomLevel  the zoom level.
+     * @param minX       the min x of the area in map pixels.
+     * @param minY       the min y of the area in map pixels.
+     * @param maxX       the max x of the area in map pixels.
+     * @param maxY       the max y of the area in map pixels.
+     * @return the clusters.
+     */
+    @SuppressWarnings("unchecked")
+    public List<MarkerCluster> query(GeopaparazziOverlay overlay, Projection projection, byte zoomLevel, int minX, int minY,
+                                     int maxX, int maxY) {
+        ZoomLevelIndex zoomLevelIndex = getZoomLevelIndex(overlay, projection, zoomLevel);
+        int delta = zoomLevelIndex.maxMarkerSize;
+        Envelope envelope = new Envelope(minX - delta, maxX + delta, minY - delta, maxY + delta);
+        return zoomLevelIndex.tree.query(envelope);
+    }
+
+    private ZoomLevelIndex getZoomLevelIndex(GeopaparazziOverlay overlay, Projection projection, byte zoomLevel) {
+        long buildGeneration;
+        synchronized (this) {
+            ZoomLevelIndex zoomLevelIndex = zoomLevelIndexes.get(zoomLevel);
+            if (zoomLevelIndex != null)
+                return zoomLevelIndex;
+            buildGeneration = generation;
+        }
+
+        ZoomLevelIndex zoomLevelIndex = build(overlay, projection, zoomLevel);
+
+        synchronized (this) {
+            // items changed while building, use the result only once
+            if (buildGeneration == generation)
+                zoomLevelIndexes.put(zoomLevel, zoomLevelIndex);
+        }
+        return zoomLevelIndex;
+    }
+
+    private static ZoomLevelIndex build(GeopaparazziOverlay overlay, Projection projection, byte zoomLevel) {
+        int itemsCount = overlay.itemSize();
+        List<OverlayItem> items = new ArrayList<>(itemsCount);
+        int maxMarkerSize = 1;
+        for (int i = 0; i < itemsCount; i++) {
+            OverlayItem item = overlay.createItem(i);
+            if (item == null || item.getPoint() == null)
+                continue;
+            Drawable marker = item.getMarker();
+            if (marker == null)
+                continue;
+            maxMarkerSize = Math.max(maxMarkerSize, Math.max(marker.getIntrinsicWidth(), marker.getIntrinsicHeight()));
+            items.add(item);
+        }
+
+        List<MarkerCluster> clusters = new ArrayList<>();
+        if (zoomLevel > MAX_CLUSTER_ZOOM) {
+            for (OverlayItem item : items) {
+                clusters.add(new MarkerCluster(item, projection.toPoint(item.getPoint(), null, zoomLevel)));
+            }
+        } else {
+            HashMap<Long, MarkerCluster> cells = new HashMap<>();
+            for (OverlayItem item : items) {
+                Point position = projection.toPoint(item.getPoint(), null, zoomLevel);
+                long cell = ((long) (position.x / maxMarkerSize) << 32) | ((position.y / maxMarkerSize) & 0xffffffffL);
+                MarkerCluster cluster = cells.get(cell);
+                if (cluster == null) {
+                    cluster = new MarkerCluster(item, position);
+                    cells.put(cell, cluster);
+                    clusters.add(cluster);
+                } else {
+                    cluster.size++;
+                }
+            }
+        }
+
+        STRtree tree = new STRtree();
+        for (MarkerCluster cluster : clusters) {
+            tree.insert(new Envelope(cluster.position.x, cluster.position.x, cluster.position.y, cluster.position.y), cluster);
+        }
+        tree.build();
+        return new ZoomLevelIndex(tree, maxMarkerSize);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.mapview.overlays;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+
+import com.vividsolutions.jts.android.ShapeWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.geopaparazzi.library.style.Style;
+import eu.geopaparazzi.spatialite.database.spatial.core.geometry.WkbPathWriter;
+import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
+
+/**
+ * The drawing objects of a spatialite vector layer, reused over frames.
+ * <p>
+ * <p>Paints, shape writers and the path writer are resolved from the style of the table
+ * once, themed ones per unique value, and rebuilt only when the style version of the table
+ * changes. Between frames only the position and zoom level of the point transformation
+ * are updated.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class SpatialiteLayerRenderContext {
+
+    private final SpatialVectorTable spatialTable;
+    private final MapsforgePointTransformation pointTransformer;
+    private int styleVersion = Integer.MIN_VALUE;
+
+    private ShapeWriter shapeWriter;
+    private ShapeWriter pointShapeWriter;
+    private ShapeWriter labelLinesWriter;
+    private WkbPathWriter pathWriter;
+    private Paint fill;
+    private Paint stroke;
+
+    private final HashMap<String, Paint> themeFills = new HashMap<String, Paint>();
+    private final HashMap<String, Paint> themeStrokes = new HashMap<String, Paint>();
+    private final HashMap<String, ShapeWriter> themePointShapeWriters = new HashMap<String, ShapeWriter>();
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textHaloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private float labelDelta;
+
+    /**
+     * Constructor.
+     *
+     * @param spatialTable the table to draw.
+     */
+    public SpatialiteLayerRenderContext(SpatialVectorTable spatialTable) {
+        this.spatialTable = spatialTable;
+        pointTransformer = new MapsforgePointTransformation(null, new Point(), (byte) 0);
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setColor(Color.BLACK);
+        textHaloPaint.setStyle(Paint.Style.STROKE);
+        textHaloPaint.setStrokeWidth(3);
+        textHaloPaint.setColor(Color.WHITE);
+    }
+
+    /**
+     * Prepare the context for a frame.
+     *
+     * @param drawPosition the draw position of the frame.
+     * @param drawZoom     the zoom level of the frame.
+     */
+    public void update(Point drawPosition, byte drawZoom) {
+        pointTransformer.setPosition(drawPosition, drawZoom);
+        int currentStyleVersion = spatialTable.getStyleVersion();
+        if (currentStyleVersion != styleVersion) {
+            build(spatialTable.getStyle());
+            styleVersion = currentStyleVersion;
+        }
+    }
+
+    private void build(Style style) {
+        fill = null;
+        stroke = null;
+        if (style.themeField == null) {
+            if (style.fillcolor != null && style.fillcolor.trim().length() > 0)
+                fill = spatialTable.getFillPaint4Style(style);
+            if (style.strokecolor != null && style.strokecolor.trim().length() > 0)
+                stroke = spatialTable.getStrokePaint4Style(style);
+        }
+
+        pointShapeWriter = null;
+        if (spatialTable.isPoint()) {
+            shapeWriter = new ShapeWriter(pointTransformer, style.shape, style.size);
+            pointShapeWriter = new ShapeWriter(pointTransformer, style.shape, style.size);
+        } else {
+            shapeWriter = new ShapeWriter(pointTransformer);
+            if (spatialTable.isGeometryCollection()) {
+                pointShapeWriter = new ShapeWriter(pointTransformer, style.shape, style.size);
+            }
+        }
+        shapeWriter.setRemoveDuplicatePoints(true);
+        shapeWriter.setDecimation(style.decimationFactor);
+
+        pathWriter = new WkbPathWriter(pointTransformer);
+        pathWriter.setRemoveDuplicatePoints(true);
+        pathWriter.setDecimation(style.decimationFactor);
+
+        themeFills.clear();
+        themeStrokes.clear();
+        themePointShapeWriters.clear();
+        if (style.themeField != null && style.themeMap != null) {
+            for (Map.Entry<String, Style> entry : style.themeMap.entrySet()) {
+                String themeValue = entry.getKey();
+                Style themeStyle = entry.getValue();
+                if (themeStyle.fillcolor != null && themeStyle.fillcolor.trim().length() > 0)
+                    themeFills.put(themeValue, spatialTable.getFillPaint4Theme(themeValue, themeStyle));
+                if (themeStyle.strokecolor != null && themeStyle.strokecolor.trim().length() > 0)
+                    themeStrokes.put(themeValue, spatialTable.getStrokePaint4Theme(themeValue, themeStyle));
+                if (spatialTable.isPoint())
+                    themePointShapeWriters.put(themeValue, new ShapeWriter(pointTransformer, themeStyle.shape, themeStyle.size));
+            }
+        }
+
+        labelLinesWriter = null;
+        if (spatialTable.isLine()) {
+            labelLinesWriter = new ShapeWriter(pointTransformer, style.shape, style.size);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+            textHaloPaint.setTextAlign(Paint.Align.CENTER);
+        } else {
+            textPaint.setTextAlign(Paint.Align.LEFT);
+            textHaloPaint.setTextAlign(Paint.Align.LEFT);
+        }
+        textPaint.setTextSize(style.labelsize);
+        textHaloPaint.setTextSize(style.labelsize);
+        labelDelta = style.size / 2f;
+        if (labelDelta < 2) {
+            labelDelta = 2;
+        }
+    }
+
+    /**
+     * @return the point transformation of the current frame.
+     */
+    public MapsforgePointTransformation getPointTransformer() {
+        return pointTransformer;
+    }
+
+    /**
+     * @return the shape writer for the geometries of the table.
+     */
+    public ShapeWriter getShapeWriter() {
+        return shapeWriter;
+    }
+
+    /**
+     * Get the shape writer for points.
+     *
+     * @param themeValue the theme unique value of the feature or <code>null</code>.
+     * @return the writer.
+     */
+    public ShapeWriter getPointShapeWriter(String themeValue) {
+        if (themeValue != null) {
+            ShapeWriter themeWriter = themePointShapeWriters.get(themeValue);
+            if (themeWriter != null)
+                return themeWriter;
+        }
+        return pointShapeWriter;
+    }
+
+    /**
+     * @return the writer for lines and polygons, that bypasses the jts geometries.
+     */
+    public WkbPathWriter getPathWriter() {
+        return pathWriter;
+    }
+
+    /**
+     * Get the fill paint.
+     *
+     * @param themeValue the theme unique value of the feature or <code>null</code>.
+     * @return the paint or <code>null</code>, if there is no fill.
+     */
+    public Paint getFill(String themeValue) {
+        if (themeValue != null && spatialTable.getStyle().themeField != null)
+            return themeFills.get(themeValue);
+        return fill;
+    }
+
+    /**
+     * Get the stroke paint.
+     *
+     * @param themeValue the theme unique value of the feature or <code>null</code>.
+     * @return the paint or <code>null</code>, if there is no stroke.
+     */
+    public Paint getStroke(String themeValue) {
+        if (themeValue != null && spatialTable.getStyle().themeField != null)
+            return themeStrokes.get(themeValue);
+        return stroke;
+    }
+
+    /**
+     * @return the shape writer used to place labels on lines, or <code>null</code>.
+     */
+    public ShapeWriter getLabelLinesWriter() {
+        return labelLinesWriter;
+    }
+
+    /**
+     * @return the label text paint.
+     */
+    public Paint getTextPaint() {
+        return textPaint;
+    }
+
+    /**
+     * @return the label halo paint.
+     */
+    public Paint getTextHaloPaint() {
+        return textHaloPaint;
+    }
+
+    /**
+     * @return the offset of labels from points.
+     */
+    public float getLabelDelta() {
+        return labelDelta;
+    }
+}
@@ -65,6 +65,7 @@ import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoBookmarks;
 import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.core.database.DatabaseManager;
 import eu.geopaparazzi.core.database.objects.Bookmark;
 import eu.geopaparazzi.core.ui.dialogs.GpxExportDialogFragment;
 import eu.geopaparazzi.core.ui.dialogs.KmzExportDialogFragment;
@@ -201,6 +202,12 @@ public class ExportActivity extends AppCompatActivity implements
     @Override
     public Uri[] createBeamUris(NfcEvent nfcEvent) {
         GPLog.addLogEntry(this, "URI SENT: " + mFileUris[0]);
+        try {
+            // the last commits are still in the write ahead log, next to the beamed file
+            DatabaseManager.checkpoint(GeopaparazziApplication.getInstance().getDatabase());
+        } catch (IOException e) {
+            GPLog.error(this, null, e);
+        }
         return mFileUris;
     }
 
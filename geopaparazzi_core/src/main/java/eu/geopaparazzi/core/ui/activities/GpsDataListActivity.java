@@ -55,6 +55,7 @@ import java.util.List;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.DynamicDoubleArray;
+import eu.geopaparazzi.library.util.DynamicLongArray;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.Utilities;
@@ -150,19 +151,20 @@ public class GpsDataListActivity extends AppCompatActivity implements
                 SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
                 sqliteDatabase.beginTransaction();
                 try {
-                    List<String> dateList = logData.getDateList();
+                    DynamicLongArray timestampList = logData.getTimestampList();
                     DynamicDoubleArray lonList = logData.getLonList();
                     DynamicDoubleArray latList = logData.getLatList();
                     DynamicDoubleArray altimList = logData.getAltimList();
-                    int size = dateList.size();
+                    int size = logData.size();
                     for (int j = 0; j < size; j++) {
                         double lon = lonList.get(j);
                         double lat = latList.get(j);
 
                         double altim = altimList.get(j);
-                        long time = Long.parseLong(dateList.get(j));
+                        long time = timestampList.get(j);
                         daoGpsLog.addGpsLogDataPoint(sqliteDatabase, logId, lon, lat, altim, time);
                     }
+                    daoGpsLog.updateStatistics(sqliteDatabase, logId);
                     sqliteDatabase.setTransactionSuccessful();
 
                     intent.removeExtra(NfcAdapter.EXTRA_NDEF_MESSAGES);
@@ -256,6 +258,8 @@ public class GpsDataListActivity extends AppCompatActivity implements
         ArrayAdapter<MapItem> arrayAdapter = new ArrayAdapter<MapItem>(this, R.layout.activity_gpsdatalist_row, gpslogItems) {
             class ViewHolder {
                 TextView nameView;
+                TextView statisticsView;
+                View textLayout;
                 CheckBox visibleView;
                 Button colorView;
                 Button propertiesButton;
@@ -272,6 +276,8 @@ public class GpsDataListActivity extends AppCompatActivity implements
                     rowView = inflater.inflate(R.layout.activity_gpsdatalist_row, parent, false);
                     holder = new ViewHolder();
                     holder.nameView = (TextView) rowView.findViewById(R.id.filename);
+                    holder.statisticsView = (TextView) rowView.findViewById(R.id.statistics);
+                    holder.textLayout = rowView.findViewById(R.id.textLayout);
                     holder.visibleView = (CheckBox) rowView.findViewById(R.id.visible);
                     holder.colorView = (Button) rowView.findViewById(R.id.colorButton);
                     holder.propertiesButton = (Button) rowView.findViewById(R.id.propertiesButton);
@@ -281,7 +287,7 @@ public class GpsDataListActivity extends AppCompatActivity implements
                 }
 
 
-                final MapItem item = gpslogItems[position];
+                final LogMapItem item = gpslogItems[position];
 
                 Drawable background = holder.colorView.getBackground();
                 if (background instanceof GradientDrawable) {
@@ -291,6 +297,22 @@ public class GpsDataListActivity extends AppCompatActivity implements
                     gd.setColor(color);
                 }
                 holder.nameView.setText(item.getName());
+                if (item.getPointsCount() > 0) {
+                    holder.statisticsView.setText(getString(R.string.gpslog_statistics, item.getPointsCount(), item.getLengthInM()));
+                    holder.statisticsView.setVisibility(View.VISIBLE);
+                } else {
+                    holder.statisticsView.setVisibility(View.GONE);
+                }
+                holder.textLayout.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        // the cached bounds spare the query of the log points
+                        double[] bounds = item.getBounds();
+                        if (bounds != null) {
+                            centerOnPosition((bounds[0] + bounds[2]) / 2.0, (bounds[1] + bounds[3]) / 2.0);
+                        }
+                    }
+                });
 
                 holder.visibleView.setChecked(item.isVisible());
                 holder.visibleView.setOnCheckedChangeListener(new OnCheckedChangeListener() {
@@ -330,17 +352,21 @@ public class GpsDataListActivity extends AppCompatActivity implements
 //                    intent.putExtra(LibraryConstants.LONGITUDE, lon);
 //                    setResult(Activity.RESULT_OK, intent);
 
-                    Intent intent = new Intent(this, MapsSupportService.class);
-                    intent.putExtra(MapsSupportService.CENTER_ON_POSITION_REQUEST, true);
-                    intent.putExtra(LibraryConstants.LONGITUDE, lon);
-                    intent.putExtra(LibraryConstants.LATITUDE, lat);
-                    startService(intent);
-                    finish();
+                    centerOnPosition(lon, lat);
                 }
             }
         }
     }
 
+    private void centerOnPosition(double lon, double lat) {
+        Intent intent = new Intent(this, MapsSupportService.class);
+        intent.putExtra(MapsSupportService.CENTER_ON_POSITION_REQUEST, true);
+        intent.putExtra(LibraryConstants.LONGITUDE, lon);
+        intent.putExtra(LibraryConstants.LATITUDE, lat);
+        startService(intent);
+        finish();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_gpsdatalist, menu);
@@ -395,14 +421,14 @@ public class GpsDataListActivity extends AppCompatActivity implements
             @Override
             public void run() {
                 long mainId = selected.get(0).getId();
+                List<Long> idsToMerge = new ArrayList<>();
                 for (int i = 1; i < selected.size(); i++) {
-                    MapItem mapItem = selected.get(i);
-                    long id = mapItem.getId();
-                    try {
-                        DaoGpsLog.mergeLogs(id, mainId);
-                    } catch (IOException e) {
-                        GPLog.error(this, null, e); //$NON-NLS-1$
-                    }
+                    idsToMerge.add(selected.get(i).getId());
+                }
+                try {
+                    DaoGpsLog.mergeLogs(idsToMerge, mainId);
+                } catch (IOException e) {
+                    GPLog.error(this, null, e); //$NON-NLS-1$
                 }
 
                 runOnUiThread(new Runnable() {
@@ -51,7 +51,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import eu.geopaparazzi.library.core.ResourcesManager;
 import eu.geopaparazzi.library.database.ANote;
@@ -61,7 +63,6 @@ import eu.geopaparazzi.library.database.IImagesDbHelper;
 import eu.geopaparazzi.library.database.Image;
 import eu.geopaparazzi.library.forms.FormActivity;
 import eu.geopaparazzi.library.forms.FormInfoHolder;
-import eu.geopaparazzi.library.forms.FormUtilities;
 import eu.geopaparazzi.library.images.ImageUtilities;
 import eu.geopaparazzi.library.share.ShareUtilities;
 import eu.geopaparazzi.library.util.AppsUtilities;
@@ -73,6 +74,7 @@ import eu.geopaparazzi.library.util.UrlUtilities;
 import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.core.database.DaoNoteFormFields;
 import eu.geopaparazzi.core.database.DaoNotes;
 import eu.geopaparazzi.core.database.objects.ItemComparators;
 import eu.geopaparazzi.core.database.objects.Note;
@@ -248,11 +250,16 @@ public class NotesListActivity extends AppCompatActivity {
         try {
             collectAllNotes();
             visibleNotesList.clear();
+            // notes are also found by the values of their form fields
+            Set<Long> formMatchIds = new HashSet<>();
+            if (filterText.length() > 0) {
+                formMatchIds.addAll(DaoNoteFormFields.getNoteIdsContaining(filterText));
+            }
             filterText = filterText.toLowerCase();
             for (ANote note : allNotesList) {
                 String name = note.getName();
                 String nameLower = name.toLowerCase();
-                if (nameLower.contains(filterText)) {
+                if (nameLower.contains(filterText) || (note instanceof Note && formMatchIds.contains(note.getId()))) {
                     visibleNotesList.add(note);
                 }
             }
@@ -408,7 +415,7 @@ public class NotesListActivity extends AppCompatActivity {
                 String description = note.getDescription();
                 String form = note.getForm();
                 try {
-                    String formText = FormUtilities.formToPlainText(form, false);
+                    String formText = DaoNoteFormFields.getPlainText(note.getId());
                     formText = formText + "\n" + osmUrl;
                     if (form.length() > 0 && !description.equals(LibraryConstants.OSM)) {
                         // double altim = note.getAltim();
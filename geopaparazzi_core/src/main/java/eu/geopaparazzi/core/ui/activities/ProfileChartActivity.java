@@ -23,7 +23,6 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.PointF;
-import android.location.Location;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.design.widget.FloatingActionButton;
@@ -40,27 +39,22 @@ import com.androidplot.ui.YLayoutStyle;
 import com.androidplot.util.PixelUtils;
 import com.androidplot.xy.BoundaryMode;
 import com.androidplot.xy.LineAndPointFormatter;
-import com.androidplot.xy.SimpleXYSeries;
 import com.androidplot.xy.XYGraphWidget;
 import com.androidplot.xy.XYLegendWidget;
 import com.androidplot.xy.XYPlot;
 import com.androidplot.xy.XYSeries;
-import com.vividsolutions.jts.geom.Coordinate;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.util.Compat;
-import eu.geopaparazzi.library.util.DynamicDoubleArray;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.utilities.Constants;
-import eu.geopaparazzi.core.utilities.FeatureSlidingAverage;
+import eu.geopaparazzi.core.utilities.LineProfile;
 
 /**
  * The profile chart activity.
@@ -72,8 +66,10 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
     private XYPlot xyPlotSpeed, xyPlotElev;
     private LineAndPointFormatter seriesSpeedFormat, seriesElevFormat;
 
-    XYSeries seriesSpeed, seriesElev;
+    DecimatedSeries seriesSpeed, seriesElev;
     private Line line;
+    private LineProfile profile;
+    private int chartBuckets;
     private PointF minXYSpeed;
     private PointF maxXYSpeed;
     private PointF minXYElevation;
@@ -366,92 +362,98 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         maxXYElevation = new PointF(xyPlotElev.getCalculatedMaxX().floatValue(),
                 xyPlotElev.getCalculatedMaxY().floatValue());
 
+        // the series are re-decimated on zoom and pan, keep the range of the whole profile
+        xyPlotSpeed.setRangeBoundaries(minXYSpeed.y, maxXYSpeed.y, BoundaryMode.FIXED);
+        xyPlotElev.setRangeBoundaries(minXYElevation.y, maxXYElevation.y, BoundaryMode.FIXED);
+
 
         infoTextView.setText(getString(R.string.active_elevation_diff) + (int) elevDifference + "m");
     }
 
     /**
      * Create a dataset based on supplied data that are supposed to be coordinates and elevations for a profile view.
+     * <p>
+     * <p>The profile columns are kept and the chart series are decimated from them
+     * to the chart width, on every change of the visible domain.</p>
      */
     public void createDatasetFromProfile() throws Exception {
-        DynamicDoubleArray lonArray = line.getLonList();
-        DynamicDoubleArray latArray = line.getLatList();
-        DynamicDoubleArray elevArray = line.getAltimList();
-        List<String> dates = line.getDateList();
-
-        double previousLat = 0;
-        double previousLon = 0;
-        double summedDistance = 0.0;
-        long previousTime = 0;
-
-        List<Coordinate> elevList = new ArrayList<>(lonArray.size());
-        List<Coordinate> speedList = new ArrayList<>(lonArray.size());
-
-        for (int i = 0; i < lonArray.size(); i++) {
-            double elev = elevArray.get(i);
-            double lat = latArray.get(i);
-            double lon = lonArray.get(i);
-            String dateStr = dates.get(i);
-            long time = Long.parseLong(dateStr);
-
-            double distance = 0.0;
-            double speedKmH = 0.0;
-            if (i > 0) {
-                Location thisLoc = new Location("dummy1"); //$NON-NLS-1$
-                thisLoc.setLongitude(lon);
-                thisLoc.setLatitude(lat);
-                Location thatLoc = new Location("dummy2"); //$NON-NLS-1$
-                thatLoc.setLongitude(previousLon);
-                thatLoc.setLatitude(previousLat);
-                distance = thisLoc.distanceTo(thatLoc);
-
-                double timeSeconds = (time - previousTime) / 1000.0;
-                speedKmH = 3.6 * distance / timeSeconds;
-            }
+        int lookAhead = 20;
+        profile = new LineProfile(line, lookAhead);
+        elevDifference = profile.getElevationGain();
+
+        chartBuckets = getResources().getDisplayMetrics().widthPixels;
+        seriesElev = new DecimatedSeries("Elev [m]", chartBuckets);
+        seriesSpeed = new DecimatedSeries("Speed [km/h]", chartBuckets);
+        if (profile.size() == 0) {
+            // a log without points is shown as an empty chart
+            return;
+        }
+        double start = getDomainValue(0);
+        double end = getDomainValue(profile.size() - 1);
+        seriesElev.update(profile, profile.getSmoothedElevations(), start, end, chartBuckets);
+        seriesSpeed.update(profile, profile.getSmoothedSpeeds(), start, end, chartBuckets);
+    }
+
+    private float getDomainValue(int index) {
+        return (float) profile.getDistances()[index];
+    }
+
+    /**
+     * Re-decimate the series from the cached profile columns for the current visible domains.
+     */
+    private void updateSeriesToDomain() {
+        int width = xyPlotSpeed.getWidth();
+        if (width > 0) {
+            chartBuckets = Math.min(width, seriesSpeed.getMaxBuckets());
+        }
+        seriesSpeed.update(profile, profile.getSmoothedSpeeds(), minXYSpeed.x, maxXYSpeed.x, chartBuckets);
+        seriesElev.update(profile, profile.getSmoothedElevations(), minXYElevation.x, maxXYElevation.x, chartBuckets);
+    }
 
-            previousLat = lat;
-            previousLon = lon;
-            previousTime = time;
+    /**
+     * A series backed by primitive arrays, reused across decimations.
+     */
+    private static class DecimatedSeries implements XYSeries {
+        private final String title;
+        private final int maxBuckets;
+        private final double[] xValues;
+        private final double[] yValues;
+        private volatile int size = 0;
+
+        DecimatedSeries(String title, int maxBuckets) {
+            this.title = title;
+            this.maxBuckets = maxBuckets;
+            xValues = new double[2 * maxBuckets + 2];
+            yValues = new double[2 * maxBuckets + 2];
+        }
 
-            summedDistance = summedDistance + distance;
+        int getMaxBuckets() {
+            return maxBuckets;
+        }
 
-            elevList.add(new Coordinate(summedDistance, elev));
-            speedList.add(new Coordinate(summedDistance, speedKmH));
+        void update(LineProfile profile, double[] column, double from, double to, int buckets) {
+            size = profile.decimate(column, from, to, Math.min(buckets, maxBuckets), xValues, yValues);
         }
 
-        int lookAhead = 20;
-        double slide = 1;
-        FeatureSlidingAverage fsaElev = new FeatureSlidingAverage(elevList);
-        List<Coordinate> smoothedElev = fsaElev.smooth(lookAhead, false, slide);
-        FeatureSlidingAverage fsaSpeed = new FeatureSlidingAverage(speedList);
-        List<Coordinate> smoothedSpeed = fsaSpeed.smooth(lookAhead, false, slide);
-
-        int size = lonArray.size();
-        List<Double> finalYList1 = new ArrayList<>(size);
-        List<Double> finalYList2 = new ArrayList<>(lonArray.size());
-        List<Double> finalXList1 = new ArrayList<>(lonArray.size());
-
-        elevDifference = 0;
-        double previousElev = 0;
-        for (int i = 0; i < size; i++) {
-            Coordinate elev = smoothedElev.get(i);
-            Coordinate speed = smoothedSpeed.get(i);
-
-            finalXList1.add(elev.x);
-            finalYList1.add(elev.y);
-            finalYList2.add(speed.y);
-
-            if (i > 0) {
-                double diff = elev.y - previousElev;
-                if (diff > 0)
-                    elevDifference = elevDifference + diff;
-            }
-            previousElev = elev.y;
+        @Override
+        public String getTitle() {
+            return title;
         }
 
-        // Setup the Series
-        seriesElev = new SimpleXYSeries(finalXList1, finalYList1, "Elev [m]");
-        seriesSpeed = new SimpleXYSeries(finalXList1, finalYList2, "Speed [km/h]");
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Number getX(int index) {
+            return xValues[index];
+        }
+
+        @Override
+        public Number getY(int index) {
+            return yValues[index];
+        }
     }
 
     // Definition of the touch states
@@ -466,6 +468,8 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
 
     @Override
     public boolean onTouch(View arg0, MotionEvent event) {
+        if (profile == null || profile.size() == 0)
+            return true;
         try {
             switch (event.getAction() & MotionEvent.ACTION_MASK) {
                 case MotionEvent.ACTION_DOWN: // Start gesture
@@ -497,6 +501,7 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
                         firstFinger = new PointF(event.getX(), event.getY());
                         scrollElev(oldFirstFinger.x - firstFinger.x);
                         scrollSpeed(oldFirstFinger.x - firstFinger.x);
+                        updateSeriesToDomain();
                         xyPlotSpeed.setDomainBoundaries(minXYSpeed.x, maxXYSpeed.x,
                                 BoundaryMode.FIXED);
                         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYElevation.x,
@@ -509,6 +514,7 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
                         distBetweenFingers = spacing(event);
                         zoomElev(oldDist / distBetweenFingers);
                         zoomSpeed(oldDist / distBetweenFingers);
+                        updateSeriesToDomain();
                         xyPlotSpeed.setDomainBoundaries(minXYSpeed.x, maxXYSpeed.x,
                                 BoundaryMode.FIXED);
                         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYElevation.x,
@@ -526,6 +532,9 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
 
 
     private void zoomElev(float scale) {
+        // the zoom limits are the second and the third last point, short logs are not zoomed
+        if (profile.size() < 3)
+            return;
         float domainSpan = maxXYSpeed.x - minXYSpeed.x;
         float domainMidPoint = maxXYSpeed.x - domainSpan / 2.0f;
         float offset = domainSpan * scale / 2.0f;
@@ -533,13 +542,15 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         minXYSpeed.x = domainMidPoint - offset;
         maxXYSpeed.x = domainMidPoint + offset;
 
-        minXYSpeed.x = Math.min(minXYSpeed.x, seriesSpeed.getX(seriesSpeed.size() - 3)
-                .floatValue());
-        maxXYSpeed.x = Math.max(maxXYSpeed.x, seriesSpeed.getX(1).floatValue());
+        minXYSpeed.x = Math.min(minXYSpeed.x, getDomainValue(profile.size() - 3));
+        maxXYSpeed.x = Math.max(maxXYSpeed.x, getDomainValue(1));
         clampToDomainBoundsElev(domainSpan);
     }
 
     private void zoomSpeed(float scale) {
+        // the zoom limits are the second and the third last point, short logs are not zoomed
+        if (profile.size() < 3)
+            return;
         float domainSpan = maxXYElevation.x - minXYElevation.x;
         float domainMidPoint = maxXYElevation.x - domainSpan / 2.0f;
         float offset = domainSpan * scale / 2.0f;
@@ -547,9 +558,8 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         minXYElevation.x = domainMidPoint - offset;
         maxXYElevation.x = domainMidPoint + offset;
 
-        minXYElevation.x = Math.min(minXYElevation.x, seriesElev.getX(seriesElev.size() - 3)
-                .floatValue());
-        maxXYElevation.x = Math.max(maxXYElevation.x, seriesElev.getX(1).floatValue());
+        minXYElevation.x = Math.min(minXYElevation.x, getDomainValue(profile.size() - 3));
+        maxXYElevation.x = Math.max(maxXYElevation.x, getDomainValue(1));
         clampToDomainBoundsSpeed(domainSpan);
     }
 
@@ -572,26 +582,26 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
     }
 
     private void clampToDomainBoundsElev(float domainSpan) {
-        float leftBoundary = seriesSpeed.getX(0).floatValue();
-        float rightBoundary = seriesSpeed.getX(seriesSpeed.size() - 1).floatValue();
+        float leftBoundary = getDomainValue(0);
+        float rightBoundary = getDomainValue(profile.size() - 1);
         // enforce left scroll boundary:
         if (minXYSpeed.x < leftBoundary) {
             minXYSpeed.x = leftBoundary;
             maxXYSpeed.x = leftBoundary + domainSpan;
-        } else if (maxXYSpeed.x > seriesSpeed.getX(seriesSpeed.size() - 1).floatValue()) {
+        } else if (maxXYSpeed.x > rightBoundary) {
             maxXYSpeed.x = rightBoundary;
             minXYSpeed.x = rightBoundary - domainSpan;
         }
     }
 
     private void clampToDomainBoundsSpeed(float domainSpan) {
-        float leftBoundary = seriesElev.getX(0).floatValue();
-        float rightBoundary = seriesElev.getX(seriesElev.size() - 1).floatValue();
+        float leftBoundary = getDomainValue(0);
+        float rightBoundary = getDomainValue(profile.size() - 1);
         // enforce left scroll boundary:
         if (minXYElevation.x < leftBoundary) {
             minXYElevation.x = leftBoundary;
             maxXYElevation.x = leftBoundary + domainSpan;
-        } else if (maxXYElevation.x > seriesElev.getX(seriesElev.size() - 1).floatValue()) {
+        } else if (maxXYElevation.x > rightBoundary) {
             maxXYElevation.x = rightBoundary;
             minXYElevation.x = rightBoundary - domainSpan;
         }
@@ -605,11 +615,12 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
 
     @Override
     public void onClick(View v) {
-        minXYSpeed.x = seriesSpeed.getX(0).floatValue();
-        maxXYSpeed.x = seriesSpeed.getX(seriesSpeed.size() - 1).floatValue();
+        minXYSpeed.x = getDomainValue(0);
+        maxXYSpeed.x = getDomainValue(profile.size() - 1);
         xyPlotSpeed.setDomainBoundaries(minXYSpeed.x, maxXYSpeed.x, BoundaryMode.FIXED);
-        minXYElevation.x = seriesElev.getX(0).floatValue();
-        maxXYElevation.x = seriesElev.getX(seriesElev.size() - 1).floatValue();
+        minXYElevation.x = getDomainValue(0);
+        maxXYElevation.x = getDomainValue(profile.size() - 1);
+        updateSeriesToDomain();
         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYSpeed.x, BoundaryMode.FIXED);
 
         xyPlotElev.redraw();
@@ -32,9 +32,7 @@ import android.widget.ProgressBar;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 import eu.geopaparazzi.library.core.ResourcesManager;
@@ -46,8 +44,8 @@ import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.core.database.DaoNotes;
-import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.database.objects.Note;
+import eu.geopaparazzi.core.database.objects.StreamedLine;
 
 
 /**
@@ -133,9 +131,9 @@ public class GpxExportDialogFragment extends DialogFragment {
                     /*
                      * add gps logs
                      */
-                    HashMap<Long, Line> linesMap = DaoGpsLog.getLinesMap();
-                    Collection<Line> linesCollection = linesMap.values();
-                    for (Line line : linesCollection) {
+                    // the log points are read while writing
+                    List<StreamedLine> linesList = DaoGpsLog.getStreamedLines();
+                    for (StreamedLine line : linesList) {
                         if (isInterrupted) break;
                         gpxRepresenterList.add(line);
                         hasAtLeastOne = true;
@@ -29,17 +29,12 @@ import android.widget.ProgressBar;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 
-import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.database.GPLog;
-import eu.geopaparazzi.library.gpx.GpxItem;
-import eu.geopaparazzi.library.gpx.parser.GpxParser;
-import eu.geopaparazzi.library.gpx.parser.WayPoint;
 import eu.geopaparazzi.library.util.FileUtilities;
 import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.core.R;
-import eu.geopaparazzi.core.database.DaoGpsLog;
+import eu.geopaparazzi.core.database.GpxImporter;
 
 
 /**
@@ -57,6 +52,7 @@ public class GpxImportDialogFragment extends DialogFragment {
     private AlertDialog alertDialog;
     private Button positiveButton;
     private StringAsyncTask task;
+    private volatile GpxImporter importer;
 
 
     public static GpxImportDialogFragment newInstance(String gpxPath) {
@@ -91,6 +87,8 @@ public class GpxImportDialogFragment extends DialogFragment {
                 new DialogInterface.OnClickListener() {
                     public void onClick(DialogInterface dialog, int id) {
                         isInterrupted = true;
+                        if (importer != null)
+                            importer.cancel();
                     }
                 }
         );
@@ -114,59 +112,8 @@ public class GpxImportDialogFragment extends DialogFragment {
                 try {
                     File file = new File(gpxPath);
                     String fileName = FileUtilities.getNameWithoutExtention(file);
-                    GpxParser parser = new GpxParser(gpxPath);
-                    if (parser.parse()) {
-                        List<WayPoint> wayPoints = parser.getWayPoints();
-                        if (wayPoints.size() > 0) {
-                            GpxItem item = new GpxItem();
-                            item.setName(fileName);
-                            item.setWidth("2"); //$NON-NLS-1$
-                            item.setVisible(false);
-                            item.setColor(ColorUtilities.BLUE.getHex()); //$NON-NLS-1$
-                            item.setData(wayPoints);
-                            DaoGpsLog.importGpxToMap(item);
-                        }
-                        List<GpxParser.TrackSegment> tracks = parser.getTracks();
-                        if (tracks.size() > 0) {
-                            for (GpxParser.TrackSegment trackSegment : tracks) {
-                                if (isInterrupted) break;
-                                String tName = trackSegment.getName();
-                                if (tName == null) {
-                                    tName = ""; //$NON-NLS-1$
-                                } else {
-                                    tName = " - " + tName; //$NON-NLS-1$
-                                }
-                                String name = fileName + tName;
-                                GpxItem item = new GpxItem();
-                                item.setName(name);
-                                item.setWidth("2"); //$NON-NLS-1$
-                                item.setVisible(false);
-                                item.setColor("red"); //$NON-NLS-1$
-                                item.setData(trackSegment);
-                                DaoGpsLog.importGpxToMap(item);
-                            }
-                        }
-                        List<GpxParser.Route> routes = parser.getRoutes();
-                        if (routes.size() > 0) {
-                            for (GpxParser.Route route : routes) {
-                                if (isInterrupted) break;
-                                String rName = route.getName();
-                                if (rName == null) {
-                                    rName = ""; //$NON-NLS-1$
-                                } else {
-                                    rName = " - " + rName; //$NON-NLS-1$
-                                }
-                                String name = fileName + rName;
-                                GpxItem item = new GpxItem();
-                                item.setName(name);
-                                item.setWidth("2"); //$NON-NLS-1$
-                                item.setVisible(false);
-                                item.setColor(ColorUtilities.GREEN.getHex()); //$NON-NLS-1$
-                                item.setData(route);
-                                DaoGpsLog.importGpxToMap(item);
-                            }
-                        }
-                    } else {
+                    importer = new GpxImporter(fileName);
+                    if (!importer.importGpx(gpxPath) && !isInterrupted) {
                         if (GPLog.LOG)
                             GPLog.addLogEntry(this, "ERROR"); //$NON-NLS-1$
                     }
@@ -32,11 +32,9 @@ import android.widget.ProgressBar;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import eu.geopaparazzi.library.core.ResourcesManager;
 import eu.geopaparazzi.library.database.GPLog;
@@ -50,9 +48,9 @@ import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.core.database.DaoImages;
 import eu.geopaparazzi.core.database.DaoNotes;
 import eu.geopaparazzi.core.database.objects.Bookmark;
-import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.database.objects.LogMapItem;
 import eu.geopaparazzi.core.database.objects.Note;
+import eu.geopaparazzi.core.database.objects.StreamedLine;
 
 
 /**
@@ -147,13 +145,11 @@ public class KmzExportDialogFragment extends DialogFragment {
                         hasAtLeastOne = true;
                     }
 
-                    HashMap<Long, Line> linesMap = DaoGpsLog.getLinesMap();
-                    Collection<Map.Entry<Long, Line>> linesSet = linesMap.entrySet();
-                    for (Map.Entry<Long, Line> lineEntry : linesSet) {
+                    // the log points are read while writing
+                    List<StreamedLine> linesList = DaoGpsLog.getStreamedLines();
+                    for (StreamedLine line : linesList) {
                         if (isInterrupted) break;
-                        Long id = lineEntry.getKey();
-                        Line line = lineEntry.getValue();
-                        LogMapItem mapItem = mapitemsMap.get(id);
+                        LogMapItem mapItem = mapitemsMap.get(line.getLogId());
                         if (mapItem == null) continue;
                         float width = mapItem.getWidth();
                         String color = mapItem.getColor();
@@ -31,7 +31,9 @@ import android.widget.ProgressBar;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.webproject.WebProjectManager;
+import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
+import eu.geopaparazzi.core.database.DatabaseManager;
 
 
 /**
@@ -114,6 +116,8 @@ public class StageExportDialogFragment extends DialogFragment {
         new AsyncTask<String, Void, String>() {
             protected String doInBackground(String... params) {
                 try {
+                    // the last commits are still in the write ahead log, next to the uploaded file
+                    DatabaseManager.checkpoint(GeopaparazziApplication.getInstance().getDatabase());
                     String message = WebProjectManager.INSTANCE.uploadProject(getActivity(), serverUrl, user, pwd);
                     return message;
                 } catch (Exception e) {
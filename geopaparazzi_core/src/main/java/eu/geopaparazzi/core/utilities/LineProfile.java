@@ -0,0 +1,231 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.core.utilities;
+
+import java.util.Arrays;
+
+import eu.geopaparazzi.core.database.objects.Line;
+
+/**
+ * The elevation and speed profile of a {@link Line}.
+ * <p>
+ * <p>All the columns are calculated in a single pass over the line's primitive columns.
+ * Smoothing is done through a centered sliding average kept as running sums, so the
+ * cost is linear in the number of points, independently of the window size.
+ * The first and last half window points are left unsmoothed.</p>
+ * <p>
+ * <p>Charts should not use the columns directly, but ask for a series decimated
+ * to their pixel width through {@link #decimate(double[], double, double, int, double[], double[])}.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class LineProfile {
+
+    private final int size;
+    private final double[] distances;
+    private final double[] smoothedElevations;
+    private final double[] smoothedSpeeds;
+    private double elevationGain = 0;
+
+    /**
+     * Calculate the profile.
+     *
+     * @param line      the line to use.
+     * @param lookAhead the size of the sliding average window. If it is too large for the line, it
+     *                  is reduced to 20% of the points. Even sizes are incremented by one.
+     */
+    public LineProfile(Line line, int lookAhead) {
+        size = line.size();
+        double[] elevArray = line.getAltimList().getInternalArray();
+        distances = line.getProgressiveDistances();
+        double[] speeds = line.getSpeeds();
+
+        smoothedElevations = new double[size];
+        smoothedSpeeds = new double[size];
+
+        if (size < 4 * lookAhead) {
+            lookAhead = (int) Math.floor(size * 0.2d);
+        }
+        if (lookAhead % 2 == 0) {
+            lookAhead++;
+        }
+        if (lookAhead < 3) {
+            // no smoothing possible
+            lookAhead = 1;
+        }
+        int half = lookAhead / 2;
+
+        double elevSum = 0;
+        double speedSum = 0;
+        int emitted = 0;
+        for (int j = 0; j < size; j++) {
+            elevSum += elevArray[j];
+            speedSum += speeds[j];
+            if (j >= lookAhead) {
+                elevSum -= elevArray[j - lookAhead];
+                speedSum -= speeds[j - lookAhead];
+            }
+
+            if (j < half) {
+                // head of the line, raw values
+                emit(emitted++, elevArray[j], speeds[j]);
+            } else if (j >= lookAhead - 1) {
+                // the window centered in j - half is full
+                emit(emitted++, elevSum / lookAhead, speedSum / lookAhead);
+            }
+        }
+        // tail of the line, raw values
+        for (int i = emitted; i < size; i++) {
+            emit(i, elevArray[i], speeds[i]);
+        }
+    }
+
+    private void emit(int index, double elev, double speed) {
+        smoothedElevations[index] = elev;
+        smoothedSpeeds[index] = speed;
+        if (index > 0) {
+            double diff = elev - smoothedElevations[index - 1];
+            if (diff > 0)
+                elevationGain = elevationGain + diff;
+        }
+    }
+
+    /**
+     * @return the number of points of the profile.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the progressive distances in meters. Only the first {@link #size()} values are valid.
+     */
+    public double[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return the smoothed elevations in meters.
+     */
+    public double[] getSmoothedElevations() {
+        return smoothedElevations;
+    }
+
+    /**
+     * @return the smoothed speeds in km/h.
+     */
+    public double[] getSmoothedSpeeds() {
+        return smoothedSpeeds;
+    }
+
+    /**
+     * @return the summed positive elevation differences of the smoothed elevation.
+     */
+    public double getElevationGain() {
+        return elevationGain;
+    }
+
+    /**
+     * @return the total planar length in meters.
+     */
+    public double getLength() {
+        if (size == 0)
+            return 0;
+        return distances[size - 1];
+    }
+
+    /**
+     * Decimate a column to the given number of buckets in a distance range.
+     * <p>
+     * <p>For each bucket the minimum and maximum values are kept, in their original order,
+     * so that peaks are never lost. The points right outside the range are added too, so that
+     * a chart line reaches the borders.</p>
+     *
+     * @param column       the column to decimate (one of the profile columns).
+     * @param fromDistance the start of the distance range.
+     * @param toDistance   the end of the distance range.
+     * @param buckets      the number of buckets, usually the chart width in pixels.
+     * @param outX         the array to fill with the distances. Needs to be of size <code>2 * buckets + 2</code>.
+     * @param outY         the array to fill with the values. Needs to be of size <code>2 * buckets + 2</code>.
+     * @return the number of values put in the output arrays.
+     */
+    public int decimate(double[] column, double fromDistance, double toDistance, int buckets, double[] outX, double[] outY) {
+        if (size == 0 || buckets < 1)
+            return 0;
+
+        int from = Arrays.binarySearch(distances, 0, size, fromDistance);
+        if (from < 0)
+            from = -from - 1;
+        from = Math.max(0, from - 1);
+        int to = Arrays.binarySearch(distances, 0, size, toDistance);
+        if (to < 0)
+            to = -to - 1;
+        to = Math.min(size - 1, to);
+
+        int count = 0;
+        int pointsInRange = to - from + 1;
+        if (pointsInRange <= 2 * buckets + 2) {
+            for (int i = from; i <= to; i++) {
+                outX[count] = distances[i];
+                outY[count] = column[i];
+                count++;
+            }
+            return count;
+        }
+
+        double bucketWidth = (toDistance - fromDistance) / buckets;
+        if (bucketWidth <= 0)
+            bucketWidth = Double.MIN_VALUE;
+
+        outX[count] = distances[from];
+        outY[count] = column[from];
+        count++;
+
+        int i = from + 1;
+        while (i < to) {
+            int bucket = (int) ((distances[i] - fromDistance) / bucketWidth);
+            int minIndex = i;
+            int maxIndex = i;
+            i++;
+            while (i < to && (int) ((distances[i] - fromDistance) / bucketWidth) == bucket) {
+                if (column[i] < column[minIndex])
+                    minIndex = i;
+                if (column[i] > column[maxIndex])
+                    maxIndex = i;
+                i++;
+            }
+            if (count + 3 > outX.length)
+                break;
+            int first = Math.min(minIndex, maxIndex);
+            int second = Math.max(minIndex, maxIndex);
+            outX[count] = distances[first];
+            outY[count] = column[first];
+            count++;
+            if (second != first) {
+                outX[count] = distances[second];
+                outY[count] = column[second];
+                count++;
+            }
+        }
+
+        outX[count] = distances[to];
+        outY[count] = column[to];
+        count++;
+        return count;
+    }
+}
@@ -32,6 +32,7 @@ import eu.geopaparazzi.library.database.DefaultHelperClasses;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.IImagesDbHelper;
 import eu.geopaparazzi.library.images.ImageUtilities;
+import eu.geopaparazzi.library.images.ThumbnailService;
 import eu.geopaparazzi.library.sensors.OrientationSensor;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.LibraryConstants;
@@ -86,7 +87,7 @@ public class CameraNoteActivity extends AbstractCameraActivity {
     public void doSaveData() {
         try {
             Intent intent = getIntent();
-            byte[][] imageAndThumbnailArray = ImageUtilities.getImageAndThumbnailFromPath(imageFilePath, 5);
+            byte[] imageData = ImageUtilities.getImageFromPath(imageFilePath, 5);
 
             Class<?> logHelper = Class.forName(DefaultHelperClasses.IMAGE_HELPER_CLASS);
             IImagesDbHelper imagesDbHelper = (IImagesDbHelper) logHelper.newInstance();
@@ -94,7 +95,8 @@ public class CameraNoteActivity extends AbstractCameraActivity {
             double azimuth = orientationSensor.getAzimuthDegrees();
 
             long imageId = imagesDbHelper.addImage(lon, lat, elevation, azimuth, currentDate.getTime(), imageFile.getName(),
-                    imageAndThumbnailArray[0], imageAndThumbnailArray[1], noteId);
+                    imageData, null, noteId);
+            ThumbnailService.getInstance().generateThumbnail(imageId);
             intent.putExtra(LibraryConstants.DATABASE_ID, imageId);
             intent.putExtra(LibraryConstants.OBJECT_EXISTS, true);
 
@@ -95,6 +95,17 @@ public interface IGpsLogDbHelper {
      */
     public void setTrackLengthm(long logid, double length) throws IOException;
 
+    /**
+     * Recalculates the length, the number of points and the bounds of a log from its points.
+     *
+     * <p>Transactions have to be opened and closed if necessary.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logid the log to update.
+     * @throws IOException  if something goes wrong.
+     */
+    public void updateStatistics(SQLiteDatabase sqliteDatabase, long logid) throws IOException;
+
     /**
      * Get the last available log id.
      * <p/>
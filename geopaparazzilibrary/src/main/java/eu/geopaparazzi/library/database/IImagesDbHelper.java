@@ -20,6 +20,7 @@ package eu.geopaparazzi.library.database;
 import android.database.sqlite.SQLiteDatabase;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Interface that helps handling images in the database.
@@ -38,13 +39,14 @@ public interface IImagesDbHelper {
      * @param timestamp the timestamp
      * @param text      a text
      * @param image     the image data.
-     * @param thumbnail a scaled image for quick extraction and preview.
+     * @param thumbnail a scaled image for quick extraction and preview. If null, it
+     *                  can be generated later through {@link #updateImageThumbnail(long, byte[])}.
      * @param noteId    the note id, to which it is connected or -1 if it is standalone.
      * @return the inserted image record id.
      * @throws IOException if something goes wrong.
      */
     public long addImage(double lon, double lat, double altim, double azim, long timestamp, String text, byte[] image, byte[] thumbnail, long noteId)
-            throws Exception;
+            throws IOException;
 
     /**
      * Get an image from the db by its id..
@@ -53,7 +55,7 @@ public interface IImagesDbHelper {
      * @return the image or null.
      * @throws IOException if something goes wrong.
      */
-    public Image getImage(long imageId) throws Exception;
+    public Image getImage(long imageId) throws IOException;
 
     /**
      * Get image data by image id.
@@ -62,7 +64,7 @@ public interface IImagesDbHelper {
      * @return the image data.
      * @throws IOException if something goes wrong.
      */
-    public byte[] getImageData(long imageId) throws Exception;
+    public byte[] getImageData(long imageId) throws IOException;
 
     /**
      * Get an image from the db by its <b>data</b> id.
@@ -70,18 +72,41 @@ public interface IImagesDbHelper {
      * @param imageDataId the image data id.
      * @param sqliteDatabase the optional db to use. If called from #getImageData, this should not be null.
      * @return the image data.
-     * @throws IOException
+     * @throws IOException if something goes wrong.
      */
-    public byte[] getImageDataById(long imageDataId, SQLiteDatabase sqliteDatabase) throws Exception;
+    public byte[] getImageDataById(long imageDataId, SQLiteDatabase sqliteDatabase) throws IOException;
+
+    /**
+     * Write the image data of an image to a stream.
+     * <p>
+     * <p>The data are copied in chunks, without reading the whole image in memory.
+     *
+     * @param imageId      the image id.
+     * @param outputStream the stream to write to. It is not closed.
+     * @return the number of bytes written or -1 if the image has no data.
+     * @throws IOException if something goes wrong.
+     */
+    public long writeImageData(long imageId, OutputStream outputStream) throws IOException;
+
+    /**
+     * Write the image data of an image to a stream by its <b>data</b> id.
+     *
+     * @param imageDataId    the image data id.
+     * @param sqliteDatabase the optional db to use.
+     * @param outputStream   the stream to write to. It is not closed.
+     * @return the number of bytes written or -1 if the image has no data.
+     * @throws IOException if something goes wrong.
+     */
+    public long writeImageDataById(long imageDataId, SQLiteDatabase sqliteDatabase, OutputStream outputStream) throws IOException;
 
     /**
      * Get image thumbnail by image id.
      *
      * @param imageId the image id.
-     * @return the image thumbnail data.
+     * @return the image thumbnail data. It is empty if the thumbnail has not been generated yet.
      * @throws IOException if something goes wrong.
      */
-    public byte[] getImageThumbnail(long imageId) throws Exception;
+    public byte[] getImageThumbnail(long imageId) throws IOException;
 
     /**
      * Get an image thumbnail from the db by its <b>data</b> id.
@@ -89,7 +114,16 @@ public interface IImagesDbHelper {
      * @param imageDataId the image data id.
      * @param sqliteDatabase the optional db to use. If called from #getImageData, this should not be null.
      * @return the image data.
-     * @throws IOException
+     * @throws IOException if something goes wrong.
+     */
+    public byte[] getImageThumbnailById(SQLiteDatabase sqliteDatabase, long imageDataId) throws IOException;
+
+    /**
+     * Set the thumbnail of an image.
+     *
+     * @param imageId   the image id.
+     * @param thumbnail the thumbnail data.
+     * @throws IOException if something goes wrong.
      */
-    public byte[] getImageThumbnailById(SQLiteDatabase sqliteDatabase, long imageDataId) throws Exception;
+    public void updateImageThumbnail(long imageId, byte[] thumbnail) throws IOException;
 }
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.List;
 
 import eu.geopaparazzi.library.kml.KmlRepresenter;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 /**
  * Represents an image.
@@ -164,6 +165,10 @@ public class Image extends ANote implements KmlRepresenter {
         return sB.toString();
     }
 
+    public void writeKml(XmlStreamWriter writer) throws Exception {
+        writer.write(toKmlString());
+    }
+
     public boolean hasImages() {
         return true;
     }
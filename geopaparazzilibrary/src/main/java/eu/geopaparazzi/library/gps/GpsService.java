@@ -467,10 +467,16 @@ public class GpsService extends Service implements LocationListener, Listener {
                         log("Removing gpslog, since too few points were added. Logid: " + gpsLogId);
                         dbHelper.deleteGpslog(gpsLogId);
                     } else {
-                        // set the end time stamp and the total distance for the track
+                        // set the end time stamp and the statistics for the track
                         long end = System.currentTimeMillis();
-                        dbHelper.setEndTs(gpsLogId, end);
-                        dbHelper.setTrackLengthm(gpsLogId, currentDistance);
+                        sqliteDatabase.beginTransaction();
+                        try {
+                            dbHelper.setEndTs(gpsLogId, end);
+                            dbHelper.updateStatistics(sqliteDatabase, gpsLogId);
+                            sqliteDatabase.setTransactionSuccessful();
+                        } finally {
+                            sqliteDatabase.endTransaction();
+                        }
                     }
 
                     currentPointsNum = 0;
@@ -17,16 +17,18 @@
  */
 package eu.geopaparazzi.library.gpx;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.List;
 
 import android.content.Context;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.util.TimeUtilities;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 /**
  * A kmz exporter for notes, logs and pics.
@@ -62,9 +64,9 @@ public class GpxExport {
             name = "Geopaparazzi Gpx Export";
         }
 
-        BufferedWriter bW = null;
+        XmlStreamWriter bW = null;
         try {
-            bW = new BufferedWriter(new FileWriter(outputFile));
+            bW = new XmlStreamWriter(new OutputStreamWriter(new FileOutputStream(outputFile), Charset.forName("UTF-8")));
             bW.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
             bW.write("<gpx\n");
             bW.write("  version=\"1.0\"\n");
@@ -91,7 +93,7 @@ public class GpxExport {
                     + "\"/>\n");
             for( GpxRepresenter gpxRepresenter : gpxRepresenters ) {
                 try {
-                    bW.write(gpxRepresenter.toGpxString());
+                    gpxRepresenter.writeGpx(bW);
                 } catch (Exception e) {
                     GPLog.error(this, e.getLocalizedMessage(), e);
                 }
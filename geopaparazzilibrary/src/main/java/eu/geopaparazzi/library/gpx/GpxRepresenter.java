@@ -19,6 +19,8 @@ package eu.geopaparazzi.library.gpx;
 
 import java.io.Serializable;
 
+import eu.geopaparazzi.library.util.XmlStreamWriter;
+
 /**
  * Interface for objects that are able to represent themself as gpx item.
  * 
@@ -51,4 +53,12 @@ public interface GpxRepresenter extends Serializable {
      * @throws Exception  if something goes wrong.
      */
     public String toGpxString() throws Exception;
+
+    /**
+     * Writes the gpx representation of the object to a stream.
+     *
+     * @param writer the writer to use.
+     * @throws Exception  if something goes wrong.
+     */
+    public void writeGpx(XmlStreamWriter writer) throws Exception;
 }
@@ -18,6 +18,7 @@
 package eu.geopaparazzi.library.gpx;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +30,7 @@ import eu.geopaparazzi.library.gpx.parser.GpxParser;
 import eu.geopaparazzi.library.gpx.parser.GpxParser.Route;
 import eu.geopaparazzi.library.gpx.parser.GpxParser.TrackSegment;
 import eu.geopaparazzi.library.gpx.parser.WayPoint;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 /**
  * Utilities to handle gpx stuff.
@@ -94,6 +96,50 @@ public class GpxUtilities {
         return sb.toString();
     }
 
+    /**
+     * Writes a Trackpoint from the point values.
+     * <p>
+     * <p>The output is the same as {@link #getTrackPointString(double, double, double, String)}.
+     *
+     * @param writer the writer to use.
+     * @param lat latitude of the point.
+     * @param lon longitude of the point.
+     * @param elev elevation of the point.
+     * @param utcMillis the utc time at which the point was taken.
+     * @throws IOException if something goes wrong.
+     */
+    public static void writeTrackPoint( XmlStreamWriter writer, double lat, double lon, double elev, long utcMillis )
+            throws IOException {
+        writer.write("<trkpt lat=\"").write(lat).write("\" lon=\"").write(lon).write("\">\n");
+        writer.write("  <ele>").write(elev).write("</ele>\n");
+        writer.write("  <time>").writeGpxTime(utcMillis).write("</time>\n");
+        writer.write("</trkpt>\n");
+    }
+
+    /**
+     * Writes the start of a track with a single segment.
+     *
+     * @param writer the writer to use.
+     * @param name the xml safe name of the track.
+     * @throws IOException if something goes wrong.
+     */
+    public static void writeTrackStart( XmlStreamWriter writer, String name ) throws IOException {
+        writer.write(GPX_TRACK_START).write('\n');
+        writer.write(getTrackNameString(name)).write('\n');
+        writer.write(GPX_TRACKSEGMENT_START).write('\n');
+    }
+
+    /**
+     * Writes the end of a track started with {@link #writeTrackStart(XmlStreamWriter, String)}.
+     *
+     * @param writer the writer to use.
+     * @throws IOException if something goes wrong.
+     */
+    public static void writeTrackEnd( XmlStreamWriter writer ) throws IOException {
+        writer.write(GPX_TRACKSEGMENT_END).write('\n');
+        writer.write(GPX_TRACK_END).write('\n');
+    }
+
     /**
      * Creates a Track name string from the name.
      * 
@@ -0,0 +1,91 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.geopaparazzi.library.gpx.parser;
+
+/**
+ * Receives the content of a gpx file while it is parsed by {@link GpxParser#parse(GpxListener)}.
+ * <p/>
+ * The values are passed as primitives, no point objects are created. Exceptions thrown
+ * by the listener stop the parsing and are rethrown by the parser.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public interface GpxListener {
+
+    /**
+     * A waypoint has been read.
+     *
+     * @param longitude   the longitude.
+     * @param latitude    the latitude.
+     * @param elevation   the elevation or 0.
+     * @param name        the name or <code>null</code>.
+     * @param description the description or <code>null</code>.
+     * @throws Exception if something goes wrong.
+     */
+    void onWayPoint( double longitude, double latitude, double elevation, String name, String description ) throws Exception;
+
+    /**
+     * A track segment starts.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    void onTrackSegmentStart() throws Exception;
+
+    /**
+     * A point of the current track segment has been read.
+     *
+     * @param longitude the longitude.
+     * @param latitude  the latitude.
+     * @param elevation the elevation or 0.
+     * @param time      the time in millis or a value <= 0 if it is not available.
+     * @throws Exception if something goes wrong.
+     */
+    void onTrackPoint( double longitude, double latitude, double elevation, long time ) throws Exception;
+
+    /**
+     * The current track segment ends.
+     *
+     * @param name the name of the segment or <code>null</code>.
+     * @throws Exception if something goes wrong.
+     */
+    void onTrackSegmentEnd( String name ) throws Exception;
+
+    /**
+     * A route starts.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    void onRouteStart() throws Exception;
+
+    /**
+     * A point of the current route has been read.
+     *
+     * @param longitude the longitude.
+     * @param latitude  the latitude.
+     * @throws Exception if something goes wrong.
+     */
+    void onRoutePoint( double longitude, double latitude ) throws Exception;
+
+    /**
+     * The current route ends.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    void onRouteEnd() throws Exception;
+}
@@ -18,7 +18,9 @@
 
 package eu.geopaparazzi.library.gpx.parser;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -159,7 +161,8 @@ public class GpxParser {
                 }
             } else if (NODE_TIME.equals(localName)) {
                 if (mCurrentTrackPoint != null) {
-                    mCurrentTrackPoint.setTime(computeTime(mStringAccumulator.toString()));
+                    mCurrentTrackPoint.setTime(computeTime(mStringAccumulator.toString(), ISO8601_TIME.matcher(""),
+                            Calendar.getInstance(TimeZone.getTimeZone("GMT")), Calendar.getInstance())); //$NON-NLS-1$
                 }
             } else if (NODE_ELEVATION.equals(localName)) {
                 if (mCurrentTrackPoint != null) {
@@ -189,11 +192,14 @@ public class GpxParser {
         /**
          * Converts the string description of the time into milliseconds since epoch.
          * @param timeString the string data.
+         * @param m a matcher of {@link #ISO8601_TIME}, reset to the string.
+         * @param utcCalendar the calendar to use for utc times.
+         * @param localCalendar the calendar to use for local times.
          * @return date in milliseconds.
          */
-        private static long computeTime( String timeString ) {
+        static long computeTime( String timeString, Matcher m, Calendar utcCalendar, Calendar localCalendar ) {
             // Time looks like: 2008-04-05T19:24:50Z
-            Matcher m = ISO8601_TIME.matcher(timeString);
+            m.reset(timeString);
             if (m.matches()) {
                 // get the various elements and reconstruct time as a long.
                 try {
@@ -217,9 +223,9 @@ public class GpxParser {
                     // now we convert into milliseconds since epoch.
                     Calendar c;
                     if (utcTime) {
-                        c = Calendar.getInstance(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+                        c = utcCalendar;
                     } else {
-                        c = Calendar.getInstance();
+                        c = localCalendar;
                     }
 
                     c.set(year, month, date, hourOfDay, minute, second);
@@ -269,6 +275,162 @@ public class GpxParser {
         }
     }
 
+    /**
+     * Handler for the SAX parser that passes the content to a {@link GpxListener}
+     * instead of collecting it.
+     * <p/>
+     * It reads the same nodes as {@link GpxHandler}.
+     */
+    private static class GpxStreamHandler extends DefaultHandler {
+        private final GpxListener mListener;
+
+        // --------- state for parsing ---------
+        boolean mInWayPoint;
+        boolean mInTrackSegment;
+        boolean mInTrackPoint;
+        boolean mInRoute;
+        boolean mInRoutePoint;
+        double mLongitude;
+        double mLatitude;
+        double mElevation;
+        long mTime;
+        String mName;
+        String mDescription;
+        String mSegmentName;
+        final StringBuilder mStringAccumulator = new StringBuilder();
+
+        // reused for the time conversion of every point
+        final Matcher mTimeMatcher = ISO8601_TIME.matcher(""); //$NON-NLS-1$
+        final Calendar mUtcCalendar = Calendar.getInstance(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+        final Calendar mLocalCalendar = Calendar.getInstance();
+
+        boolean mSuccess = true;
+
+        GpxStreamHandler( GpxListener listener ) {
+            mListener = listener;
+        }
+
+        @Override
+        public void startElement( String uri, String localName, String name, Attributes attributes ) throws SAXException {
+            try {
+                if (NODE_WAYPOINT.equals(localName)) {
+                    mInWayPoint = true;
+                    mName = null;
+                    mDescription = null;
+                    handleLocation(attributes);
+                } else if (NODE_TRACK_SEGMENT.equals(localName)) {
+                    mInTrackSegment = true;
+                    mSegmentName = null;
+                    mListener.onTrackSegmentStart();
+                } else if (NODE_TRACK_POINT.equals(localName)) {
+                    if (mInTrackSegment) {
+                        mInTrackPoint = true;
+                        mTime = 0;
+                        handleLocation(attributes);
+                    }
+                } else if (NODE_ROUTE.equals(localName)) {
+                    mInRoute = true;
+                    mListener.onRouteStart();
+                } else if (NODE_ROUTE_POINT.equals(localName)) {
+                    if (mInRoute) {
+                        mInRoutePoint = true;
+                        handleLocation(attributes);
+                    }
+                }
+            } catch (SAXException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SAXException(e);
+            } finally {
+                mStringAccumulator.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters( char[] ch, int start, int length ) throws SAXException {
+            mStringAccumulator.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement( String uri, String localName, String name ) throws SAXException {
+            try {
+                if (NODE_WAYPOINT.equals(localName)) {
+                    if (mInWayPoint) {
+                        mListener.onWayPoint(mLongitude, mLatitude, mElevation, mName, mDescription);
+                    }
+                    mInWayPoint = false;
+                } else if (NODE_TRACK_SEGMENT.equals(localName)) {
+                    if (mInTrackSegment) {
+                        mListener.onTrackSegmentEnd(mSegmentName);
+                    }
+                    mInTrackSegment = false;
+                } else if (NODE_TRACK_POINT.equals(localName)) {
+                    if (mInTrackPoint) {
+                        mListener.onTrackPoint(mLongitude, mLatitude, mElevation, mTime);
+                    }
+                    mInTrackPoint = false;
+                } else if (NODE_ROUTE.equals(localName)) {
+                    if (mInRoute) {
+                        mListener.onRouteEnd();
+                    }
+                    mInRoute = false;
+                } else if (NODE_ROUTE_POINT.equals(localName)) {
+                    if (mInRoutePoint) {
+                        mListener.onRoutePoint(mLongitude, mLatitude);
+                    }
+                    mInRoutePoint = false;
+                } else if (NODE_NAME.equals(localName)) {
+                    if (mInTrackSegment) {
+                        mSegmentName = mStringAccumulator.toString();
+                    } else if (mInWayPoint) {
+                        mName = mStringAccumulator.toString();
+                    }
+                } else if (NODE_TIME.equals(localName)) {
+                    if (mInTrackPoint) {
+                        mTime = GpxHandler.computeTime(mStringAccumulator.toString(), mTimeMatcher, mUtcCalendar,
+                                mLocalCalendar);
+                    }
+                } else if (NODE_ELEVATION.equals(localName)) {
+                    if (mInTrackPoint || mInWayPoint) {
+                        mElevation = Double.parseDouble(mStringAccumulator.toString());
+                    }
+                } else if (NODE_DESCRIPTION.equals(localName)) {
+                    if (mInWayPoint) {
+                        mDescription = mStringAccumulator.toString();
+                    }
+                }
+            } catch (SAXException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void error( SAXParseException e ) throws SAXException {
+            mSuccess = false;
+        }
+
+        @Override
+        public void fatalError( SAXParseException e ) throws SAXException {
+            mSuccess = false;
+        }
+
+        private void handleLocation( Attributes attributes ) {
+            mLongitude = 0;
+            mLatitude = 0;
+            mElevation = 0;
+            try {
+                double longitude = Double.parseDouble(attributes.getValue(ATTR_LONGITUDE));
+                double latitude = Double.parseDouble(attributes.getValue(ATTR_LATITUDE));
+                mLongitude = longitude;
+                mLatitude = latitude;
+            } catch (Exception e) {
+                // wrong data, do nothing.
+            }
+        }
+    }
+
     /**
      * A GPS track.
      * <p/>A track is composed of a list of {@link TrackPoint} and optional name and comment.
@@ -429,6 +591,36 @@ public class GpxParser {
         return false;
     }
 
+    /**
+     * Parses the GPX file, passing its content to a listener while it is read.
+     * <p/>
+     * Nothing is kept in memory, so {@link #getWayPoints()}, {@link #getTracks()} and
+     * {@link #getRoutes()} are not available after this.
+     *
+     * @param listener the listener to pass the content to.
+     * @return <code>true</code> if the file was parsed without errors.
+     * @throws Exception if the listener failed or the file could not be read.
+     */
+    public boolean parse( GpxListener listener ) throws Exception {
+        SAXParser parser = sParserFactory.newSAXParser();
+        GpxStreamHandler handler = new GpxStreamHandler(listener);
+        Reader reader = new BufferedReader(new FileReader(mFileName), 65536);
+        try {
+            parser.parse(new InputSource(reader), handler);
+        } catch (SAXParseException e) {
+            GPLog.error(this, null, e);
+            return false;
+        } catch (SAXException e) {
+            if (e.getException() != null) {
+                throw e.getException();
+            }
+            throw e;
+        } finally {
+            reader.close();
+        }
+        return handler.mSuccess;
+    }
+
     /**
      * Returns the parsed {@link WayPoint} objects, or <code>null</code> if none were found (or
      * if the parsing failed.
@@ -190,6 +190,38 @@ public class ImageUtilities {
         return bitmap;
     }
 
+    /**
+     * Create a thumbnail from image data.
+     * <p>
+     * <p>The image is decoded subsampled, so the full resolution bitmap is never in memory.
+     *
+     * @param imageData the image data.
+     * @return the jpeg thumbnail data, {@link #THUMBNAILWIDTH} pixels wide, or null if the data could not be decoded.
+     */
+    public static byte[] createThumbnail(byte[] imageData) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            return null;
+        options.inSampleSize = calculateInSampleSize(options, THUMBNAILWIDTH, THUMBNAILWIDTH);
+        options.inJustDecodeBounds = false;
+        Bitmap image = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        if (image == null)
+            return null;
+
+        float sampleSizeF = (float) image.getWidth() / (float) THUMBNAILWIDTH;
+        float newHeight = image.getHeight() / sampleSizeF;
+        Bitmap thumbnail = Bitmap.createScaledBitmap(image, THUMBNAILWIDTH, (int) newHeight, false);
+        if (thumbnail != image)
+            image.recycle();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        thumbnail.compress(Bitmap.CompressFormat.JPEG, 90, stream);
+        thumbnail.recycle();
+        return stream.toByteArray();
+    }
+
     public static Bitmap getImageFromImageData(byte[] imageData) {
         Bitmap bitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
         return bitmap;
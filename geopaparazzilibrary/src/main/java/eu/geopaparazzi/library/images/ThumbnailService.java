@@ -0,0 +1,190 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.images;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.geopaparazzi.library.database.DefaultHelperClasses;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.database.IImagesDbHelper;
+
+/**
+ * Loads image thumbnails into views without blocking the ui thread.
+ * <p>
+ * <p>Thumbnails are read and decoded by a small pool of workers and kept in a memory cache
+ * bounded by the byte count of the bitmaps. The thumbnails stored in the database are the
+ * persistent cache: images that were added without thumbnail get it generated by the
+ * workers and written back the first time it is needed, or right after the import
+ * through {@link #generateThumbnail(long)}.</p>
+ * <p>
+ * <p>A view shows only the last thumbnail it was bound to: binding it again, for example
+ * when a list row is recycled, cancels the pending request.</p>
+ * <p>
+ * <p>The methods that take a view have to be called from the ui thread.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class ThumbnailService {
+
+    private static ThumbnailService thumbnailService;
+
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Long, Bitmap> cache;
+    private final Map<ImageView, Request> pendingRequests = new WeakHashMap<>();
+
+    private class Request implements Runnable {
+        final long imageId;
+        final ImageView imageView;
+        Future<?> future;
+
+        Request(long imageId, ImageView imageView) {
+            this.imageId = imageId;
+            this.imageView = imageView;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap thumbnail = loadThumbnail(imageId);
+            if (thumbnail == null || Thread.currentThread().isInterrupted())
+                return;
+            mainHandler.post(new Runnable() {
+                public void run() {
+                    cache.put(imageId, thumbnail);
+                    if (imageView != null && pendingRequests.get(imageView) == Request.this) {
+                        pendingRequests.remove(imageView);
+                        imageView.setImageBitmap(thumbnail);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the thumbnail service.
+     */
+    public static synchronized ThumbnailService getInstance() {
+        if (thumbnailService == null) {
+            thumbnailService = new ThumbnailService();
+        }
+        return thumbnailService;
+    }
+
+    private ThumbnailService() {
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        executor = Executors.newFixedThreadPool(threads);
+
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / 16);
+        cache = new LruCache<Long, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Show the thumbnail of an image in a view.
+     * <p>
+     * <p>If the thumbnail is cached, it is set immediately, else the view is cleared and
+     * the thumbnail is set once it is loaded.</p>
+     *
+     * @param imageId   the id of the image.
+     * @param imageView the view to set the thumbnail in.
+     */
+    public void load(long imageId, ImageView imageView) {
+        Request pending = pendingRequests.get(imageView);
+        if (pending != null) {
+            if (pending.imageId == imageId)
+                return;
+            cancel(imageView);
+        }
+
+        Bitmap thumbnail = cache.get(imageId);
+        if (thumbnail != null) {
+            imageView.setImageBitmap(thumbnail);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+        Request request = new Request(imageId, imageView);
+        pendingRequests.put(imageView, request);
+        request.future = executor.submit(request);
+    }
+
+    /**
+     * Cancel the pending request of a view, if there is one.
+     *
+     * @param imageView the view, for example of a row that scrolled off screen.
+     */
+    public void cancel(ImageView imageView) {
+        Request request = pendingRequests.remove(imageView);
+        if (request != null && request.future != null) {
+            request.future.cancel(true);
+        }
+    }
+
+    /**
+     * Generate the thumbnail of an image in the background, if it is missing.
+     *
+     * @param imageId the id of the image.
+     */
+    public void generateThumbnail(final long imageId) {
+        executor.submit(new Request(imageId, null));
+    }
+
+    /**
+     * Remove the cached thumbnail of an image, for example after it has been deleted.
+     *
+     * @param imageId the id of the image.
+     */
+    public void evict(long imageId) {
+        cache.remove(imageId);
+    }
+
+    private Bitmap loadThumbnail(long imageId) {
+        try {
+            IImagesDbHelper imagesDbHelper = DefaultHelperClasses.getDefaulfImageHelper();
+            byte[] thumbnailData = imagesDbHelper.getImageThumbnail(imageId);
+            if (thumbnailData == null || thumbnailData.length == 0) {
+                // not generated at import
+                byte[] imageData = imagesDbHelper.getImageData(imageId);
+                if (imageData == null || Thread.currentThread().isInterrupted())
+                    return null;
+                thumbnailData = ImageUtilities.createThumbnail(imageData);
+                if (thumbnailData == null)
+                    return null;
+                imagesDbHelper.updateImageThumbnail(imageId, thumbnailData);
+            }
+            return ImageUtilities.getImageFromImageData(thumbnailData);
+        } catch (Exception e) {
+            GPLog.error(this, "Unable to load the thumbnail of image: " + imageId, e);
+            return null;
+        }
+    }
+}
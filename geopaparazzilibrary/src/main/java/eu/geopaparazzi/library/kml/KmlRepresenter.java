@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.Image;
+import eu.geopaparazzi.library.util.XmlStreamWriter;
 
 /**
  * Interface for objects that are able to represent theirself as kml.
@@ -37,6 +38,14 @@ public interface KmlRepresenter extends Serializable {
      */
     public String toKmlString() throws Exception;
 
+    /**
+     * Writes the kml representation of the object to a stream.
+     *
+     * @param writer the writer to use.
+     * @throws Exception  if something goes wrong.
+     */
+    public void writeKml(XmlStreamWriter writer) throws Exception;
+
     /**
      * Getter for image flag.
      * 
@@ -266,6 +266,7 @@ public class OpenRouteServiceHandler {
                     GPLog.error(this, "Cannot draw route.", e);
                 }
             }
+            logDumper.updateStatistics(sqliteDatabase, newLogId);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
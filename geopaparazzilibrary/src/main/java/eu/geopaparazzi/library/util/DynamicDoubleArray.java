@@ -71,7 +71,8 @@ public class DynamicDoubleArray implements Serializable {
      */
     public synchronized void setValue( int position, double value ) {
         if (position >= internalArray.length) {
-            double[] newArray = new double[position + growingSize];
+            // grow at least by half the current size, to keep appends amortized constant
+            double[] newArray = new double[position + max(growingSize, internalArray.length / 2)];
             System.arraycopy(internalArray, 0, newArray, 0, internalArray.length);
             internalArray = newArray;
         }
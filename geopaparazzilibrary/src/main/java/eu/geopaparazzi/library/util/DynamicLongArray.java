@@ -0,0 +1,149 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.util;
+
+import java.io.Serializable;
+
+import static java.lang.Math.max;
+
+/**
+ * A wrapper for a dynamic growing array of longs.
+ * 
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class DynamicLongArray implements Serializable {
+    private long[] internalArray = null;
+    private final int growingSize;
+    private int currentPosition = -1;
+    private final int initalSize;
+
+    /**
+     * Create the array of default size.
+     */
+    public DynamicLongArray() {
+        this(50, 50);
+    }
+
+    /**
+     * Create the array with an initial size.
+     * 
+     * @param initalSize the initial size.
+     */
+    public DynamicLongArray( int initalSize ) {
+        this(initalSize, 50);
+    }
+
+    /**
+     * Create the array with an initial size.
+     * 
+     * @param initalSize the initial size.
+     * @param growingSize the size to grow the array additionally, if the array was too small. 
+     */
+    public DynamicLongArray( int initalSize, int growingSize ) {
+        this.initalSize = initalSize;
+        this.growingSize = growingSize;
+        internalArray = new long[initalSize];
+    }
+
+    /**
+     * Safe set the value in a certain position.
+     * 
+     * <p>If the array is smaller than the position, the array is extended and substituted.</p>
+     * 
+     * @param position the index in which to set the value.
+     * @param value the value to set.
+     */
+    public synchronized void setValue( int position, long value ) {
+        if (position >= internalArray.length) {
+            // grow at least by half the current size, to keep appends amortized constant
+            long[] newArray = new long[position + max(growingSize, internalArray.length / 2)];
+            System.arraycopy(internalArray, 0, newArray, 0, internalArray.length);
+            internalArray = newArray;
+        }
+        internalArray[position] = value;
+        currentPosition = max(currentPosition, position);
+    }
+
+    /**
+     * Add a value at the end of the array.
+     * 
+     * @param value the value to add.
+     */
+    public synchronized void add( long value ) {
+        currentPosition = currentPosition + 1;
+        setValue(currentPosition, value);
+    }
+
+    /**
+     * Get the value in a certain position of the array.
+     * 
+     * @param position the position.
+     * @return the value.
+     */
+    public long get( int position ) {
+        return internalArray[position];
+    }
+
+    /**
+     * Get the last used index.
+     * 
+     * @return the last used index.
+     */
+    public int size() {
+        return currentPosition + 1;
+    }
+
+    /**
+     * Revert back the array to be empty and in its initial size.
+     */
+    public void clearAsInitial() {
+        currentPosition = -1;
+        internalArray = new long[initalSize];
+    }
+
+    /**
+     * Just reset the counter, so the array starts to be populated from scratch.
+     */
+    public void clearForSameSizeReuse() {
+        currentPosition = -1;
+    }
+
+    /**
+     * Get the internal array. 
+     * 
+     * @return the array.
+     */
+    public long[] getInternalArray() {
+        return internalArray;
+    }
+
+    /**
+     * Get a trimmed version of the array, i.e. without ending unset positions. 
+     * 
+     * @return the trimmed array.
+     */
+    public long[] getTrimmedInternalArray() {
+        if (internalArray.length == size()) {
+            return internalArray;
+        }
+        long[] newArray = new long[size()];
+        System.arraycopy(internalArray, 0, newArray, 0, newArray.length);
+        return newArray;
+    }
+
+}
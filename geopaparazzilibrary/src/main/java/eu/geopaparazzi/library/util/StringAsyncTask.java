@@ -114,6 +114,26 @@ public abstract class StringAsyncTask extends AsyncTask<String, Integer, String>
         }
     }
 
+    /**
+     * Change the message of the progress dialog while the task is running.
+     * <p>
+     * <p>Can be called from any thread.</p>
+     *
+     * @param newMessage the new message.
+     */
+    public void setProgressMessage(final String newMessage) {
+        if (!(context instanceof Activity))
+            return;
+        ((Activity) context).runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (progressIsOk()) {
+                    progressDialog.setMessage(newMessage);
+                }
+            }
+        });
+    }
+
     protected String doInBackground(String... params) {
         return doBackgroundWork();
     }
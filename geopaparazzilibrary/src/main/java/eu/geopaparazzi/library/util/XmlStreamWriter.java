@@ -0,0 +1,217 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * A buffered writer for xml exports.
+ * <p>
+ * <p>Numbers and gpx times are written through reusable buffers, so that writing
+ * the points of a track does not create garbage. Numbers are written in the same
+ * format as {@link String#valueOf(double)}, times in the format of
+ * {@link TimeUtilities#TIME_FORMATTER_GPX_UTC}.</p>
+ * <p>
+ * <p>The writer is not thread safe.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class XmlStreamWriter {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final Writer writer;
+    private final char[] buffer;
+    private int count = 0;
+
+    private final StringBuilder numberBuilder = new StringBuilder(32);
+    private char[] numberChars = new char[32];
+
+    private final Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private final char[] timeChars = "0000-00-00T00:00:00Z".toCharArray();
+    private long cachedDay = Long.MIN_VALUE;
+
+    /**
+     * Constructor.
+     *
+     * @param writer the writer to write to. It does not need to be buffered.
+     */
+    public XmlStreamWriter(Writer writer) {
+        this(writer, 8192);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param writer     the writer to write to.
+     * @param bufferSize the size of the chars buffer.
+     */
+    public XmlStreamWriter(Writer writer, int bufferSize) {
+        this.writer = writer;
+        buffer = new char[bufferSize];
+    }
+
+    /**
+     * Write a string.
+     *
+     * @param string the string to write.
+     * @return this writer.
+     * @throws IOException if something goes wrong.
+     */
+    public XmlStreamWriter write(String string) throws IOException {
+        int length = string.length();
+        if (length > buffer.length) {
+            flushBuffer();
+            writer.write(string);
+            return this;
+        }
+        if (count + length > buffer.length) {
+            flushBuffer();
+        }
+        string.getChars(0, length, buffer, count);
+        count += length;
+        return this;
+    }
+
+    /**
+     * Write a char.
+     *
+     * @param c the char to write.
+     * @return this writer.
+     * @throws IOException if something goes wrong.
+     */
+    public XmlStreamWriter write(char c) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = c;
+        return this;
+    }
+
+    /**
+     * Write a double.
+     *
+     * @param value the value to write.
+     * @return this writer.
+     * @throws IOException if something goes wrong.
+     */
+    public XmlStreamWriter write(double value) throws IOException {
+        numberBuilder.setLength(0);
+        numberBuilder.append(value);
+        return writeNumberBuilder();
+    }
+
+    /**
+     * Write a long.
+     *
+     * @param value the value to write.
+     * @return this writer.
+     * @throws IOException if something goes wrong.
+     */
+    public XmlStreamWriter write(long value) throws IOException {
+        numberBuilder.setLength(0);
+        numberBuilder.append(value);
+        return writeNumberBuilder();
+    }
+
+    private XmlStreamWriter writeNumberBuilder() throws IOException {
+        int length = numberBuilder.length();
+        if (length > numberChars.length) {
+            numberChars = new char[length];
+        }
+        numberBuilder.getChars(0, length, numberChars, 0);
+        if (count + length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(numberChars, 0, buffer, count, length);
+        count += length;
+        return this;
+    }
+
+    /**
+     * Write a timestamp as gpx utc time.
+     * <p>
+     * <p>The date part is calculated only when the day changes, which for track points is rare.
+     *
+     * @param utcMillis the timestamp in milliseconds.
+     * @return this writer.
+     * @throws IOException if something goes wrong.
+     */
+    public XmlStreamWriter writeGpxTime(long utcMillis) throws IOException {
+        long day = utcMillis / MILLIS_PER_DAY;
+        if (utcMillis % MILLIS_PER_DAY < 0) {
+            day--;
+        }
+        if (day != cachedDay) {
+            cachedDay = day;
+            utcCalendar.setTimeInMillis(day * MILLIS_PER_DAY);
+            putDigits(utcCalendar.get(Calendar.YEAR), 0, 4);
+            putDigits(utcCalendar.get(Calendar.MONTH) + 1, 5, 2);
+            putDigits(utcCalendar.get(Calendar.DAY_OF_MONTH), 8, 2);
+        }
+        int secondOfDay = (int) ((utcMillis - day * MILLIS_PER_DAY) / 1000);
+        putDigits(secondOfDay / 3600, 11, 2);
+        putDigits((secondOfDay / 60) % 60, 14, 2);
+        putDigits(secondOfDay % 60, 17, 2);
+
+        if (count + timeChars.length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(timeChars, 0, buffer, count, timeChars.length);
+        count += timeChars.length;
+        return this;
+    }
+
+    private void putDigits(int value, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            timeChars[i] = (char) ('0' + value % 10);
+            value = value / 10;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            writer.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Flush the buffered chars and the underlying writer.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    /**
+     * Flush and close the underlying writer.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void close() throws IOException {
+        flushBuffer();
+        writer.close();
+    }
+}
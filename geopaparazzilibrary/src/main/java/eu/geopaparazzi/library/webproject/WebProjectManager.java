@@ -67,6 +67,9 @@ public enum WebProjectManager {
 
     /**
      * Uploads a project folder as zip to the given server via POST.
+     * <p>
+     * <p>Only the database file is sent, so a database in write ahead log mode
+     * has to be checkpointed before.</p>
      *
      * @param context the {@link Context} to use.
      * @param server  the server to which to upload.
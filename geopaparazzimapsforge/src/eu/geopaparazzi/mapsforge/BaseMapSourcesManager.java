@@ -31,8 +31,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import eu.geopaparazzi.library.GPApplication;
 import eu.geopaparazzi.library.core.ResourcesManager;
@@ -48,6 +52,7 @@ import eu.geopaparazzi.mapsforge.databasehandlers.MapDatabaseHandler;
 import eu.geopaparazzi.mapsforge.databasehandlers.core.MapGeneratorInternal;
 import eu.geopaparazzi.mapsforge.databasehandlers.core.MapTable;
 import eu.geopaparazzi.mapsforge.utils.DefaultMapurls;
+import eu.geopaparazzi.spatialite.database.spatial.SourcesDiscovery;
 import eu.geopaparazzi.spatialite.database.spatial.core.daos.SPL_Vectors;
 import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.AbstractSpatialDatabaseHandler;
 import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.MbtilesDatabaseHandler;
@@ -56,6 +61,7 @@ import eu.geopaparazzi.library.util.types.ESpatialDataSources;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.VectorLayerQueryModes;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.AbstractSpatialTable;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialRasterTable;
+import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialTablesCatalogue;
 import eu.geopaparazzi.spatialite.database.spatial.util.SpatialiteLibraryConstants;
 import jsqlite.Exception;
 
@@ -81,6 +87,37 @@ public enum BaseMapSourcesManager {
 
     private boolean mReReadBasemaps = true;
 
+    private volatile FutureTask<List<BaseMap>> mPendingDiscovery;
+    private HashMap<BaseMap, AbstractSpatialTable> mDiscoveredBaseMaps2TablesMap;
+
+    private volatile SourcesDiscovery.DiscoveryListener mDiscoveryListener;
+
+    /**
+     * Forwards to the listener set at the time of the notification, since the
+     * discovery can start before anyone had the chance to register.
+     */
+    private final SourcesDiscovery.DiscoveryListener discoveryListener = new SourcesDiscovery.DiscoveryListener() {
+        @Override
+        public void onSourceCatalogued(File file, int done, int total) {
+            SourcesDiscovery.DiscoveryListener listener = mDiscoveryListener;
+            if (listener != null) listener.onSourceCatalogued(file, done, total);
+        }
+
+        @Override
+        public void onFirstMapReady(File file) {
+            SourcesDiscovery.DiscoveryListener listener = mDiscoveryListener;
+            if (listener != null) listener.onFirstMapReady(file);
+        }
+    };
+
+    private final SourcesDiscovery.Collector<List<AbstractSpatialTable>> tablesCollector = new SourcesDiscovery.Collector<List<AbstractSpatialTable>>() {
+        @Override
+        public List<AbstractSpatialTable> collect(File file) throws java.lang.Exception {
+            List<AbstractSpatialTable> tables = collectTablesFromFile(file);
+            return tables.size() > 0 ? tables : null;
+        }
+    };
+
     BaseMapSourcesManager() {
 
         try {
@@ -110,6 +147,20 @@ public enum BaseMapSourcesManager {
             selectedTableDatabasePath = mPreferences.getString(LibraryConstants.PREFS_KEY_TILESOURCE_FILE, ""); //$NON-NLS-1$
             selectedTableTitle = mPreferences.getString(LibraryConstants.PREFS_KEY_TILESOURCE_TITLE, ""); //$NON-NLS-1$
 
+            if (selectedTableDatabasePath.length() > 0 && new File(selectedTableDatabasePath).exists()) {
+                /*
+                 * read only the selected map now, so that it can be shown
+                 * immediately, and catalogue the rest in background
+                 */
+                for (AbstractSpatialTable table : collectTablesFromFile(new File(selectedTableDatabasePath))) {
+                    if (selectedBaseMapTable == null || table.getTitle().equals(selectedTableTitle)) {
+                        selectedBaseMapTable = table;
+                    }
+                }
+                startBaseMapsDiscovery();
+                return;
+            }
+
             List<BaseMap> baseMaps = getBaseMaps();
             if (selectedTableDatabasePath.length() == 0 || !new File(selectedTableDatabasePath).exists()) {
                 // select mapnik by default
@@ -146,8 +197,10 @@ public enum BaseMapSourcesManager {
      */
     public List<BaseMap> getBaseMaps() {
         try {
+            joinBaseMapsDiscovery();
             if (mBaseMaps == null || mReReadBasemaps) {
-                mBaseMaps = getBaseMapsFromPreferences();
+                mBaseMaps2TablesMap.clear();
+                mBaseMaps = getBaseMapsFromPreferences(mBaseMaps2TablesMap);
 
                 if (mBaseMaps.size() == 0) {
                     addBaseMapsFromFile(mMapnikFile);
@@ -161,20 +214,91 @@ public enum BaseMapSourcesManager {
         return Collections.emptyList();
     }
 
-    public void forceBasemapsreRead() {
+    public synchronized void forceBasemapsreRead() {
+        // a running discovery only fills its own map, it is simply not used
+        mPendingDiscovery = null;
+        mDiscoveredBaseMaps2TablesMap = null;
         mBaseMaps = null;
         mReReadBasemaps = true;
     }
 
+    /**
+     * Set a listener for the progress of the reading of the basemaps.
+     * <p>
+     * <p>If the selected map is already available, {@link SourcesDiscovery.DiscoveryListener#onFirstMapReady(File)}
+     * is called immediately. The listener is notified from background threads and must not
+     * wait for the basemaps.</p>
+     *
+     * @param listener the listener or <code>null</code>.
+     */
+    public void setDiscoveryListener(SourcesDiscovery.DiscoveryListener listener) {
+        mDiscoveryListener = listener;
+        AbstractSpatialTable table = selectedBaseMapTable;
+        if (listener != null && table != null) {
+            listener.onFirstMapReady(table.getDatabaseFile());
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the basemaps are still being read in background.
+     */
+    public boolean isDiscoveryRunning() {
+        FutureTask<List<BaseMap>> pendingDiscovery = mPendingDiscovery;
+        return pendingDiscovery != null && !pendingDiscovery.isDone();
+    }
+
+    /**
+     * Read all the basemaps in a background thread.
+     */
+    private synchronized void startBaseMapsDiscovery() {
+        final HashMap<BaseMap, AbstractSpatialTable> baseMaps2TablesMap = new HashMap<>();
+        mDiscoveredBaseMaps2TablesMap = baseMaps2TablesMap;
+        mPendingDiscovery = new FutureTask<>(new Callable<List<BaseMap>>() {
+            @Override
+            public List<BaseMap> call() throws java.lang.Exception {
+                return getBaseMapsFromPreferences(baseMaps2TablesMap);
+            }
+        });
+        Thread thread = new Thread(mPendingDiscovery, "basemaps-discovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for a background discovery, if there is one, and make its basemaps the current ones.
+     */
+    private synchronized void joinBaseMapsDiscovery() {
+        if (mPendingDiscovery == null)
+            return;
+        FutureTask<List<BaseMap>> pendingDiscovery = mPendingDiscovery;
+        mPendingDiscovery = null;
+        try {
+            List<BaseMap> baseMaps = pendingDiscovery.get();
+            mBaseMaps2TablesMap = mDiscoveredBaseMaps2TablesMap;
+            mBaseMaps = baseMaps;
+            mReReadBasemaps = false;
+            if (mBaseMaps.size() == 0) {
+                addBaseMapsFromFile(mMapnikFile);
+            }
+        } catch (InterruptedException e) {
+            // read again when next asked
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            GPLog.error(this, null, e);
+        }
+        mDiscoveredBaseMaps2TablesMap = null;
+    }
+
     /**
      * Reads the maps from preferences and extracts the tables necessary.
+     * <p>
+     * <p>The files are read in parallel, each on its own connection.</p>
      *
+     * @param baseMaps2TablesMap the map to fill with the tables of the basemaps.
      * @return the list of available BaseMaps.
      * @throws java.lang.Exception
      */
-    private List<BaseMap> getBaseMapsFromPreferences() throws java.lang.Exception {
-        mBaseMaps2TablesMap.clear();
-
+    private List<BaseMap> getBaseMapsFromPreferences(HashMap<BaseMap, AbstractSpatialTable> baseMaps2TablesMap) throws java.lang.Exception {
         List<BaseMap> baseMaps;
         if (ProfilesHandler.INSTANCE.getActiveProfile() == null) {
             String baseMapsJson = mPreferences.getString(BaseMap.BASEMAPS_PREF_KEY, "");
@@ -183,15 +307,26 @@ public enum BaseMapSourcesManager {
             baseMaps = ProfilesHandler.INSTANCE.getBaseMaps();
         }
 
-        // TODO this is ugly right now, needs to be changed
+        // a database with many tables has one basemap per table, read it once
+        LinkedHashSet<String> databasePaths = new LinkedHashSet<>();
         for (BaseMap baseMap : baseMaps) {
-            List<AbstractSpatialTable> tables = collectTablesFromFile(new File(baseMap.databasePath));
+            databasePaths.add(baseMap.databasePath);
+        }
+        List<File> files = new ArrayList<>();
+        for (String databasePath : databasePaths) {
+            files.add(new File(databasePath));
+        }
+        List<List<AbstractSpatialTable>> tablesList = SourcesDiscovery.collect(files, tablesCollector, discoveryListener);
+        for (List<AbstractSpatialTable> tables : tablesList) {
+            if (tables == null)
+                continue;
             for (AbstractSpatialTable table : tables) {
                 BaseMap tmpBaseMap = table2BaseMap(table);
-                if (!mBaseMaps2TablesMap.containsKey(tmpBaseMap))
-                    mBaseMaps2TablesMap.put(tmpBaseMap, table);
+                if (!baseMaps2TablesMap.containsKey(tmpBaseMap))
+                    baseMaps2TablesMap.put(tmpBaseMap, table);
             }
         }
+        SpatialTablesCatalogue.INSTANCE.save();
         return baseMaps;
     }
 
@@ -216,9 +351,11 @@ public enum BaseMapSourcesManager {
         List<BaseMap> foundBaseMaps = new ArrayList<>();
         if (!file.getName().startsWith("_")) {
             try {
+                joinBaseMapsDiscovery();
                 if (mBaseMaps == null) mBaseMaps = new ArrayList<>();
 
                 List<AbstractSpatialTable> collectedTables = collectTablesFromFile(file);
+                SpatialTablesCatalogue.INSTANCE.save();
                 saveToBaseMap(collectedTables, foundBaseMaps);
             } catch (java.lang.Exception e) {
                 GPLog.error(this, null, e);
@@ -229,6 +366,7 @@ public enum BaseMapSourcesManager {
     }
 
     public void removeBaseMap(BaseMap baseMap) throws JSONException {
+        joinBaseMapsDiscovery();
         mBaseMaps.remove(baseMap);
         mBaseMaps2TablesMap.remove(baseMap);
         saveBaseMapsToPreferences(mBaseMaps);
@@ -272,6 +410,12 @@ public enum BaseMapSourcesManager {
                     /*
                      * add MBTILES, GEOPACKAGE, RASTERLITE TABLES
                      */
+                    SpatialTablesCatalogue.Entry entry = SpatialTablesCatalogue.INSTANCE.get(file);
+                    if (entry != null) {
+                        // unchanged since last inspected, no need to open it
+                        collectedTables.addAll(entry.getRasterTables());
+                        return collectedTables;
+                    }
                     AbstractSpatialDatabaseHandler sdbHandler = getRasterHandlerForFile(file);
                     if (sdbHandler != null) {
                         try {
@@ -387,6 +531,7 @@ public enum BaseMapSourcesManager {
      * @return the current selected basemap.
      */
     public BaseMap getSelectedBaseMap() {
+        joinBaseMapsDiscovery();
         AbstractSpatialTable selectedBaseMapTable = getSelectedBaseMapTable();
         for (Map.Entry<BaseMap, AbstractSpatialTable> entry : mBaseMaps2TablesMap.entrySet()) {
             if (entry.getValue().getDatabasePath().equals(selectedBaseMapTable.getDatabasePath())) {
@@ -403,6 +548,7 @@ public enum BaseMapSourcesManager {
      * @throws jsqlite.Exception
      */
     public void setSelectedBaseMap(BaseMap baseMap) throws Exception {
+        joinBaseMapsDiscovery();
         try {
             selectedTileSourceType = baseMap.mapType;
             selectedTableDatabasePath = baseMap.databasePath;
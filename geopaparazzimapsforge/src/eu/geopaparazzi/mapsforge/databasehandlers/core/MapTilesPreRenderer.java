@@ -0,0 +1,337 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.mapsforge.databasehandlers.core;
+
+import android.graphics.Bitmap;
+
+import org.mapsforge.android.maps.DebugSettings;
+import org.mapsforge.android.maps.mapgenerator.JobParameters;
+import org.mapsforge.android.maps.mapgenerator.JobTheme;
+import org.mapsforge.android.maps.mapgenerator.MapGeneratorJob;
+import org.mapsforge.android.maps.mapgenerator.databaserenderer.DatabaseRenderer;
+import org.mapsforge.android.maps.mapgenerator.databaserenderer.ExternalRenderTheme;
+import org.mapsforge.android.maps.rendertheme.InternalRenderTheme;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.MapDatabase;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.MbtilesDatabaseHandler;
+
+/**
+ * Renders the tiles of a mapsforge .map file into an mbtiles database.
+ * <p/>
+ * <p>The tiles of a bounding box and zoom range are rendered on a pool of workers,
+ * each with its own {@link MapDatabase} and {@link DatabaseRenderer}, and are written
+ * through the {@link MbtilesDatabaseHandler}. Tiles already present in the mbtiles
+ * database are skipped, so an interrupted or cancelled run continues where it stopped
+ * when started again.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class MapTilesPreRenderer {
+
+    /**
+     * Listener for the progress of a rendering.
+     * <p/>
+     * <p>The listener is called from the worker threads.</p>
+     */
+    public interface ProgressListener {
+        /**
+         * Called after every handled tile.
+         *
+         * @param done  the number of tiles handled, rendered or skipped.
+         * @param total the number of tiles to handle.
+         */
+        void onProgress(long done, long total);
+    }
+
+    private final File mapFile;
+    private final File renderThemeFile;
+    private final File mbtilesFile;
+
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private float textScale = 1f;
+    private String format = "png";
+
+    private volatile boolean isCancelled = false;
+
+    /**
+     * Constructor.
+     *
+     * @param mapFile         the .map file to render.
+     * @param renderThemeFile the xml render theme or <code>null</code> to use the internal one.
+     * @param mbtilesFile     the mbtiles database to write to. It is created if it does not exist.
+     */
+    public MapTilesPreRenderer(File mapFile, File renderThemeFile, File mbtilesFile) {
+        this.mapFile = mapFile;
+        this.renderThemeFile = renderThemeFile;
+        this.mbtilesFile = mbtilesFile;
+    }
+
+    /**
+     * @param threads the number of rendering workers.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param textScale the text scale used by the renderer.
+     */
+    public void setTextScale(float textScale) {
+        this.textScale = textScale;
+    }
+
+    /**
+     * @param format the image format of the tiles, <code>png</code> or <code>jpg</code>. Only used
+     *               when the mbtiles database is created.
+     */
+    public void setFormat(String format) {
+        this.format = "jpg".equals(format) ? "jpg" : "png";
+    }
+
+    /**
+     * Stop the rendering after the tiles currently being rendered.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Render the tiles of the whole area of the map file.
+     *
+     * @param minZoom  the first zoom level to render.
+     * @param maxZoom  the last zoom level to render.
+     * @param listener an optional progress listener.
+     * @return the number of tiles rendered, without the ones that were already there.
+     * @throws IOException if the map file or the mbtiles database could not be opened.
+     */
+    public long render(int minZoom, int maxZoom, ProgressListener listener) throws IOException {
+        MapDatabase mapDatabase = new MapDatabase();
+        FileOpenResult fileOpenResult = mapDatabase.openFile(mapFile);
+        if (!fileOpenResult.isSuccess()) {
+            throw new IOException("Could not open the map database: " + mapFile + " (" + fileOpenResult.getErrorMessage() + ")");
+        }
+        BoundingBox boundingBox;
+        try {
+            boundingBox = mapDatabase.getMapFileInfo().boundingBox;
+        } finally {
+            mapDatabase.closeFile();
+        }
+        return render(boundingBox.minLongitudeE6 / 1E6, boundingBox.minLatitudeE6 / 1E6, boundingBox.maxLongitudeE6 / 1E6,
+                boundingBox.maxLatitudeE6 / 1E6, minZoom, maxZoom, listener);
+    }
+
+    /**
+     * Render the tiles of an area.
+     *
+     * @param w        west bound.
+     * @param s        south bound.
+     * @param e        east bound.
+     * @param n        north bound.
+     * @param minZoom  the first zoom level to render.
+     * @param maxZoom  the last zoom level to render.
+     * @param listener an optional progress listener.
+     * @return the number of tiles rendered, without the ones that were already there.
+     * @throws IOException if the map file or the mbtiles database could not be opened.
+     */
+    public long render(double w, double s, double e, double n, int minZoom, int maxZoom, final ProgressListener listener)
+            throws IOException {
+        isCancelled = false;
+        final JobParameters jobParameters = new JobParameters(getJobTheme(), textScale);
+        final DebugSettings debugSettings = new DebugSettings(false, false, false);
+
+        final TileRange tileRange = new TileRange(w, s, e, n, (byte) minZoom, (byte) maxZoom);
+        final long total = tileRange.size();
+
+        LinkedHashMap<String, String> metadata = new LinkedHashMap<>();
+        String name = mbtilesFile.getName();
+        name = name.substring(0, name.lastIndexOf('.'));
+        metadata.put("name", name);
+        metadata.put("description", mapFile.getName());
+        metadata.put("format", format);
+        metadata.put("tile_row_type", "tms");
+        metadata.put("bounds", w + "," + s + "," + e + "," + n);
+        metadata.put("center", ((w + e) / 2.0) + "," + ((s + n) / 2.0) + "," + minZoom);
+        metadata.put("minzoom", Integer.toString(minZoom));
+        metadata.put("maxzoom", Integer.toString(maxZoom));
+        final MbtilesDatabaseHandler mbtilesDatabase = new MbtilesDatabaseHandler(mbtilesFile.getAbsolutePath(), metadata);
+        mbtilesDatabase.open();
+
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong rendered = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        MapDatabase mapDatabase = new MapDatabase();
+                        FileOpenResult fileOpenResult = mapDatabase.openFile(mapFile);
+                        if (!fileOpenResult.isSuccess()) {
+                            GPLog.error(MapTilesPreRenderer.this, null, new IOException("Could not open the map database: " + mapFile));
+                            return;
+                        }
+                        DatabaseRenderer renderer = new DatabaseRenderer();
+                        renderer.setMapDatabase(mapDatabase);
+                        Bitmap bitmap = Bitmap.createBitmap(Tile.TILE_SIZE, Tile.TILE_SIZE, Bitmap.Config.RGB_565);
+                        try {
+                            Tile tile;
+                            while (!isCancelled && (tile = tileRange.next()) != null) {
+                                int x = (int) tile.tileX;
+                                int y = (int) tile.tileY;
+                                if (!mbtilesDatabase.hasTile(x, y, tile.zoomLevel)) {
+                                    MapGeneratorJob job = new MapGeneratorJob(tile, mapFile, jobParameters, debugSettings);
+                                    if (renderer.executeJob(job, bitmap)) {
+                                        // the mbtiles metadata are updated on insert, one writer at a time
+                                        synchronized (mbtilesDatabase) {
+                                            if (mbtilesDatabase.insertBitmapTile(x, y, tile.zoomLevel, bitmap, 0) == 0) {
+                                                rendered.incrementAndGet();
+                                            }
+                                        }
+                                    }
+                                }
+                                long handled = done.incrementAndGet();
+                                if (listener != null) {
+                                    listener.onProgress(handled, total);
+                                }
+                            }
+                        } catch (IOException e) {
+                            GPLog.error(MapTilesPreRenderer.this, null, e);
+                        } finally {
+                            bitmap.recycle();
+                            renderer.cleanup();
+                            mapDatabase.closeFile();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e1) {
+                    isCancelled = true;
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e1) {
+                    GPLog.error(this, null, e1);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                mbtilesDatabase.close();
+            } catch (jsqlite.Exception e1) {
+                GPLog.error(this, null, e1);
+            }
+        }
+        return rendered.get();
+    }
+
+    private JobTheme getJobTheme() throws FileNotFoundException {
+        if (renderThemeFile != null) {
+            return new ExternalRenderTheme(renderThemeFile);
+        }
+        return InternalRenderTheme.OSMARENDER;
+    }
+
+    /**
+     * The tiles of a bounding box over a range of zoom levels.
+     * <p/>
+     * <p>Tiles are handed out zoom level by zoom level and row by row, so that
+     * neighbouring tiles, which read the same blocks of the map file, are
+     * rendered close in time.</p>
+     */
+    static class TileRange {
+        private final double w;
+        private final double s;
+        private final double e;
+        private final double n;
+        private final byte maxZoom;
+
+        private byte zoom;
+        private long minX;
+        private long maxX;
+        private long maxY;
+        private long x;
+        private long y;
+
+        TileRange(double w, double s, double e, double n, byte minZoom, byte maxZoom) {
+            this.w = w;
+            this.s = s;
+            this.e = e;
+            this.n = n;
+            this.maxZoom = maxZoom;
+            setZoom(minZoom);
+        }
+
+        private void setZoom(byte zoom) {
+            this.zoom = zoom;
+            minX = MercatorProjection.longitudeToTileX(w, zoom);
+            maxX = MercatorProjection.longitudeToTileX(e, zoom);
+            y = MercatorProjection.latitudeToTileY(n, zoom);
+            maxY = MercatorProjection.latitudeToTileY(s, zoom);
+            x = minX;
+        }
+
+        /**
+         * @return the number of tiles in the range.
+         */
+        long size() {
+            long size = 0;
+            for (byte z = zoom; z <= maxZoom; z++) {
+                long tilesX = MercatorProjection.longitudeToTileX(e, z) - MercatorProjection.longitudeToTileX(w, z) + 1;
+                long tilesY = MercatorProjection.latitudeToTileY(s, z) - MercatorProjection.latitudeToTileY(n, z) + 1;
+                size += tilesX * tilesY;
+            }
+            return size;
+        }
+
+        /**
+         * @return the next tile or <code>null</code> if all tiles have been handed out.
+         */
+        synchronized Tile next() {
+            if (x > maxX) {
+                x = minX;
+                y++;
+            }
+            if (y > maxY) {
+                if (zoom >= maxZoom)
+                    return null;
+                setZoom((byte) (zoom + 1));
+            }
+            return new Tile(x++, y, zoom);
+        }
+    }
+}
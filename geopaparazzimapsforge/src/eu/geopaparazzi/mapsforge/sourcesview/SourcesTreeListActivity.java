@@ -24,7 +24,9 @@ import java.util.List;
 import java.util.Map.Entry;
 
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
@@ -57,9 +59,12 @@ import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.IActivitySupporter;
 import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.StringAsyncTask;
+import eu.geopaparazzi.library.util.TextRunnable;
 import eu.geopaparazzi.library.util.Utilities;
 import eu.geopaparazzi.mapsforge.R;
 import eu.geopaparazzi.mapsforge.BaseMapSourcesManager;
+import eu.geopaparazzi.mapsforge.databasehandlers.core.MapTilesPreRenderer;
+import eu.geopaparazzi.spatialite.database.spatial.DiscoveryProgressListener;
 import eu.geopaparazzi.library.util.types.ESpatialDataSources;
 
 /**
@@ -85,6 +90,7 @@ public class SourcesTreeListActivity extends AppCompatActivity implements IActiv
     private final LinkedHashMap<String, List<BaseMap>> newMap = new LinkedHashMap<>();
     private StringAsyncTask loadTask;
     private StringAsyncTask addNewSourcesTask;
+    private StringAsyncTask preRenderTask;
 
     private boolean isFabOpen = false;
     private FloatingActionButton toggleButton, addSourceButton, addSourceFolderButton;
@@ -143,7 +149,13 @@ public class SourcesTreeListActivity extends AppCompatActivity implements IActiv
             List<BaseMap> baseMaps;
 
             protected String doBackgroundWork() {
-                baseMaps = BaseMapSourcesManager.INSTANCE.getBaseMaps();
+                BaseMapSourcesManager.INSTANCE.setDiscoveryListener(new DiscoveryProgressListener(this,
+                        getString(R.string.loading_sources), getString(R.string.first_source_ready)));
+                try {
+                    baseMaps = BaseMapSourcesManager.INSTANCE.getBaseMaps();
+                } finally {
+                    BaseMapSourcesManager.INSTANCE.setDiscoveryListener(null);
+                }
                 return "";
             }
 
@@ -199,6 +211,7 @@ public class SourcesTreeListActivity extends AppCompatActivity implements IActiv
     protected void onDestroy() {
         if (loadTask != null) loadTask.dispose();
         if (addNewSourcesTask != null) addNewSourcesTask.dispose();
+        if (preRenderTask != null) preRenderTask.dispose();
         super.onDestroy();
     }
 
@@ -473,28 +486,22 @@ public class SourcesTreeListActivity extends AppCompatActivity implements IActiv
                                 List<BaseMap> baseMapList = newMap.get(group);
                                 final BaseMap baseMap = baseMapList.get(childPosition);
 
-                                GPDialogs.yesNoMessageDialog(SourcesTreeListActivity.this, String.format(getString(R.string.remove_from_list), baseMap.title), new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        try {
-                                            BaseMapSourcesManager.INSTANCE.removeBaseMap(baseMap);
-                                        } catch (JSONException e) {
-                                            GPLog.error(this, null, e);
-                                        }
-
-                                        runOnUiThread(new Runnable() {
-                                            @Override
-                                            public void run() {
-                                                try {
-                                                    refreshData(BaseMapSourcesManager.INSTANCE.getBaseMaps());
-                                                } catch (Exception e) {
-                                                    GPLog.error(this, null, e);
+                                if (baseMap.mapType.equals(ESpatialDataSources.MAP.getTypeName())) {
+                                    String[] actions = {getString(R.string.remove_from_list_action), getString(R.string.prerender_to_mbtiles)};
+                                    new AlertDialog.Builder(SourcesTreeListActivity.this).setTitle(baseMap.title)
+                                            .setItems(actions, new DialogInterface.OnClickListener() {
+                                                @Override
+                                                public void onClick(DialogInterface dialog, int which) {
+                                                    if (which == 0) {
+                                                        removeBaseMap(baseMap);
+                                                    } else {
+                                                        preRenderBaseMap(baseMap);
+                                                    }
                                                 }
-                                            }
-                                        });
-
-                                    }
-                                }, null);
+                                            }).show();
+                                } else {
+                                    removeBaseMap(baseMap);
+                                }
 
                                 return true;
                             }
@@ -512,6 +519,100 @@ public class SourcesTreeListActivity extends AppCompatActivity implements IActiv
         }
     }
 
+    private void removeBaseMap(final BaseMap baseMap) {
+        GPDialogs.yesNoMessageDialog(SourcesTreeListActivity.this, String.format(getString(R.string.remove_from_list), baseMap.title), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BaseMapSourcesManager.INSTANCE.removeBaseMap(baseMap);
+                } catch (JSONException e) {
+                    GPLog.error(this, null, e);
+                }
+
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            refreshData(BaseMapSourcesManager.INSTANCE.getBaseMaps());
+                        } catch (Exception e) {
+                            GPLog.error(this, null, e);
+                        }
+                    }
+                });
+
+            }
+        }, null);
+    }
+
+    /**
+     * Render the tiles of a mapsforge map into an mbtiles database next to it and add that as basemap.
+     *
+     * @param baseMap the map to render.
+     */
+    private void preRenderBaseMap(BaseMap baseMap) {
+        final File mapFile = new File(baseMap.databasePath);
+        String name = FileUtilities.getNameWithoutExtention(mapFile);
+        final File mbtilesFile = new File(mapFile.getParentFile(), name + ".mbtiles");
+        GPDialogs.inputMessageDialog(this, getString(R.string.prerender_zoom_levels), "10-14", new TextRunnable() {
+            @Override
+            public void run() {
+                final int minZoom;
+                final int maxZoom;
+                try {
+                    String[] split = theTextToRunOn.split("-");
+                    minZoom = Integer.parseInt(split[0].trim());
+                    maxZoom = Integer.parseInt(split[split.length - 1].trim());
+                    if (minZoom < 0 || maxZoom < minZoom || maxZoom > 22)
+                        throw new NumberFormatException(theTextToRunOn);
+                } catch (NumberFormatException e) {
+                    GPDialogs.warningDialog(SourcesTreeListActivity.this, getString(R.string.prerender_wrong_zoom_levels), null);
+                    return;
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        preRenderTask = new StringAsyncTask(SourcesTreeListActivity.this) {
+                            private List<BaseMap> baseMaps;
+
+                            protected String doBackgroundWork() {
+                                try {
+                                    MapTilesPreRenderer preRenderer = new MapTilesPreRenderer(mapFile, null, mbtilesFile);
+                                    long rendered = preRenderer.render(minZoom, maxZoom, new MapTilesPreRenderer.ProgressListener() {
+                                        @Override
+                                        public void onProgress(long done, long total) {
+                                            if (total > 0)
+                                                publishProgress((int) (100 * done / total));
+                                        }
+                                    });
+                                    BaseMapSourcesManager.INSTANCE.addBaseMapsFromFile(mbtilesFile);
+                                    baseMaps = BaseMapSourcesManager.INSTANCE.getBaseMaps();
+                                    return String.format(getString(R.string.prerender_done), rendered, mbtilesFile.getName());
+                                } catch (Exception e) {
+                                    GPLog.error(this, "Problem pre-rendering the map.", e);
+                                    return "ERROR: " + e.getLocalizedMessage();
+                                }
+                            }
+
+                            protected void doUiPostWork(String response) {
+                                dispose();
+                                if (baseMaps != null) {
+                                    try {
+                                        refreshData(baseMaps);
+                                    } catch (Exception e) {
+                                        GPLog.error(this, null, e);
+                                    }
+                                }
+                                GPDialogs.infoDialog(SourcesTreeListActivity.this, response, null);
+                            }
+                        };
+                        preRenderTask.setProgressDialog("", getString(R.string.prerender_to_mbtiles), false, 100);
+                        preRenderTask.execute();
+                    }
+                });
+            }
+        });
+    }
+
 
     private TextWatcher filterTextWatcher = new TextWatcher() {
 
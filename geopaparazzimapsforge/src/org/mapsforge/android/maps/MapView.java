@@ -102,6 +102,7 @@ public class MapView extends ViewGroup {
     private final MapZoomControls mapZoomControls;
     private final List<Overlay> overlays;
     private final Projection projection;
+    private final TileRenderProfiler tileRenderProfiler;
     private final TouchEventHandler touchEventHandler;
     private final ZoomAnimator zoomAnimator;
 
@@ -152,6 +153,7 @@ public class MapView extends ViewGroup {
         }
         this.inMemoryTileCache = new InMemoryTileCache(DEFAULT_TILE_CACHE_SIZE_IN_MEMORY);
         this.fpsCounter = new FpsCounter();
+        this.tileRenderProfiler = new TileRenderProfiler();
         this.frameBuffer = new FrameBuffer(this);
         this.jobParameters = new JobParameters(DEFAULT_RENDER_THEME, DEFAULT_TEXT_SCALE);
         this.jobQueue = new JobQueue(this);
@@ -319,6 +321,13 @@ public class MapView extends ViewGroup {
         return this.projection;
     }
 
+    /**
+     * @return the profiler of the tile rendering in this MapView.
+     */
+    public TileRenderProfiler getTileRenderProfiler() {
+        return this.tileRenderProfiler;
+    }
+
     /**
      * Calls either {@link #invalidate()} or {@link #postInvalidate()}, depending on the current thread.
      */
@@ -636,6 +645,7 @@ public class MapView extends ViewGroup {
 
         if (mapGenerator instanceof DatabaseRenderer) {
             ((DatabaseRenderer) mapGenerator).setMapDatabase(this.mapDatabase);
+            ((DatabaseRenderer) mapGenerator).setTileRenderProfiler(this.tileRenderProfiler);
         }
         this.mapGenerator = mapGenerator;
         this.mapWorker.setMapGenerator(this.mapGenerator);
@@ -662,6 +672,10 @@ public class MapView extends ViewGroup {
         if (this.fpsCounter.isShowFpsCounter()) {
             this.fpsCounter.draw(canvas);
         }
+
+        if (this.tileRenderProfiler.isEnabled()) {
+            this.tileRenderProfiler.draw(canvas);
+        }
     }
 
     @Override
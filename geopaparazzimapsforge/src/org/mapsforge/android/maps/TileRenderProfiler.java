@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+
+/**
+ * A tile render profiler measures where the time for generating the map tiles of a MapView goes. The time of every
+ * {@link Stage} of a job is collected into a histogram with power of two buckets in microseconds, which can be shown
+ * on the MapView and written as CSV.
+ * <p>
+ * The profiler is disabled by default, while disabled nothing is measured.
+ */
+public class TileRenderProfiler {
+	/**
+	 * The measured stages of a tile job.
+	 */
+	public enum Stage {
+		/**
+		 * Time between adding the job to the queue and its start.
+		 */
+		QUEUE_WAIT,
+
+		/**
+		 * Lookup of the job in the tile caches.
+		 */
+		CACHE_LOOKUP,
+
+		/**
+		 * Reading and decoding the map file, without the theme matching.
+		 */
+		MAP_READ,
+
+		/**
+		 * Matching the read elements against the render theme.
+		 */
+		THEME_MATCHING,
+
+		/**
+		 * Placement of the labels and symbols.
+		 */
+		LABEL_PLACEMENT,
+
+		/**
+		 * Drawing the tile bitmap.
+		 */
+		RASTERIZATION,
+
+		/**
+		 * Storing the tile bitmap in the tile caches.
+		 */
+		CACHE_PUT,
+
+		/**
+		 * Drawing the tile bitmap into the frame buffer.
+		 */
+		FRAME_BUFFER;
+	}
+
+	private static final int BUCKETS = 25;
+	private static final int ONE_SECOND = 1000;
+	private static final Paint PROFILER_PAINT = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private static final Paint PROFILER_PAINT_STROKE = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private static final Stage[] STAGES = Stage.values();
+
+	private static void configureProfilerPaint() {
+		PROFILER_PAINT.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
+		PROFILER_PAINT.setTextSize(16);
+
+		PROFILER_PAINT_STROKE.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
+		PROFILER_PAINT_STROKE.setTextSize(16);
+		PROFILER_PAINT_STROKE.setColor(Color.WHITE);
+		PROFILER_PAINT_STROKE.setStyle(Paint.Style.STROKE);
+		PROFILER_PAINT_STROKE.setStrokeWidth(3);
+	}
+
+	/**
+	 * @param micros
+	 *            a duration in microseconds.
+	 * @return the index of the histogram bucket for the duration.
+	 */
+	private static int getBucket(long micros) {
+		if (micros <= 0) {
+			return 0;
+		}
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return bucket < BUCKETS ? bucket : BUCKETS - 1;
+	}
+
+	/**
+	 * @param bucket
+	 *            the index of a histogram bucket.
+	 * @return the exclusive upper bound of the bucket in microseconds.
+	 */
+	private static long getBucketLimit(int bucket) {
+		return 1L << bucket;
+	}
+
+	private static String formatMillis(double millis) {
+		return String.format(Locale.ENGLISH, "%.3f", Double.valueOf(millis));
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000d;
+	}
+
+	private final long[][] bucketCounts;
+	private final long[] counts;
+	private volatile boolean enabled;
+	private String[] lines;
+	private final long[] maxNanos;
+	private long previousTime;
+	private final long[] totalNanos;
+
+	TileRenderProfiler() {
+		this.bucketCounts = new long[STAGES.length][BUCKETS];
+		this.counts = new long[STAGES.length];
+		this.maxNanos = new long[STAGES.length];
+		this.totalNanos = new long[STAGES.length];
+		this.lines = new String[0];
+		configureProfilerPaint();
+	}
+
+	/**
+	 * @param stage
+	 *            the stage.
+	 * @return the number of measurements of the stage.
+	 */
+	public synchronized long getCount(Stage stage) {
+		return this.counts[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 *            the stage.
+	 * @return the mean time of the stage in milliseconds or 0 if it has not been measured.
+	 */
+	public synchronized double getMeanMillis(Stage stage) {
+		int index = stage.ordinal();
+		if (this.counts[index] == 0) {
+			return 0;
+		}
+		return toMillis(this.totalNanos[index]) / this.counts[index];
+	}
+
+	/**
+	 * The percentiles are estimated from the histogram, the upper bound of the bucket which contains the percentile is
+	 * returned.
+	 * 
+	 * @param stage
+	 *            the stage.
+	 * @param percentile
+	 *            the percentile, between 0 and 1.
+	 * @return the estimated percentile of the stage time in milliseconds or 0 if it has not been measured.
+	 */
+	public synchronized double getPercentileMillis(Stage stage, double percentile) {
+		int index = stage.ordinal();
+		long count = this.counts[index];
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile * count);
+		long cumulated = 0;
+		for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+			cumulated += this.bucketCounts[index][bucket];
+			if (cumulated >= rank) {
+				return Math.min(getBucketLimit(bucket) / 1000d, toMillis(this.maxNanos[index]));
+			}
+		}
+		return toMillis(this.maxNanos[index]);
+	}
+
+	/**
+	 * @return true if this profiler measures the tile jobs, false otherwise.
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Adds a measurement of a stage. Has no effect if the profiler is disabled.
+	 * 
+	 * @param stage
+	 *            the measured stage.
+	 * @param nanos
+	 *            the time of the stage in nanoseconds.
+	 */
+	public synchronized void record(Stage stage, long nanos) {
+		if (!this.enabled) {
+			return;
+		}
+		int index = stage.ordinal();
+		++this.counts[index];
+		this.totalNanos[index] += nanos;
+		if (nanos > this.maxNanos[index]) {
+			this.maxNanos[index] = nanos;
+		}
+		++this.bucketCounts[index][getBucket(nanos / 1000)];
+	}
+
+	/**
+	 * Removes all measurements.
+	 */
+	public synchronized void reset() {
+		for (int index = 0; index < STAGES.length; ++index) {
+			this.counts[index] = 0;
+			this.totalNanos[index] = 0;
+			this.maxNanos[index] = 0;
+			for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+				this.bucketCounts[index][bucket] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @param enabled
+	 *            true if the tile jobs should be measured and the measurements shown on the map, false otherwise.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Writes the measurements as CSV, one line per stage with the summary values and the counts of the histogram
+	 * buckets. The header of a bucket column is its upper bound in microseconds.
+	 * 
+	 * @param writer
+	 *            the writer to write to, it is not closed.
+	 * @throws IOException
+	 *             if an error occurs while writing.
+	 */
+	public synchronized void writeCsv(Writer writer) throws IOException {
+		StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("stage,count,total_ms,mean_ms,p50_ms,p95_ms,p99_ms,max_ms");
+		for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+			stringBuilder.append(",lt_").append(getBucketLimit(bucket)).append("_us");
+		}
+		stringBuilder.append('\n');
+
+		for (Stage stage : STAGES) {
+			int index = stage.ordinal();
+			stringBuilder.append(stage.name().toLowerCase(Locale.ENGLISH));
+			stringBuilder.append(',').append(this.counts[index]);
+			stringBuilder.append(',').append(formatMillis(toMillis(this.totalNanos[index])));
+			stringBuilder.append(',').append(formatMillis(getMeanMillis(stage)));
+			stringBuilder.append(',').append(formatMillis(getPercentileMillis(stage, 0.5)));
+			stringBuilder.append(',').append(formatMillis(getPercentileMillis(stage, 0.95)));
+			stringBuilder.append(',').append(formatMillis(getPercentileMillis(stage, 0.99)));
+			stringBuilder.append(',').append(formatMillis(toMillis(this.maxNanos[index])));
+			for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+				stringBuilder.append(',').append(this.bucketCounts[index][bucket]);
+			}
+			stringBuilder.append('\n');
+		}
+
+		writer.write(stringBuilder.toString());
+		writer.flush();
+	}
+
+	private synchronized String[] createLines() {
+		String[] newLines = new String[STAGES.length];
+		for (Stage stage : STAGES) {
+			newLines[stage.ordinal()] = String.format(Locale.ENGLISH, "%s: %.1f / %.1f ms (%d)",
+					stage.name().toLowerCase(Locale.ENGLISH), Double.valueOf(getMeanMillis(stage)),
+					Double.valueOf(getPercentileMillis(stage, 0.95)), Long.valueOf(getCount(stage)));
+		}
+		return newLines;
+	}
+
+	void draw(Canvas canvas) {
+		long currentTime = SystemClock.uptimeMillis();
+		if (currentTime - this.previousTime > ONE_SECOND) {
+			this.lines = createLines();
+			this.previousTime = currentTime;
+		}
+
+		// below the FPS counter, mean and 95th percentile of every stage
+		float y = 60;
+		for (String line : this.lines) {
+			canvas.drawText(line, 20, y, PROFILER_PAINT_STROKE);
+			canvas.drawText(line, 20, y, PROFILER_PAINT);
+			y += 20;
+		}
+	}
+}
@@ -17,6 +17,7 @@ package org.mapsforge.android.maps.mapgenerator;
 import java.util.PriorityQueue;
 
 import org.mapsforge.android.maps.MapView;
+import org.mapsforge.android.maps.TileRenderProfiler;
 
 /**
  * A JobQueue keeps the list of pending jobs for a MapView and prioritizes them.
@@ -27,6 +28,7 @@ public class JobQueue {
 	private final MapView mapView;
 	private PriorityQueue<MapGeneratorJob> priorityQueue;
 	private boolean scheduleNeeded;
+	private final TileRenderProfiler tileRenderProfiler;
 
 	/**
 	 * @param mapView
@@ -35,6 +37,7 @@ public class JobQueue {
 	public JobQueue(MapView mapView) {
 		this.mapView = mapView;
 		this.priorityQueue = new PriorityQueue<>(INITIAL_CAPACITY);
+		this.tileRenderProfiler = mapView.getTileRenderProfiler();
 	}
 
 	/**
@@ -45,6 +48,8 @@ public class JobQueue {
 	 */
 	public synchronized void addJob(MapGeneratorJob mapGeneratorJob) {
 		if (!this.priorityQueue.contains(mapGeneratorJob)) {
+			// the queue wait is only measured while profiling, 0 marks it as unknown
+			mapGeneratorJob.setEnqueueTime(this.tileRenderProfiler.isEnabled() ? System.nanoTime() : 0);
 			this.priorityQueue.offer(mapGeneratorJob);
 		}
 	}
@@ -43,6 +43,7 @@ public class MapGeneratorJob implements Comparable<MapGeneratorJob>, Serializabl
 	 */
 	public final Tile tile;
 
+	private transient long enqueueTime;
 	private transient int hashCodeValue;
 	private final Object mapGeneratorId;
 	private transient double priority;
@@ -146,6 +147,17 @@ public class MapGeneratorJob implements Comparable<MapGeneratorJob>, Serializabl
 		calculateTransientValues();
 	}
 
+	/**
+	 * @return the {@link System#nanoTime()} at which this job has been added to the job queue, 0 if unknown.
+	 */
+	long getEnqueueTime() {
+		return this.enqueueTime;
+	}
+
+	void setEnqueueTime(long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}
+
 	void setPriority(double priority) {
 		this.priority = priority;
 	}
@@ -16,6 +16,8 @@ package org.mapsforge.android.maps.mapgenerator;
 
 import org.mapsforge.android.maps.MapView;
 import org.mapsforge.android.maps.PausableThread;
+import org.mapsforge.android.maps.TileRenderProfiler;
+import org.mapsforge.android.maps.TileRenderProfiler.Stage;
 import org.mapsforge.core.model.Tile;
 
 import android.graphics.Bitmap;
@@ -34,6 +36,7 @@ public class MapWorker extends PausableThread {
 	private MapGenerator mapGenerator;
 	private MapView mapView;
 	private Bitmap tileBitmap;
+	private TileRenderProfiler tileRenderProfiler;
 
 	/**
 	 * @param mapView
@@ -45,6 +48,7 @@ public class MapWorker extends PausableThread {
 		this.jobQueue = mapView.getJobQueue();
 		this.inMemoryTileCache = mapView.getInMemoryTileCache();
 		this.fileSystemTileCache = mapView.getFileSystemTileCache();
+		this.tileRenderProfiler = mapView.getTileRenderProfiler();
 		this.tileBitmap = Bitmap.createBitmap(Tile.TILE_SIZE, Tile.TILE_SIZE, Bitmap.Config.RGB_565);
 	}
 
@@ -63,6 +67,7 @@ public class MapWorker extends PausableThread {
 		this.fileSystemTileCache = null;
 		this.inMemoryTileCache = null;
 		this.jobQueue = null;
+		this.tileRenderProfiler = null;
 		this.tileBitmap.recycle();
 		this.tileBitmap = null;
  	}
@@ -71,9 +76,23 @@ public class MapWorker extends PausableThread {
 	protected void doWork() {
 		MapGeneratorJob mapGeneratorJob = this.jobQueue.poll();
 
-		if (this.inMemoryTileCache.containsKey(mapGeneratorJob)) {
-			return;
-		} else if (this.fileSystemTileCache.containsKey(mapGeneratorJob)) {
+		boolean profiling = this.tileRenderProfiler.isEnabled();
+		long startTime = 0;
+		if (profiling) {
+			startTime = System.nanoTime();
+			if (mapGeneratorJob.getEnqueueTime() != 0) {
+				this.tileRenderProfiler.record(Stage.QUEUE_WAIT, startTime - mapGeneratorJob.getEnqueueTime());
+			}
+		}
+
+		boolean cached = this.inMemoryTileCache.containsKey(mapGeneratorJob)
+				|| this.fileSystemTileCache.containsKey(mapGeneratorJob);
+
+		// the lookup is recorded for hits and misses alike
+		if (profiling) {
+			this.tileRenderProfiler.record(Stage.CACHE_LOOKUP, System.nanoTime() - startTime);
+		}
+		if (cached) {
 			return;
 		}
 
@@ -86,11 +105,24 @@ public class MapWorker extends PausableThread {
 		}
 
 		if (!isInterrupted() && success) {
-			if (this.mapView.getFrameBuffer().drawBitmap(mapGeneratorJob.tile, this.tileBitmap)) {
+			if (profiling) {
+				startTime = System.nanoTime();
+			}
+			boolean drawn = this.mapView.getFrameBuffer().drawBitmap(mapGeneratorJob.tile, this.tileBitmap);
+			if (profiling) {
+				long frameBufferTime = System.nanoTime();
+				this.tileRenderProfiler.record(Stage.FRAME_BUFFER, frameBufferTime - startTime);
+				startTime = frameBufferTime;
+			}
+
+			if (drawn) {
 				this.inMemoryTileCache.put(mapGeneratorJob, this.tileBitmap);
 			}
 			this.mapView.postInvalidate();
 			this.fileSystemTileCache.put(mapGeneratorJob, this.tileBitmap);
+			if (profiling) {
+				this.tileRenderProfiler.record(Stage.CACHE_PUT, System.nanoTime() - startTime);
+			}
 		}
 	}
 
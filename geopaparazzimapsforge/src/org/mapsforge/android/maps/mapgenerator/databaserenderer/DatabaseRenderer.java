@@ -24,6 +24,8 @@ import java.util.logging.Logger;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.mapsforge.android.maps.TileRenderProfiler;
+import org.mapsforge.android.maps.TileRenderProfiler.Stage;
 import org.mapsforge.android.maps.mapgenerator.JobTheme;
 import org.mapsforge.android.maps.mapgenerator.MapGenerator;
 import org.mapsforge.android.maps.mapgenerator.MapGeneratorJob;
@@ -35,9 +37,7 @@ import org.mapsforge.core.model.Tag;
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.core.util.MercatorProjection;
 import org.mapsforge.map.reader.MapDatabase;
-import org.mapsforge.map.reader.MapReadResult;
-import org.mapsforge.map.reader.PointOfInterest;
-import org.mapsforge.map.reader.Way;
+import org.mapsforge.map.reader.MapReadCallback;
 import org.mapsforge.map.reader.header.MapFileInfo;
 import org.xml.sax.SAXException;
 
@@ -47,8 +47,11 @@ import android.graphics.Paint;
 
 /**
  * A DatabaseRenderer renders map tiles by reading from a {@link MapDatabase}.
+ * <p>
+ * The map data is received element by element as {@link MapReadCallback}, the way nodes stay in the arrays of the
+ * {@link MapDatabase} and the shape containers are reused from tile to tile.
  */
-public class DatabaseRenderer implements MapGenerator, RenderCallback {
+public class DatabaseRenderer implements MapGenerator, MapReadCallback, RenderCallback {
 	private static final Byte DEFAULT_START_ZOOM_LEVEL = Byte.valueOf((byte) 12);
 	private static final byte LAYERS = 11;
 	private static final Logger LOGGER = Logger.getLogger(DatabaseRenderer.class.getName());
@@ -92,9 +95,16 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 	private float poiY;
 	private JobTheme previousJobTheme;
 	private float previousTextScale;
+	private boolean profiling;
 	private byte previousZoomLevel;
 	private RenderTheme renderTheme;
 	private ShapeContainer shapeContainer;
+	private long themeMatchingTime;
+	private TileRenderProfiler tileRenderProfiler;
+	private final List<ShapePaintContainer> shapePaintContainerPool;
+	private int shapePaintContainersInUse;
+	private final List<WayContainer> wayContainerPool;
+	private int wayContainersInUse;
 	private final List<WayTextContainer> wayNames;
 	private final List<List<List<ShapePaintContainer>>> ways;
 	private final List<SymbolContainer> waySymbols;
@@ -112,6 +122,8 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 		this.areaLabels = new ArrayList<>(64);
 		this.waySymbols = new ArrayList<>(64);
 		this.pointSymbols = new ArrayList<>(64);
+		this.shapePaintContainerPool = new ArrayList<>(256);
+		this.wayContainerPool = new ArrayList<>(256);
 
 		PAINT_WATER_TILE_HIGHTLIGHT.setStyle(Paint.Style.FILL);
 		PAINT_WATER_TILE_HIGHTLIGHT.setColor(Color.CYAN);
@@ -155,13 +167,30 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 			this.previousTextScale = textScale;
 		}
 
-		if (this.mapDatabase != null) {
-			MapReadResult mapReadResult = this.mapDatabase.readMapData(this.currentTile);
-			processReadMapData(mapReadResult);
+		this.profiling = this.tileRenderProfiler != null && this.tileRenderProfiler.isEnabled();
+		this.themeMatchingTime = 0;
+		long startTime = this.profiling ? System.nanoTime() : 0;
+
+		if (this.mapDatabase != null && this.mapDatabase.readMapData(this.currentTile, this)) {
+			renderWaterBackground();
+		}
+
+		if (this.profiling) {
+			// the elements are matched while they are read
+			long readTime = System.nanoTime();
+			this.tileRenderProfiler.record(Stage.MAP_READ, readTime - startTime - this.themeMatchingTime);
+			this.tileRenderProfiler.record(Stage.THEME_MATCHING, this.themeMatchingTime);
+			startTime = readTime;
 		}
 
 		this.nodes = this.labelPlacement.placeLabels(this.nodes, this.pointSymbols, this.areaLabels, this.currentTile);
 
+		if (this.profiling) {
+			long labelPlacementTime = System.nanoTime();
+			this.tileRenderProfiler.record(Stage.LABEL_PLACEMENT, labelPlacementTime - startTime);
+			startTime = labelPlacementTime;
+		}
+
 		this.canvasRasterer.setCanvasBitmap(bitmap);
 		this.canvasRasterer.fill(this.renderTheme.getMapBackground());
 		this.canvasRasterer.drawWays(this.ways);
@@ -179,6 +208,10 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 			this.canvasRasterer.drawTileCoordinates(this.currentTile);
 		}
 
+		if (this.profiling) {
+			this.tileRenderProfiler.record(Stage.RASTERIZATION, System.nanoTime() - startTime);
+		}
+
 		clearLists();
 
 		return true;
@@ -215,9 +248,48 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 		return ZOOM_MAX;
 	}
 
+	@Override
+	public void readPointOfInterest(byte layer, List<Tag> tags, int latitudeE6, int longitudeE6) {
+		this.drawingLayers = this.ways.get(getValidLayer(layer));
+		this.poiX = scaleLongitude(longitudeE6);
+		this.poiY = scaleLatitude(latitudeE6);
+
+		long startTime = this.profiling ? System.nanoTime() : 0;
+		this.renderTheme.matchNode(this, tags, this.currentTile.zoomLevel);
+		if (this.profiling) {
+			this.themeMatchingTime += System.nanoTime() - startTime;
+		}
+	}
+
+	@Override
+	public void readWay(byte layer, List<Tag> tags, float[][] wayNodes) {
+		this.drawingLayers = this.ways.get(getValidLayer(layer));
+		// the label position of the map file is deliberately not part of the callback, the area captions and symbols
+		// are placed at the center of the bounding box of the way (see renderAreaCaption and renderAreaSymbol)
+
+		this.coordinates = wayNodes;
+		for (int i = 0; i < this.coordinates.length; ++i) {
+			for (int j = 0; j < this.coordinates[i].length; j += 2) {
+				this.coordinates[i][j] = scaleLongitude(this.coordinates[i][j]);
+				this.coordinates[i][j + 1] = scaleLatitude(this.coordinates[i][j + 1]);
+			}
+		}
+		this.shapeContainer = obtainWayContainer(this.coordinates);
+
+		long startTime = this.profiling ? System.nanoTime() : 0;
+		if (GeometryUtils.isClosedWay(this.coordinates[0])) {
+			this.renderTheme.matchClosedWay(this, tags, this.currentTile.zoomLevel);
+		} else {
+			this.renderTheme.matchLinearWay(this, tags, this.currentTile.zoomLevel);
+		}
+		if (this.profiling) {
+			this.themeMatchingTime += System.nanoTime() - startTime;
+		}
+	}
+
 	@Override
 	public void renderArea(Paint paint, int level) {
-		this.drawingLayers.get(level).add(new ShapePaintContainer(this.shapeContainer, paint));
+		this.drawingLayers.get(level).add(obtainShapePaintContainer(this.shapeContainer, paint));
 	}
 
 	@Override
@@ -241,7 +313,7 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 	@Override
 	public void renderPointOfInterestCircle(float radius, Paint outline, int level) {
 		this.drawingLayers.get(level).add(
-				new ShapePaintContainer(new CircleContainer(this.poiX, this.poiY, radius), outline));
+				obtainShapePaintContainer(new CircleContainer(this.poiX, this.poiY, radius), outline));
 	}
 
 	@Override
@@ -252,7 +324,7 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 
 	@Override
 	public void renderWay(Paint paint, int level) {
-		this.drawingLayers.get(level).add(new ShapePaintContainer(this.shapeContainer, paint));
+		this.drawingLayers.get(level).add(obtainShapePaintContainer(this.shapeContainer, paint));
 	}
 
 	@Override
@@ -278,6 +350,14 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 		this.mapDatabase = mapDatabase;
 	}
 
+	/**
+	 * @param tileRenderProfiler
+	 *            the profiler which receives the time of the render stages, may be null.
+	 */
+	public void setTileRenderProfiler(TileRenderProfiler tileRenderProfiler) {
+		this.tileRenderProfiler = tileRenderProfiler;
+	}
+
 	private void clearLists() {
 		for (int i = this.ways.size() - 1; i >= 0; --i) {
 			List<List<ShapePaintContainer>> innerWayList = this.ways.get(i);
@@ -291,6 +371,18 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 		this.pointSymbols.clear();
 		this.wayNames.clear();
 		this.waySymbols.clear();
+
+		// the containers are not referenced anymore, the next tile can reuse them
+		for (int i = this.shapePaintContainersInUse - 1; i >= 0; --i) {
+			ShapePaintContainer shapePaintContainer = this.shapePaintContainerPool.get(i);
+			shapePaintContainer.paint = null;
+			shapePaintContainer.shapeContainer = null;
+		}
+		this.shapePaintContainersInUse = 0;
+		for (int i = this.wayContainersInUse - 1; i >= 0; --i) {
+			this.wayContainerPool.get(i).coordinates = null;
+		}
+		this.wayContainersInUse = 0;
 	}
 
 	private void createWayLists() {
@@ -306,58 +398,40 @@ public class DatabaseRenderer implements MapGenerator, RenderCallback {
 		}
 	}
 
-	private void processReadMapData(MapReadResult mapReadResult) {
-		if (mapReadResult == null) {
-			return;
-		}
-
-		for (PointOfInterest pointOfInterest : mapReadResult.pointOfInterests) {
-			renderPointOfInterest(pointOfInterest);
-		}
-
-		for (Way way : mapReadResult.ways) {
-			renderWay(way);
-		}
-
-		if (mapReadResult.isWater) {
-			renderWaterBackground();
+	private ShapePaintContainer obtainShapePaintContainer(ShapeContainer shapeContainer, Paint paint) {
+		ShapePaintContainer shapePaintContainer;
+		if (this.shapePaintContainersInUse < this.shapePaintContainerPool.size()) {
+			shapePaintContainer = this.shapePaintContainerPool.get(this.shapePaintContainersInUse);
+			shapePaintContainer.shapeContainer = shapeContainer;
+			shapePaintContainer.paint = paint;
+		} else {
+			shapePaintContainer = new ShapePaintContainer(shapeContainer, paint);
+			this.shapePaintContainerPool.add(shapePaintContainer);
 		}
+		++this.shapePaintContainersInUse;
+		return shapePaintContainer;
 	}
 
-	private void renderPointOfInterest(PointOfInterest pointOfInterest) {
-		this.drawingLayers = this.ways.get(getValidLayer(pointOfInterest.layer));
-		this.poiX = scaleLongitude(pointOfInterest.position.longitudeE6);
-		this.poiY = scaleLatitude(pointOfInterest.position.latitudeE6);
-		this.renderTheme.matchNode(this, pointOfInterest.tags, this.currentTile.zoomLevel);
+	private WayContainer obtainWayContainer(float[][] wayCoordinates) {
+		WayContainer wayContainer;
+		if (this.wayContainersInUse < this.wayContainerPool.size()) {
+			wayContainer = this.wayContainerPool.get(this.wayContainersInUse);
+			wayContainer.coordinates = wayCoordinates;
+		} else {
+			wayContainer = new WayContainer(wayCoordinates);
+			this.wayContainerPool.add(wayContainer);
+		}
+		++this.wayContainersInUse;
+		return wayContainer;
 	}
 
 	private void renderWaterBackground() {
 		this.drawingLayers = this.ways.get(0);
 		this.coordinates = WATER_TILE_COORDINATES;
-		this.shapeContainer = new WayContainer(this.coordinates);
+		this.shapeContainer = obtainWayContainer(this.coordinates);
 		this.renderTheme.matchClosedWay(this, Collections.singletonList(TAG_NATURAL_WATER), this.currentTile.zoomLevel);
 	}
 
-	private void renderWay(Way way) {
-		this.drawingLayers = this.ways.get(getValidLayer(way.layer));
-		// TODO what about the label position?
-
-		this.coordinates = way.wayNodes;
-		for (int i = 0; i < this.coordinates.length; ++i) {
-			for (int j = 0; j < this.coordinates[i].length; j += 2) {
-				this.coordinates[i][j] = scaleLongitude(this.coordinates[i][j]);
-				this.coordinates[i][j + 1] = scaleLatitude(this.coordinates[i][j + 1]);
-			}
-		}
-		this.shapeContainer = new WayContainer(this.coordinates);
-
-		if (GeometryUtils.isClosedWay(this.coordinates[0])) {
-			this.renderTheme.matchClosedWay(this, way.tags, this.currentTile.zoomLevel);
-		} else {
-			this.renderTheme.matchLinearWay(this, way.tags, this.currentTile.zoomLevel);
-		}
-	}
-
 	/**
 	 * Converts a latitude value into an Y coordinate on the current tile.
 	 * 
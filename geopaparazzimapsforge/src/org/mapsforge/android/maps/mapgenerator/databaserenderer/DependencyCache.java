@@ -166,8 +166,6 @@ class DependencyCache {
 	 */
 	final Map<Tile, DependencyOnTile> dependencyTable;
 	Dependency<DependencyText> depLabel;
-	Rect rect1;
-	Rect rect2;
 	SymbolContainer smb;
 	DependencyOnTile tmp;
 
@@ -590,49 +588,56 @@ class DependencyCache {
 		}
 	}
 
-	private void removeOverlappingAreaLabelsWithDependencyLabels(List<PointTextContainer> areaLabels) {
-		PointTextContainer pTC;
-
+	/**
+	 * Adds the labels carried over from the neighbour tiles to the grid.
+	 * 
+	 * @param grid
+	 *            the grid of occupied rectangles.
+	 * @param dis
+	 *            the distance to keep to the labels.
+	 */
+	private void addDependencyLabelsToGrid(LabelGrid grid, int dis) {
+		if (this.currentDependencyOnTile.labels == null) {
+			return;
+		}
 		for (int i = 0; i < this.currentDependencyOnTile.labels.size(); i++) {
 			this.depLabel = this.currentDependencyOnTile.labels.get(i);
-			this.rect1 = new android.graphics.Rect((int) (this.depLabel.point.pointX),
-					(int) (this.depLabel.point.pointY - this.depLabel.value.boundary.height()),
-					(int) (this.depLabel.point.pointX + this.depLabel.value.boundary.width()),
-					(int) (this.depLabel.point.pointY));
-
-			for (int x = 0; x < areaLabels.size(); x++) {
-				pTC = areaLabels.get(x);
-
-				this.rect2 = new android.graphics.Rect((int) pTC.x, (int) pTC.y - pTC.boundary.height(), (int) pTC.x
-						+ pTC.boundary.width(), (int) pTC.y);
-
-				if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-					areaLabels.remove(x);
-					x--;
-				}
-			}
+			grid.add((int) this.depLabel.point.pointX - dis,
+					(int) (this.depLabel.point.pointY - this.depLabel.value.boundary.height()) - dis,
+					(int) (this.depLabel.point.pointX + this.depLabel.value.boundary.width() + dis),
+					(int) (this.depLabel.point.pointY + dis));
 		}
 	}
 
-	private void removeOverlappingAreaLabelsWithDependencySymbols(List<PointTextContainer> areaLabels) {
-		PointTextContainer label;
-
+	/**
+	 * Adds the symbols carried over from the neighbour tiles to the grid.
+	 * 
+	 * @param grid
+	 *            the grid of occupied rectangles.
+	 * @param dis
+	 *            the distance to keep to the symbols.
+	 */
+	private void addDependencySymbolsToGrid(LabelGrid grid, int dis) {
+		if (this.currentDependencyOnTile.symbols == null) {
+			return;
+		}
 		for (Dependency<DependencySymbol> depSmb : this.currentDependencyOnTile.symbols) {
+			grid.add((int) depSmb.point.pointX - dis, (int) depSmb.point.pointY - dis, (int) depSmb.point.pointX
+					+ depSmb.value.symbol.getWidth() + dis, (int) depSmb.point.pointY + depSmb.value.symbol.getHeight()
+					+ dis);
+		}
+	}
 
-			this.rect1 = new android.graphics.Rect((int) depSmb.point.pointX, (int) depSmb.point.pointY,
-					(int) depSmb.point.pointX + depSmb.value.symbol.getWidth(), (int) depSmb.point.pointY
-							+ depSmb.value.symbol.getHeight());
-
-			for (int x = 0; x < areaLabels.size(); x++) {
-				label = areaLabels.get(x);
+	private void removeOverlappingAreaLabels(List<PointTextContainer> areaLabels, LabelGrid grid) {
+		PointTextContainer label;
 
-				this.rect2 = new android.graphics.Rect((int) (label.x), (int) (label.y - label.boundary.height()),
-						(int) (label.x + label.boundary.width()), (int) (label.y));
+		for (int x = 0; x < areaLabels.size(); x++) {
+			label = areaLabels.get(x);
 
-				if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-					areaLabels.remove(x);
-					x--;
-				}
+			if (grid.intersects((int) label.x, (int) label.y - label.boundary.height(), (int) label.x
+					+ label.boundary.width(), (int) label.y)) {
+				areaLabels.remove(x);
+				x--;
 			}
 		}
 	}
@@ -652,48 +657,14 @@ class DependencyCache {
 		}
 	}
 
-	private void removeOverlappingSymbolsWithDepencySymbols(List<SymbolContainer> symbols, int dis) {
-		SymbolContainer sym;
-		Dependency<DependencySymbol> sym2;
-
-		for (int x = 0; x < this.currentDependencyOnTile.symbols.size(); x++) {
-			sym2 = this.currentDependencyOnTile.symbols.get(x);
-			this.rect1 = new android.graphics.Rect((int) sym2.point.pointX - dis, (int) sym2.point.pointY - dis,
-					(int) sym2.point.pointX + sym2.value.symbol.getWidth() + dis, (int) sym2.point.pointY
-							+ sym2.value.symbol.getHeight() + dis);
-
-			for (int y = 0; y < symbols.size(); y++) {
-
-				sym = symbols.get(y);
-				this.rect2 = new android.graphics.Rect((int) sym.x, (int) sym.y, (int) sym.x + sym.symbol.getWidth(),
-						(int) sym.y + sym.symbol.getHeight());
-
-				if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-					symbols.remove(y);
-					y--;
-				}
-			}
-		}
-	}
-
-	private void removeOverlappingSymbolsWithDependencyLabels(List<SymbolContainer> symbols) {
-		for (int i = 0; i < this.currentDependencyOnTile.labels.size(); i++) {
-			this.depLabel = this.currentDependencyOnTile.labels.get(i);
-			this.rect1 = new android.graphics.Rect((int) (this.depLabel.point.pointX),
-					(int) (this.depLabel.point.pointY - this.depLabel.value.boundary.height()),
-					(int) (this.depLabel.point.pointX + this.depLabel.value.boundary.width()),
-					(int) (this.depLabel.point.pointY));
-
-			for (int x = 0; x < symbols.size(); x++) {
-				this.smb = symbols.get(x);
-
-				this.rect2 = new android.graphics.Rect((int) this.smb.x, (int) this.smb.y, (int) this.smb.x
-						+ this.smb.symbol.getWidth(), (int) this.smb.y + this.smb.symbol.getHeight());
+	private void removeOverlappingSymbols(List<SymbolContainer> symbols, LabelGrid grid) {
+		for (int x = 0; x < symbols.size(); x++) {
+			this.smb = symbols.get(x);
 
-				if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-					symbols.remove(x);
-					x--;
-				}
+			if (grid.intersects((int) this.smb.x, (int) this.smb.y, (int) this.smb.x + this.smb.symbol.getWidth(),
+					(int) this.smb.y + this.smb.symbol.getHeight())) {
+				symbols.remove(x);
+				x--;
 			}
 		}
 	}
@@ -808,18 +779,31 @@ class DependencyCache {
 	 *            area labels from the current tile
 	 * @param symbols
 	 *            symbols from the current tile
+	 * @param grid
+	 *            a grid to collect the objects from the dependency cache, it is cleared before use.
 	 */
 	void removeOverlappingObjectsWithDependencyOnTile(List<PointTextContainer> labels,
-			List<PointTextContainer> areaLabels, List<SymbolContainer> symbols) {
-		if (this.currentDependencyOnTile.labels != null && this.currentDependencyOnTile.labels.size() != 0) {
+			List<PointTextContainer> areaLabels, List<SymbolContainer> symbols, LabelGrid grid) {
+		boolean hasLabels = this.currentDependencyOnTile.labels != null
+				&& this.currentDependencyOnTile.labels.size() != 0;
+		boolean hasSymbols = this.currentDependencyOnTile.symbols != null
+				&& this.currentDependencyOnTile.symbols.size() != 0;
+
+		if (hasLabels) {
 			removeOverlappingLabelsWithDependencyLabels(labels);
-			removeOverlappingSymbolsWithDependencyLabels(symbols);
-			removeOverlappingAreaLabelsWithDependencyLabels(areaLabels);
 		}
 
-		if (this.currentDependencyOnTile.symbols != null && this.currentDependencyOnTile.symbols.size() != 0) {
-			removeOverlappingSymbolsWithDepencySymbols(symbols, 2);
-			removeOverlappingAreaLabelsWithDependencySymbols(areaLabels);
+		if (hasLabels || hasSymbols) {
+			// symbols keep a distance to the symbols of the neighbour tiles, but not to their labels
+			grid.clear();
+			addDependencyLabelsToGrid(grid, 0);
+			addDependencySymbolsToGrid(grid, 2);
+			removeOverlappingSymbols(symbols, grid);
+
+			grid.clear();
+			addDependencyLabelsToGrid(grid, 0);
+			addDependencySymbolsToGrid(grid, 0);
+			removeOverlappingAreaLabels(areaLabels, grid);
 		}
 	}
 
@@ -830,8 +814,11 @@ class DependencyCache {
 	 * 
 	 * @param refPos
 	 *            possible label positions form the two or four point Greedy
+	 * @param grid
+	 *            the grid of the occupied rectangles of the current tile, the objects from the dependency cache are
+	 *            added to it.
 	 */
-	void removeReferencePointsFromDependencyCache(LabelPlacement.ReferencePosition[] refPos) {
+	void removeReferencePointsFromDependencyCache(LabelPlacement.ReferencePosition[] refPos, LabelGrid grid) {
 		Tile lefttmp = new Tile(this.currentTile.tileX - 1, this.currentTile.tileY, this.currentTile.zoomLevel);
 		Tile righttmp = new Tile(this.currentTile.tileX + 1, this.currentTile.tileY, this.currentTile.zoomLevel);
 		Tile uptmp = new Tile(this.currentTile.tileX, this.currentTile.tileY - 1, this.currentTile.zoomLevel);
@@ -883,50 +870,22 @@ class DependencyCache {
 			}
 		}
 
-		// removes all Reverence Points that intersects with Labels from the Dependency Cache
+		// removes all Reverence Points that intersects with objects from the grid or the Dependency Cache
 
-		int dis = 2;
 		if (this.currentDependencyOnTile != null) {
-			if (this.currentDependencyOnTile.labels != null) {
-				for (int i = 0; i < this.currentDependencyOnTile.labels.size(); i++) {
-					this.depLabel = this.currentDependencyOnTile.labels.get(i);
-					this.rect1 = new android.graphics.Rect((int) this.depLabel.point.pointX - dis,
-							(int) (this.depLabel.point.pointY - this.depLabel.value.boundary.height()) - dis,
-							(int) (this.depLabel.point.pointX + this.depLabel.value.boundary.width() + dis),
-							(int) (this.depLabel.point.pointY + dis));
-
-					for (int y = 0; y < refPos.length; y++) {
-						if (refPos[y] != null) {
-							this.rect2 = new android.graphics.Rect((int) refPos[y].x,
-									(int) (refPos[y].y - refPos[y].height), (int) (refPos[y].x + refPos[y].width),
-									(int) (refPos[y].y));
-
-							if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-								refPos[y] = null;
-							}
-						}
-					}
-				}
-			}
-			if (this.currentDependencyOnTile.symbols != null) {
-				for (Dependency<DependencySymbol> symbols2 : this.currentDependencyOnTile.symbols) {
-
-					this.rect1 = new android.graphics.Rect((int) symbols2.point.pointX, (int) (symbols2.point.pointY),
-							(int) (symbols2.point.pointX + symbols2.value.symbol.getWidth()),
-							(int) (symbols2.point.pointY + symbols2.value.symbol.getHeight()));
-
-					for (int y = 0; y < refPos.length; y++) {
-						if (refPos[y] != null) {
-							this.rect2 = new android.graphics.Rect((int) refPos[y].x,
-									(int) (refPos[y].y - refPos[y].height), (int) (refPos[y].x + refPos[y].width),
-									(int) (refPos[y].y));
-
-							if (android.graphics.Rect.intersects(this.rect2, this.rect1)) {
-								refPos[y] = null;
-							}
-						}
-					}
-				}
+			addDependencyLabelsToGrid(grid, 2);
+			addDependencySymbolsToGrid(grid, 0);
+		}
+
+		if (grid.isEmpty()) {
+			return;
+		}
+
+		for (int y = 0; y < refPos.length; y++) {
+			ref = refPos[y];
+			if (ref != null
+					&& grid.intersects((int) ref.x, (int) (ref.y - ref.height), (int) (ref.x + ref.width), (int) (ref.y))) {
+				refPos[y] = null;
 			}
 		}
 	}
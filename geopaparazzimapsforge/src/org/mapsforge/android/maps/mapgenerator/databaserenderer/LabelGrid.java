@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.mapgenerator.databaserenderer;
+
+import org.mapsforge.core.model.Tile;
+
+/**
+ * A uniform grid of occupied rectangles, used by the label placement to test a candidate only against the labels and
+ * symbols that are near to it. The grid covers the current tile and its eight neighbours, rectangles outside of this
+ * area are clamped to the border cells. Two rectangles collide with the same semantic as
+ * {@link android.graphics.Rect#intersects(android.graphics.Rect, android.graphics.Rect)}.
+ */
+class LabelGrid {
+	private static final int CELL_SIZE = 32;
+	private static final int GRID_MIN = -Tile.TILE_SIZE;
+	private static final int GRID_SIZE = 3 * Tile.TILE_SIZE / CELL_SIZE;
+	private static final int INITIAL_CELL_CAPACITY = 4;
+
+	private final int[][] cells;
+	private final int[] cellCounts;
+	private int rectangleCount;
+	private int[] rectangles;
+
+	LabelGrid() {
+		this.cells = new int[GRID_SIZE * GRID_SIZE][];
+		this.cellCounts = new int[GRID_SIZE * GRID_SIZE];
+		this.rectangles = new int[64 * 4];
+	}
+
+	private static int toCell(int coordinate) {
+		int cell = (coordinate - GRID_MIN) / CELL_SIZE;
+		if (cell < 0) {
+			return 0;
+		} else if (cell >= GRID_SIZE) {
+			return GRID_SIZE - 1;
+		}
+		return cell;
+	}
+
+	/**
+	 * Adds an occupied rectangle to the grid.
+	 * 
+	 * @param left
+	 *            the left edge of the rectangle.
+	 * @param top
+	 *            the top edge of the rectangle.
+	 * @param right
+	 *            the right edge of the rectangle.
+	 * @param bottom
+	 *            the bottom edge of the rectangle.
+	 */
+	void add(int left, int top, int right, int bottom) {
+		if ((this.rectangleCount + 1) * 4 > this.rectangles.length) {
+			int[] newRectangles = new int[this.rectangles.length * 2];
+			System.arraycopy(this.rectangles, 0, newRectangles, 0, this.rectangles.length);
+			this.rectangles = newRectangles;
+		}
+		int index = this.rectangleCount++;
+		int offset = index * 4;
+		this.rectangles[offset] = left;
+		this.rectangles[offset + 1] = top;
+		this.rectangles[offset + 2] = right;
+		this.rectangles[offset + 3] = bottom;
+
+		int minColumn = toCell(Math.min(left, right));
+		int maxColumn = toCell(Math.max(left, right));
+		int maxRow = toCell(Math.max(top, bottom));
+		for (int row = toCell(Math.min(top, bottom)); row <= maxRow; ++row) {
+			for (int column = minColumn; column <= maxColumn; ++column) {
+				int cell = row * GRID_SIZE + column;
+				int[] entries = this.cells[cell];
+				int count = this.cellCounts[cell];
+				if (entries == null) {
+					entries = new int[INITIAL_CELL_CAPACITY];
+					this.cells[cell] = entries;
+				} else if (count == entries.length) {
+					int[] newEntries = new int[entries.length * 2];
+					System.arraycopy(entries, 0, newEntries, 0, entries.length);
+					entries = newEntries;
+					this.cells[cell] = entries;
+				}
+				entries[count] = index;
+				this.cellCounts[cell] = count + 1;
+			}
+		}
+	}
+
+	/**
+	 * Removes all rectangles from the grid. The cell arrays are kept for the next tile.
+	 */
+	void clear() {
+		if (this.rectangleCount == 0) {
+			return;
+		}
+		for (int i = 0; i < this.cellCounts.length; ++i) {
+			this.cellCounts[i] = 0;
+		}
+		this.rectangleCount = 0;
+	}
+
+	/**
+	 * @param left
+	 *            the left edge of the rectangle.
+	 * @param top
+	 *            the top edge of the rectangle.
+	 * @param right
+	 *            the right edge of the rectangle.
+	 * @param bottom
+	 *            the bottom edge of the rectangle.
+	 * @return true if the given rectangle intersects any rectangle in the grid, false otherwise.
+	 */
+	boolean intersects(int left, int top, int right, int bottom) {
+		if (this.rectangleCount == 0) {
+			return false;
+		}
+
+		int minColumn = toCell(Math.min(left, right));
+		int maxColumn = toCell(Math.max(left, right));
+		int maxRow = toCell(Math.max(top, bottom));
+		for (int row = toCell(Math.min(top, bottom)); row <= maxRow; ++row) {
+			for (int column = minColumn; column <= maxColumn; ++column) {
+				int cell = row * GRID_SIZE + column;
+				int[] entries = this.cells[cell];
+				for (int i = this.cellCounts[cell] - 1; i >= 0; --i) {
+					int offset = entries[i] * 4;
+					if (left < this.rectangles[offset + 2] && this.rectangles[offset] < right
+							&& top < this.rectangles[offset + 3] && this.rectangles[offset + 1] < bottom) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the grid holds no rectangles, false otherwise.
+	 */
+	boolean isEmpty() {
+		return this.rectangleCount == 0;
+	}
+}
@@ -17,8 +17,8 @@ package org.mapsforge.android.maps.mapgenerator.databaserenderer;
 import android.graphics.Paint;
 
 class ShapePaintContainer {
-	final Paint paint;
-	final ShapeContainer shapeContainer;
+	Paint paint;
+	ShapeContainer shapeContainer;
 
 	ShapePaintContainer(ShapeContainer shapeContainer, Paint paint) {
 		this.shapeContainer = shapeContainer;
@@ -15,7 +15,7 @@
 package org.mapsforge.android.maps.mapgenerator.databaserenderer;
 
 class WayContainer implements ShapeContainer {
-	final float[][] coordinates;
+	float[][] coordinates;
 
 	WayContainer(float[][] coordinates) {
 		this.coordinates = coordinates;
@@ -20,7 +20,7 @@ import java.util.List;
 import org.mapsforge.core.model.Tag;
 
 class MultiValueMatcher implements AttributeMatcher {
-	private final List<String> values;
+	final List<String> values;
 
 	MultiValueMatcher(List<String> values) {
 		this.values = values;
@@ -17,9 +17,7 @@ package org.mapsforge.android.maps.rendertheme;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.mapsforge.android.maps.rendertheme.renderinstruction.RenderInstruction;
 import org.mapsforge.core.model.Tag;
-import org.mapsforge.core.util.LRUCache;
 import org.xml.sax.Attributes;
 
 import android.graphics.Color;
@@ -28,7 +26,6 @@ import android.graphics.Color;
  * A RenderTheme defines how ways and nodes are drawn.
  */
 public class RenderTheme {
-	private static final int MATCHING_CACHE_SIZE = 512;
 	private static final int RENDER_THEME_VERSION = 1;
 
 	private static void validate(String elementName, Integer version, float baseStrokeWidth, float baseTextSize) {
@@ -76,7 +73,7 @@ public class RenderTheme {
 	private final float baseTextSize;
 	private int levels;
 	private final int mapBackground;
-	private final LRUCache<MatchingCacheKey, List<RenderInstruction>> matchingCache;
+	private RuleIndex ruleIndex;
 	private final ArrayList<Rule> rulesList;
 
 	RenderTheme(int mapBackground, float baseStrokeWidth, float baseTextSize) {
@@ -84,14 +81,12 @@ public class RenderTheme {
 		this.baseStrokeWidth = baseStrokeWidth;
 		this.baseTextSize = baseTextSize;
 		this.rulesList = new ArrayList<>();
-		this.matchingCache = new LRUCache<>(MATCHING_CACHE_SIZE);
 	}
 
 	/**
 	 * Must be called when this RenderTheme gets destroyed to clean up and free resources.
 	 */
 	public void destroy() {
-		this.matchingCache.clear();
 		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
 			this.rulesList.get(i).onDestroy();
 		}
@@ -123,7 +118,7 @@ public class RenderTheme {
 	 *            the zoom level at which the way should be matched.
 	 */
 	public void matchClosedWay(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel) {
-		matchWay(renderCallback, tags, zoomLevel, Closed.YES);
+		this.ruleIndex.matchWay(renderCallback, tags, zoomLevel, Closed.YES);
 	}
 
 	/**
@@ -137,7 +132,7 @@ public class RenderTheme {
 	 *            the zoom level at which the way should be matched.
 	 */
 	public void matchLinearWay(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel) {
-		matchWay(renderCallback, tags, zoomLevel, Closed.NO);
+		this.ruleIndex.matchWay(renderCallback, tags, zoomLevel, Closed.NO);
 	}
 
 	/**
@@ -151,9 +146,7 @@ public class RenderTheme {
 	 *            the zoom level at which the node should be matched.
 	 */
 	public void matchNode(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel) {
-		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-			this.rulesList.get(i).matchNode(renderCallback, tags, zoomLevel);
-		}
+		this.ruleIndex.matchNode(renderCallback, tags, zoomLevel);
 	}
 
 	/**
@@ -180,27 +173,6 @@ public class RenderTheme {
 		}
 	}
 
-	private void matchWay(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel, Closed closed) {
-		MatchingCacheKey matchingCacheKey = new MatchingCacheKey(tags, zoomLevel, closed);
-
-		List<RenderInstruction> matchingList = this.matchingCache.get(matchingCacheKey);
-		if (matchingList != null) {
-			// cache hit
-			for (int i = 0, n = matchingList.size(); i < n; ++i) {
-				matchingList.get(i).renderWay(renderCallback, tags);
-			}
-			return;
-		}
-
-		// cache miss
-		matchingList = new ArrayList<>();
-		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-			this.rulesList.get(i).matchWay(renderCallback, tags, zoomLevel, closed, matchingList);
-		}
-
-		this.matchingCache.put(matchingCacheKey, matchingList);
-	}
-
 	void addRule(Rule rule) {
 		this.rulesList.add(rule);
 	}
@@ -210,6 +182,7 @@ public class RenderTheme {
 		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
 			this.rulesList.get(i).onComplete();
 		}
+		this.ruleIndex = new RuleIndex(this.rulesList);
 	}
 
 	void setLevels(int levels) {
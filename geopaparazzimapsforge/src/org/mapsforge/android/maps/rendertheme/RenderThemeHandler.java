@@ -50,9 +50,15 @@ public final class RenderThemeHandler extends DefaultHandler {
 	private static final String ELEMENT_NAME_RENDER_THEME = "rendertheme";
 	private static final String ELEMENT_NAME_RULE = "rule";
 	private static final Logger LOGGER = Logger.getLogger(RenderThemeHandler.class.getName());
+	/**
+	 * Serializes the parsing, the rules share static matcher caches while they are built.
+	 */
+	private static final Object PARSE_LOCK = new Object();
 	private static final String UNEXPECTED_ELEMENT = "unexpected element: ";
 
 	/**
+	 * Only one render theme is parsed at a time, so that renderers on different threads can call this.
+	 * 
 	 * @param jobTheme
 	 *            the JobTheme to create a RenderTheme from.
 	 * @return a new RenderTheme which is created by parsing the XML data from the input stream.
@@ -66,15 +72,20 @@ public final class RenderThemeHandler extends DefaultHandler {
 	public static RenderTheme getRenderTheme(JobTheme jobTheme) throws SAXException, ParserConfigurationException,
 			IOException {
 		RenderThemeHandler renderThemeHandler = new RenderThemeHandler(jobTheme.getRelativePathPrefix());
-		XMLReader xmlReader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+		// the handler works on the local names, which are only reported by namespace aware parsers
+		SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+		saxParserFactory.setNamespaceAware(true);
+		XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();
 		xmlReader.setContentHandler(renderThemeHandler);
 		InputStream inputStream = null;
-		try {
-			inputStream = jobTheme.getRenderThemeAsStream();
-			xmlReader.parse(new InputSource(inputStream));
-			return renderThemeHandler.renderTheme;
-		} finally {
-			IOUtils.closeQuietly(inputStream);
+		synchronized (PARSE_LOCK) {
+			try {
+				inputStream = jobTheme.getRenderThemeAsStream();
+				xmlReader.parse(new InputSource(inputStream));
+				return renderThemeHandler.renderTheme;
+			} finally {
+				IOUtils.closeQuietly(inputStream);
+			}
 		}
 	}
 
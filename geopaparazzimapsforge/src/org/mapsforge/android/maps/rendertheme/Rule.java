@@ -169,8 +169,8 @@ abstract class Rule {
 		return createRule(ruleStack, element, keys, values, closed, zoomMin, zoomMax);
 	}
 
-	private final ArrayList<RenderInstruction> renderInstructions;
-	private final ArrayList<Rule> subRules;
+	final ArrayList<RenderInstruction> renderInstructions;
+	final ArrayList<Rule> subRules;
 
 	final ClosedMatcher closedMatcher;
 	final ElementMatcher elementMatcher;
@@ -199,30 +199,6 @@ abstract class Rule {
 
 	abstract boolean matchesWay(List<Tag> tags, byte zoomLevel, Closed closed);
 
-	void matchNode(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel) {
-		if (matchesNode(tags, zoomLevel)) {
-			for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-				this.renderInstructions.get(i).renderNode(renderCallback, tags);
-			}
-			for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-				this.subRules.get(i).matchNode(renderCallback, tags, zoomLevel);
-			}
-		}
-	}
-
-	void matchWay(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel, Closed closed,
-			List<RenderInstruction> matchingList) {
-		if (matchesWay(tags, zoomLevel, closed)) {
-			for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-				this.renderInstructions.get(i).renderWay(renderCallback, tags);
-				matchingList.add(this.renderInstructions.get(i));
-			}
-			for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-				this.subRules.get(i).matchWay(renderCallback, tags, zoomLevel, closed, matchingList);
-			}
-		}
-	}
-
 	void onComplete() {
 		MATCHERS_CACHE_KEY.clear();
 		MATCHERS_CACHE_VALUE.clear();
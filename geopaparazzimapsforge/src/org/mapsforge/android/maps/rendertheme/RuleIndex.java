@@ -0,0 +1,314 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.android.maps.rendertheme;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.mapsforge.android.maps.rendertheme.renderinstruction.RenderInstruction;
+import org.mapsforge.core.model.Tag;
+
+/**
+ * A compiled form of the rule tree of a {@link RenderTheme}.
+ * <p>
+ * The rules are flattened in depth first order, so that every rule comes after its parent. Their conditions are
+ * indexed in bit sets with one bit per rule: one set per zoom level and element type for the element, closed and
+ * zoom conditions, one set per tag key and per tag value for the attribute conditions. Matching a list of tags is
+ * then a few lookups and bit operations, followed by a single pass over the candidate rules which keeps those whose
+ * parent matched too. The render instructions are called in the same order as a walk of the rule tree would.
+ * <p>
+ * Tags whose value is used by the theme are mapped to the ids of their key and value once per {@link Tag} instance.
+ * The tags of a map file header are shared instances, so after the first tiles their strings are not hashed any more.
+ * All other tags, like the name, house number or reference that are created for every element, are resolved on each
+ * match without being cached, so that they neither allocate nor push the shared tags out of the cache.
+ * <p>
+ * A RuleIndex is not thread safe, like the RenderTheme that owns it.
+ */
+final class RuleIndex {
+	private static final int NODE = 0;
+	private static final int WAY_CLOSED = 1;
+	private static final int WAY_LINEAR = 2;
+	private static final int TAG_CACHE_SIZE = 4096;
+	private static final int ZOOM_LEVELS = Byte.MAX_VALUE + 1;
+
+	private static void or(long[] target, long[] bits) {
+		for (int i = 0; i < target.length; ++i) {
+			target[i] |= bits[i];
+		}
+	}
+
+	private static void set(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private final long[] anyKeyRules;
+	private final long[] anyValueRules;
+	private final long[] candidates;
+	private final ElementMatcher[] elementMatchers;
+	private final ClosedMatcher[] closedMatchers;
+	private final RenderInstruction[][] instructions;
+	private final long[][] keyRules;
+	private final long[] keyHits;
+	private final HashMap<String, Integer> keyIds = new HashMap<>();
+	private final long[] matched;
+	private final long[][] negativeKeyRules;
+	private final long[] negativeKeyHits;
+	private final long[] negativeRules;
+	private final long[][] negativeValueRules;
+	private final long[] negativeValueHits;
+	private final int[] parents;
+	private final List<Rule> rules;
+	private final long[][][] staticRules = new long[3][ZOOM_LEVELS][];
+	private final IdentityHashMap<Tag, int[]> tagIds = new IdentityHashMap<>();
+	private final int[] uncachedTagIds = new int[2];
+	private final long[][] valueRules;
+	private final long[] valueHits;
+	private final HashMap<String, Integer> valueIds = new HashMap<>();
+	private final int words;
+
+	RuleIndex(List<Rule> rootRules) {
+		this.rules = new ArrayList<>();
+		List<Integer> parentList = new ArrayList<>();
+		for (int i = 0, n = rootRules.size(); i < n; ++i) {
+			flatten(rootRules.get(i), -1, parentList);
+		}
+
+		int size = this.rules.size();
+		this.words = (size + 63) >>> 6;
+		this.parents = new int[size];
+		this.instructions = new RenderInstruction[size][];
+		this.elementMatchers = new ElementMatcher[size];
+		this.closedMatchers = new ClosedMatcher[size];
+		for (int i = 0; i < size; ++i) {
+			Rule rule = this.rules.get(i);
+			this.parents[i] = parentList.get(i).intValue();
+			this.instructions[i] = rule.renderInstructions.toArray(new RenderInstruction[rule.renderInstructions.size()]);
+			this.elementMatchers[i] = rule.elementMatcher;
+			this.closedMatchers[i] = rule.closedMatcher;
+		}
+
+		// collect the keys and values used by the theme
+		for (int i = 0; i < size; ++i) {
+			Rule rule = this.rules.get(i);
+			if (rule instanceof PositiveRule) {
+				addIds(((PositiveRule) rule).keyMatcher, this.keyIds, true);
+				addIds(((PositiveRule) rule).valueMatcher, this.valueIds, false);
+			} else {
+				NegativeMatcher negativeMatcher = (NegativeMatcher) ((NegativeRule) rule).attributeMatcher;
+				addIds(negativeMatcher.keyList, this.keyIds);
+				addIds(negativeMatcher.valueList, this.valueIds);
+			}
+		}
+
+		this.anyKeyRules = new long[this.words];
+		this.anyValueRules = new long[this.words];
+		this.negativeRules = new long[this.words];
+		this.keyRules = new long[this.keyIds.size()][this.words];
+		this.valueRules = new long[this.valueIds.size()][this.words];
+		this.negativeKeyRules = new long[this.keyIds.size()][this.words];
+		this.negativeValueRules = new long[this.valueIds.size()][this.words];
+		for (int i = 0; i < size; ++i) {
+			Rule rule = this.rules.get(i);
+			if (rule instanceof PositiveRule) {
+				indexMatcher(((PositiveRule) rule).keyMatcher, i, this.keyIds, this.keyRules, this.anyKeyRules);
+				indexMatcher(((PositiveRule) rule).valueMatcher, i, this.valueIds, this.valueRules, this.anyValueRules);
+			} else {
+				set(this.negativeRules, i);
+				NegativeMatcher negativeMatcher = (NegativeMatcher) ((NegativeRule) rule).attributeMatcher;
+				indexStrings(negativeMatcher.keyList, i, this.keyIds, this.negativeKeyRules);
+				indexStrings(negativeMatcher.valueList, i, this.valueIds, this.negativeValueRules);
+			}
+		}
+
+		this.keyHits = new long[this.words];
+		this.valueHits = new long[this.words];
+		this.negativeKeyHits = new long[this.words];
+		this.negativeValueHits = new long[this.words];
+		this.candidates = new long[this.words];
+		this.matched = new long[this.words];
+	}
+
+	void matchNode(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel) {
+		match(renderCallback, tags, zoomLevel, NODE);
+	}
+
+	void matchWay(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel, Closed closed) {
+		match(renderCallback, tags, zoomLevel, closed == Closed.YES ? WAY_CLOSED : WAY_LINEAR);
+	}
+
+	private static void addIds(AttributeMatcher attributeMatcher, HashMap<String, Integer> ids, boolean isKey) {
+		if (attributeMatcher instanceof AnyMatcher) {
+			return;
+		} else if (isKey && attributeMatcher instanceof SingleKeyMatcher) {
+			addId(((SingleKeyMatcher) attributeMatcher).key, ids);
+		} else if (isKey && attributeMatcher instanceof MultiKeyMatcher) {
+			addIds(((MultiKeyMatcher) attributeMatcher).keys, ids);
+		} else if (!isKey && attributeMatcher instanceof SingleValueMatcher) {
+			addId(((SingleValueMatcher) attributeMatcher).value, ids);
+		} else if (!isKey && attributeMatcher instanceof MultiValueMatcher) {
+			addIds(((MultiValueMatcher) attributeMatcher).values, ids);
+		} else {
+			throw new IllegalArgumentException("unknown AttributeMatcher: " + attributeMatcher);
+		}
+	}
+
+	private static void addIds(List<String> strings, HashMap<String, Integer> ids) {
+		for (int i = 0, n = strings.size(); i < n; ++i) {
+			addId(strings.get(i), ids);
+		}
+	}
+
+	private static void addId(String string, HashMap<String, Integer> ids) {
+		if (!ids.containsKey(string)) {
+			ids.put(string, Integer.valueOf(ids.size()));
+		}
+	}
+
+	private void flatten(Rule rule, int parent, List<Integer> parentList) {
+		int index = this.rules.size();
+		this.rules.add(rule);
+		parentList.add(Integer.valueOf(parent));
+		for (int i = 0, n = rule.subRules.size(); i < n; ++i) {
+			flatten(rule.subRules.get(i), index, parentList);
+		}
+	}
+
+	/**
+	 * @return the rules whose element, closed and zoom conditions are met.
+	 */
+	private long[] getStaticRules(int type, byte zoomLevel) {
+		long[] bits = this.staticRules[type][zoomLevel];
+		if (bits == null) {
+			bits = new long[this.words];
+			for (int i = 0, n = this.rules.size(); i < n; ++i) {
+				Rule rule = this.rules.get(i);
+				if (rule.zoomMin > zoomLevel || rule.zoomMax < zoomLevel) {
+					continue;
+				}
+				boolean matches;
+				if (type == NODE) {
+					matches = this.elementMatchers[i].matches(Element.NODE);
+				} else {
+					matches = this.elementMatchers[i].matches(Element.WAY)
+							&& this.closedMatchers[i].matches(type == WAY_CLOSED ? Closed.YES : Closed.NO);
+				}
+				if (matches) {
+					set(bits, i);
+				}
+			}
+			this.staticRules[type][zoomLevel] = bits;
+		}
+		return bits;
+	}
+
+	private int[] getTagIds(Tag tag) {
+		int[] ids = this.tagIds.get(tag);
+		if (ids == null) {
+			Integer keyId = tag.key == null ? null : this.keyIds.get(tag.key);
+			Integer valueId = tag.value == null ? null : this.valueIds.get(tag.value);
+			if (valueId == null) {
+				// most likely a tag of a single element, the returned array is only valid until the next call
+				ids = this.uncachedTagIds;
+				ids[0] = keyId == null ? -1 : keyId.intValue();
+				ids[1] = -1;
+				return ids;
+			}
+			if (this.tagIds.size() >= TAG_CACHE_SIZE) {
+				// tags that are not shared instances, start over
+				this.tagIds.clear();
+			}
+			ids = new int[] { keyId == null ? -1 : keyId.intValue(), valueId.intValue() };
+			this.tagIds.put(tag, ids);
+		}
+		return ids;
+	}
+
+	private static void indexMatcher(AttributeMatcher attributeMatcher, int rule, HashMap<String, Integer> ids,
+			long[][] stringRules, long[] anyRules) {
+		if (attributeMatcher instanceof AnyMatcher) {
+			set(anyRules, rule);
+		} else if (attributeMatcher instanceof SingleKeyMatcher) {
+			set(stringRules[ids.get(((SingleKeyMatcher) attributeMatcher).key).intValue()], rule);
+		} else if (attributeMatcher instanceof MultiKeyMatcher) {
+			indexStrings(((MultiKeyMatcher) attributeMatcher).keys, rule, ids, stringRules);
+		} else if (attributeMatcher instanceof SingleValueMatcher) {
+			set(stringRules[ids.get(((SingleValueMatcher) attributeMatcher).value).intValue()], rule);
+		} else if (attributeMatcher instanceof MultiValueMatcher) {
+			indexStrings(((MultiValueMatcher) attributeMatcher).values, rule, ids, stringRules);
+		}
+	}
+
+	private static void indexStrings(List<String> strings, int rule, HashMap<String, Integer> ids, long[][] stringRules) {
+		for (int i = 0, n = strings.size(); i < n; ++i) {
+			set(stringRules[ids.get(strings.get(i)).intValue()], rule);
+		}
+	}
+
+	private void match(RenderCallback renderCallback, List<Tag> tags, byte zoomLevel, int type) {
+		if (zoomLevel < 0 || this.words == 0) {
+			return;
+		}
+		long[] staticBits = getStaticRules(type, zoomLevel);
+
+		for (int w = 0; w < this.words; ++w) {
+			this.keyHits[w] = 0;
+			this.valueHits[w] = 0;
+			this.negativeKeyHits[w] = 0;
+			this.negativeValueHits[w] = 0;
+			this.matched[w] = 0;
+		}
+		for (int i = 0, n = tags.size(); i < n; ++i) {
+			int[] ids = getTagIds(tags.get(i));
+			if (ids[0] >= 0) {
+				or(this.keyHits, this.keyRules[ids[0]]);
+				or(this.negativeKeyHits, this.negativeKeyRules[ids[0]]);
+			}
+			if (ids[1] >= 0) {
+				or(this.valueHits, this.valueRules[ids[1]]);
+				or(this.negativeValueHits, this.negativeValueRules[ids[1]]);
+			}
+		}
+
+		for (int w = 0; w < this.words; ++w) {
+			long positive = (this.keyHits[w] | this.anyKeyRules[w]) & (this.valueHits[w] | this.anyValueRules[w]);
+			long negative = this.negativeRules[w] & (~this.negativeKeyHits[w] | this.negativeValueHits[w]);
+			this.candidates[w] = staticBits[w] & (positive | negative);
+		}
+
+		// parents come before their children, so one pass in index order is enough
+		for (int w = 0; w < this.words; ++w) {
+			long bits = this.candidates[w];
+			while (bits != 0) {
+				int index = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				int parent = this.parents[index];
+				if (parent >= 0 && (this.matched[parent >>> 6] & (1L << parent)) == 0) {
+					continue;
+				}
+				this.matched[w] |= 1L << index;
+				RenderInstruction[] renderInstructions = this.instructions[index];
+				for (int j = 0; j < renderInstructions.length; ++j) {
+					if (type == NODE) {
+						renderInstructions[j].renderNode(renderCallback, tags);
+					} else {
+						renderInstructions[j].renderWay(renderCallback, tags);
+					}
+				}
+			}
+		}
+	}
+}
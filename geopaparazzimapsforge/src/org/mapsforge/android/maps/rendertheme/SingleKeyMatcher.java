@@ -21,7 +21,7 @@ import java.util.List;
 import org.mapsforge.core.model.Tag;
 
 class SingleKeyMatcher implements AttributeMatcher {
-	private final String key;
+	final String key;
 
 	SingleKeyMatcher(String key) {
 		this.key = key;
@@ -21,7 +21,7 @@ import java.util.List;
 import org.mapsforge.core.model.Tag;
 
 class SingleValueMatcher implements AttributeMatcher {
-	private final String value;
+	final String value;
 
 	SingleValueMatcher(String value) {
 		this.value = value;
@@ -199,15 +199,20 @@ public class MapDatabase {
 	private static final int WAY_NUMBER_OF_TAGS_BITMASK = 0x0f;
 
 	private IndexCache databaseIndexCache;
+	private final List<Tag> elementTags = new ArrayList<>();
 	private long fileSize;
 	private RandomAccessFile inputFile;
 	private MapFileHeader mapFileHeader;
 	private ReadBuffer readBuffer;
+	private MapReadCallback readCallback;
+	private MapReadResultBuilder readResultBuilder;
 	private String signatureBlock;
 	private String signaturePoi;
 	private String signatureWay;
 	private int tileLatitude;
 	private int tileLongitude;
+	private final WayNodesPool wayNodesPool = new WayNodesPool();
+	private int[][] zoomTable;
 
 	/**
 	 * Closes the map file and destroys all internal caches. Has no effect if no map file is currently opened.
@@ -307,25 +312,43 @@ public class MapDatabase {
 	 * @return the read map data.
 	 */
 	public MapReadResult readMapData(Tile tile) {
+		MapReadResultBuilder mapReadResultBuilder = new MapReadResultBuilder();
+		this.readResultBuilder = mapReadResultBuilder;
 		try {
-			prepareExecution();
-			QueryParameters queryParameters = new QueryParameters();
-			queryParameters.queryZoomLevel = this.mapFileHeader.getQueryZoomLevel(tile.zoomLevel);
-
-			// get and check the sub-file for the query zoom level
-			SubFileParameter subFileParameter = this.mapFileHeader.getSubFileParameter(queryParameters.queryZoomLevel);
-			if (subFileParameter == null) {
-				LOGGER.warning("no sub-file for zoom level: " + queryParameters.queryZoomLevel);
+			Boolean isWater = readBlocks(tile);
+			if (isWater == null) {
 				return null;
 			}
+			mapReadResultBuilder.isWater = isWater.booleanValue();
+			return mapReadResultBuilder.build();
+		} finally {
+			this.readResultBuilder = null;
+		}
+	}
 
-			QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
-			QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
-
-			return processBlocks(queryParameters, subFileParameter);
-		} catch (IOException e) {
-			LOGGER.log(Level.SEVERE, null, e);
-			return null;
+	/**
+	 * Reads all map data for the area covered by the given tile at the tile zoom level and passes every element to
+	 * the callback.
+	 * <p>
+	 * Unlike {@link #readMapData(Tile)} no objects are created for the read elements. The way nodes are decoded into
+	 * arrays which are reused by the next call of this method, so that rendering tile after tile allocates almost
+	 * nothing.
+	 * 
+	 * @param tile
+	 *            defines area and zoom level of read map data.
+	 * @param mapReadCallback
+	 *            the callback which receives the read elements.
+	 * @return true if the read area is completely covered by water, false otherwise.
+	 */
+	public boolean readMapData(Tile tile, MapReadCallback mapReadCallback) {
+		// the arrays handed out by the previous call are not in use anymore
+		this.wayNodesPool.recycle();
+		this.readCallback = mapReadCallback;
+		try {
+			Boolean isWater = readBlocks(tile);
+			return isWater != null && isWater.booleanValue();
+		} finally {
+			this.readCallback = null;
 		}
 	}
 
@@ -397,20 +420,32 @@ public class MapDatabase {
 		}
 	}
 
+	/**
+	 * @return an empty list for the tags of the next element. The list is reused if the elements are passed to a
+	 *         callback.
+	 */
+	private List<Tag> newElementTags() {
+		if (this.readCallback != null) {
+			this.elementTags.clear();
+			return this.elementTags;
+		}
+		return new ArrayList<>();
+	}
+
 	private void prepareExecution() {
 		if (this.databaseIndexCache == null) {
 			this.databaseIndexCache = new IndexCache(this.inputFile, INDEX_CACHE_SIZE);
 		}
 	}
 
-	private PoiWayBundle processBlock(QueryParameters queryParameters, SubFileParameter subFileParameter) {
+	private void processBlock(QueryParameters queryParameters, SubFileParameter subFileParameter) {
 		if (!processBlockSignature()) {
-			return null;
+			return;
 		}
 
 		int[][] zoomTable = readZoomTable(subFileParameter);
 		if (zoomTable == null) {
-			return null;
+			return;
 		}
 		int zoomTableRow = queryParameters.queryZoomLevel - subFileParameter.zoomLevelMin;
 		int poisOnQueryZoomLevel = zoomTable[zoomTableRow][0];
@@ -423,7 +458,7 @@ public class MapDatabase {
 			if (this.mapFileHeader.getMapFileInfo().debugFile) {
 				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
 			}
-			return null;
+			return;
 		}
 
 		// add the current buffer position to the relative first way offset
@@ -433,12 +468,11 @@ public class MapDatabase {
 			if (this.mapFileHeader.getMapFileInfo().debugFile) {
 				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
 			}
-			return null;
+			return;
 		}
 
-		List<PointOfInterest> pois = processPOIs(poisOnQueryZoomLevel);
-		if (pois == null) {
-			return null;
+		if (!processPOIs(poisOnQueryZoomLevel)) {
+			return;
 		}
 
 		// finished reading POIs, check if the current buffer position is valid
@@ -447,27 +481,50 @@ public class MapDatabase {
 			if (this.mapFileHeader.getMapFileInfo().debugFile) {
 				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
 			}
-			return null;
+			return;
 		}
 
 		// move the pointer to the first way
 		this.readBuffer.setBufferPosition(firstWayOffset);
 
-		List<Way> ways = processWays(queryParameters, waysOnQueryZoomLevel);
-		if (ways == null) {
+		processWays(queryParameters, waysOnQueryZoomLevel);
+	}
+
+	/**
+	 * Reads the blocks covering the given tile and passes their elements to the current callback or result builder.
+	 * 
+	 * @param tile
+	 *            defines area and zoom level of read map data.
+	 * @return if the read area is completely covered by water, or null if the tile could not be read.
+	 */
+	private Boolean readBlocks(Tile tile) {
+		try {
+			prepareExecution();
+			QueryParameters queryParameters = new QueryParameters();
+			queryParameters.queryZoomLevel = this.mapFileHeader.getQueryZoomLevel(tile.zoomLevel);
+
+			// get and check the sub-file for the query zoom level
+			SubFileParameter subFileParameter = this.mapFileHeader.getSubFileParameter(queryParameters.queryZoomLevel);
+			if (subFileParameter == null) {
+				LOGGER.warning("no sub-file for zoom level: " + queryParameters.queryZoomLevel);
+				return null;
+			}
+
+			QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
+			QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
+
+			return processBlocks(queryParameters, subFileParameter);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, null, e);
 			return null;
 		}
-
-		return new PoiWayBundle(pois, ways);
 	}
 
-	private MapReadResult processBlocks(QueryParameters queryParameters, SubFileParameter subFileParameter)
+	private Boolean processBlocks(QueryParameters queryParameters, SubFileParameter subFileParameter)
 			throws IOException {
 		boolean queryIsWater = true;
 		boolean queryReadWaterInfo = false;
 
-		MapReadResultBuilder mapReadResultBuilder = new MapReadResultBuilder();
-
 		// read and process all blocks from top to bottom and from left to right
 		for (long row = queryParameters.fromBlockY; row <= queryParameters.toBlockY; ++row) {
 			for (long column = queryParameters.fromBlockX; column <= queryParameters.toBlockX; ++column) {
@@ -545,8 +602,7 @@ public class MapDatabase {
 				this.tileLongitude = (int) (tileLongitudeDeg * 1000000);
 
 				try {
-					PoiWayBundle poiWayBundle = processBlock(queryParameters, subFileParameter);
-					mapReadResultBuilder.add(poiWayBundle);
+					processBlock(queryParameters, subFileParameter);
 				} catch (ArrayIndexOutOfBoundsException e) {
 					LOGGER.log(Level.SEVERE, null, e);
 				}
@@ -554,11 +610,7 @@ public class MapDatabase {
 		}
 
 		// the query is finished, was the water flag set for all blocks?
-		if (queryIsWater && queryReadWaterInfo) {
-			mapReadResultBuilder.isWater = true;
-		}
-
-		return mapReadResultBuilder.build();
+		return Boolean.valueOf(queryIsWater && queryReadWaterInfo);
 	}
 
 	/**
@@ -578,8 +630,7 @@ public class MapDatabase {
 		return true;
 	}
 
-	private List<PointOfInterest> processPOIs(int numberOfPois) {
-		List<PointOfInterest> pois = new ArrayList<>();
+	private boolean processPOIs(int numberOfPois) {
 		Tag[] poiTags = this.mapFileHeader.getMapFileInfo().poiTags;
 
 		for (int elementCounter = numberOfPois; elementCounter != 0; --elementCounter) {
@@ -589,7 +640,7 @@ public class MapDatabase {
 				if (!this.signaturePoi.startsWith("***POIStart")) {
 					LOGGER.warning("invalid POI signature: " + this.signaturePoi);
 					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-					return null;
+					return false;
 				}
 			}
 
@@ -607,7 +658,7 @@ public class MapDatabase {
 			// bit 5-8 represent the number of tag IDs
 			byte numberOfTags = (byte) (specialByte & POI_NUMBER_OF_TAGS_BITMASK);
 
-			List<Tag> tags = new ArrayList<>();
+			List<Tag> tags = newElementTags();
 
 			// get the tag IDs (VBE-U)
 			for (byte tagIndex = numberOfTags; tagIndex != 0; --tagIndex) {
@@ -618,7 +669,7 @@ public class MapDatabase {
 						LOGGER.warning(DEBUG_SIGNATURE_POI + this.signaturePoi);
 						LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
 					}
-					return null;
+					return false;
 				}
 				tags.add(poiTags[tagId]);
 			}
@@ -646,10 +697,15 @@ public class MapDatabase {
 				tags.add(new Tag(TAG_KEY_ELE, Integer.toString(this.readBuffer.readSignedInt())));
 			}
 
-			pois.add(new PointOfInterest(layer, tags, new GeoPoint(latitude, longitude)));
+			if (this.readCallback != null) {
+				this.readCallback.readPointOfInterest(layer, tags, latitude, longitude);
+			} else {
+				this.readResultBuilder.pointOfInterests.add(new PointOfInterest(layer, tags, new GeoPoint(latitude,
+						longitude)));
+			}
 		}
 
-		return pois;
+		return true;
 	}
 
 	private float[][] processWayDataBlock(boolean doubleDeltaEncoding) {
@@ -662,7 +718,8 @@ public class MapDatabase {
 		}
 
 		// create the array which will store the different way coordinate blocks
-		float[][] wayCoordinates = new float[numberOfWayCoordinateBlocks][];
+		float[][] wayCoordinates = this.readCallback != null ? this.wayNodesPool
+				.getBlocks(numberOfWayCoordinateBlocks) : new float[numberOfWayCoordinateBlocks][];
 
 		// read the way coordinate blocks
 		for (int coordinateBlock = 0; coordinateBlock < numberOfWayCoordinateBlocks; ++coordinateBlock) {
@@ -678,7 +735,8 @@ public class MapDatabase {
 			int wayNodesSequenceLength = numberOfWayNodes * 2;
 
 			// create the array which will store the current way segment
-			float[] waySegment = new float[wayNodesSequenceLength];
+			float[] waySegment = this.readCallback != null ? this.wayNodesPool.getSegment(wayNodesSequenceLength)
+					: new float[wayNodesSequenceLength];
 
 			if (doubleDeltaEncoding) {
 				decodeWayNodesDoubleDelta(waySegment);
@@ -692,8 +750,7 @@ public class MapDatabase {
 		return wayCoordinates;
 	}
 
-	private List<Way> processWays(QueryParameters queryParameters, int numberOfWays) {
-		List<Way> ways = new ArrayList<>();
+	private boolean processWays(QueryParameters queryParameters, int numberOfWays) {
 		Tag[] wayTags = this.mapFileHeader.getMapFileInfo().wayTags;
 
 		for (int elementCounter = numberOfWays; elementCounter != 0; --elementCounter) {
@@ -703,7 +760,7 @@ public class MapDatabase {
 				if (!this.signatureWay.startsWith("---WayStart")) {
 					LOGGER.warning("invalid way signature: " + this.signatureWay);
 					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-					return null;
+					return false;
 				}
 			}
 
@@ -714,7 +771,7 @@ public class MapDatabase {
 				if (this.mapFileHeader.getMapFileInfo().debugFile) {
 					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
 				}
-				return null;
+				return false;
 			}
 
 			if (queryParameters.useTileBitmask) {
@@ -739,14 +796,14 @@ public class MapDatabase {
 			// bit 5-8 represent the number of tag IDs
 			byte numberOfTags = (byte) (specialByte & WAY_NUMBER_OF_TAGS_BITMASK);
 
-			List<Tag> tags = new ArrayList<>();
+			List<Tag> tags = newElementTags();
 
 			for (byte tagIndex = numberOfTags; tagIndex != 0; --tagIndex) {
 				int tagId = this.readBuffer.readUnsignedInt();
 				if (tagId < 0 || tagId >= wayTags.length) {
 					LOGGER.warning("invalid way tag ID: " + tagId);
 					logDebugSignatures();
-					return null;
+					return false;
 				}
 				tags.add(wayTags[tagId]);
 			}
@@ -777,26 +834,37 @@ public class MapDatabase {
 				tags.add(new Tag(TAG_KEY_REF, this.readBuffer.readUTF8EncodedString()));
 			}
 
-			GeoPoint labelPosition = readOptionalLabelPosition(featureLabelPosition);
+			GeoPoint labelPosition = null;
+			if (this.readCallback == null) {
+				labelPosition = readOptionalLabelPosition(featureLabelPosition);
+			} else if (featureLabelPosition) {
+				// the callback does not use the label position, skip it (2 * VBE-S)
+				this.readBuffer.readSignedInt();
+				this.readBuffer.readSignedInt();
+			}
 
 			int wayDataBlocks = readOptionalWayDataBlocksByte(featureWayDataBlocksByte);
 			if (wayDataBlocks < 1) {
 				LOGGER.warning("invalid number of way data blocks: " + wayDataBlocks);
 				logDebugSignatures();
-				return null;
+				return false;
 			}
 
 			for (int wayDataBlock = 0; wayDataBlock < wayDataBlocks; ++wayDataBlock) {
 				float[][] wayNodes = processWayDataBlock(featureWayDoubleDeltaEncoding);
 				if (wayNodes == null) {
-					return null;
+					return false;
 				}
 
-				ways.add(new Way(layer, tags, wayNodes, labelPosition));
+				if (this.readCallback != null) {
+					this.readCallback.readWay(layer, tags, wayNodes);
+				} else {
+					this.readResultBuilder.ways.add(new Way(layer, tags, wayNodes, labelPosition));
+				}
 			}
 		}
 
-		return ways;
+		return true;
 	}
 
 	private GeoPoint readOptionalLabelPosition(boolean featureLabelPosition) {
@@ -828,7 +896,12 @@ public class MapDatabase {
 
 	private int[][] readZoomTable(SubFileParameter subFileParameter) {
 		int rows = subFileParameter.zoomLevelMax - subFileParameter.zoomLevelMin + 1;
-		int[][] zoomTable = new int[rows][2];
+		// the zoom table is only used while its block is processed, reuse it for the next block
+		int[][] zoomTable = this.zoomTable;
+		if (zoomTable == null || zoomTable.length != rows) {
+			zoomTable = new int[rows][2];
+			this.zoomTable = zoomTable;
+		}
 
 		int cumulatedNumberOfPois = 0;
 		int cumulatedNumberOfWays = 0;
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.util.List;
+
+import org.mapsforge.core.model.Tag;
+
+/**
+ * Callback methods which receive the map data read by {@link MapDatabase#readMapData(org.mapsforge.core.model.Tile, MapReadCallback)} element by
+ * element, without creating a {@link PointOfInterest} or {@link Way} for it.
+ * <p>
+ * The tag lists are reused for the next element and must not be kept. The way node arrays belong to the
+ * {@link MapDatabase}, they stay valid and may be modified until the next call of
+ * {@link MapDatabase#readMapData(org.mapsforge.core.model.Tile, MapReadCallback)}.
+ */
+public interface MapReadCallback {
+	/**
+	 * Receives a point of interest.
+	 * 
+	 * @param layer
+	 *            the layer of the POI + 5 (to avoid negative values).
+	 * @param tags
+	 *            the tags of the POI.
+	 * @param latitudeE6
+	 *            the latitude of the POI in microdegrees.
+	 * @param longitudeE6
+	 *            the longitude of the POI in microdegrees.
+	 */
+	void readPointOfInterest(byte layer, List<Tag> tags, int latitudeE6, int longitudeE6);
+
+	/**
+	 * Receives a way or area.
+	 * 
+	 * @param layer
+	 *            the layer of the way + 5 (to avoid negative values).
+	 * @param tags
+	 *            the tags of the way.
+	 * @param wayNodes
+	 *            the coordinates of the way nodes in microdegrees in the order longitude/latitude.
+	 */
+	void readWay(byte layer, List<Tag> tags, float[][] wayNodes);
+}
@@ -27,11 +27,6 @@ class MapReadResultBuilder {
 		this.ways = new ArrayList<>();
 	}
 
-	void add(PoiWayBundle poiWayBundle) {
-		this.pointOfInterests.addAll(poiWayBundle.pois);
-		this.ways.addAll(poiWayBundle.ways);
-	}
-
 	MapReadResult build() {
 		return new MapReadResult(this);
 	}
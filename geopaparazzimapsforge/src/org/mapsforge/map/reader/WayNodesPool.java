@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010, 2011, 2012 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+/**
+ * A pool of the arrays which store the decoded way nodes. Arrays are pooled by their exact length, so that they can be
+ * handed out without copying. All arrays taken since the last {@link #recycle()} are returned to the pool at once.
+ * <p>
+ * The memory held by the pool is bounded: arrays longer than {@link #MAX_SEGMENT_LENGTH} or {@link #MAX_BLOCKS} are
+ * not pooled at all, at most {@link #MAX_FREE_PER_LENGTH} arrays are kept per length and the free way segments hold at
+ * most {@link #MAX_FREE_SEGMENT_VALUES} values together. Arrays beyond these limits are left to the garbage collector.
+ */
+class WayNodesPool {
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The maximum number of way coordinate blocks of a pooled array.
+	 */
+	static final int MAX_BLOCKS = 32;
+
+	/**
+	 * The maximum number of free arrays kept for a single length.
+	 */
+	static final int MAX_FREE_PER_LENGTH = 256;
+
+	/**
+	 * The maximum number of values held by all free way segments together, one megabyte.
+	 */
+	static final int MAX_FREE_SEGMENT_VALUES = 1 << 18;
+
+	/**
+	 * The maximum length of a pooled way segment, two values per way node.
+	 */
+	static final int MAX_SEGMENT_LENGTH = 2048;
+
+	private static float[][] grow(float[][] array, int minimumLength) {
+		float[][] newArray = new float[Math.max(array.length * 2, minimumLength)][];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+
+	private static float[][][] grow(float[][][] array, int minimumLength) {
+		float[][][] newArray = new float[Math.max(array.length * 2, minimumLength)][][];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+
+	private final int[] freeBlockCounts;
+	private final float[][][][] freeBlocks;
+	private final int[] freeSegmentCounts;
+	private final float[][][] freeSegments;
+	private int freeSegmentValues;
+	private int usedBlockCount;
+	private float[][][] usedBlocks;
+	private int usedSegmentCount;
+	private float[][] usedSegments;
+
+	WayNodesPool() {
+		this.freeBlockCounts = new int[MAX_BLOCKS + 1];
+		this.freeBlocks = new float[MAX_BLOCKS + 1][][][];
+		this.freeSegmentCounts = new int[MAX_SEGMENT_LENGTH + 1];
+		this.freeSegments = new float[MAX_SEGMENT_LENGTH + 1][][];
+		this.usedBlocks = new float[INITIAL_CAPACITY][][];
+		this.usedSegments = new float[INITIAL_CAPACITY][];
+	}
+
+	/**
+	 * @param numberOfBlocks
+	 *            the number of way coordinate blocks.
+	 * @return an array for the way coordinate blocks, its elements have to be set by the caller.
+	 */
+	float[][] getBlocks(int numberOfBlocks) {
+		if (numberOfBlocks > MAX_BLOCKS) {
+			return new float[numberOfBlocks][];
+		}
+
+		float[][] blocks;
+		if (this.freeBlockCounts[numberOfBlocks] > 0) {
+			blocks = this.freeBlocks[numberOfBlocks][--this.freeBlockCounts[numberOfBlocks]];
+			this.freeBlocks[numberOfBlocks][this.freeBlockCounts[numberOfBlocks]] = null;
+		} else {
+			blocks = new float[numberOfBlocks][];
+		}
+
+		if (this.usedBlockCount == this.usedBlocks.length) {
+			this.usedBlocks = grow(this.usedBlocks, this.usedBlockCount + 1);
+		}
+		this.usedBlocks[this.usedBlockCount++] = blocks;
+		return blocks;
+	}
+
+	/**
+	 * @param length
+	 *            the length of the way segment, two values per way node.
+	 * @return an array for the way segment.
+	 */
+	float[] getSegment(int length) {
+		if (length > MAX_SEGMENT_LENGTH) {
+			return new float[length];
+		}
+
+		float[] segment;
+		if (this.freeSegmentCounts[length] > 0) {
+			segment = this.freeSegments[length][--this.freeSegmentCounts[length]];
+			this.freeSegments[length][this.freeSegmentCounts[length]] = null;
+			this.freeSegmentValues -= length;
+		} else {
+			segment = new float[length];
+		}
+
+		if (this.usedSegmentCount == this.usedSegments.length) {
+			this.usedSegments = grow(this.usedSegments, this.usedSegmentCount + 1);
+		}
+		this.usedSegments[this.usedSegmentCount++] = segment;
+		return segment;
+	}
+
+	/**
+	 * Returns all arrays taken since the last call to the pool. They must not be used by anybody anymore.
+	 */
+	void recycle() {
+		for (int i = 0; i < this.usedSegmentCount; ++i) {
+			float[] segment = this.usedSegments[i];
+			this.usedSegments[i] = null;
+			int length = segment.length;
+			int count = this.freeSegmentCounts[length];
+			if (count == MAX_FREE_PER_LENGTH || this.freeSegmentValues + length > MAX_FREE_SEGMENT_VALUES) {
+				continue;
+			}
+			float[][] free = this.freeSegments[length];
+			if (free == null) {
+				free = new float[INITIAL_CAPACITY][];
+				this.freeSegments[length] = free;
+			} else if (count == free.length) {
+				free = grow(free, count + 1);
+				this.freeSegments[length] = free;
+			}
+			free[count] = segment;
+			this.freeSegmentCounts[length] = count + 1;
+			this.freeSegmentValues += length;
+		}
+		this.usedSegmentCount = 0;
+
+		for (int i = 0; i < this.usedBlockCount; ++i) {
+			float[][] blocks = this.usedBlocks[i];
+			this.usedBlocks[i] = null;
+			int length = blocks.length;
+			// the blocks still reference the way segments of the last query
+			for (int j = 0; j < length; ++j) {
+				blocks[j] = null;
+			}
+			int count = this.freeBlockCounts[length];
+			if (count == MAX_FREE_PER_LENGTH) {
+				continue;
+			}
+			float[][][] free = this.freeBlocks[length];
+			if (free == null) {
+				free = new float[INITIAL_CAPACITY][][];
+				this.freeBlocks[length] = free;
+			} else if (count == free.length) {
+				free = grow(free, count + 1);
+				this.freeBlocks[length] = free;
+			}
+			free[count] = blocks;
+			this.freeBlockCounts[length] = count + 1;
+		}
+		this.usedBlockCount = 0;
+	}
+}
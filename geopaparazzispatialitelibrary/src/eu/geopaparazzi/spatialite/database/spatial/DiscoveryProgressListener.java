@@ -0,0 +1,81 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.spatialite.database.spatial;
+
+import java.io.File;
+
+import eu.geopaparazzi.library.util.StringAsyncTask;
+
+/**
+ * A {@link SourcesDiscovery.DiscoveryListener} that shows the progress of a discovery
+ * in the progress dialog of a {@link StringAsyncTask}.
+ * <p>
+ * <p>The dialog shows the number of inspected files and, once available, the first file that
+ * can be used.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class DiscoveryProgressListener implements SourcesDiscovery.DiscoveryListener {
+
+    private final StringAsyncTask task;
+    private final String message;
+    private final String firstReadyFormat;
+    private String firstReadyName;
+    private int done;
+    private int total;
+
+    /**
+     * Constructor.
+     *
+     * @param task             the task showing the progress dialog.
+     * @param message          the base message of the dialog.
+     * @param firstReadyFormat the format of the line of the first usable file, with the file name as argument.
+     */
+    public DiscoveryProgressListener(StringAsyncTask task, String message, String firstReadyFormat) {
+        this.task = task;
+        this.message = message;
+        this.firstReadyFormat = firstReadyFormat;
+    }
+
+    @Override
+    public synchronized void onSourceCatalogued(File file, int done, int total) {
+        // the files are inspected in parallel, so the notifications can come out of order
+        if (done > this.done) {
+            this.done = done;
+            this.total = total;
+            updateMessage();
+        }
+    }
+
+    @Override
+    public synchronized void onFirstMapReady(File file) {
+        firstReadyName = file.getName();
+        updateMessage();
+    }
+
+    private void updateMessage() {
+        StringBuilder sb = new StringBuilder(message);
+        if (total > 0) {
+            sb.append(" ").append(done).append("/").append(total);
+        }
+        if (firstReadyName != null) {
+            sb.append("\n").append(String.format(firstReadyFormat, firstReadyName));
+        }
+        task.setProgressMessage(sb.toString());
+    }
+}
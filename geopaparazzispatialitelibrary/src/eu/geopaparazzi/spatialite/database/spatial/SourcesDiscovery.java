@@ -0,0 +1,189 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.geopaparazzi.spatialite.database.spatial;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eu.geopaparazzi.library.database.GPLog;
+
+/**
+ * Discovery of map sources on a bounded background executor.
+ * <p>
+ * <p>Every file is inspected by its own task, so each task has to open its own
+ * connection to the database it reads. The results are given back in the order of
+ * the files, so that the managers merge them as they did when reading serially.</p>
+ * <p>
+ * <p>Do not call {@link #collect(List, Collector, DiscoveryListener)} from inside a
+ * collector, the pool is bounded.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class SourcesDiscovery {
+
+    /**
+     * The maximum number of files inspected at the same time.
+     */
+    public static final int MAX_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static ExecutorService executor;
+
+    /**
+     * Reads the content of a single source file.
+     *
+     * @param <T> the type of the result.
+     */
+    public interface Collector<T> {
+        /**
+         * Inspect a file.
+         *
+         * @param file the file to inspect.
+         * @return the result or <code>null</code> if the file contains nothing usable.
+         * @throws java.lang.Exception if something goes wrong.
+         */
+        T collect(File file) throws java.lang.Exception;
+    }
+
+    /**
+     * Listener for the progress of a discovery.
+     * <p>
+     * <p>The methods are called from the executor threads.</p>
+     */
+    public interface DiscoveryListener {
+        /**
+         * Called every time a file has been inspected.
+         *
+         * @param file  the inspected file.
+         * @param done  the number of inspected files.
+         * @param total the number of files to inspect.
+         */
+        void onSourceCatalogued(File file, int done, int total);
+
+        /**
+         * Called once, when the first file that contains something usable has been inspected.
+         *
+         * @param file the file.
+         */
+        void onFirstMapReady(File file);
+    }
+
+    /**
+     * @return the shared executor of the discovery tasks.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(MAX_THREADS, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sources-discovery-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Inspect a list of files in parallel and wait for all of them.
+     *
+     * @param files     the files to inspect. Files are submitted in the given order.
+     * @param collector the collector to run on each file.
+     * @param listener  an optional listener for the progress.
+     * @param <T>       the type of the results.
+     * @return the results in the order of the files. Files that failed or contained nothing usable
+     * have a <code>null</code> result.
+     */
+    public static <T> List<T> collect(final List<File> files, final Collector<T> collector, final DiscoveryListener listener) {
+        final int total = files.size();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicBoolean firstReady = new AtomicBoolean();
+
+        List<Callable<T>> tasks = new ArrayList<>(total);
+        for (final File file : files) {
+            tasks.add(new Callable<T>() {
+                @Override
+                public T call() {
+                    T result = null;
+                    try {
+                        result = collector.collect(file);
+                    } catch (java.lang.Exception e) {
+                        GPLog.error("SourcesDiscovery", "Error reading source: " + file, e);
+                    }
+                    if (listener != null) {
+                        if (result != null && firstReady.compareAndSet(false, true)) {
+                            listener.onFirstMapReady(file);
+                        }
+                        listener.onSourceCatalogued(file, done.incrementAndGet(), total);
+                    }
+                    return result;
+                }
+            });
+        }
+
+        List<T> results = new ArrayList<>(total);
+        if (total == 1) {
+            // no need to switch thread for a single file
+            try {
+                results.add(tasks.get(0).call());
+            } catch (java.lang.Exception e) {
+                results.add(null);
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(total);
+        for (Callable<T> task : tasks) {
+            futures.add(getExecutor().submit(task));
+        }
+        boolean interrupted = false;
+        for (Future<T> future : futures) {
+            T result = null;
+            while (true) {
+                try {
+                    result = future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the sources are needed anyway, finish and restore the flag
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    GPLog.error("SourcesDiscovery", null, e);
+                    break;
+                }
+            }
+            results.add(result);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return results;
+    }
+}
@@ -44,6 +44,7 @@ import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
 import eu.geopaparazzi.library.util.types.ESpatialDataSources;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.VectorLayerQueryModes;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.AbstractSpatialTable;
+import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialTablesCatalogue;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import eu.geopaparazzi.spatialite.database.spatial.util.SpatialiteLibraryConstants;
 import jsqlite.Exception;
@@ -64,6 +65,30 @@ public enum SpatialiteSourcesManager {
 
     private boolean mReReadBasemaps = true;
 
+    private SourcesDiscovery.DiscoveryListener mDiscoveryListener;
+
+    /**
+     * The tables of a database, as read by a discovery task.
+     */
+    private static class DatabaseTables {
+        SpatialiteDatabaseHandler handler;
+        List<SpatialVectorTable> tables;
+    }
+
+    private final SourcesDiscovery.Collector<DatabaseTables> databaseTablesCollector = new SourcesDiscovery.Collector<DatabaseTables>() {
+        @Override
+        public DatabaseTables collect(File file) throws java.lang.Exception {
+            SpatialiteDatabaseHandler sdbHandler = getDatabaseHandlerForFile(file);
+            if (sdbHandler == null) {
+                return null;
+            }
+            DatabaseTables databaseTables = new DatabaseTables();
+            databaseTables.handler = sdbHandler;
+            databaseTables.tables = sdbHandler.getSpatialVectorTables(false);
+            return databaseTables;
+        }
+    };
+
     SpatialiteSourcesManager() {
         try {
             GPApplication gpApplication = GPApplication.getInstance();
@@ -110,6 +135,15 @@ public enum SpatialiteSourcesManager {
         mReReadBasemaps = true;
     }
 
+    /**
+     * Set a listener for the progress of the reading of the databases.
+     *
+     * @param discoveryListener the listener or <code>null</code>.
+     */
+    public void setDiscoveryListener(SourcesDiscovery.DiscoveryListener discoveryListener) {
+        mDiscoveryListener = discoveryListener;
+    }
+
 
     /**
      * Reads the maps from preferences and extracts the tables necessary.
@@ -128,9 +162,14 @@ public enum SpatialiteSourcesManager {
             if (mSpatialiteMaps != null)
                 mSpatialiteMaps.clear();
             List<String> dbPaths = ProfilesHandler.INSTANCE.getActiveProfile().spatialiteList;
+            List<File> files = new ArrayList<>();
             for (String path : dbPaths) {
                 File file = new File(path);
-                if (file.exists()) collectTablesFromFile(file);
+                if (file.exists()) files.add(file);
+            }
+            List<DatabaseTables> databaseTablesList = SourcesDiscovery.collect(files, databaseTablesCollector, mDiscoveryListener);
+            for (DatabaseTables databaseTables : databaseTablesList) {
+                if (databaseTables != null) addTables(databaseTables);
             }
             spatialiteMaps = new ArrayList<>();
             if (mSpatialiteMaps != null)
@@ -138,6 +177,7 @@ public enum SpatialiteSourcesManager {
         }
 
         connectSpatialiteMaps(spatialiteMaps);
+        SpatialTablesCatalogue.INSTANCE.save();
     }
 
     private void clearHandlers() {
@@ -193,6 +233,7 @@ public enum SpatialiteSourcesManager {
         boolean foundSpatialiteMap = false;
         try {
             foundSpatialiteMap = collectTablesFromFile(file);
+            SpatialTablesCatalogue.INSTANCE.save();
             saveSpatialiteMapsToPreferences(mSpatialiteMaps);
         } catch (java.lang.Exception e) {
             GPLog.error(this, null, e);
@@ -250,25 +291,34 @@ public enum SpatialiteSourcesManager {
      * @throws Exception
      */
     private boolean collectTablesFromFile(File file) throws java.lang.Exception {
+        DatabaseTables databaseTables = databaseTablesCollector.collect(file);
+        return databaseTables != null && addTables(databaseTables);
+    }
+
+    /**
+     * Adds the tables read from a database to the current list/maps of tables.
+     *
+     * @param databaseTables the tables and handler of the database.
+     * @return true is at leats one supported table was found.
+     * @throws Exception
+     */
+    private boolean addTables(DatabaseTables databaseTables) throws Exception {
         if (mSpatialiteMaps == null) mSpatialiteMaps = new ArrayList<>();
         /*
          * SPATIALITE TABLES
          */
         boolean foundTables = false;
-        SpatialiteDatabaseHandler sdbHandler = getDatabaseHandlerForFile(file);
-        if (sdbHandler != null) {
-            List<SpatialVectorTable> tables = sdbHandler.getSpatialVectorTables(false);
-            for (SpatialVectorTable table : tables) {
-                SpatialiteMap tmpSpatialiteMap = table2BaseMap(table);
-                if (!mSpatialiteMaps2TablesMap.containsKey(tmpSpatialiteMap)) {
-                    mSpatialiteMaps.add(tmpSpatialiteMap);
-                    mSpatialiteMaps2TablesMap.put(tmpSpatialiteMap, table);
-                    mSpatialiteMaps2DbHandlersMap.put(tmpSpatialiteMap, sdbHandler);
-                    foundTables = true;
-                }
+        SpatialiteDatabaseHandler sdbHandler = databaseTables.handler;
+        for (SpatialVectorTable table : databaseTables.tables) {
+            SpatialiteMap tmpSpatialiteMap = table2BaseMap(table);
+            if (!mSpatialiteMaps2TablesMap.containsKey(tmpSpatialiteMap)) {
+                mSpatialiteMaps.add(tmpSpatialiteMap);
+                mSpatialiteMaps2TablesMap.put(tmpSpatialiteMap, table);
+                mSpatialiteMaps2DbHandlersMap.put(tmpSpatialiteMap, sdbHandler);
+                foundTables = true;
             }
         }
-        if (!foundTables && sdbHandler != null) {
+        if (!foundTables) {
             // close this unused db connection
             sdbHandler.close();
         }
@@ -302,13 +352,21 @@ public enum SpatialiteSourcesManager {
          */
         boolean foundTables = false;
 
-        for (Map.Entry<String, HashMap<String, SpatialiteMap>> entry : db2Title2Maps.entrySet()) {
-            SpatialiteDatabaseHandler sdbHandler = getDatabaseHandlerForFile(new File(entry.getKey()));
-            if (sdbHandler != null) {
-                HashMap<String, SpatialiteMap> maps = entry.getValue();
-
-                List<SpatialVectorTable> tables = sdbHandler.getSpatialVectorTables(false);
-                for (SpatialVectorTable table : tables) {
+        List<String> databasePaths = new ArrayList<>(db2Title2Maps.keySet());
+        List<File> files = new ArrayList<>();
+        for (String databasePath : databasePaths) {
+            files.add(new File(databasePath));
+        }
+        // each database is opened and read on its own connection
+        List<DatabaseTables> databaseTablesList = SourcesDiscovery.collect(files, databaseTablesCollector, mDiscoveryListener);
+        for (int i = 0; i < files.size(); i++) {
+            DatabaseTables databaseTables = databaseTablesList.get(i);
+            if (databaseTables != null) {
+                SpatialiteDatabaseHandler sdbHandler = databaseTables.handler;
+                HashMap<String, SpatialiteMap> maps = db2Title2Maps.get(databasePaths.get(i));
+
+                boolean usedHandler = false;
+                for (SpatialVectorTable table : databaseTables.tables) {
                     String tableTitle = table.getTitle();
                     SpatialiteMap spatialiteMap = maps.get(tableTitle);
                     if (spatialiteMap != null && !mSpatialiteMaps2TablesMap.containsKey(spatialiteMap)) {
@@ -316,9 +374,13 @@ public enum SpatialiteSourcesManager {
                         mSpatialiteMaps2TablesMap.put(spatialiteMap, table);
                         mSpatialiteMaps2DbHandlersMap.put(spatialiteMap, sdbHandler);
                         foundTables = true;
+                        usedHandler = true;
                     }
                 }
-
+                if (!usedHandler) {
+                    // close this unused db connection
+                    sdbHandler.close();
+                }
             }
         }
 
@@ -326,7 +388,11 @@ public enum SpatialiteSourcesManager {
     }
 
     /**
-     * Create a vector handler for the given file by connecting to the database.
+     * Create a vector handler for the given file.
+     * <p>
+     * <p>If the tables of the database are in the {@link SpatialTablesCatalogue} and the file has not
+     * changed, the handler is created from there and connects to the database only when first used.
+     * Otherwise the database is opened and inspected.</p>
      *
      * @param file the file.
      * @return the handler or null if the file is not supported.
@@ -340,6 +406,13 @@ public enum SpatialiteSourcesManager {
                 }
                 String extension = spatialiteType.getExtension();
                 if (name.endsWith(extension)) {
+                    SpatialTablesCatalogue.Entry entry = SpatialTablesCatalogue.INSTANCE.get(file);
+                    if (entry != null) {
+                        SpatialiteDatabaseHandler sdb = SpatialiteDatabaseHandler.fromCatalogue(file.getAbsolutePath(), entry);
+                        if (sdb != null) {
+                            return sdb;
+                        }
+                    }
                     SpatialiteDatabaseHandler sdb = new SpatialiteDatabaseHandler(file.getAbsolutePath());
                     if (sdb.isValid()) {
                         return sdb;
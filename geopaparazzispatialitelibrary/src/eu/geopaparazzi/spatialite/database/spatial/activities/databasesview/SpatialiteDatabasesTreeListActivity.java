@@ -63,6 +63,7 @@ import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.library.util.Utilities;
 import eu.geopaparazzi.library.util.types.ESpatialDataSources;
 import eu.geopaparazzi.spatialite.R;
+import eu.geopaparazzi.spatialite.database.spatial.DiscoveryProgressListener;
 import eu.geopaparazzi.spatialite.database.spatial.SpatialiteSourcesManager;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.TableTypes;
 
@@ -139,7 +140,13 @@ public class SpatialiteDatabasesTreeListActivity extends AppCompatActivity imple
             List<SpatialiteMap> spatialiteMaps;
 
             protected String doBackgroundWork() {
-                spatialiteMaps = SpatialiteSourcesManager.INSTANCE.getSpatialiteMaps();
+                SpatialiteSourcesManager.INSTANCE.setDiscoveryListener(new DiscoveryProgressListener(this,
+                        getString(R.string.loading_databases), getString(R.string.first_source_ready)));
+                try {
+                    spatialiteMaps = SpatialiteSourcesManager.INSTANCE.getSpatialiteMaps();
+                } finally {
+                    SpatialiteSourcesManager.INSTANCE.setDiscoveryListener(null);
+                }
                 return "";
             }
 
@@ -29,6 +29,7 @@ import eu.geopaparazzi.library.features.Feature;
 import eu.geopaparazzi.library.util.types.EDataType;
 import eu.geopaparazzi.spatialite.database.spatial.SpatialiteSourcesManager;
 import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.SpatialiteDatabaseHandler;
+import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.StatementPool;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import eu.geopaparazzi.spatialite.database.spatial.util.SpatialiteUtilities;
@@ -405,7 +406,6 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
     public static void updateFeatureGeometry(String id, Geometry geometry, String geometrySrid, SpatialVectorTable spatialVectorTable)
             throws Exception {
         SpatialiteDatabaseHandler databaseHandler = SpatialiteSourcesManager.INSTANCE.getExistingDatabaseHandlerByTable(spatialVectorTable);
-        Database database = databaseHandler.getDatabase();
         String tableName = spatialVectorTable.getTableName();
         String geometryFieldName = spatialVectorTable.getGeomName();
         String srid = spatialVectorTable.getSrid();
@@ -433,9 +433,7 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
             sbIn.append(spaceDimensionsCast).append("(");
         if (geometryTypeCast != null)
             sbIn.append(geometryTypeCast).append("(");
-        sbIn.append("GeomFromText('");
-        sbIn.append(geometry.toText());
-        sbIn.append("' , ");
+        sbIn.append("GeomFromText(? , ");
         sbIn.append(geometrySrid);
         sbIn.append(")");
         if (geometryTypeCast != null)
@@ -451,10 +449,17 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
         }
         sbIn.append("");
         sbIn.append(" where ");
-        sbIn.append(SpatialiteUtilities.SPATIALTABLE_ID_FIELD).append("=");
-        sbIn.append(id);
-        String insertQuery = sbIn.toString();
-        database.exec(insertQuery, null);
+        sbIn.append(SpatialiteUtilities.SPATIALTABLE_ID_FIELD).append("=?");
+        String updateQuery = sbIn.toString();
+        StatementPool statementPool = databaseHandler.getStatementPool();
+        Stmt statement = statementPool.acquire(updateQuery);
+        try {
+            statement.bind(1, geometry.toText());
+            statement.bind(2, Long.parseLong(id));
+            statement.step();
+        } finally {
+            statementPool.release(updateQuery, statement);
+        }
     }
 
     /**
@@ -469,6 +474,7 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
     public static double[] getAreaAndLengthById(String id, SpatialVectorTable spatialVectorTable) throws Exception {
         SpatialiteDatabaseHandler databaseHandler = SpatialiteSourcesManager.INSTANCE.getExistingDatabaseHandlerByTable(spatialVectorTable);
         Database database = databaseHandler.getDatabase();
+        StatementPool statementPool = databaseHandler.getStatementPool();
         String tableName = spatialVectorTable.getTableName();
         String geomName = spatialVectorTable.getGeomName();
 
@@ -478,12 +484,13 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
         sbIn.append("Length(").append(geomName).append(")");
         sbIn.append(" from \"").append(tableName);
         sbIn.append("\" where ");
-        sbIn.append(SpatialiteUtilities.SPATIALTABLE_ID_FIELD).append(" = ").append(id);
+        sbIn.append(SpatialiteUtilities.SPATIALTABLE_ID_FIELD).append(" = ?");
 
         String selectQuery = sbIn.toString();
         Stmt statement = null;
         try {
-            statement = database.prepare(selectQuery);
+            statement = statementPool.acquire(selectQuery);
+            statement.bind(1, Long.parseLong(id));
             if (statement.step()) {
                 double area = statement.column_double(0);
                 double length = statement.column_double(1);
@@ -497,7 +504,7 @@ public class DaoSpatialite implements ISpatialiteTableAndFieldsNames {
             );
         } finally {
             if (statement != null) {
-                statement.close();
+                statementPool.release(selectQuery, statement);
             }
         }
         return null;
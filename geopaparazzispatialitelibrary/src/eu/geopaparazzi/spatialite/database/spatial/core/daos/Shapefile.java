@@ -23,11 +23,14 @@ import android.content.Context;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.util.FileUtilities;
+import eu.geopaparazzi.spatialite.database.spatial.SourcesDiscovery;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.SpatialiteVersion;
 import jsqlite.Database;
@@ -262,11 +265,28 @@ public class Shapefile {
      * - each Shape-Table must have a '.shp','.prj','.shx' and '.dbf'<br>
      * - the name with extension is the Table-Name<br>
      *
+     * <p>The databases of the found shapefile folders are created in parallel, each on its own connection.
+     *
      * @param context 'this' of Application Activity class
      * @param mapsDir Directory to search [ResourcesManager.getInstance(this).getMapsDir();]
      * @return shapes_list: a {@link HashMap} that maps the prj file to the parent folder file.
      */
     public static HashMap<File, File> findShapefilePrjFiles(Context context, File mapsDir) {
+        final HashMap<File, HashMap<File, File>> folder2ShapesMap = new HashMap<File, HashMap<File, File>>();
+        HashMap<File, File> shapes_list = findShapefilePrjFiles(mapsDir, folder2ShapesMap);
+        if (folder2ShapesMap.size() > 0) {
+            SourcesDiscovery.collect(new ArrayList<File>(folder2ShapesMap.keySet()), new SourcesDiscovery.Collector<File>() {
+                @Override
+                public File collect(File folder) {
+                    createDbForShapefile(folder2ShapesMap.get(folder));
+                    return folder;
+                }
+            }, null);
+        }
+        return shapes_list;
+    }
+
+    private static HashMap<File, File> findShapefilePrjFiles(File mapsDir, HashMap<File, HashMap<File, File>> folder2ShapesMap) {
         File[] list_files = mapsDir.listFiles(new FilenameFilter() {
             public boolean accept(File dir, String filename) {
                 return filename.endsWith(PRJ_EXTENSION);
@@ -278,14 +298,13 @@ public class Shapefile {
         for (File this_file : list_files) {
             if (this_file.isDirectory()) {
                 // read recursive directories inside the sdcard/maps directory
-                shapes_list = findShapefilePrjFiles(context, this_file);
+                shapes_list = findShapefilePrjFiles(this_file, folder2ShapesMap);
                 if (shapes_list.size() > 0) {
-                    // shape file Directory has been found: do something
-                    // with it
+                    // shape file Directory has been found: its database is created later
                     // GPLog.androidLog(-1,"SpatialiteUtilities find_shapes["
                     // + this_file.getAbsolutePath() + "] shapes[" +
                     // shapes_list.size() + "]");
-                    createDbForShapefile(shapes_list);
+                    folder2ShapesMap.put(this_file, shapes_list);
                 }
             } else {
                 // store each prj file and the directory found
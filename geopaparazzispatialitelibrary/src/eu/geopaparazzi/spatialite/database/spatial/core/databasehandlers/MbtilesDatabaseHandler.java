@@ -32,6 +32,7 @@ import java.util.Map;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.AbstractSpatialTable;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialRasterTable;
+import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialTablesCatalogue;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import eu.geopaparazzi.spatialite.database.spatial.core.mbtiles.MBTilesDroidSpitter;
 import eu.geopaparazzi.spatialite.database.spatial.core.mbtiles.MBtilesAsync;
@@ -164,6 +165,7 @@ public class MbtilesDatabaseHandler extends AbstractSpatialDatabaseHandler {
             // table.setDescription(getDescription());
             table.setMapType(ESpatialDataSources.MBTILES.getTypeName());
             rasterTableList.add(table);
+            SpatialTablesCatalogue.INSTANCE.put(databaseFile, ESpatialDataSources.MBTILES.getTypeName(), null, rasterTableList);
         }
         return rasterTableList;
     }
@@ -237,6 +239,24 @@ public class MbtilesDatabaseHandler extends AbstractSpatialDatabaseHandler {
         return b_rc;
     }
 
+    /**
+     * Check if a tile exists in the mbtiles Database.
+     * <p/>
+     * <p>i_y_osm must be in is Open-Street-Map 'Slippy Map' notation
+     * [will be converted to 'tms' notation if needed]
+     *
+     * @param i_x     the tile column.
+     * @param i_y_osm the tile row.
+     * @param i_z     the zoom level.
+     * @return <code>true</code> if the tile exists.
+     */
+    public boolean hasTile(int i_x, int i_y_osm, int i_z) {
+        if (mbtilesSplitter.getmbtiles() == null) { // in case .'open' was forgotten
+            open(); // "" : default value will be used '1.1'
+        }
+        return mbtilesSplitter.hasTile(i_x, i_y_osm, i_z);
+    }
+
     /**
      * Function to insert a new Tile Bitmap to the mbtiles Database
      * <p/>
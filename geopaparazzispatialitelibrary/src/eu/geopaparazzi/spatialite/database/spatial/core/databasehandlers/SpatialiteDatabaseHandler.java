@@ -36,6 +36,7 @@ import eu.geopaparazzi.library.util.types.ESpatialDataSources;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.TableTypes;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.AbstractSpatialTable;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialRasterTable;
+import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialTablesCatalogue;
 import eu.geopaparazzi.spatialite.database.spatial.core.tables.SpatialVectorTable;
 import eu.geopaparazzi.spatialite.database.spatial.core.geometry.GeometryIterator;
 import eu.geopaparazzi.spatialite.database.spatial.core.enums.GeometryType;
@@ -69,6 +70,7 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
     private String uniqueDbName4DataProperties = "";
 
     private Database dbJava;
+    private StatementPool statementPool;
     private List<SpatialVectorTable> vectorTableList;
     private List<SpatialRasterTable> rasterTableList;
 
@@ -82,6 +84,12 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
 
     private volatile boolean isOpen = false;
 
+    /**
+     * If <code>true</code>, the tables come from the {@link SpatialTablesCatalogue} and
+     * the database is connected on first use.
+     */
+    private volatile boolean isPendingConnection = false;
+
     /**
      * Constructor.
      *
@@ -93,9 +101,80 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
         open();
     }
 
+    private SpatialiteDatabaseHandler(String dbPath, SpatialiteDatabaseType databaseType, SpatialTablesCatalogue.Entry entry)
+            throws IOException {
+        super(dbPath);
+        uniqueDbName4DataProperties = databasePath;
+        this.databaseType = databaseType;
+        vectorTableList = entry.getVectorTables();
+        rasterTableList = entry.getRasterTables();
+        for (AbstractSpatialTable table : vectorTableList) {
+            checkAndAdaptDatabaseBounds(new double[]{table.getMinLongitude(), table.getMinLatitude(),
+                    table.getMaxLongitude(), table.getMaxLatitude()}, null);
+        }
+        dbJava = new jsqlite.Database();
+        statementPool = new StatementPool(dbJava);
+        isDatabaseValid = true;
+        isPendingConnection = true;
+    }
+
+    /**
+     * Create a handler from the tables of a database stored in the {@link SpatialTablesCatalogue}.
+     * <p>
+     * <p>The database is not opened, the connection is made the first time it is needed,
+     * usually when the first layer of the database is drawn.</p>
+     *
+     * @param dbPath the path to the database.
+     * @param entry  the catalogue entry of the database.
+     * @return the handler or <code>null</code>, if the entry is not of a spatialite database.
+     * @throws IOException if something goes wrong.
+     */
+    public static SpatialiteDatabaseHandler fromCatalogue(String dbPath, SpatialTablesCatalogue.Entry entry) throws IOException {
+        SpatialiteDatabaseType type;
+        try {
+            type = SpatialiteDatabaseType.valueOf(entry.getDatabaseType());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        switch (type) {
+            case GEOPACKAGE:
+            case SPATIALITE3:
+            case SPATIALITE4:
+                return new SpatialiteDatabaseHandler(dbPath, type, entry);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Connect a handler created from the catalogue.
+     *
+     * @throws Exception if the connection failed.
+     */
+    private synchronized void ensureConnected() throws Exception {
+        if (!isPendingConnection) {
+            return;
+        }
+        // the pending flag is cleared only after the open flag is set, so that isOpen()
+        // stays true for the other threads during the connection
+        try {
+            dbJava.open(databasePath, jsqlite.Constants.SQLITE_OPEN_READWRITE | jsqlite.Constants.SQLITE_OPEN_CREATE);
+            isOpen = true;
+            isPendingConnection = false;
+        } catch (Exception e) {
+            isPendingConnection = false;
+            GPLog.error(this, "Database marked as invalid: " + databasePath, e);
+            isDatabaseValid = false;
+            throw e;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the database is open or, coming from the catalogue, will be connected on first use.
+     */
     @Override
     public boolean isOpen() {
-        return isOpen;
+        return isOpen || isPendingConnection;
     }
 
     @Override
@@ -103,6 +182,7 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
         try {
             uniqueDbName4DataProperties = databasePath;
             dbJava = new jsqlite.Database();
+            statementPool = new StatementPool(dbJava);
             try {
                 dbJava.open(databasePath, jsqlite.Constants.SQLITE_OPEN_READWRITE | jsqlite.Constants.SQLITE_OPEN_CREATE);
                 isOpen = true;
@@ -167,8 +247,10 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
     @Override
     public List<SpatialVectorTable> getSpatialVectorTables(boolean forceRead) throws Exception {
         if (vectorTableList == null || forceRead) {
+            inspectIfFromCatalogue();
             vectorTableList = new ArrayList<SpatialVectorTable>();
             checkAndCollectTables();
+            storeInCatalogue();
         }
         return vectorTableList;
     }
@@ -176,12 +258,32 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
     @Override
     public List<SpatialRasterTable> getSpatialRasterTables(boolean forceRead) throws Exception {
         if (rasterTableList == null || forceRead) {
+            inspectIfFromCatalogue();
             rasterTableList = new ArrayList<SpatialRasterTable>();
             checkAndCollectTables();
+            storeInCatalogue();
         }
         return rasterTableList;
     }
 
+    /**
+     * A handler from the catalogue has not checked the database, which is needed to read the tables again.
+     */
+    private void inspectIfFromCatalogue() throws Exception {
+        if (isPendingConnection) {
+            ensureConnected();
+            spatialVectorMap.clear();
+            spatialVectorMapErrors.clear();
+            databaseType = DatabaseCreationAndProperties.checkDatabaseTypeAndValidity(dbJava, spatialVectorMap, spatialVectorMapErrors);
+        }
+    }
+
+    private void storeInCatalogue() {
+        if (isValid() && databaseType != null) {
+            SpatialTablesCatalogue.INSTANCE.put(databaseFile, databaseType.name(), vectorTableList, rasterTableList);
+        }
+    }
+
     /**
      * Checks if the table names in the properties table are defined properly.
      * <p/>
@@ -256,15 +358,17 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      */
     public List<byte[]> getWKBFromTableInBounds(String destSrid, SpatialVectorTable table, double n, double s, double e, double w) {
         List<byte[]> list = new ArrayList<byte[]>();
-        String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(destSrid, false, table, n, s, e, w);
+        String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(destSrid, false, table);
         try {
-            Stmt stmt = dbJava.prepare(query);
+            ensureConnected();
+            Stmt stmt = statementPool.acquire(query);
             try {
+                SpatialiteUtilities.bindBounds(stmt, n, s, e, w);
                 while (stmt.step()) {
                     list.add(stmt.column_bytes(0));
                 }
             } finally {
-                stmt.close();
+                statementPool.release(query, stmt);
             }
             return list;
         } catch (Exception ex) {
@@ -276,6 +380,7 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
     @Override
     public byte[] getRasterTile(String query) {
         try {
+            ensureConnected();
             Stmt stmt = dbJava.prepare(query);
             try {
                 if (stmt.step()) {
@@ -292,6 +397,9 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
 
     /**
      * Get the {@link GeometryIterator} of a table in a given bound.
+     * <p>
+     * <p>The statement is taken from the handler's {@link StatementPool}, so the
+     * iterator needs to be closed to give it back.
      *
      * @param destSrid the srid to which to transform to.
      * @param table    the table to use.
@@ -299,18 +407,32 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      * @param s        south bound.
      * @param e        east bound.
      * @param w        west bound.
-     * @return the geometries iterator.
+     * @return the geometries iterator, empty if the database can not be connected.
      */
     public GeometryIterator getGeometryIteratorInBounds(String destSrid, SpatialVectorTable table, double n, double s, double e,
                                                         double w) {
-        String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(destSrid, false, table, n, s, e, w);
+        String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(destSrid, false, table);
         // GPLog.androidLog(-1,"GeopaparazziOverlay.getGeometryIteratorInBounds query["+query+"]");
-        return new GeometryIterator(dbJava, query);
+        try {
+            ensureConnected();
+        } catch (Exception ex) {
+            GPLog.error(this, "GeometryIterator.creation sql[" + query + "]", ex);
+            return GeometryIterator.empty();
+        }
+        if (!isOpen || statementPool == null) {
+            // the connection failed before
+            return GeometryIterator.empty();
+        }
+        return new GeometryIterator(statementPool, query, n, s, e, w);
     }
 
     public void close() throws Exception {
+        isPendingConnection = false;
         if (isOpen) {
             isOpen = false;
+            if (statementPool != null) {
+                statementPool.close();
+            }
             if (dbJava != null) {
                 dbJava.close();
             }
@@ -332,9 +454,11 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      */
     public void intersectionToStringBBOX(String boundsSrid, SpatialVectorTable spatialTable, double n, double s, double e,
                                          double w, StringBuilder resultStringBuilder, String indentStr) throws Exception {
-        String query = getIntersectionQueryBBOX(boundsSrid, spatialTable, n, s, e, w);
-        Stmt stmt = dbJava.prepare(query);
+        String query = getIntersectionQueryBBOX(boundsSrid, spatialTable);
+        ensureConnected();
+        Stmt stmt = statementPool.acquire(query);
         try {
+            SpatialiteUtilities.bindBounds(stmt, n, s, e, w);
             while (stmt.step()) {
                 int column_count = stmt.column_count();
                 for (int i = 0; i < column_count; i++) {
@@ -345,27 +469,24 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
                 resultStringBuilder.append("\n");
             }
         } finally {
-            stmt.close();
+            statementPool.release(query, stmt);
         }
     }
 
     /**
-     * Get the query to run for a bounding box intersection.
+     * Get the parameterised query to run for a bounding box intersection.
      * <p/>
      * <p>This assures that the first element of the query is
      * the id field for the record as defined in {@link SpatialiteUtilities#SPATIALTABLE_ID_FIELD}.
+     * <p/>
+     * <p>The bounds need to be bound through
+     * {@link SpatialiteUtilities#bindBounds(Stmt, double, double, double, double)}.
      *
      * @param boundsSrid   the srid of the bounds requested.
      * @param spatialTable the {@link SpatialVectorTable} to query.
-     * @param n            north bound.
-     * @param s            south bound.
-     * @param e            east bound.
-     * @param w            west bound.
      * @return the query to run to get all fields.
      */
-    public static String getIntersectionQueryBBOX(String boundsSrid, SpatialVectorTable spatialTable, double n, double s,
-                                                  double e, double w) {
-        boolean doTransform = false;
+    public static String getIntersectionQueryBBOX(String boundsSrid, SpatialVectorTable spatialTable) {
         String fieldNamesList = SpatialiteUtilities.SPATIALTABLE_ID_FIELD;
         // List of non-blob fields
         for (String field : spatialTable.getTableFieldNamesList()) {
@@ -373,31 +494,13 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
             if (!ignore)
                 fieldNamesList += "," + field;
         }
-        if (!spatialTable.getSrid().equals(boundsSrid)) {
-            doTransform = true;
-        }
         StringBuilder sbQ = new StringBuilder();
         sbQ.append("SELECT ");
         sbQ.append(fieldNamesList);
         sbQ.append(" FROM \"").append(spatialTable.getTableName());
         sbQ.append("\" WHERE ST_Intersects(");
-        if (doTransform)
-            sbQ.append("ST_Transform(");
-        sbQ.append("BuildMBR(");
-        sbQ.append(w);
-        sbQ.append(",");
-        sbQ.append(s);
-        sbQ.append(",");
-        sbQ.append(e);
+        sbQ.append(SpatialiteUtilities.buildBoundsParametersMbr(boundsSrid, spatialTable.getSrid()));
         sbQ.append(",");
-        sbQ.append(n);
-        if (doTransform) {
-            sbQ.append(",");
-            sbQ.append(boundsSrid);
-            sbQ.append("),");
-            sbQ.append(spatialTable.getSrid());
-        }
-        sbQ.append("),");
         sbQ.append(spatialTable.getGeomName());
         sbQ.append(");");
 
@@ -802,7 +905,15 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      * @throws Exception if something goes wrong.
      */
     public void updateStyle(Style style) throws Exception {
+        ensureConnected();
         GeopaparazziDatabaseProperties.updateStyle(dbJava, style);
+        if (vectorTableList != null) {
+            for (SpatialVectorTable spatialTable : vectorTableList) {
+                if (spatialTable.getStyle() == style) {
+                    spatialTable.styleChanged();
+                }
+            }
+        }
     }
 
     /**
@@ -811,6 +922,7 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      * @throws Exception if something goes wrong.
      */
     public void resetStyleTable() throws Exception {
+        ensureConnected();
         deleteStyleTable(dbJava);
         createPropertiesTable(dbJava);
         for (SpatialVectorTable spatialTable : vectorTableList) {
@@ -825,7 +937,26 @@ public class SpatialiteDatabaseHandler extends AbstractSpatialDatabaseHandler {
      * @return the spatialite database reference.
      */
     public Database getDatabase() {
+        try {
+            ensureConnected();
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        }
         return dbJava;
     }
 
+    /**
+     * Getter for the pool of prepared statements of the database.
+     *
+     * @return the statement pool.
+     */
+    public StatementPool getStatementPool() {
+        try {
+            ensureConnected();
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        }
+        return statementPool;
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers;
+
+import java.util.HashMap;
+
+import eu.geopaparazzi.library.database.GPLog;
+import jsqlite.Database;
+import jsqlite.Exception;
+import jsqlite.Stmt;
+
+/**
+ * A pool of prepared statements of a database.
+ * <p>
+ * <p>Statements are keyed by their sql, which for the parameterised spatial queries
+ * identifies the table and the shape of the query. A statement is taken from the pool
+ * with {@link #acquire(String)} and has to be given back with {@link #release(String, Stmt)},
+ * which resets it and clears its bindings. If the same query is needed concurrently,
+ * an additional statement is prepared and closed on release.</p>
+ * <p>
+ * <p>The pool is closed together with the database handler that owns it.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class StatementPool {
+
+    private final Database database;
+    private final HashMap<String, Stmt> idleStatements = new HashMap<String, Stmt>();
+    private boolean isClosed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param database the database the statements are prepared on.
+     */
+    public StatementPool(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Get a prepared statement for a query.
+     *
+     * @param sql the query.
+     * @return the statement, ready to be bound.
+     * @throws Exception if the statement could not be prepared.
+     */
+    public synchronized Stmt acquire(String sql) throws Exception {
+        if (isClosed) {
+            throw new Exception("The statement pool has been closed.");
+        }
+        Stmt stmt = idleStatements.remove(sql);
+        if (stmt == null) {
+            stmt = database.prepare(sql);
+        }
+        return stmt;
+    }
+
+    /**
+     * Give a statement back to the pool.
+     *
+     * @param sql  the query the statement was acquired with.
+     * @param stmt the statement.
+     */
+    public synchronized void release(String sql, Stmt stmt) {
+        if (stmt == null)
+            return;
+        try {
+            if (isClosed || idleStatements.containsKey(sql)) {
+                stmt.close();
+                return;
+            }
+            stmt.reset();
+            stmt.clear_bindings();
+            idleStatements.put(sql, stmt);
+        } catch (Exception e) {
+            GPLog.error(this, "Error releasing statement: " + sql, e);
+            try {
+                stmt.close();
+            } catch (Exception e1) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * @return the number of idle statements.
+     */
+    public synchronized int size() {
+        return idleStatements.size();
+    }
+
+    /**
+     * Close all idle statements. Statements released after this are closed directly.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        for (Stmt stmt : idleStatements.values()) {
+            try {
+                stmt.close();
+            } catch (Exception e) {
+                GPLog.error(this, null, e);
+            }
+        }
+        idleStatements.clear();
+    }
+}
@@ -17,12 +17,15 @@
  */
 package eu.geopaparazzi.spatialite.database.spatial.core.geometry;
 
+import android.graphics.Path;
+
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKBReader;
 
 import java.util.Iterator;
 
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.spatialite.database.spatial.core.databasehandlers.StatementPool;
 import eu.geopaparazzi.spatialite.database.spatial.util.SpatialiteUtilities;
 import jsqlite.Database;
 import jsqlite.Exception;
@@ -37,6 +40,8 @@ import jsqlite.Stmt;
 public class GeometryIterator implements Iterator<Geometry> {
     private WKBReader wkbReader = new WKBReader();
     private Stmt stmt;
+    private StatementPool statementPool;
+    private String query;
     private String labelText = "";
     private String themeFieldValue;
 
@@ -106,6 +111,18 @@ public class GeometryIterator implements Iterator<Geometry> {
         }
     }
 
+    private GeometryIterator() {
+    }
+
+    /**
+     * Get an iterator without geometries.
+     *
+     * @return the empty iterator.
+     */
+    public static GeometryIterator empty() {
+        return new GeometryIterator();
+    }
+
     /**
      * Constructor.
      *
@@ -120,6 +137,33 @@ public class GeometryIterator implements Iterator<Geometry> {
         }
     }
 
+    /**
+     * Constructor for a parameterised bounds query.
+     * <p>
+     * <p>The statement is taken from the pool and given back on {@link #close()}.
+     *
+     * @param statementPool the pool to take the statement from.
+     * @param query         the parameterised query to use.
+     * @param n             north bound.
+     * @param s             south bound.
+     * @param e             east bound.
+     * @param w             west bound.
+     */
+    public GeometryIterator(StatementPool statementPool, String query, double n, double s, double e, double w) {
+        try {
+            stmt = statementPool.acquire(query);
+            this.statementPool = statementPool;
+            this.query = query;
+            SpatialiteUtilities.bindBounds(stmt, n, s, e, w);
+        } catch (Exception ex) {
+            GPLog.error(this, "GeometryIterator.creation sql[" + query + "]", ex);
+            if (stmt != null) {
+                statementPool.release(query, stmt);
+                stmt = null;
+            }
+        }
+    }
+
     @Override
     public boolean hasNext() {
         if (stmt == null) {
@@ -150,6 +194,31 @@ public class GeometryIterator implements Iterator<Geometry> {
         return null;
     }
 
+    /**
+     * Write the current geometry directly into a path, without building a jts geometry.
+     * <p>
+     * <p>This is the alternative to {@link #next()} for geometries that are only drawn.
+     *
+     * @param pathWriter the writer to use.
+     * @param path       the path to write to.
+     * @return <code>true</code> if the geometry could be written.
+     */
+    public boolean nextPath(WkbPathWriter pathWriter, Path path) {
+        if (stmt == null) {
+            GPLog.androidLog(4, "GeometryIterator.nextPath() [stmt=null]");
+            return false;
+        }
+        try {
+            byte[] geomBytes = stmt.column_bytes(0);
+            pathWriter.write(geomBytes, path);
+            setLabelAndThemeText(stmt);
+            return true;
+        } catch (java.lang.Exception e) {
+            GPLog.error(this, "GeometryIterator.nextPath()[pathWriter.write() failed]", e);
+        }
+        return false;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
@@ -167,11 +236,19 @@ public class GeometryIterator implements Iterator<Geometry> {
 
     /**
      * Close the iterator.
+     * <p>
+     * <p>A pooled statement is given back to its pool instead of being closed.
      *
      * @throws Exception if something goes wrong.
      */
     public void close() throws Exception {
-        if (stmt != null)
-            stmt.close();
+        if (stmt != null) {
+            if (statementPool != null) {
+                statementPool.release(query, stmt);
+            } else {
+                stmt.close();
+            }
+            stmt = null;
+        }
     }
 }
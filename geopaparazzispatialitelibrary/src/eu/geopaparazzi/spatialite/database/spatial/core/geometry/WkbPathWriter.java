@@ -0,0 +1,298 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.spatialite.database.spatial.core.geometry;
+
+import android.graphics.Path;
+import android.graphics.PointF;
+
+import com.vividsolutions.jts.android.PointTransformation;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Writes wkb geometries directly into an android {@link Path}.
+ * <p>
+ * <p>The coordinates are read from the wkb bytes, transformed and appended to the path,
+ * without building a jts geometry. Decimation and the removal of duplicate points
+ * work as in the {@link com.vividsolutions.jts.android.ShapeWriter}. Polygon rings
+ * are closed explicitly and the path uses the even-odd rule, so holes are left empty.</p>
+ * <p>
+ * <p>Points are not written, they need the point shapes of the style. The bounds of the
+ * read coordinates are kept, to check the geometry against the viewport.</p>
+ * <p>
+ * <p>The writer is not thread safe.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class WkbPathWriter {
+
+    private static final int WKB_POINT = 1;
+    private static final int WKB_LINESTRING = 2;
+    private static final int WKB_POLYGON = 3;
+    private static final int WKB_MULTIPOINT = 4;
+    private static final int WKB_MULTILINESTRING = 5;
+    private static final int WKB_MULTIPOLYGON = 6;
+    private static final int WKB_GEOMETRYCOLLECTION = 7;
+
+    private static final int EWKB_Z = 0x80000000;
+    private static final int EWKB_M = 0x40000000;
+    private static final int EWKB_SRID = 0x20000000;
+
+    private final PointTransformation pointTransformer;
+    private final Coordinate coordinate = new Coordinate();
+    private final PointF transPoint = new PointF();
+
+    private boolean doRemoveDuplicatePoints = false;
+    private double decimationDistance = 0;
+
+    private byte[] wkb;
+    private int position;
+    private boolean isLittleEndian;
+
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+
+    /**
+     * Constructor.
+     *
+     * @param pointTransformer the transformation from model to view space.
+     */
+    public WkbPathWriter(PointTransformation pointTransformer) {
+        this.pointTransformer = pointTransformer;
+    }
+
+    /**
+     * @param doRemoveDuplicatePoints if <code>true</code>, consecutive points that transform to the same
+     *                                view position are removed.
+     */
+    public void setRemoveDuplicatePoints(boolean doRemoveDuplicatePoints) {
+        this.doRemoveDuplicatePoints = doRemoveDuplicatePoints;
+    }
+
+    /**
+     * @param decimationDistance the axis distance in model units below which consecutive vertices are
+     *                           considered duplicates. 0 disables decimation.
+     */
+    public void setDecimation(double decimationDistance) {
+        this.decimationDistance = decimationDistance;
+    }
+
+    /**
+     * Write a wkb geometry into a path.
+     *
+     * @param wkbBytes the wkb geometry.
+     * @param path     the path to write to. It is reset before writing.
+     * @throws IllegalArgumentException if the wkb is not valid.
+     */
+    public void write(byte[] wkbBytes, Path path) {
+        wkb = wkbBytes;
+        position = 0;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+        path.reset();
+        path.setFillType(Path.FillType.EVEN_ODD);
+        try {
+            writeGeometry(path);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated wkb geometry.");
+        } finally {
+            wkb = null;
+        }
+    }
+
+    /**
+     * Check the bounds of the last written geometry.
+     *
+     * @param envelope the envelope to check.
+     * @return <code>true</code> if the coordinates of the last geometry intersect the envelope.
+     */
+    public boolean intersects(Envelope envelope) {
+        return !(minX > envelope.getMaxX() || maxX < envelope.getMinX() || minY > envelope.getMaxY() || maxY < envelope.getMinY());
+    }
+
+    private void writeGeometry(Path path) {
+        isLittleEndian = wkb[position++] == 1;
+        int typeInt = readInt();
+        int isoType = typeInt & 0xffff;
+        int isoDimension = isoType / 1000;
+        boolean hasZ = (typeInt & EWKB_Z) != 0 || isoDimension == 1 || isoDimension == 3;
+        boolean hasM = (typeInt & EWKB_M) != 0 || isoDimension == 2 || isoDimension == 3;
+        if ((typeInt & EWKB_SRID) != 0) {
+            position += 4;
+        }
+        int geometryType = isoType % 1000;
+        int ordinatesToSkip = (hasZ ? 8 : 0) + (hasM ? 8 : 0);
+
+        switch (geometryType) {
+            case WKB_POINT:
+                readCoordinate(ordinatesToSkip);
+                break;
+            case WKB_LINESTRING:
+                writeLineString(path, ordinatesToSkip);
+                break;
+            case WKB_POLYGON:
+                writePolygon(path, ordinatesToSkip);
+                break;
+            case WKB_MULTIPOINT:
+            case WKB_MULTILINESTRING:
+            case WKB_MULTIPOLYGON:
+            case WKB_GEOMETRYCOLLECTION:
+                int count = readInt();
+                for (int i = 0; i < count; i++) {
+                    writeGeometry(path);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported wkb geometry type: " + typeInt);
+        }
+    }
+
+    private void writeLineString(Path path, int ordinatesToSkip) {
+        int pointsCount = readInt();
+        if (pointsCount == 0)
+            return;
+
+        readCoordinate(ordinatesToSkip);
+        double prevX = coordinate.x;
+        double prevY = coordinate.y;
+        pointTransformer.transform(coordinate, transPoint);
+        path.moveTo(transPoint.x, transPoint.y);
+        float prevViewX = transPoint.x;
+        float prevViewY = transPoint.y;
+
+        int n = pointsCount - 1;
+        for (int i = 1; i <= n; i++) {
+            readCoordinate(ordinatesToSkip);
+            if (decimationDistance > 0.0) {
+                boolean isDecimated = Math.abs(coordinate.x - prevX) < decimationDistance
+                        && Math.abs(coordinate.y - prevY) < decimationDistance;
+                if (i < n && isDecimated)
+                    continue;
+                prevX = coordinate.x;
+                prevY = coordinate.y;
+            }
+
+            pointTransformer.transform(coordinate, transPoint);
+
+            if (doRemoveDuplicatePoints) {
+                // skip duplicate points (except the last point)
+                boolean isDup = transPoint.x == prevViewX && transPoint.y == prevViewY;
+                if (i < n && isDup)
+                    continue;
+                prevViewX = transPoint.x;
+                prevViewY = transPoint.y;
+            }
+            path.lineTo(transPoint.x, transPoint.y);
+        }
+    }
+
+    private void writePolygon(Path path, int ordinatesToSkip) {
+        int ringsCount = readInt();
+        for (int r = 0; r < ringsCount; r++) {
+            int pointsCount = readInt();
+            // the closing point is not used, the ring is closed explicitly
+            int n = pointsCount - 1;
+            double prevX = Double.NaN;
+            double prevY = Double.NaN;
+            float prevViewX = Float.NaN;
+            float prevViewY = Float.NaN;
+            boolean isFirst = true;
+            for (int i = 0; i < n; i++) {
+                readCoordinate(ordinatesToSkip);
+                if (decimationDistance > 0.0) {
+                    boolean isDecimated = !isFirst && Math.abs(coordinate.x - prevX) < decimationDistance
+                            && Math.abs(coordinate.y - prevY) < decimationDistance;
+                    if (isDecimated)
+                        continue;
+                    prevX = coordinate.x;
+                    prevY = coordinate.y;
+                }
+
+                pointTransformer.transform(coordinate, transPoint);
+
+                if (doRemoveDuplicatePoints) {
+                    boolean isDup = transPoint.x == prevViewX && transPoint.y == prevViewY;
+                    if (isDup)
+                        continue;
+                    prevViewX = transPoint.x;
+                    prevViewY = transPoint.y;
+                }
+                if (isFirst) {
+                    path.moveTo(transPoint.x, transPoint.y);
+                    isFirst = false;
+                } else {
+                    path.lineTo(transPoint.x, transPoint.y);
+                }
+            }
+            if (pointsCount > 0) {
+                // skip the closing point
+                readCoordinate(ordinatesToSkip);
+            }
+            if (!isFirst)
+                path.close();
+        }
+    }
+
+    private void readCoordinate(int ordinatesToSkip) {
+        double x = readDouble();
+        double y = readDouble();
+        position += ordinatesToSkip;
+        coordinate.x = x;
+        coordinate.y = y;
+        if (x < minX)
+            minX = x;
+        if (x > maxX)
+            maxX = x;
+        if (y < minY)
+            minY = y;
+        if (y > maxY)
+            maxY = y;
+    }
+
+    private int readInt() {
+        byte[] b = wkb;
+        int p = position;
+        position += 4;
+        if (isLittleEndian) {
+            return (b[p] & 0xff) | ((b[p + 1] & 0xff) << 8) | ((b[p + 2] & 0xff) << 16) | ((b[p + 3] & 0xff) << 24);
+        } else {
+            return ((b[p] & 0xff) << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+        }
+    }
+
+    private double readDouble() {
+        byte[] b = wkb;
+        int p = position;
+        position += 8;
+        long bits;
+        if (isLittleEndian) {
+            bits = (b[p] & 0xffL) | ((b[p + 1] & 0xffL) << 8) | ((b[p + 2] & 0xffL) << 16) | ((b[p + 3] & 0xffL) << 24)
+                    | ((b[p + 4] & 0xffL) << 32) | ((b[p + 5] & 0xffL) << 40) | ((b[p + 6] & 0xffL) << 48)
+                    | ((b[p + 7] & 0xffL) << 56);
+        } else {
+            bits = ((b[p] & 0xffL) << 56) | ((b[p + 1] & 0xffL) << 48) | ((b[p + 2] & 0xffL) << 40)
+                    | ((b[p + 3] & 0xffL) << 32) | ((b[p + 4] & 0xffL) << 24) | ((b[p + 5] & 0xffL) << 16)
+                    | ((b[p + 6] & 0xffL) << 8) | (b[p + 7] & 0xffL);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+}
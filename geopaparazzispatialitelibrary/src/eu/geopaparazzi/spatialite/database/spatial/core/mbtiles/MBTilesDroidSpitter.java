@@ -276,6 +276,38 @@ public class MBTilesDroidSpitter {
     }
     // -----------------------------------------------
 
+    /**
+     * Function to check if a Tile exists in the mbtiles Database, without reading its image-data
+     * - i_y_osm must be in is Open-Street-Map 'Slippy Map' notation [will be converted to 'tms' notation if needed]
+     *
+     * @param i_x     the value for tile_column field in the map,tiles Tables
+     * @param i_y_osm the value for tile_row field in the map,tiles Tables
+     * @param i_z     the value for zoom_level field in the map,tiles Tables
+     * @return true if the tile exists
+     */
+    public boolean hasTile(int i_x, int i_y_osm, int i_z) {
+        int i_y = i_y_osm;
+        if (s_tile_row_type.equals("tms")) {
+            int[] tmsTileXY = MBTilesDroidSpitter.googleTile2TmsTile(i_x, i_y_osm, i_z);
+            i_y = tmsTileXY[1];
+        }
+        boolean b_exists = false;
+        Cursor c = null;
+        try {
+            c = db_mbtiles.rawQuery(
+                    "select 1 from tiles where tile_column=? and tile_row=? and zoom_level=? limit 1",
+                    new String[]{Integer.toString(i_x), Integer.toString(i_y), Integer.toString(i_z)});
+            b_exists = c.moveToFirst();
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        } finally {
+            if (c != null)
+                c.close();
+        }
+        return b_exists;
+    }
+    // -----------------------------------------------
+
     /**
      * Function to insert a new Tile Bitmap to the mbtiles Database
      * - i_y_osm must be in is Open-Street-Map 'Slippy Map' notation [will be converted to 'tms' notation if needed]
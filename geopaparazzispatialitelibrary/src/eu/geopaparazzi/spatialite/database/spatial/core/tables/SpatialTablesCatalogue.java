@@ -0,0 +1,484 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.spatialite.database.spatial.core.tables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.geopaparazzi.library.GPApplication;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.style.Style;
+
+/**
+ * A persistent catalogue of the tables found in spatial databases.
+ * <p>
+ * <p>Inspecting a database means opening it, checking its type and reading fields,
+ * bounds and styles of all its tables. The result is kept here, keyed by the database path,
+ * together with the size and modification time of the file, and written to a small binary file
+ * in the application cache. As long as a database file is not modified, its tables are taken
+ * from the catalogue without opening it.</p>
+ * <p>
+ * <p>Every write to a database, style edits included, changes its modification time, so that
+ * a stale entry is never used. Databases with a pending write ahead log are never
+ * taken from the catalogue.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public enum SpatialTablesCatalogue {
+    INSTANCE;
+
+    private static final String CATALOGUE_FILE_NAME = "spatial_tables_catalogue.bin";
+    private static final int MAGIC = 0x47505354;
+    private static final int VERSION = 1;
+
+    /**
+     * The tables of a database, as found in the catalogue.
+     */
+    public static class Entry {
+        private final String databaseType;
+        private final List<SpatialVectorTable> vectorTables;
+        private final List<SpatialRasterTable> rasterTables;
+
+        private Entry(String databaseType, List<SpatialVectorTable> vectorTables, List<SpatialRasterTable> rasterTables) {
+            this.databaseType = databaseType;
+            this.vectorTables = vectorTables;
+            this.rasterTables = rasterTables;
+        }
+
+        /**
+         * @return the name of the type of the database, as defined by the handler that stored it.
+         */
+        public String getDatabaseType() {
+            return databaseType;
+        }
+
+        /**
+         * @return the vector tables of the database.
+         */
+        public List<SpatialVectorTable> getVectorTables() {
+            return vectorTables;
+        }
+
+        /**
+         * @return the raster tables of the database.
+         */
+        public List<SpatialRasterTable> getRasterTables() {
+            return rasterTables;
+        }
+    }
+
+    /**
+     * A stored database, with its tables in serialized form, so that every
+     * request gets its own table objects.
+     */
+    private static class Record {
+        private final long size;
+        private final long lastModified;
+        private final String databaseType;
+        private final byte[] tables;
+
+        private Record(long size, long lastModified, String databaseType, byte[] tables) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.databaseType = databaseType;
+            this.tables = tables;
+        }
+    }
+
+    private HashMap<String, Record> records;
+    private boolean isDirty = false;
+
+    /**
+     * Get the tables of a database from the catalogue, if they are still valid.
+     *
+     * @param databaseFile the database file.
+     * @return the entry or <code>null</code>, if the database has to be inspected.
+     */
+    public synchronized Entry get(File databaseFile) {
+        load();
+        String path = databaseFile.getAbsolutePath();
+        Record record = records.get(path);
+        if (record == null) {
+            return null;
+        }
+        if (record.size != databaseFile.length() || record.lastModified != databaseFile.lastModified()
+                || new File(path + "-wal").exists()) {
+            records.remove(path);
+            isDirty = true;
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.tables));
+            int vectorCount = in.readInt();
+            List<SpatialVectorTable> vectorTables = new ArrayList<SpatialVectorTable>(vectorCount);
+            for (int i = 0; i < vectorCount; i++) {
+                vectorTables.add(readVectorTable(in, path));
+            }
+            int rasterCount = in.readInt();
+            List<SpatialRasterTable> rasterTables = new ArrayList<SpatialRasterTable>(rasterCount);
+            for (int i = 0; i < rasterCount; i++) {
+                rasterTables.add(readRasterTable(in, path));
+            }
+            return new Entry(record.databaseType, vectorTables, rasterTables);
+        } catch (java.lang.Exception e) {
+            GPLog.error(this, "Unable to read the catalogue entry of: " + path, e);
+            records.remove(path);
+            isDirty = true;
+            return null;
+        }
+    }
+
+    /**
+     * Put the tables of a database in the catalogue.
+     * <p>
+     * <p>The tables are stored in the state they have now, styles included.
+     *
+     * @param databaseFile the database file.
+     * @param databaseType the name of the type of the database.
+     * @param vectorTables the vector tables, can be <code>null</code>.
+     * @param rasterTables the raster tables, can be <code>null</code>.
+     */
+    public synchronized void put(File databaseFile, String databaseType, List<SpatialVectorTable> vectorTables,
+                                 List<SpatialRasterTable> rasterTables) {
+        load();
+        String path = databaseFile.getAbsolutePath();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (vectorTables == null) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(vectorTables.size());
+                for (SpatialVectorTable table : vectorTables) {
+                    writeVectorTable(out, table);
+                }
+            }
+            if (rasterTables == null) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(rasterTables.size());
+                for (SpatialRasterTable table : rasterTables) {
+                    writeRasterTable(out, table);
+                }
+            }
+            out.flush();
+            records.put(path, new Record(databaseFile.length(), databaseFile.lastModified(), databaseType,
+                    bytes.toByteArray()));
+        } catch (IOException e) {
+            GPLog.error(this, null, e);
+            records.remove(path);
+        }
+        isDirty = true;
+    }
+
+    /**
+     * Write the catalogue to disk, if it changed.
+     * <p>
+     * <p>Entries of databases that no longer exist are dropped.
+     */
+    public synchronized void save() {
+        if (records == null || !isDirty) {
+            return;
+        }
+        Iterator<String> iterator = records.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!new File(iterator.next()).exists()) {
+                iterator.remove();
+            }
+        }
+        File catalogueFile = getCatalogueFile();
+        File tmpFile = new File(catalogueFile.getAbsolutePath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            for (Map.Entry<String, Record> entry : records.entrySet()) {
+                Record record = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(record.size);
+                out.writeLong(record.lastModified);
+                out.writeUTF(record.databaseType);
+                out.writeInt(record.tables.length);
+                out.write(record.tables);
+            }
+            out.close();
+            out = null;
+            if (!tmpFile.renameTo(catalogueFile)) {
+                throw new IOException("Unable to write the catalogue file: " + catalogueFile);
+            }
+            isDirty = false;
+        } catch (IOException e) {
+            GPLog.error(this, null, e);
+            tmpFile.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private File getCatalogueFile() {
+        return new File(GPApplication.getInstance().getCacheDir(), CATALOGUE_FILE_NAME);
+    }
+
+    private void load() {
+        if (records != null) {
+            return;
+        }
+        records = new HashMap<String, Record>();
+        File catalogueFile = getCatalogueFile();
+        if (!catalogueFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogueFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String databaseType = in.readUTF();
+                byte[] tables = new byte[in.readInt()];
+                in.readFully(tables);
+                records.put(path, new Record(size, lastModified, databaseType, tables));
+            }
+        } catch (IOException e) {
+            // a broken catalogue only means that the databases are inspected again
+            GPLog.error(this, "Unable to read the catalogue, it will be rebuilt.", e);
+            records.clear();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static void writeVectorTable(DataOutputStream out, SpatialVectorTable table) throws IOException {
+        out.writeUTF(table.tableName);
+        out.writeUTF(table.getGeomName());
+        out.writeInt(table.getGeomType());
+        out.writeUTF(table.srid);
+        writeCenterAndBounds(out, table);
+        out.writeUTF(table.tableTypeDescription);
+        Map<String, String> fields = table.getFieldName2TypeMap();
+        if (fields == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(fields.size());
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                out.writeUTF(field.getKey());
+                out.writeUTF(field.getValue());
+            }
+        }
+        out.writeUTF(table.getROWID());
+        out.writeBoolean(!table.isEditable());
+        writeStyle(out, table.getStyle());
+    }
+
+    private static SpatialVectorTable readVectorTable(DataInputStream in, String databasePath) throws IOException {
+        String tableName = in.readUTF();
+        String geometryColumn = in.readUTF();
+        int geomType = in.readInt();
+        String srid = in.readUTF();
+        double[] center = new double[2];
+        double[] bounds = new double[4];
+        readCenterAndBounds(in, center, bounds);
+        String tableTypeDescription = in.readUTF();
+        SpatialVectorTable table = new SpatialVectorTable(databasePath, tableName, geometryColumn, geomType, srid, center,
+                bounds, tableTypeDescription);
+        int fieldsCount = in.readInt();
+        LinkedHashMap<String, String> fields = null;
+        if (fieldsCount >= 0) {
+            fields = new LinkedHashMap<String, String>();
+            for (int i = 0; i < fieldsCount; i++) {
+                String name = in.readUTF();
+                fields.put(name, in.readUTF());
+            }
+        }
+        String rowidPk = in.readUTF();
+        boolean isReadonly = in.readBoolean();
+        // views are readonly for the values 0 and 1
+        table.setFieldsList(fields, rowidPk, isReadonly ? 1 : 2);
+        Style style = readStyle(in);
+        if (style == null) {
+            table.makeDefaultStyle();
+        } else {
+            table.setStyle(style);
+        }
+        return table;
+    }
+
+    private static void writeRasterTable(DataOutputStream out, SpatialRasterTable table) throws IOException {
+        out.writeUTF(table.tableName);
+        out.writeUTF(table.srid);
+        out.writeInt(table.minZoom);
+        out.writeInt(table.maxZoom);
+        out.writeInt(table.defaultZoom);
+        writeCenterAndBounds(out, table);
+        out.writeUTF(table.getTileQuery());
+        writeString(out, table.mapType);
+        writeString(out, table.title);
+        writeString(out, table.description);
+    }
+
+    private static SpatialRasterTable readRasterTable(DataInputStream in, String databasePath) throws IOException {
+        String tableName = in.readUTF();
+        String srid = in.readUTF();
+        int minZoom = in.readInt();
+        int maxZoom = in.readInt();
+        int defaultZoom = in.readInt();
+        double[] center = new double[2];
+        double[] bounds = new double[4];
+        readCenterAndBounds(in, center, bounds);
+        String tileQuery = in.readUTF();
+        SpatialRasterTable table = new SpatialRasterTable(databasePath, tableName, srid, minZoom, maxZoom, center[0],
+                center[1], tileQuery, bounds);
+        table.setDefaultZoom(defaultZoom);
+        table.setMapType(readString(in));
+        table.title = readString(in);
+        table.description = readString(in);
+        return table;
+    }
+
+    private static void writeCenterAndBounds(DataOutputStream out, AbstractSpatialTable table) throws IOException {
+        out.writeDouble(table.centerX);
+        out.writeDouble(table.centerY);
+        out.writeDouble(table.boundsWest);
+        out.writeDouble(table.boundsSouth);
+        out.writeDouble(table.boundsEast);
+        out.writeDouble(table.boundsNorth);
+    }
+
+    private static void readCenterAndBounds(DataInputStream in, double[] center, double[] bounds) throws IOException {
+        center[0] = in.readDouble();
+        center[1] = in.readDouble();
+        for (int i = 0; i < 4; i++) {
+            bounds[i] = in.readDouble();
+        }
+    }
+
+    private static void writeStyle(DataOutputStream out, Style style) throws IOException {
+        out.writeBoolean(style != null);
+        if (style == null) {
+            return;
+        }
+        out.writeLong(style.id);
+        writeString(out, style.name);
+        out.writeFloat(style.size);
+        writeString(out, style.fillcolor);
+        writeString(out, style.strokecolor);
+        out.writeFloat(style.fillalpha);
+        out.writeFloat(style.strokealpha);
+        writeString(out, style.shape);
+        out.writeFloat(style.width);
+        out.writeFloat(style.labelsize);
+        writeString(out, style.labelfield);
+        out.writeInt(style.labelvisible);
+        out.writeInt(style.enabled);
+        out.writeInt(style.order);
+        writeString(out, style.dashPattern);
+        out.writeInt(style.minZoom);
+        out.writeInt(style.maxZoom);
+        out.writeFloat(style.decimationFactor);
+        writeString(out, style.themeField);
+        if (style.themeMap == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(style.themeMap.size());
+            for (Map.Entry<String, Style> themeEntry : style.themeMap.entrySet()) {
+                writeString(out, themeEntry.getKey());
+                writeStyle(out, themeEntry.getValue());
+            }
+        }
+    }
+
+    private static Style readStyle(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Style style = new Style();
+        style.id = in.readLong();
+        style.name = readString(in);
+        style.size = in.readFloat();
+        style.fillcolor = readString(in);
+        style.strokecolor = readString(in);
+        style.fillalpha = in.readFloat();
+        style.strokealpha = in.readFloat();
+        style.shape = readString(in);
+        style.width = in.readFloat();
+        style.labelsize = in.readFloat();
+        style.labelfield = readString(in);
+        style.labelvisible = in.readInt();
+        style.enabled = in.readInt();
+        style.order = in.readInt();
+        style.dashPattern = readString(in);
+        style.minZoom = in.readInt();
+        style.maxZoom = in.readInt();
+        style.decimationFactor = in.readFloat();
+        style.themeField = readString(in);
+        int themeCount = in.readInt();
+        if (themeCount >= 0) {
+            style.themeMap = new HashMap<String, Style>();
+            for (int i = 0; i < themeCount; i++) {
+                String key = readString(in);
+                style.themeMap.put(key, readStyle(in));
+            }
+        }
+        return style;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null)
+            out.writeUTF(string);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean())
+            return in.readUTF();
+        return null;
+    }
+}
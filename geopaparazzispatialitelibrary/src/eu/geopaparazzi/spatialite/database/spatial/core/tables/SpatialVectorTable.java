@@ -71,6 +71,9 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
 
     private HashMap<String, Paint> fillPaints = new HashMap<String, Paint>();
     private HashMap<String, Paint> strokePaints = new HashMap<String, Paint>();
+    private HashMap<String, Paint> themeFillPaints = new HashMap<String, Paint>();
+    private HashMap<String, Paint> themeStrokePaints = new HashMap<String, Paint>();
+    private int styleVersion = 0;
 
     // only non-geometry fields [name]
     private List<String> labelList = null;
@@ -190,6 +193,25 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
         return style;
     }
 
+    /**
+     * Getter for the style version.
+     * <p>
+     * <p>The version changes every time the style is set or edited, so that
+     * objects built from the style know when to rebuild.</p>
+     *
+     * @return the version of the style.
+     */
+    public int getStyleVersion() {
+        return styleVersion;
+    }
+
+    /**
+     * Notify that the style has been edited.
+     */
+    public void styleChanged() {
+        styleVersion++;
+    }
+
     /**
      * Returns a list of non-geometry fields of this table.
      *
@@ -199,6 +221,13 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
         return labelList;
     }
 
+    /**
+     * @return the map of all fields of this table [name,type], as set through {@link #setFieldsList(HashMap, String, int)}.
+     */
+    HashMap<String, String> getFieldName2TypeMap() {
+        return fieldName2TypeMap;
+    }
+
     /**
      * Get the data type for a given field name.
      *
@@ -353,6 +382,7 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
         this.style = style;
         maxZoom = style.maxZoom;
         minZoom = style.minZoom;
+        styleChanged();
     }
 
     /**
@@ -438,6 +468,7 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
     public void makeDefaultStyle() {
         style = new Style();
         style.name = getUniqueNameBasedOnDbFilePath();
+        styleChanged();
     }
 
 
@@ -508,10 +539,10 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
      * @return the generated paint.
      */
     public Paint getFillPaint4Theme(String uniqueValue, Style style) {
-        Paint paint = fillPaints.get(uniqueValue);
+        Paint paint = themeFillPaints.get(uniqueValue);
         if (paint == null) {
             paint = new Paint();
-            fillPaints.put(style.name, paint);
+            themeFillPaints.put(uniqueValue, paint);
             paint.setAntiAlias(true);
             paint.setStyle(Paint.Style.FILL);
             paint.setColor(ColorUtilities.toColor(style.fillcolor));
@@ -529,10 +560,10 @@ public class SpatialVectorTable extends AbstractSpatialTable implements Serializ
      * @return the generated paint.
      */
     public Paint getStrokePaint4Theme(String uniqueValue , Style style) {
-        Paint paint = strokePaints.get(uniqueValue);
+        Paint paint = themeStrokePaints.get(uniqueValue);
         if (paint == null) {
             paint = new Paint();
-            strokePaints.put(style.name, paint);
+            themeStrokePaints.put(uniqueValue, paint);
             paint.setStyle(Paint.Style.STROKE);
             paint.setAntiAlias(true);
             paint.setStrokeCap(Paint.Cap.ROUND);
@@ -52,6 +52,16 @@ public class SpatialiteUtilities {
 
     public static final String DUMMY = "dummy";
 
+    /**
+     * Alias of the area column returned by the measured features queries.
+     */
+    public static final String FEATURE_AREA_FIELD = "gp_feature_area"; //$NON-NLS-1$
+
+    /**
+     * Alias of the length column returned by the measured features queries.
+     */
+    public static final String FEATURE_LENGTH_FIELD = "gp_feature_length"; //$NON-NLS-1$
+
     /**
      * Checks if a field needs to be ignored.
      *
@@ -114,42 +124,65 @@ public class SpatialiteUtilities {
     }
 
     /**
-     * Build a query to retrieve geometries from a table in a given bound.
+     * Build the mbr of the bound parameters of a parameterised bounds query.
+     * <p>
+     * <p>The bounds are expected as parameters <code>?1</code> to <code>?4</code>,
+     * to be bound through {@link #bindBounds(Stmt, double, double, double, double)}.
      *
-     * @param destSrid  the destination srid.
-     * @param withRowId if <code>true</code>, the ROWID is added in position 0 of the query.
-     * @param table     the table to use.
-     * @param n         north bound.
-     * @param s         south bound.
-     * @param e         east bound.
-     * @param w         west bound.
-     * @return the query.
+     * @param boundsSrid the srid of the bounds.
+     * @param tableSrid  the srid of the queried table.
+     * @return the mbr sql part.
      */
-    public static String buildGeometriesInBoundsQuery(String destSrid, boolean withRowId, SpatialVectorTable table, double n,
-                                                      double s, double e, double w) {
-        boolean doTransform = false;
-        if (!table.getSrid().equals(destSrid)) {
-            doTransform = true;
-        }
+    public static String buildBoundsParametersMbr(String boundsSrid, String tableSrid) {
+        boolean doTransform = !tableSrid.equals(boundsSrid);
         StringBuilder mbrSb = new StringBuilder();
         if (doTransform)
             mbrSb.append("ST_Transform(");
-        mbrSb.append("BuildMBR(");
-        mbrSb.append(w);
-        mbrSb.append(",");
-        mbrSb.append(n);
-        mbrSb.append(",");
-        mbrSb.append(e);
-        mbrSb.append(",");
-        mbrSb.append(s);
+        mbrSb.append("BuildMBR(?1,?2,?3,?4");
         if (doTransform) {
             mbrSb.append(",");
-            mbrSb.append(destSrid);
+            mbrSb.append(boundsSrid);
             mbrSb.append("),");
-            mbrSb.append(table.getSrid());
+            mbrSb.append(tableSrid);
         }
         mbrSb.append(")");
-        String mbr = mbrSb.toString();
+        return mbrSb.toString();
+    }
+
+    /**
+     * Bind the bounds to a statement prepared from a parameterised bounds query.
+     *
+     * @param stmt the statement.
+     * @param n    north bound.
+     * @param s    south bound.
+     * @param e    east bound.
+     * @param w    west bound.
+     * @throws jsqlite.Exception if something goes wrong.
+     */
+    public static void bindBounds(Stmt stmt, double n, double s, double e, double w) throws jsqlite.Exception {
+        stmt.bind(1, w);
+        stmt.bind(2, s);
+        stmt.bind(3, e);
+        stmt.bind(4, n);
+    }
+
+    /**
+     * Build a parameterised query to retrieve geometries from a table in a given bound.
+     * <p>
+     * <p>The query does not depend on the bounds, which need to be bound
+     * through {@link #bindBounds(Stmt, double, double, double, double)}.
+     *
+     * @param destSrid  the destination srid.
+     * @param withRowId if <code>true</code>, the ROWID is added in position 0 of the query.
+     * @param table     the table to use.
+     * @return the query.
+     */
+    public static String buildGeometriesInBoundsQuery(String destSrid, boolean withRowId, SpatialVectorTable table) {
+        boolean doTransform = false;
+        if (!table.getSrid().equals(destSrid)) {
+            doTransform = true;
+        }
+        String mbr = buildBoundsParametersMbr(destSrid, table.getSrid());
         StringBuilder qSb = new StringBuilder();
         qSb.append("SELECT ");
         if (withRowId) {
@@ -221,6 +254,32 @@ public class SpatialiteUtilities {
      */
     public static String getBboxIntersectingFeaturesQuery(String boundsSrid, SpatialVectorTable spatialTable, double n,
                                                           double s, double e, double w) {
+        return getBboxIntersectingFeaturesQuery(boundsSrid, spatialTable, n, s, e, w, false);
+    }
+
+    /**
+     * Get the query to run for a bounding box intersection to retrieve features.
+     * <p>
+     * <p>This assures that the first element of the query is
+     * the id field for the record as defined in {@link SpatialiteUtilities#SPATIALTABLE_ID_FIELD}
+     * and the last one the geometry. If requested, the area and length of the geometry
+     * in original units are placed right before the geometry, as {@link #FEATURE_AREA_FIELD}
+     * and {@link #FEATURE_LENGTH_FIELD}.
+     * <p>
+     * <p>The measured variant, used by the selection tools, also filters the
+     * candidates through the spatial index.
+     *
+     * @param boundsSrid          the srid of the bounds requested.
+     * @param spatialTable        the {@link SpatialVectorTable} to query.
+     * @param n                   north bound.
+     * @param s                   south bound.
+     * @param e                   east bound.
+     * @param w                   west bound.
+     * @param withAreaAndLength   if <code>true</code>, the area and length are added to the query.
+     * @return the query to run to get all fields.
+     */
+    public static String getBboxIntersectingFeaturesQuery(String boundsSrid, SpatialVectorTable spatialTable, double n,
+                                                          double s, double e, double w, boolean withAreaAndLength) {
         String query = null;
         boolean doTransform = false;
         String fieldNamesList = SpatialiteUtilities.SPATIALTABLE_ID_FIELD;
@@ -233,9 +292,33 @@ public class SpatialiteUtilities {
         if (!spatialTable.getSrid().equals(boundsSrid)) {
             doTransform = true;
         }
+        StringBuilder mbrSb = new StringBuilder();
+        if (doTransform)
+            mbrSb.append("ST_Transform(");
+        mbrSb.append("BuildMBR(");
+        mbrSb.append(w);
+        mbrSb.append(",");
+        mbrSb.append(s);
+        mbrSb.append(",");
+        mbrSb.append(e);
+        mbrSb.append(",");
+        mbrSb.append(n);
+        if (doTransform) {
+            mbrSb.append(",");
+            mbrSb.append(boundsSrid);
+            mbrSb.append("),");
+            mbrSb.append(spatialTable.getSrid());
+        }
+        mbrSb.append(")");
+        String mbr = mbrSb.toString();
+
         StringBuilder sbQ = new StringBuilder();
         sbQ.append("SELECT ");
         sbQ.append(fieldNamesList);
+        if (withAreaAndLength) {
+            sbQ.append(",Area(").append(spatialTable.getGeomName()).append(") AS ").append(FEATURE_AREA_FIELD);
+            sbQ.append(",Length(").append(spatialTable.getGeomName()).append(") AS ").append(FEATURE_LENGTH_FIELD);
+        }
         sbQ.append(",ST_AsBinary(CastToXY(");
         if (doTransform)
             sbQ.append("ST_Transform(");
@@ -248,25 +331,24 @@ public class SpatialiteUtilities {
         sbQ.append("))");
         sbQ.append(" FROM \"").append(spatialTable.getTableName());
         sbQ.append("\" WHERE ST_Intersects(");
-        if (doTransform)
-            sbQ.append("ST_Transform(");
-        sbQ.append("BuildMBR(");
-        sbQ.append(w);
-        sbQ.append(",");
-        sbQ.append(s);
-        sbQ.append(",");
-        sbQ.append(e);
+        sbQ.append(mbr);
         sbQ.append(",");
-        sbQ.append(n);
-        if (doTransform) {
-            sbQ.append(",");
-            sbQ.append(boundsSrid);
-            sbQ.append("),");
-            sbQ.append(spatialTable.getSrid());
-        }
-        sbQ.append("),");
         sbQ.append(spatialTable.getGeomName());
-        sbQ.append(");");
+        sbQ.append(")");
+        if (withAreaAndLength) {
+            sbQ.append(" AND ");
+            sbQ.append(spatialTable.getROWID());
+            sbQ.append(" IN (SELECT ");
+            sbQ.append(spatialTable.getROWID());
+            sbQ.append(" FROM Spatialindex WHERE f_table_name ='");
+            sbQ.append(spatialTable.getTableName());
+            sbQ.append("' AND f_geometry_column = '");
+            sbQ.append(spatialTable.getGeomName());
+            sbQ.append("' AND search_frame = ");
+            sbQ.append(mbr);
+            sbQ.append(")");
+        }
+        sbQ.append(";");
 
         query = sbQ.toString();
         return query;
@@ -0,0 +1,271 @@
+/*
+ *  A benchmark of the per frame bounding box queries
+ *  run by the spatialite vector layers.
+ *
+ *  It simulates a map panning over the bounds of a
+ *  spatial table and runs the same frames twice:
+ *   - direct queries: the query is built with the bounds
+ *     as literals, prepared, stepped and closed per frame
+ *   - prepared statements: a parameterised query is
+ *     prepared once and reset and rebound per frame
+ *
+ *  The query has the shape of the one used to draw the
+ *  layers, i.e. an ST_Intersects filter on a spatial
+ *  index search_frame subquery.
+ */
+
+package jsqlite;
+
+import java.util.Random;
+
+public class SpatialQueryBenchmark {
+
+    /* number of frames per run */
+    static int n_frames = 1000;
+
+    /* the frame size as fraction of the table bounds */
+    static double frame_fraction = 0.1;
+
+    /* number of runs per mode, the first one is warmup */
+    static int n_runs = 3;
+
+    static boolean verbose = false;
+
+    String dbPath = "";
+    String tableName = "";
+    String geomName = "";
+
+    double minX;
+    double minY;
+    double maxX;
+    double maxY;
+
+    long start_time = 0;
+    long prepare_time = 0;
+    long row_count = 0;
+
+    public static void main(String[] args) {
+	new SpatialQueryBenchmark().run(args);
+    }
+
+    public void run(String[] args) {
+	for (int i = 0; i < args.length; i++) {
+	    if (args[i].equals("-db")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    dbPath = args[i];
+		}
+	    } else if (args[i].equals("-table")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    tableName = args[i];
+		}
+	    } else if (args[i].equals("-geom")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    geomName = args[i];
+		}
+	    } else if (args[i].equals("-frames")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    n_frames = Integer.parseInt(args[i]);
+		}
+	    } else if (args[i].equals("-fraction")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    frame_fraction = Double.parseDouble(args[i]);
+		}
+	    } else if (args[i].equals("-runs")) {
+		if (i + 1 < args.length) {
+		    i++;
+		    n_runs = Integer.parseInt(args[i]);
+		}
+	    } else if (args[i].equals("-v")) {
+		verbose = true;
+	    }
+	}
+
+	if (dbPath.length() == 0 || tableName.length() == 0 ||
+	    geomName.length() == 0) {
+	    System.out.println("Spatial bounding box query benchmark\n\n" +
+			       "usage:\n\njava jsqlite.SpatialQueryBenchmark " +
+			       "-db [path_to_db] \\\n    " +
+			       "-table [table_name] " +
+			       "-geom [geometry_column] \\\n    " +
+			       "[-v] [-frames N] [-fraction F] [-runs N]\n");
+	    System.out.println("-v           verbose mode");
+	    System.out.println("-frames N    frames per run");
+	    System.out.println("-fraction F  frame size as fraction of " +
+			       "the table bounds");
+	    System.out.println("-runs N      runs per mode, the first " +
+			       "is a warmup");
+	    System.exit(1);
+	}
+
+	System.out.println("DB: " + dbPath);
+	System.out.println("Table: " + tableName + "(" + geomName + ")");
+	System.out.println("Number of frames: " + n_frames);
+	System.out.println("Frame fraction: " + frame_fraction);
+	System.out.println();
+
+	benchmark();
+    }
+
+    public void benchmark() {
+	Database db = new Database();
+	try {
+	    db.open(dbPath, Constants.SQLITE_OPEN_READONLY);
+	    readBounds(db);
+
+	    double[][] frames = createFrames();
+
+	    for (int run = 0; run < n_runs; run++) {
+		start_time = System.nanoTime();
+		runDirect(db, frames);
+		reportDone("<direct queries>", run == 0);
+
+		start_time = System.nanoTime();
+		runPrepared(db, frames);
+		reportDone("<prepared statements>", run == 0);
+	    }
+	} catch (java.lang.Exception e) {
+	    System.out.println(e.getMessage());
+	    e.printStackTrace();
+	} finally {
+	    try {
+		db.close();
+	    } catch (Exception e) {
+		// ignore
+	    }
+	}
+    }
+
+    void readBounds(Database db) throws Exception {
+	Stmt stmt = db.prepare("SELECT Min(MbrMinX(" + geomName +
+			       ")), Min(MbrMinY(" + geomName +
+			       ")), Max(MbrMaxX(" + geomName +
+			       ")), Max(MbrMaxY(" + geomName +
+			       ")) FROM \"" + tableName + "\"");
+	try {
+	    if (!stmt.step()) {
+		throw new Exception("Could not read the table bounds.");
+	    }
+	    minX = stmt.column_double(0);
+	    minY = stmt.column_double(1);
+	    maxX = stmt.column_double(2);
+	    maxY = stmt.column_double(3);
+	} finally {
+	    stmt.close();
+	}
+	if (verbose) {
+	    System.out.println("Bounds: " + minX + "," + minY + " - " +
+			       maxX + "," + maxY);
+	}
+    }
+
+    /*
+     * a random walk over the bounds, as done by a user panning the map
+     */
+    double[][] createFrames() {
+	Random random = new Random(1234);
+	double width = (maxX - minX) * frame_fraction;
+	double height = (maxY - minY) * frame_fraction;
+	double x = minX + (maxX - minX) / 2.0;
+	double y = minY + (maxY - minY) / 2.0;
+	double[][] frames = new double[n_frames][];
+	for (int i = 0; i < n_frames; i++) {
+	    x += (random.nextDouble() - 0.5) * width * 0.2;
+	    y += (random.nextDouble() - 0.5) * height * 0.2;
+	    x = Math.max(minX, Math.min(maxX - width, x));
+	    y = Math.max(minY, Math.min(maxY - height, y));
+	    frames[i] = new double[]{x, y, x + width, y + height};
+	}
+	return frames;
+    }
+
+    String mbr(String w, String s, String e, String n) {
+	return "BuildMBR(" + w + "," + s + "," + e + "," + n + ")";
+    }
+
+    String query(String mbr) {
+	return "SELECT ST_AsBinary(CastToXY(" + geomName + ")) FROM \"" +
+	    tableName + "\" WHERE ST_Intersects(" + geomName + ", " + mbr +
+	    ") = 1 AND ROWID IN (SELECT ROWID FROM Spatialindex " +
+	    "WHERE f_table_name ='" + tableName + "' AND " +
+	    "f_geometry_column = '" + geomName + "' AND search_frame = " +
+	    mbr + ");";
+    }
+
+    void runDirect(Database db, double[][] frames) throws Exception {
+	for (int i = 0; i < frames.length; i++) {
+	    double[] f = frames[i];
+	    String sql = query(mbr(String.valueOf(f[0]), String.valueOf(f[1]),
+				   String.valueOf(f[2]),
+				   String.valueOf(f[3])));
+	    long t = System.nanoTime();
+	    Stmt stmt = db.prepare(sql);
+	    prepare_time += System.nanoTime() - t;
+	    try {
+		while (stmt.step()) {
+		    stmt.column_bytes(0);
+		    row_count++;
+		}
+	    } finally {
+		stmt.close();
+	    }
+	}
+    }
+
+    void runPrepared(Database db, double[][] frames) throws Exception {
+	long t = System.nanoTime();
+	Stmt stmt = db.prepare(query(mbr("?1", "?2", "?3", "?4")));
+	prepare_time += System.nanoTime() - t;
+	try {
+	    for (int i = 0; i < frames.length; i++) {
+		double[] f = frames[i];
+		t = System.nanoTime();
+		stmt.reset();
+		stmt.clear_bindings();
+		stmt.bind(1, f[0]);
+		stmt.bind(2, f[1]);
+		stmt.bind(3, f[2]);
+		stmt.bind(4, f[3]);
+		prepare_time += System.nanoTime() - t;
+		while (stmt.step()) {
+		    stmt.column_bytes(0);
+		    row_count++;
+		}
+	    }
+	} finally {
+	    stmt.close();
+	}
+    }
+
+    public void reportDone(String mode, boolean warmup) {
+	long end_time = System.nanoTime();
+	double completion_time = (end_time - start_time) / 1000000.0;
+
+	if (warmup && !verbose) {
+	    prepare_time = 0;
+	    row_count = 0;
+	    return;
+	}
+	System.out.println("\n* Benchmark Report *");
+	System.out.print("* Featuring " + mode);
+	if (warmup) {
+	    System.out.print(" <warmup>");
+	}
+	System.out.println("\n--------------------");
+	System.out.println("Time to draw " + n_frames + " frames: " +
+			   completion_time + " ms.");
+	System.out.println("Time per frame: " +
+			   (completion_time / n_frames) + " ms.");
+	System.out.println("Prepare/rebind per frame: " +
+			   (prepare_time / 1000000.0 / n_frames) + " ms.");
+	System.out.println("Rows per frame: " +
+			   ((double) row_count / n_frames));
+	prepare_time = 0;
+	row_count = 0;
+	System.gc();
+    }
+}
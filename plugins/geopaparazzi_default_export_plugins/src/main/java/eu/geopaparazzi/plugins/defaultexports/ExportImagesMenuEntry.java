@@ -83,15 +83,22 @@ public class ExportImagesMenuEntry extends MenuEntry {
                     try {
                         for (int i = 0; i < imagesList.size(); i++) {
                             Image image = imagesList.get(i);
+                            File imageFile = new File(outFolder, image.getName());
                             try {
-                                byte[] imageData = imageHelper.getImageData(image.getId());
-                                File imageFile = new File(outFolder, image.getName());
-
+                                long written;
                                 FileOutputStream fos = new FileOutputStream(imageFile);
-                                fos.write(imageData);
-                                fos.close();
+                                try {
+                                    written = imageHelper.writeImageData(image.getId(), fos);
+                                } finally {
+                                    fos.close();
+                                }
+                                if (written < 0) {
+                                    // the image has no data, do not leave an empty file
+                                    imageFile.delete();
+                                }
                             } catch (IOException e) {
                                 GPLog.error(this, "For file: " + image.getName(), e);
+                                imageFile.delete();
                             } finally {
                                 publishProgress(i);
                             }
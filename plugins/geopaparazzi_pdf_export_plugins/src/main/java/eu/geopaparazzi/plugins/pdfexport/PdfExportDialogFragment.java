@@ -22,6 +22,7 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.database.Cursor;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
@@ -40,25 +41,26 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
 
 import eu.geopaparazzi.core.R;
-import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.core.database.DaoNoteFormFields;
 import eu.geopaparazzi.core.database.DaoNotes;
+import eu.geopaparazzi.core.database.objects.FormField;
 import eu.geopaparazzi.core.database.objects.Note;
 import eu.geopaparazzi.library.core.ResourcesManager;
 import eu.geopaparazzi.library.database.GPLog;
-import eu.geopaparazzi.library.database.Image;
 import eu.geopaparazzi.library.forms.FormUtilities;
-import eu.geopaparazzi.library.forms.TagsManager;
 import eu.geopaparazzi.library.util.TimeUtilities;
-import eu.geopaparazzi.library.util.Utilities;
 
 
 /**
@@ -70,6 +72,10 @@ public class PdfExportDialogFragment extends DialogFragment {
     public static final String NODATA = "NODATA";
     public static final String PDF_PATH = "exportPath";
     public static final String INTERRUPTED = "INTERRUPTED";
+    /**
+     * The number of notes prepared ahead of the one being written.
+     */
+    private static final int NOTES_LOOKAHEAD = 4;
     private ProgressBar progressBar;
     private String exportPath;
 
@@ -136,16 +142,19 @@ public class PdfExportDialogFragment extends DialogFragment {
     private void startExport() {
         final Context context = getContext();
 
-        new AsyncTask<String, Void, String>() {
+        new AsyncTask<String, Long, String>() {
+            private long startTime;
+
             protected String doInBackground(String... params) {
                 File pdfOutputFile = null;
+                Cursor notesCursor = null;
+                ReportImageLoader imageLoader = null;
                 try {
-                    boolean hasAtLeastOne = false;
                     /*
                      * get notes
                      */
-                    List<Note> notesList = DaoNotes.getNotesList(null, false);
-                    if (notesList.size() == 0) {
+                    long notesCount = DaoNotes.getFormNotesCount();
+                    if (notesCount == 0) {
                         return NODATA;
                     }
                     if (isInterrupted) return INTERRUPTED;
@@ -157,10 +166,9 @@ public class PdfExportDialogFragment extends DialogFragment {
                         pdfOutputFile = new File(exportPath);
                     }
 
-                    // TODO export list to pdf
                     Document document = new Document();
                     document.setMargins(36, 36, 36, 36);
-                    PdfWriter.getInstance(document, new FileOutputStream(pdfOutputFile));
+                    PdfWriter pdfWriter = PdfWriter.getInstance(document, new BufferedOutputStream(new FileOutputStream(pdfOutputFile)));
                     document.open();
 
                     document.addTitle("Geopaparazzi PDF Export");
@@ -169,9 +177,40 @@ public class PdfExportDialogFragment extends DialogFragment {
                     document.addAuthor("Geopaparazzi User");
                     document.addCreator("Geopaparazzi - http://www.geopaparazzi.eu");
 
+                    /*
+                     * the notes are read one at a time, while the images of the
+                     * next ones are already being prepared by the loader
+                     */
+                    startTime = System.currentTimeMillis();
+                    imageLoader = new ReportImageLoader();
+                    ArrayDeque<PreparedNote> preparedNotes = new ArrayDeque<>();
+                    notesCursor = DaoNotes.getFormNotesCursor();
                     int index = 1;
-                    for (Note note : notesList) {
-                        processNote(document, note, index++);
+                    long done = 0;
+                    while (notesCursor.moveToNext() || !preparedNotes.isEmpty()) {
+                        if (isInterrupted) {
+                            try {
+                                document.close();
+                            } catch (Exception e) {
+                                // ignore, the partial file is removed anyway
+                            }
+                            pdfOutputFile.delete();
+                            return INTERRUPTED;
+                        }
+                        if (!notesCursor.isAfterLast()) {
+                            Note note = DaoNotes.getNote(notesCursor);
+                            preparedNotes.add(prepareNote(note, imageLoader));
+                            if (preparedNotes.size() <= NOTES_LOOKAHEAD) {
+                                continue;
+                            }
+                        }
+                        PreparedNote preparedNote = preparedNotes.poll();
+                        if (writeNote(document, preparedNote, index)) {
+                            index++;
+                            pdfWriter.flush();
+                        }
+                        done++;
+                        publishProgress(done, notesCount);
                     }
 
                     document.close();
@@ -185,9 +224,28 @@ public class PdfExportDialogFragment extends DialogFragment {
                     GPLog.error(this, e.getLocalizedMessage(), e);
                     e.printStackTrace();
                     return ""; //$NON-NLS-1$
+                } finally {
+                    if (notesCursor != null)
+                        notesCursor.close();
+                    if (imageLoader != null)
+                        imageLoader.shutdown();
                 }
             }
 
+            protected void onProgressUpdate(Long... values) { // on UI thread!
+                long done = values[0];
+                long total = values[1];
+                progressBar.setIndeterminate(false);
+                progressBar.setMax((int) total);
+                progressBar.setProgress((int) done);
+
+                long elapsed = System.currentTimeMillis() - startTime;
+                long remainingSeconds = elapsed * (total - done) / done / 1000;
+                String eta = String.format(Locale.US, "%d:%02d", remainingSeconds / 60, remainingSeconds % 60);
+                alertDialog.setMessage(context.getString(eu.geopaparazzi.plugins.pdfexport.R.string.exporting_data_to_pdf) +
+                        "\n" + done + "/" + total + " - " + eta);
+            }
+
             protected void onPostExecute(String response) { // on UI thread!
                 progressBar.setVisibility(View.GONE);
 
@@ -209,149 +267,127 @@ public class PdfExportDialogFragment extends DialogFragment {
         }.execute((String) null);
     }
 
-    public void processNote(Document document, Note note, int count) throws Exception {
-        String name = Utilities.makeXmlSafe(note.getName());
-        String form = note.getForm();
+    /**
+     * A note with its form fields and the images being loaded for it.
+     */
+    private static class PreparedNote {
+        Note note;
+        List<FormField> formFields;
+        HashMap<FormField, List<Future<ReportImageLoader.ReportImage>>> images = new HashMap<>();
+    }
 
-        DaoImages daoImages = new DaoImages();
-        if (form != null && form.length() > 0) {
-            JSONObject sectionObject = new JSONObject(form);
-            if (!sectionObject.has(FormUtilities.ATTR_SECTIONNAME)) {
-                return;
+    private PreparedNote prepareNote(Note note, ReportImageLoader imageLoader) throws Exception {
+        PreparedNote preparedNote = new PreparedNote();
+        preparedNote.note = note;
+        preparedNote.formFields = DaoNoteFormFields.getFormFields(note.getId());
+        for (FormField formField : preparedNote.formFields) {
+            if (!formField.isImage()) {
+                continue;
             }
-            String sectionName = sectionObject.getString(FormUtilities.ATTR_SECTIONNAME);
-            Anchor anchor = new Anchor(sectionName);
-            anchor.setName(sectionName);
-            Chapter currentChapter = new Chapter(new Paragraph(anchor), count);
-            addEmptyLine(currentChapter, 3);
-
-            PdfPTable infoTable = new PdfPTable(2);
-            infoTable.setHeaderRows(0);
-            infoTable.setWidthPercentage(90);
-            currentChapter.add(infoTable);
-
-            addKeyValueToTableRow(infoTable, "Timestamp", new Date(note.getTimeStamp()).toString());
-            addKeyValueToTableRow(infoTable, "Latitude", note.getLat() + "");
-            addKeyValueToTableRow(infoTable, "Longitude", note.getLon() + "");
-
-            addEmptyLine(currentChapter, 3);
+            String value = formField.getValue();
+            if (value.trim().length() == 0) {
+                continue;
+            }
+            String[] imageIdsSplit;
+            if (formField.getType().equals(FormUtilities.TYPE_MAP)) {
+                imageIdsSplit = new String[]{value.trim()};
+            } else {
+                imageIdsSplit = value.split(Note.IMAGES_SEPARATOR);
+            }
+            List<Future<ReportImageLoader.ReportImage>> fieldImages = new ArrayList<>();
+            for (String imageId : imageIdsSplit) {
+                fieldImages.add(imageLoader.load(Long.parseLong(imageId)));
+            }
+            preparedNote.images.put(formField, fieldImages);
+        }
+        return preparedNote;
+    }
 
-            List<String> formsNames = TagsManager.getFormNames4Section(sectionObject);
-            for (String formName : formsNames) {
+    /**
+     * Write a note as chapter of the document.
+     *
+     * @return <code>true</code> if the note was written.
+     */
+    private boolean writeNote(Document document, PreparedNote preparedNote, int count) throws Exception {
+        Note note = preparedNote.note;
+        List<FormField> formFields = preparedNote.formFields;
+        if (formFields.size() == 0 || formFields.get(0).getSection() == null) {
+            return false;
+        }
+        String sectionName = formFields.get(0).getSection();
+        Anchor anchor = new Anchor(sectionName);
+        anchor.setName(sectionName);
+        Chapter currentChapter = new Chapter(new Paragraph(anchor), count);
+        addEmptyLine(currentChapter, 3);
+
+        PdfPTable infoTable = new PdfPTable(2);
+        infoTable.setHeaderRows(0);
+        infoTable.setWidthPercentage(90);
+        currentChapter.add(infoTable);
+
+        addKeyValueToTableRow(infoTable, "Timestamp", new Date(note.getTimeStamp()).toString());
+        addKeyValueToTableRow(infoTable, "Latitude", note.getLat() + "");
+        addKeyValueToTableRow(infoTable, "Longitude", note.getLon() + "");
+
+        addEmptyLine(currentChapter, 3);
+
+        String currentFormName = null;
+        PdfPTable currentTable = null;
+        for (FormField formField : formFields) {
+            String formName = formField.getForm();
+            if (currentTable == null || !formName.equals(currentFormName)) {
+                currentFormName = formName;
                 Paragraph section = new Paragraph(formName);
                 currentChapter.addSection(section);
                 addEmptyLine(currentChapter, 3);
 
-                PdfPTable currentTable = new PdfPTable(2);
+                currentTable = new PdfPTable(2);
                 currentTable.setHeaderRows(1);
                 currentTable.setWidthPercentage(90);
                 currentChapter.add(currentTable);
+            }
 
-                JSONObject form4Name = TagsManager.getForm4Name(formName, sectionObject);
-                JSONArray formItems = TagsManager.getFormItems(form4Name);
-                for (int i = 0; i < formItems.length(); i++) {
-                    JSONObject formItem = formItems.getJSONObject(i);
-                    if (!formItem.has(FormUtilities.TAG_KEY)) {
+            String label = formField.getLabel();
+            if (formField.isImage()) {
+                List<Future<ReportImageLoader.ReportImage>> fieldImages = preparedNote.images.get(formField);
+                if (fieldImages == null) {
+                    continue;
+                }
+                for (Future<ReportImageLoader.ReportImage> fieldImage : fieldImages) {
+                    ReportImageLoader.ReportImage reportImage = fieldImage.get();
+                    if (reportImage.data == null) {
+                        GPLog.addLogEntry(this, "Image not found for the pdf export: " + reportImage.name);
                         continue;
                     }
-
-                    String type = formItem.getString(FormUtilities.TAG_TYPE);
-                    String key = formItem.getString(FormUtilities.TAG_KEY);
-                    String value = formItem.getString(FormUtilities.TAG_VALUE);
-
-                    String label = key;
-                    if (formItem.has(FormUtilities.TAG_LABEL)) {
-                        label = formItem.getString(FormUtilities.TAG_LABEL);
-                    }
-
-                    if (type.equals(FormUtilities.TYPE_PICTURES)) {
-                        if (value.trim().length() == 0) {
-                            continue;
-                        }
-                        String[] imageIdsSplit = value.split(Note.IMAGES_SEPARATOR);
-                        for (String imageId : imageIdsSplit) {
-                            Image image = daoImages.getImage(Long.parseLong(imageId));
-                            String imgName = image.getName();
-                            byte[] imageData = daoImages.getImageData(Long.parseLong(imageId));
-                            com.itextpdf.text.Image itextImage = com.itextpdf.text.Image.getInstance(imageData);
-                            Paragraph caption = new Paragraph(imgName);
-                            caption.setAlignment(Element.ALIGN_CENTER);
-
-                            PdfPCell keyCell = new PdfPCell(new Phrase(label));
-                            keyCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                            keyCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                            keyCell.setPadding(10);
-                            currentTable.addCell(keyCell);
-                            PdfPCell valueCell = new PdfPCell();
-                            valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                            valueCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                            valueCell.setPadding(10);
-                            valueCell.addElement(itextImage);
-                            valueCell.addElement(caption);
-                            currentTable.addCell(valueCell);
-                        }
-                    } else if (type.equals(FormUtilities.TYPE_MAP)) {
-                        if (value.trim().length() == 0) {
-                            continue;
-                        }
-                        String imageId = value.trim();
-                        Image image = daoImages.getImage(Long.parseLong(imageId));
-                        String imgName = image.getName();
-                        byte[] imageData = daoImages.getImageData(Long.parseLong(imageId));
-                        com.itextpdf.text.Image itextImage = com.itextpdf.text.Image.getInstance(imageData);
-                        Paragraph caption = new Paragraph(imgName);
-                        caption.setAlignment(Element.ALIGN_CENTER);
-
-                        PdfPCell keyCell = new PdfPCell(new Phrase(label));
-                        keyCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                        keyCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                        keyCell.setPadding(10);
-                        currentTable.addCell(keyCell);
-                        PdfPCell valueCell = new PdfPCell();
-                        valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                        valueCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                        valueCell.setPadding(10);
-                        valueCell.addElement(itextImage);
-                        valueCell.addElement(caption);
-                        currentTable.addCell(valueCell);
-                    } else if (type.equals(FormUtilities.TYPE_SKETCH)) {
-                        if (value.trim().length() == 0) {
-                            continue;
-                        }
-                        String[] imageIdsSplit = value.split(Note.IMAGES_SEPARATOR);
-                        for (String imageId : imageIdsSplit) {
-                            Image image = daoImages.getImage(Long.parseLong(imageId));
-                            String imgName = image.getName();
-                            byte[] imageData = daoImages.getImageData(Long.parseLong(imageId));
-                            com.itextpdf.text.Image itextImage = com.itextpdf.text.Image.getInstance(imageData);
-                            Paragraph caption = new Paragraph(imgName);
-                            caption.setAlignment(Element.ALIGN_CENTER);
-
-                            PdfPCell keyCell = new PdfPCell(new Phrase(label));
-                            keyCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                            keyCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                            keyCell.setPadding(10);
-                            currentTable.addCell(keyCell);
-                            PdfPCell valueCell = new PdfPCell();
-                            valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                            valueCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                            valueCell.setPadding(10);
-                            valueCell.addElement(itextImage);
-                            valueCell.addElement(caption);
-                            currentTable.addCell(valueCell);
-                        }
-                    } else {
-                        addKeyValueToTableRow(currentTable, label, value);
-                    }
+                    addImageToTableRow(currentTable, label, reportImage);
                 }
+            } else {
+                addKeyValueToTableRow(currentTable, label, formField.getValue());
             }
-
-            document.add(currentChapter);
-            document.newPage();
-
         }
 
+        document.add(currentChapter);
+        document.newPage();
+        return true;
+    }
+
+    private void addImageToTableRow(PdfPTable table, String label, ReportImageLoader.ReportImage reportImage) throws Exception {
+        com.itextpdf.text.Image itextImage = com.itextpdf.text.Image.getInstance(reportImage.data);
+        Paragraph caption = new Paragraph(reportImage.name);
+        caption.setAlignment(Element.ALIGN_CENTER);
 
+        PdfPCell keyCell = new PdfPCell(new Phrase(label));
+        keyCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        keyCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        keyCell.setPadding(10);
+        table.addCell(keyCell);
+        PdfPCell valueCell = new PdfPCell();
+        valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        valueCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        valueCell.setPadding(10);
+        valueCell.addElement(itextImage);
+        valueCell.addElement(caption);
+        table.addCell(valueCell);
     }
 
     private void addKeyValueToTableRow(PdfPTable table, String key, String value) {
@@ -0,0 +1,144 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.plugins.pdfexport;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.geopaparazzi.core.database.DaoImages;
+import eu.geopaparazzi.library.database.Image;
+import eu.geopaparazzi.library.images.ImageUtilities;
+
+/**
+ * Loads the images of a report on a small pool of workers.
+ * <p>
+ * <p>Images are read from the database, downsampled to the size they are printed with and
+ * encoded again, so that the pdf writer only ever gets small images and the full resolution
+ * data is held by the workers only while they are scaling it. Opaque images are encoded as
+ * jpeg, images with transparency, as sketches, as png. Images that are already small
+ * enough are passed on unchanged.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class ReportImageLoader {
+
+    /**
+     * The maximum size in pixels of the longest side of the report images.
+     */
+    public static final int MAX_IMAGE_SIZE = 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    private final DaoImages daoImages = new DaoImages();
+    private final ExecutorService executor;
+
+    /**
+     * A loaded image.
+     */
+    public static class ReportImage {
+        public final String name;
+        public final byte[] data;
+
+        ReportImage(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    public ReportImageLoader() {
+        int threads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Schedule the loading of an image.
+     *
+     * @param imageId the id of the image.
+     * @return the future image. Its data is <code>null</code> if the image does not exist.
+     */
+    public Future<ReportImage> load(final long imageId) {
+        return executor.submit(new Callable<ReportImage>() {
+            @Override
+            public ReportImage call() throws Exception {
+                Image image = daoImages.getImage(imageId);
+                if (image == null) {
+                    return new ReportImage(String.valueOf(imageId), null);
+                }
+                byte[] imageData = daoImages.getImageData(imageId);
+                return new ReportImage(image.getName(), downsample(imageData));
+            }
+        });
+    }
+
+    private static byte[] downsample(byte[] imageData) {
+        if (imageData == null)
+            return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        int width = options.outWidth;
+        int height = options.outHeight;
+        if (width <= 0 || height <= 0 || Math.max(width, height) <= MAX_IMAGE_SIZE) {
+            // not decodable here or already small, let the pdf writer handle it
+            return imageData;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ImageUtilities.calculateInSampleSize(options, MAX_IMAGE_SIZE, MAX_IMAGE_SIZE);
+        Bitmap bitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        if (bitmap == null)
+            return imageData;
+        try {
+            int sampledMax = Math.max(bitmap.getWidth(), bitmap.getHeight());
+            if (sampledMax > MAX_IMAGE_SIZE) {
+                float scale = (float) MAX_IMAGE_SIZE / sampledMax;
+                Bitmap scaled = Bitmap.createScaledBitmap(bitmap, Math.round(bitmap.getWidth() * scale),
+                        Math.round(bitmap.getHeight() * scale), true);
+                if (scaled != bitmap) {
+                    bitmap.recycle();
+                    bitmap = scaled;
+                }
+            }
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            if (bitmap.hasAlpha()) {
+                // jpeg has no alpha channel, the transparent areas would come out black
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, bout);
+            } else {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, bout);
+            }
+            return bout.toByteArray();
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Stop the workers. Pending loads are cancelled.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}